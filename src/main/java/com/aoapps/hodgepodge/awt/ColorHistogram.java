@@ -0,0 +1,276 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.awt;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the use of each color with an open-addressing hash table of primitive
+ * {@code int} colors to {@code int} counts.  A count of zero marks an empty slot.
+ *
+ * <p>This class is not thread safe.  Images are counted in parallel by building
+ * one histogram per band of rows, which are then merged.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class ColorHistogram {
+
+  /**
+   * The minimum number of pixels counted by each task.
+   */
+  private static final int MIN_BAND_PIXELS = 1 << 16;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private int[] colors;
+  private int[] counts;
+  private int mask;
+  private int size;
+
+  ColorHistogram() {
+    colors = new int[INITIAL_CAPACITY];
+    counts = new int[INITIAL_CAPACITY];
+    mask = INITIAL_CAPACITY - 1;
+  }
+
+  private static int hash(int color) {
+    int h = color * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Adds to the count of the given color.
+   *
+   * @param  count  must be greater than zero
+   */
+  void add(int color, int count) {
+    int index = hash(color) & mask;
+    while (true) {
+      int existing = counts[index];
+      if (existing == 0) {
+        colors[index] = color;
+        counts[index] = count;
+        if (++size > (mask >>> 1)) {
+          grow();
+        }
+        return;
+      }
+      if (colors[index] == color) {
+        counts[index] = existing + count;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /**
+   * Gets the count of the given color.
+   *
+   * @return  the count or zero when not found
+   */
+  int get(int color) {
+    int index = hash(color) & mask;
+    while (true) {
+      int count = counts[index];
+      if (count == 0 || colors[index] == color) {
+        return count;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void grow() {
+    int[] oldColors = colors;
+    int[] oldCounts = counts;
+    int capacity = oldColors.length << 1;
+    colors = new int[capacity];
+    counts = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldCounts.length; i++) {
+      int count = oldCounts[i];
+      if (count != 0) {
+        int index = hash(oldColors[i]) & mask;
+        while (counts[index] != 0) {
+          index = (index + 1) & mask;
+        }
+        colors[index] = oldColors[i];
+        counts[index] = count;
+      }
+    }
+  }
+
+  /**
+   * Adds all of the counts from another histogram.
+   */
+  void addAll(ColorHistogram other) {
+    int[] otherColors = other.colors;
+    int[] otherCounts = other.counts;
+    for (int i = 0; i < otherCounts.length; i++) {
+      int count = otherCounts[i];
+      if (count != 0) {
+        add(otherColors[i], count);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of distinct colors.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Gets the distinct colors, in the same order as {@link #getCounts()}.
+   */
+  int[] getColors() {
+    int[] result = new int[size];
+    int pos = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        result[pos++] = colors[i];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the counts, in the same order as {@link #getColors()}.
+   */
+  int[] getCounts() {
+    int[] result = new int[size];
+    int pos = 0;
+    for (int count : counts) {
+      if (count != 0) {
+        result[pos++] = count;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the pixels of one row, in the default ARGB color model, into the given buffer.
+   * Integer packed images are read directly from their raster, skipping the per-pixel
+   * color model conversion of {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+   */
+  static void getRow(BufferedImage image, int y, int[] row) {
+    int width = row.length;
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_ARGB: {
+        Raster raster = image.getRaster();
+        raster.getDataElements(0, y, width, 1, row);
+        break;
+      }
+      case BufferedImage.TYPE_INT_RGB: {
+        Raster raster = image.getRaster();
+        raster.getDataElements(0, y, width, 1, row);
+        for (int x = 0; x < width; x++) {
+          row[x] |= 0xff000000;
+        }
+        break;
+      }
+      default:
+        image.getRGB(0, y, width, 1, row, 0, width);
+    }
+  }
+
+  /**
+   * Counts the colors in a range of rows, splitting in half while large enough.
+   */
+  private static final class Band extends RecursiveTask<ColorHistogram> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient BufferedImage image;
+    private final int fromY;
+    private final int toY;
+
+    private Band(BufferedImage image, int fromY, int toY) {
+      this.image = image;
+      this.fromY = fromY;
+      this.toY = toY;
+    }
+
+    @Override
+    protected ColorHistogram compute() {
+      int width = image.getWidth();
+      int rows = toY - fromY;
+      if (rows < 2 || (long) width * rows < 2L * MIN_BAND_PIXELS) {
+        ColorHistogram histogram = new ColorHistogram();
+        int[] row = new int[width];
+        for (int y = fromY; y < toY; y++) {
+          getRow(image, y, row);
+          // Consecutive pixels are often the same color
+          int runColor = 0;
+          int runLength = 0;
+          for (int color : row) {
+            if (runLength != 0 && color == runColor) {
+              runLength++;
+            } else {
+              if (runLength != 0) {
+                histogram.add(runColor, runLength);
+              }
+              runColor = color;
+              runLength = 1;
+            }
+          }
+          if (runLength != 0) {
+            histogram.add(runColor, runLength);
+          }
+        }
+        return histogram;
+      } else {
+        int middle = (fromY + toY) >>> 1;
+        Band bottom = new Band(image, middle, toY);
+        bottom.fork();
+        ColorHistogram top = new Band(image, fromY, middle).compute();
+        ColorHistogram merged = bottom.join();
+        // Merge the smaller into the larger
+        if (merged.size() > top.size()) {
+          merged.addAll(top);
+          return merged;
+        } else {
+          top.addAll(merged);
+          return top;
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the use of each color in the image, in parallel on the given pool
+   * for large images.
+   */
+  static ColorHistogram of(BufferedImage image, ForkJoinPool pool) {
+    Band band = new Band(image, 0, image.getHeight());
+    if ((long) image.getWidth() * image.getHeight() < 2L * MIN_BAND_PIXELS) {
+      return band.compute();
+    } else {
+      return pool.invoke(band);
+    }
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2000, 2001, 2002, 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2016, 2019, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2000, 2001, 2002, 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2016, 2019, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,143 +25,367 @@ package com.aoapps.hodgepodge.awt;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.IndexColorModel;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Generates a 255 + alpha IndexColorModel to best match a BufferedImage.
  *
+ * <p>Colors are counted in a primitive histogram, in parallel for large images.
+ * {@link #getOptimalIndexColorModel(java.awt.image.BufferedImage)} selects the
+ * most used colors, while {@link #getMedianCutIndexColorModel(java.awt.image.BufferedImage)}
+ * quantizes all colors by median cut, which is better suited to photographic images.
+ * {@link #getIndexedImage(java.awt.image.BufferedImage, java.awt.image.IndexColorModel)}
+ * remaps an image onto the nearest colors of a palette.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public class OptimalIndexColorModel extends IndexColorModel {
 
-  static class ColorCount {
+  /**
+   * The minimum brightness for a color to be dropped.
+   */
+  private static final int DROP_THRESHOLD = 96;
 
-    int color;
-    int count;
+  /**
+   * The offset used to keep the dark colors in the image.
+   */
+  private static final int DROP_OFFSET = 1000;
 
-    ColorCount(int color) {
-      this.color = color;
-    }
+  /**
+   * The maximum number of colors in the palette.
+   */
+  private static final int MAX_COLORS = 256;
 
-    @Override
-    public boolean equals(Object obj) {
-      return
-          (obj instanceof ColorCount)
-              && ((ColorCount) obj).color == color;
-    }
+  private OptimalIndexColorModel(int size, byte[] r, byte[] g, byte[] b, int trans) {
+    super(8, size, r, g, b, trans);
+  }
+
+  private static OptimalIndexColorModel newInstance(int[] palette, int numColorsUsed) {
+    byte[] r = new byte[numColorsUsed];
+    byte[] g = new byte[numColorsUsed];
+    byte[] b = new byte[numColorsUsed];
+
+    int transparentIndex = -1;
 
-    @Override
-    public int hashCode() {
-      return color;
+    for (int c = 0; c < numColorsUsed; c++) {
+      int color = palette[c];
+      /*byte red=*/ r[c] = (byte) ((color >>> 16) & 255);
+      /*byte green=*/ g[c] = (byte) ((color >>> 8) & 255);
+      /*byte blue=*/ b[c] = (byte) (color & 255);
+      // TODO: transparency not distinguished properly:
+      // if (transparent_index == -1 && red == -1 && green == -1 && blue == -1) {
+      //   transparent_index = c;
+      // }
     }
+    return new OptimalIndexColorModel(numColorsUsed, r, g, b, transparentIndex);
   }
 
   /**
-   * Sorted by count descending.
+   * Selects the most used colors, counting colors in parallel on the common pool.
+   *
+   * @see  #getOptimalIndexColorModel(java.awt.image.BufferedImage, java.util.concurrent.ForkJoinPool)
    */
-  static final class ColorCountCountComparator implements Comparator<ColorCount> {
-
-    private static final ColorCountCountComparator instance = new ColorCountCountComparator();
-
-    static ColorCountCountComparator getInstance() {
-      return instance;
-    }
+  public static OptimalIndexColorModel getOptimalIndexColorModel(BufferedImage image) {
+    return getOptimalIndexColorModel(image, ForkJoinPool.commonPool());
+  }
 
-    private ColorCountCountComparator() {
-      // Do nothing
-    }
+  /**
+   * Selects the most used colors, counting colors in parallel on the given pool.
+   * Dark colors are favored to keep text and edges in the image.
+   */
+  public static OptimalIndexColorModel getOptimalIndexColorModel(BufferedImage image, ForkJoinPool pool) {
+    // Count the use of each color in the image
+    ColorHistogram histogram = ColorHistogram.of(image, pool);
+    int[] colors = histogram.getColors();
+    int[] counts = histogram.getCounts();
 
-    @Override
-    public int compare(ColorCount o1, ColorCount o2) {
-      return o1.count - o2.count;
+    // Keep the top 256 in a min-heap, each entry the count in the high 32 bits and the color in the low 32 bits
+    int numColorsUsed = Math.min(colors.length, MAX_COLORS);
+    long[] heap = new long[numColorsUsed];
+    int heapSize = 0;
+    for (int i = 0; i < colors.length; i++) {
+      int color = colors[i];
+      long count = counts[i];
+      // Add 1000 to the counts for those less than DROP_THRESHOLD brightness
+      int brightness = Math.max(
+          (color >>> 16) & 255,
+          Math.max(
+              (color >>> 8) & 255,
+              color & 255
+          )
+      );
+      if (brightness < DROP_THRESHOLD) {
+        count += DROP_OFFSET;
+      }
+      long entry = (Math.min(count, Integer.MAX_VALUE) << 32) | (color & 0xffffffffL);
+      if (heapSize < numColorsUsed) {
+        // Sift up
+        int pos = heapSize++;
+        while (pos > 0) {
+          int parent = (pos - 1) >>> 1;
+          if (heap[parent] <= entry) {
+            break;
+          }
+          heap[pos] = heap[parent];
+          pos = parent;
+        }
+        heap[pos] = entry;
+      } else if (entry > heap[0]) {
+        siftDown(heap, heapSize, entry);
+      }
     }
 
-    @Override
-    public boolean equals(Object obj) {
-      return obj instanceof ColorCountCountComparator;
+    // Sort based on number of times the pixels were used (most used on top)
+    int[] palette = new int[numColorsUsed];
+    for (int c = numColorsUsed - 1; c >= 0; c--) {
+      palette[c] = (int) heap[0];
+      if (--heapSize > 0) {
+        siftDown(heap, heapSize, heap[heapSize]);
+      }
     }
+    return newInstance(palette, numColorsUsed);
+  }
 
-    @Override
-    public int hashCode() {
-      return 1;
+  /**
+   * Replaces the top of the heap, moving down to restore the heap order.
+   */
+  private static void siftDown(long[] heap, int heapSize, long entry) {
+    int pos = 0;
+    while (true) {
+      int child = (pos << 1) + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (entry <= heap[child]) {
+        break;
+      }
+      heap[pos] = heap[child];
+      pos = child;
     }
+    heap[pos] = entry;
   }
 
   /**
-   * The minimum brightness for a color to be dropped.
+   * Quantizes the colors by median cut, counting colors in parallel on the common pool.
+   *
+   * @see  #getMedianCutIndexColorModel(java.awt.image.BufferedImage, java.util.concurrent.ForkJoinPool)
    */
-  private static final int DROP_THRESHOLD = 96;
+  public static OptimalIndexColorModel getMedianCutIndexColorModel(BufferedImage image) {
+    return getMedianCutIndexColorModel(image, ForkJoinPool.commonPool());
+  }
 
   /**
-   * The offset used to keep the dark colors in the image.
+   * Quantizes the colors by median cut, counting colors in parallel on the given pool.
+   * The box of colors with the greatest product of pixel count and channel range is
+   * repeatedly split at the weighted median of its widest channel, until there are
+   * 256 boxes or no box may be split.  Each palette color is the weighted average of
+   * its box.
    */
-  private static final int DROP_OFFSET = 1000;
-
-  private OptimalIndexColorModel(int size, byte[] r, byte[] g, byte[] b, int trans) {
-    super(8, size, r, g, b, trans);
+  public static OptimalIndexColorModel getMedianCutIndexColorModel(BufferedImage image, ForkJoinPool pool) {
+    ColorHistogram histogram = ColorHistogram.of(image, pool);
+    int[] colors = histogram.getColors();
+    int[] counts = histogram.getCounts();
+    final int numColors = colors.length;
+    int[] boxStart = new int[MAX_COLORS];
+    int[] boxEnd = new int[MAX_COLORS];
+    // The shift of the widest channel and the score, zero when may not be split
+    int[] boxShift = new int[MAX_COLORS];
+    long[] boxScore = new long[MAX_COLORS];
+    int numBoxes = 0;
+    if (numColors > 0) {
+      boxEnd[0] = numColors;
+      measureBox(colors, counts, boxStart, boxEnd, boxShift, boxScore, 0);
+      numBoxes = 1;
+    }
+    int[] sortedColors = new int[numColors];
+    int[] sortedCounts = new int[numColors];
+    while (numBoxes < MAX_COLORS) {
+      int box = -1;
+      long bestScore = 0;
+      for (int i = 0; i < numBoxes; i++) {
+        if (boxScore[i] > bestScore) {
+          box = i;
+          bestScore = boxScore[i];
+        }
+      }
+      if (box == -1) {
+        break;
+      }
+      // Counting sort the box by its widest channel, weighing each value by pixel count
+      final int start = boxStart[box];
+      final int end = boxEnd[box];
+      final int shift = boxShift[box];
+      int[] bucketSizes = new int[257];
+      long[] bucketPixels = new long[256];
+      long totalPixels = 0;
+      for (int i = start; i < end; i++) {
+        int value = (colors[i] >>> shift) & 255;
+        bucketSizes[value + 1]++;
+        bucketPixels[value] += counts[i];
+        totalPixels += counts[i];
+      }
+      for (int value = 0; value < 256; value++) {
+        bucketSizes[value + 1] += bucketSizes[value];
+      }
+      int[] positions = bucketSizes.clone();
+      for (int i = start; i < end; i++) {
+        int pos = start + positions[(colors[i] >>> shift) & 255]++;
+        sortedColors[pos] = colors[i];
+        sortedCounts[pos] = counts[i];
+      }
+      System.arraycopy(sortedColors, start, colors, start, end - start);
+      System.arraycopy(sortedCounts, start, counts, start, end - start);
+      // Split after the value where half of the pixels are reached, keeping at least one value on each side
+      int minValue = (colors[start] >>> shift) & 255;
+      int maxValue = (colors[end - 1] >>> shift) & 255;
+      long pixels = 0;
+      int splitValue = minValue;
+      for (int value = minValue; value < maxValue; value++) {
+        pixels += bucketPixels[value];
+        splitValue = value;
+        if (pixels * 2 >= totalPixels) {
+          break;
+        }
+      }
+      int split = start + bucketSizes[splitValue + 1];
+      boxEnd[box] = split;
+      measureBox(colors, counts, boxStart, boxEnd, boxShift, boxScore, box);
+      boxStart[numBoxes] = split;
+      boxEnd[numBoxes] = end;
+      measureBox(colors, counts, boxStart, boxEnd, boxShift, boxScore, numBoxes);
+      numBoxes++;
+    }
+    // Average each box
+    int[] palette = new int[numBoxes];
+    for (int box = 0; box < numBoxes; box++) {
+      long red = 0;
+      long green = 0;
+      long blue = 0;
+      long pixels = 0;
+      for (int i = boxStart[box]; i < boxEnd[box]; i++) {
+        int color = colors[i];
+        long count = counts[i];
+        red += ((color >>> 16) & 255) * count;
+        green += ((color >>> 8) & 255) * count;
+        blue += (color & 255) * count;
+        pixels += count;
+      }
+      long half = pixels >>> 1;
+      palette[box] =
+          (int) ((red + half) / pixels) << 16
+              | (int) ((green + half) / pixels) << 8
+              | (int) ((blue + half) / pixels);
+    }
+    return newInstance(palette, numBoxes);
   }
 
-  public static OptimalIndexColorModel getOptimalIndexColorModel(BufferedImage image) {
-    // Sorted by color
-    Map<Integer, ColorCount> colorCounts = new HashMap<>();
+  /**
+   * Finds the widest channel of a box and its score for splitting.
+   */
+  private static void measureBox(int[] colors, int[] counts, int[] boxStart, int[] boxEnd, int[] boxShift, long[] boxScore, int box) {
+    int minRed = 255;
+    int maxRed = 0;
+    int minGreen = 255;
+    int maxGreen = 0;
+    int minBlue = 255;
+    int maxBlue = 0;
+    long pixels = 0;
+    for (int i = boxStart[box], end = boxEnd[box]; i < end; i++) {
+      int color = colors[i];
+      int red = (color >>> 16) & 255;
+      int green = (color >>> 8) & 255;
+      int blue = color & 255;
+      minRed = Math.min(minRed, red);
+      maxRed = Math.max(maxRed, red);
+      minGreen = Math.min(minGreen, green);
+      maxGreen = Math.max(maxGreen, green);
+      minBlue = Math.min(minBlue, blue);
+      maxBlue = Math.max(maxBlue, blue);
+      pixels += counts[i];
+    }
+    int range = maxGreen - minGreen;
+    int shift = 8;
+    if (maxRed - minRed > range) {
+      range = maxRed - minRed;
+      shift = 16;
+    }
+    if (maxBlue - minBlue > range) {
+      range = maxBlue - minBlue;
+      shift = 0;
+    }
+    boxShift[box] = shift;
+    boxScore[box] = range * pixels;
+  }
 
-    // Count the use of each color in the image
-    int width = image.getWidth();
-    int height = image.getHeight();
+  /**
+   * Remaps an image onto the nearest colors of the given palette, by distance in RGB space.
+   *
+   * @param  colorModel  must have no more than 256 colors
+   *
+   * @return  a new image of type {@link BufferedImage#TYPE_BYTE_INDEXED}
+   */
+  public static BufferedImage getIndexedImage(BufferedImage image, IndexColorModel colorModel) {
+    final int mapSize = colorModel.getMapSize();
+    if (mapSize > MAX_COLORS) {
+      throw new IllegalArgumentException("colorModel has more than " + MAX_COLORS + " colors: " + mapSize);
+    }
+    int[] palette = new int[mapSize];
+    colorModel.getRGBs(palette);
+    final int width = image.getWidth();
+    final int height = image.getHeight();
+    BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+    WritableRaster raster = indexed.getRaster();
+    // The nearest index + 1 of each color seen
+    ColorHistogram nearest = new ColorHistogram();
+    int[] row = new int[width];
+    byte[] indexes = new byte[width];
+    int lastColor = 0;
+    int lastIndex = -1;
     for (int y = 0; y < height; y++) {
+      ColorHistogram.getRow(image, y, row);
       for (int x = 0; x < width; x++) {
-        Integer color = image.getRGB(x, y);
-        ColorCount colorCount = colorCounts.get(color);
-        if (colorCount == null) {
-          colorCounts.put(color, colorCount = new ColorCount(color));
+        int color = row[x];
+        if (lastIndex == -1 || color != lastColor) {
+          lastColor = color;
+          int found = nearest.get(color);
+          if (found == 0) {
+            lastIndex = getNearestIndex(palette, color);
+            nearest.add(color, lastIndex + 1);
+          } else {
+            lastIndex = found - 1;
+          }
         }
-        colorCount.count++;
+        indexes[x] = (byte) lastIndex;
       }
+      raster.setDataElements(0, y, width, 1, indexes);
     }
+    return indexed;
+  }
 
-    // Add 1000 to the counts for those less than DROP_THRESHOLD brightness
-    for (ColorCount colorCount : colorCounts.values()) {
-      int color = colorCount.color;
-      int brightness = Math.max(
-          (color >>> 16) & 255,
-          Math.max(
-              (color >>> 8) & 255,
-              color & 255
-          )
-      );
-      if (brightness < DROP_THRESHOLD) {
-        colorCount.count += DROP_OFFSET;
+  private static int getNearestIndex(int[] palette, int color) {
+    int red = (color >>> 16) & 255;
+    int green = (color >>> 8) & 255;
+    int blue = color & 255;
+    int nearest = 0;
+    int nearestDistance = Integer.MAX_VALUE;
+    for (int i = 0; i < palette.length; i++) {
+      int paletteColor = palette[i];
+      int redDiff = ((paletteColor >>> 16) & 255) - red;
+      int greenDiff = ((paletteColor >>> 8) & 255) - green;
+      int blueDiff = (paletteColor & 255) - blue;
+      int distance = redDiff * redDiff + greenDiff * greenDiff + blueDiff * blueDiff;
+      if (distance < nearestDistance) {
+        if (distance == 0) {
+          return i;
+        }
+        nearest = i;
+        nearestDistance = distance;
       }
     }
-
-    // Sort the list based on number of times the pixels were used (most used on top)
-    List<ColorCount> colorCountList = new ArrayList<>(colorCounts.values());
-    Collections.sort(colorCountList, ColorCountCountComparator.getInstance());
-
-    // Use at most the top 256 colors
-    int size = colorCountList.size();
-    int numColorsUsed = size > 256 ? 256 : size;
-    byte[] r = new byte[numColorsUsed];
-    byte[] g = new byte[numColorsUsed];
-    byte[] b = new byte[numColorsUsed];
-
-    int transparentIndex = -1;
-
-    for (int c = 0; c < numColorsUsed; c++) {
-      int color = colorCountList.get(c).color;
-      /*byte red=*/ r[c] = (byte) ((color >>> 16) & 255);
-      /*byte green=*/ g[c] = (byte) ((color >>> 8) & 255);
-      /*byte blue=*/ b[c] = (byte) (color & 255);
-      // TODO: transparency not distinguished properly:
-      // if (transparent_index == -1 && red == -1 && green == -1 && blue == -1) {
-      //   transparent_index = c;
-      // }
-    }
-    return new OptimalIndexColorModel(numColorsUsed, r, g, b, transparentIndex);
+    return nearest;
   }
 }
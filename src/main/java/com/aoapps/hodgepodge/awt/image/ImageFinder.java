@@ -0,0 +1,494 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.awt.image;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Template matching engine behind {@link Images#findImage(int[], int, int, int[], int, int, double)}
+ * and {@link Images#findAllImages(int[], int, int, int[], int, int, double)}.
+ *
+ * <p>Candidate locations are first rejected by successive elimination: the sum of
+ * absolute differences between block sums is a lower bound of the sum of absolute
+ * differences between the pixels of the blocks.  Summed-area tables of the red,
+ * green, and blue channels of the image give the block sums for any location in
+ * constant time, and the template is partitioned coarse-to-fine, from a single
+ * block down to blocks of {@link #MIN_BLOCK_SIZE} pixels, each level a tighter
+ * bound than the last.  Only locations surviving every level are compared pixel
+ * by pixel.</p>
+ *
+ * <p>The bounds only hold while every pixel contributes its full red, green, and
+ * blue difference.  Fully transparent pixels are always considered a match, so
+ * blocks of the template containing transparent pixels do not contribute to the
+ * bound, and bounds are skipped for any location where the image contains
+ * transparent pixels.</p>
+ *
+ * <p>The search is split into bands of rows, which are searched in parallel on
+ * a {@link ForkJoinPool}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class ImageFinder {
+
+  /**
+   * The smallest block width or height the template is partitioned into.
+   * Finer partitions cost about as much as the exact comparison they try to avoid.
+   */
+  private static final int MIN_BLOCK_SIZE = 8;
+
+  /**
+   * The number of rows searched by each task.
+   */
+  private static final int BAND_ROWS = 8;
+
+  /**
+   * The maximum number of pixels in the template for which block sums fit in an {@code int}.
+   */
+  private static final int MAX_BOUNDED_PIXELS = Integer.MAX_VALUE / 255;
+
+  private static boolean isTransparent(int pixel) {
+    return (pixel & 0xff000000) == 0;
+  }
+
+  private final int[] imagePixels;
+  private final int imageWidth;
+  private final int[] findmePixels;
+  private final int findmeWidth;
+  private final int findmeHeight;
+  private final int searchWidth;
+  private final int searchHeight;
+  private final long maxMismatch;
+
+  /**
+   * The summed-area tables, each of size {@code (imageWidth + 1) * (imageHeight + 1)},
+   * or {@code null} when bounds are not used.  Sums wrap on overflow, but the sum of any
+   * block within the template size is exact.
+   */
+  private final int[] satRed;
+  private final int[] satGreen;
+  private final int[] satBlue;
+
+  /**
+   * The summed-area table of transparent pixels or {@code null} when bounds are
+   * not used or the image has no transparent pixels.
+   */
+  private final int[] satTransparent;
+
+  /**
+   * The block boundaries for each level, relative to the top-left of the template.
+   */
+  private final int[][] levelXs;
+  private final int[][] levelYs;
+
+  /**
+   * The template red, green, and blue block sums for each level, three values per block.
+   * The red sum is {@code -1} for blocks containing transparent pixels.
+   */
+  private final int[][] levelSums;
+
+  ImageFinder(int[] imagePixels, int imageWidth, int imageHeight, int[] findmePixels, int findmeWidth, int findmeHeight, double tolerance) {
+    this.imagePixels = imagePixels;
+    this.imageWidth = imageWidth;
+    this.findmePixels = findmePixels;
+    this.findmeWidth = findmeWidth;
+    this.findmeHeight = findmeHeight;
+    this.searchWidth = imageWidth - findmeWidth;
+    this.searchHeight = imageHeight - findmeHeight;
+    // Each pixel can deviate by up to 255 for each primary color
+    final double maxDeviation = (double) 3 * (double) 255 * (double) findmeWidth * (double) findmeHeight;
+    this.maxMismatch = (long) (tolerance * maxDeviation);
+    final boolean useBounds =
+        searchWidth >= 0
+            && searchHeight >= 0
+            // Only worth it when there is more than one location
+            && (searchWidth > 0 || searchHeight > 0)
+            // An exact match is rejected by its first differing pixel, faster than any bound
+            && maxMismatch > 0
+            && (long) findmeWidth * findmeHeight <= MAX_BOUNDED_PIXELS
+            && (long) (imageWidth + 1) * (imageHeight + 1) <= Integer.MAX_VALUE - 8;
+    if (useBounds) {
+      final int satWidth = imageWidth + 1;
+      final int satSize = satWidth * (imageHeight + 1);
+      int[] red = new int[satSize];
+      int[] green = new int[satSize];
+      int[] blue = new int[satSize];
+      int[] transparent = null;
+      int imageIndex = 0;
+      for (int y = 0; y < imageHeight; y++) {
+        int rowRed = 0;
+        int rowGreen = 0;
+        int rowBlue = 0;
+        int rowTransparent = 0;
+        int above = y * satWidth + 1;
+        int satIndex = above + satWidth;
+        for (int x = 0; x < imageWidth; x++) {
+          int pixel = imagePixels[imageIndex++];
+          if (isTransparent(pixel)) {
+            if (transparent == null) {
+              transparent = new int[satSize];
+              // Rows above have no transparent pixels, so their sums remain zero
+            }
+            rowTransparent++;
+          } else {
+            rowRed += (pixel >>> 16) & 255;
+            rowGreen += (pixel >>> 8) & 255;
+            rowBlue += pixel & 255;
+          }
+          red[satIndex] = red[above] + rowRed;
+          green[satIndex] = green[above] + rowGreen;
+          blue[satIndex] = blue[above] + rowBlue;
+          if (transparent != null) {
+            transparent[satIndex] = transparent[above] + rowTransparent;
+          }
+          above++;
+          satIndex++;
+        }
+      }
+      satRed = red;
+      satGreen = green;
+      satBlue = blue;
+      satTransparent = transparent;
+      // Partition the template coarse-to-fine
+      List<int[]> xs = new ArrayList<>();
+      List<int[]> ys = new ArrayList<>();
+      final int maxBlocksX = Math.max(1, findmeWidth / MIN_BLOCK_SIZE);
+      final int maxBlocksY = Math.max(1, findmeHeight / MIN_BLOCK_SIZE);
+      int blocksX = 1;
+      int blocksY = 1;
+      while (true) {
+        xs.add(getBoundaries(findmeWidth, blocksX));
+        ys.add(getBoundaries(findmeHeight, blocksY));
+        if (blocksX == maxBlocksX && blocksY == maxBlocksY) {
+          break;
+        }
+        blocksX = Math.min(blocksX * 2, maxBlocksX);
+        blocksY = Math.min(blocksY * 2, maxBlocksY);
+      }
+      levelXs = xs.toArray(new int[xs.size()][]);
+      levelYs = ys.toArray(new int[ys.size()][]);
+      levelSums = new int[levelXs.length][];
+      for (int level = 0; level < levelSums.length; level++) {
+        levelSums[level] = getBlockSums(levelXs[level], levelYs[level]);
+      }
+    } else {
+      satRed = null;
+      satGreen = null;
+      satBlue = null;
+      satTransparent = null;
+      levelXs = null;
+      levelYs = null;
+      levelSums = null;
+    }
+  }
+
+  private static int[] getBoundaries(int size, int blocks) {
+    int[] boundaries = new int[blocks + 1];
+    for (int i = 0; i <= blocks; i++) {
+      boundaries[i] = (int) ((long) i * size / blocks);
+    }
+    return boundaries;
+  }
+
+  private int[] getBlockSums(int[] xs, int[] ys) {
+    int blocksX = xs.length - 1;
+    int blocksY = ys.length - 1;
+    int[] sums = new int[blocksX * blocksY * 3];
+    int sumIndex = 0;
+    for (int by = 0; by < blocksY; by++) {
+      for (int bx = 0; bx < blocksX; bx++) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        boolean hasTransparent = false;
+        for (int y = ys[by]; y < ys[by + 1]; y++) {
+          int findmeIndex = y * findmeWidth + xs[bx];
+          for (int x = xs[bx]; x < xs[bx + 1]; x++) {
+            int pixel = findmePixels[findmeIndex++];
+            if (isTransparent(pixel)) {
+              hasTransparent = true;
+            }
+            red += (pixel >>> 16) & 255;
+            green += (pixel >>> 8) & 255;
+            blue += pixel & 255;
+          }
+        }
+        sums[sumIndex++] = hasTransparent ? -1 : red;
+        sums[sumIndex++] = green;
+        sums[sumIndex++] = blue;
+      }
+    }
+    return sums;
+  }
+
+  private int getSum(int[] sat, int x0, int y0, int x1, int y1) {
+    int satWidth = imageWidth + 1;
+    int top = y0 * satWidth;
+    int bottom = y1 * satWidth;
+    return sat[bottom + x1] - sat[top + x1] - sat[bottom + x0] + sat[top + x0];
+  }
+
+  /**
+   * Checks if the template is found at the given location.
+   */
+  private boolean isMatch(int imageX, int imageY) {
+    if (
+        satRed != null
+            && (
+              satTransparent == null
+                  || getSum(satTransparent, imageX, imageY, imageX + findmeWidth, imageY + findmeHeight) == 0
+            )
+    ) {
+      for (int level = 0; level < levelSums.length; level++) {
+        int[] xs = levelXs[level];
+        int[] ys = levelYs[level];
+        int[] sums = levelSums[level];
+        int sumIndex = 0;
+        long bound = 0;
+        for (int by = 1; by < ys.length; by++) {
+          int y0 = imageY + ys[by - 1];
+          int y1 = imageY + ys[by];
+          for (int bx = 1; bx < xs.length; bx++) {
+            int red = sums[sumIndex++];
+            if (red == -1) {
+              // Transparent pixels match anything
+              sumIndex += 2;
+              continue;
+            }
+            int x0 = imageX + xs[bx - 1];
+            int x1 = imageX + xs[bx];
+            bound +=
+                Math.abs(getSum(satRed, x0, y0, x1, y1) - red)
+                    + Math.abs(getSum(satGreen, x0, y0, x1, y1) - sums[sumIndex++])
+                    + Math.abs(getSum(satBlue, x0, y0, x1, y1) - sums[sumIndex++]);
+            if (bound > maxMismatch) {
+              return false;
+            }
+          }
+        }
+      }
+    }
+    long totalMismatch = 0;
+    int findMeIndex = 0;
+    for (int findmeY = 0; findmeY < findmeHeight; findmeY++) {
+      int imageIndex = (imageY + findmeY) * imageWidth + imageX;
+      for (int findmeX = 0; findmeX < findmeWidth; findmeX++) {
+        int imagePixel = imagePixels[imageIndex++];
+        int findmePixel = findmePixels[findMeIndex++];
+        if (
+            // Check for exact match
+            imagePixel != findmePixel
+                // If either is full alpha, consider a match
+                && !isTransparent(imagePixel)
+                && !isTransparent(findmePixel)
+        ) {
+          totalMismatch +=
+              // Red difference
+              Math.abs(((imagePixel >>> 16) & 255) - ((findmePixel >>> 16) & 255))
+                  // Green difference
+                  + Math.abs(((imagePixel >>> 8) & 255) - ((findmePixel >>> 8) & 255))
+                  // Blue difference
+                  + Math.abs((imagePixel & 255) - (findmePixel & 255));
+          if (totalMismatch > maxMismatch) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private int getBandCount() {
+    return searchHeight / BAND_ROWS + 1;
+  }
+
+  /**
+   * Searches a range of bands, splitting in half until a single band remains.
+   */
+  private abstract class BandSearch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final int fromBand;
+    final int toBand;
+
+    BandSearch(int fromBand, int toBand) {
+      this.fromBand = fromBand;
+      this.toBand = toBand;
+    }
+
+    abstract BandSearch newBandSearch(int fromBand, int toBand);
+
+    abstract void searchBand(int fromY, int toY);
+
+    @Override
+    protected void compute() {
+      if (toBand - fromBand == 1) {
+        int fromY = fromBand * BAND_ROWS;
+        searchBand(fromY, Math.min(fromY + BAND_ROWS, searchHeight + 1));
+      } else {
+        int middle = (fromBand + toBand) >>> 1;
+        invokeAll(
+            newBandSearch(fromBand, middle),
+            newBandSearch(middle, toBand)
+        );
+      }
+    }
+  }
+
+  /**
+   * Finds the first match in row-major order.
+   */
+  private final class FirstSearch extends BandSearch {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The first location found, as {@code imageY * (searchWidth + 1) + imageX}.
+     */
+    private final AtomicLong first;
+
+    private FirstSearch(int fromBand, int toBand, AtomicLong first) {
+      super(fromBand, toBand);
+      this.first = first;
+    }
+
+    @Override
+    BandSearch newBandSearch(int fromBand, int toBand) {
+      return new FirstSearch(fromBand, toBand, first);
+    }
+
+    @Override
+    void searchBand(int fromY, int toY) {
+      final long rowLocations = searchWidth + 1L;
+      for (int imageY = fromY; imageY < toY; imageY++) {
+        // Stop once an earlier band has found a match
+        if (first.get() < imageY * rowLocations) {
+          return;
+        }
+        for (int imageX = 0; imageX <= searchWidth; imageX++) {
+          if (isMatch(imageX, imageY)) {
+            long location = imageY * rowLocations + imageX;
+            long current;
+            while (location < (current = first.get()) && !first.compareAndSet(current, location)) {
+              // Retry
+            }
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds all matches, each band adding to its own list.
+   */
+  private final class AllSearch extends BandSearch {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Point>[] bandMatches;
+
+    private AllSearch(int fromBand, int toBand, List<Point>[] bandMatches) {
+      super(fromBand, toBand);
+      this.bandMatches = bandMatches;
+    }
+
+    @Override
+    BandSearch newBandSearch(int fromBand, int toBand) {
+      return new AllSearch(fromBand, toBand, bandMatches);
+    }
+
+    @Override
+    void searchBand(int fromY, int toY) {
+      List<Point> matches = null;
+      for (int imageY = fromY; imageY < toY; imageY++) {
+        for (int imageX = 0; imageX <= searchWidth; imageX++) {
+          if (isMatch(imageX, imageY)) {
+            if (matches == null) {
+              matches = new ArrayList<>();
+            }
+            matches.add(new Point(imageX, imageY));
+          }
+        }
+      }
+      bandMatches[fromY / BAND_ROWS] = matches;
+    }
+  }
+
+  /**
+   * Finds the top-left of the first match in row-major order.
+   *
+   * @return  The location or {@code null} when not found.
+   */
+  Point findFirst(ForkJoinPool pool) {
+    if (searchWidth < 0 || searchHeight < 0) {
+      return null;
+    }
+    AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+    FirstSearch search = new FirstSearch(0, getBandCount(), first);
+    if (search.toBand == 1) {
+      search.compute();
+    } else {
+      pool.invoke(search);
+    }
+    long location = first.get();
+    if (location == Long.MAX_VALUE) {
+      return null;
+    }
+    final long rowLocations = searchWidth + 1L;
+    return new Point((int) (location % rowLocations), (int) (location / rowLocations));
+  }
+
+  /**
+   * Finds the top-left of all matches in row-major order.
+   *
+   * @return  The locations or an empty list when not found.
+   */
+  List<Point> findAll(ForkJoinPool pool) {
+    if (searchWidth < 0 || searchHeight < 0) {
+      return Collections.emptyList();
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    List<Point>[] bandMatches = new List[getBandCount()];
+    AllSearch search = new AllSearch(0, bandMatches.length, bandMatches);
+    if (search.toBand == 1) {
+      search.compute();
+    } else {
+      pool.invoke(search);
+    }
+    List<Point> matches = new ArrayList<>();
+    for (List<Point> band : bandMatches) {
+      if (band != null) {
+        matches.addAll(band);
+      }
+    }
+    return matches;
+  }
+}
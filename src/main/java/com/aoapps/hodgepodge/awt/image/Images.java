@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2014, 2016, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2014, 2016, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -32,6 +32,9 @@ import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author  AO Industries, Inc.
@@ -127,49 +130,81 @@ public final class Images {
    *          <code>null</code> if not found within tolerance.
    */
   public static Point findImage(int[] imagePixels, int imageWidth, int imageHeight, int[] findmePixels, int findmeWidth, int findmeHeight, double tolerance) {
-    final int searchWidth = imageWidth - findmeWidth;
-    if (searchWidth >= 0) {
-      final int searchHeight = imageHeight - findmeHeight;
-      if (searchHeight >= 0) {
-        // Each pixel can deviate by up to 255 for each primary color
-        final double maxDeviation = (double) 3 * (double) 255 * (double) findmeWidth * (double) findmeHeight;
-        final long maxMismatch = (long) (tolerance * maxDeviation);
-        // Get pixels all at once
-        for (int imageY = 0; imageY <= searchHeight; imageY++) {
-          NextLocation:
-          for (int imageX = 0; imageX <= searchWidth; imageX++) {
-            long totalMismatch = 0;
-            int findMeIndex = 0;
-            for (int findmeY = 0; findmeY < findmeHeight; findmeY++) {
-              for (int findmeX = 0; findmeX < findmeWidth; findmeX++) {
-                int imagePixel = imagePixels[(imageY + findmeY) * imageWidth + imageX + findmeX];
-                int findmePixel = findmePixels[findMeIndex++];
-                if (
-                    // Check for exact match
-                    imagePixel != findmePixel
-                        // If either is full alpha, consider a match
-                        && (imagePixel & 0xff000000) != 0
-                        && (findmePixel & 0xff000000) != 0
-                ) {
-                  totalMismatch +=
-                      // Red difference
-                      Math.abs(((imagePixel >>> 16) & 255) - ((findmePixel >>> 16) & 255))
-                          // Green difference
-                          + Math.abs(((imagePixel >>> 8) & 255) - ((findmePixel >>> 8) & 255))
-                          // Blue difference
-                          + Math.abs((imagePixel & 255) - (findmePixel & 255));
-                  if (totalMismatch > maxMismatch) {
-                    continue NextLocation;
-                  }
-                }
-              }
-            }
-            return new Point(imageX, imageY);
-          }
-        }
+    return findImage(imagePixels, imageWidth, imageHeight, findmePixels, findmeWidth, findmeHeight, tolerance, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Finds one image within another, searching bands of rows in parallel on the given pool.
+   *
+   * @param  tolerance  The portion of red, green, and blue differences
+   *                    allowed before ignoring a certain location.  Zero implies
+   *                    an exact match.
+   *
+   * @return  The top-left point where the top left of the image is found or
+   *          <code>null</code> if not found within tolerance.
+   *          When found in multiple locations, the first in row-major order.
+   */
+  public static Point findImage(int[] imagePixels, int imageWidth, int imageHeight, int[] findmePixels, int findmeWidth, int findmeHeight, double tolerance, ForkJoinPool pool) {
+    return new ImageFinder(imagePixels, imageWidth, imageHeight, findmePixels, findmeWidth, findmeHeight, tolerance).findFirst(pool);
+  }
+
+  /**
+   * Finds all locations of one image within another.
+   *
+   * @param  tolerance  The portion of red, green, and blue differences
+   *                    allowed before ignoring a certain location.  Zero implies
+   *                    an exact match.
+   *
+   * @return  The top-left points where the top left of the image is found, in
+   *          row-major order, or an empty list if not found within tolerance.
+   */
+  public static List<Point> findAllImages(BufferedImage image, BufferedImage findme, double tolerance) {
+    final int imageWidth = image.getWidth();
+    final int findmeWidth = findme.getWidth();
+    if (imageWidth >= findmeWidth) {
+      final int imageHeight = image.getHeight();
+      final int findmeHeight = findme.getHeight();
+      if (imageHeight >= findmeHeight) {
+        return findAllImages(
+            getRGB(image),
+            imageWidth,
+            imageHeight,
+            getRGB(findme),
+            findmeWidth,
+            findmeHeight,
+            tolerance
+        );
       }
     }
-    return null;
+    return Collections.emptyList();
+  }
+
+  /**
+   * Finds all locations of one image within another.
+   *
+   * @param  tolerance  The portion of red, green, and blue differences
+   *                    allowed before ignoring a certain location.  Zero implies
+   *                    an exact match.
+   *
+   * @return  The top-left points where the top left of the image is found, in
+   *          row-major order, or an empty list if not found within tolerance.
+   */
+  public static List<Point> findAllImages(int[] imagePixels, int imageWidth, int imageHeight, int[] findmePixels, int findmeWidth, int findmeHeight, double tolerance) {
+    return findAllImages(imagePixels, imageWidth, imageHeight, findmePixels, findmeWidth, findmeHeight, tolerance, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Finds all locations of one image within another, searching bands of rows in parallel on the given pool.
+   *
+   * @param  tolerance  The portion of red, green, and blue differences
+   *                    allowed before ignoring a certain location.  Zero implies
+   *                    an exact match.
+   *
+   * @return  The top-left points where the top left of the image is found, in
+   *          row-major order, or an empty list if not found within tolerance.
+   */
+  public static List<Point> findAllImages(int[] imagePixels, int imageWidth, int imageHeight, int[] findmePixels, int findmeWidth, int findmeHeight, double tolerance, ForkJoinPool pool) {
+    return new ImageFinder(imagePixels, imageWidth, imageHeight, findmePixels, findmeWidth, findmeHeight, tolerance).findAll(pool);
   }
 
   /**
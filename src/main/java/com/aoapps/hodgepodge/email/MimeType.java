@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,13 +24,29 @@
 package com.aoapps.hodgepodge.email;
 
 import com.aoapps.lang.io.ContentType;
-import java.util.HashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Obtains MIME types for file names.
  *
+ * <p>Extensions are matched case-insensitively directly on the end of the file name by a
+ * trie of the reversed extensions, without creating any intermediate strings.  The mappings
+ * may be replaced at runtime, such as from a <code>mime.types</code> file by
+ * {@link #loadMappings(java.nio.file.Path)}.</p>
+ *
  * @deprecated  This simple hard-coded list of MIME types is not maintained well.
  *              It is strongly recommended to use a different, well-supported API.
  *
@@ -154,33 +170,223 @@ public final class MimeType {
       "css.map", ContentType.JSON, // See https://stackoverflow.com/a/44184109
       "js.map",  ContentType.JSON, // See https://stackoverflow.com/a/44184109
   };
-  private static final Map<String, String> hash = new HashMap<>();
+  /**
+   * An immutable set of mappings from extensions to MIME types.
+   */
+  public static final class Mappings {
+
+    private static final int ROOT = 0;
+
+    private final Map<String, String> extensions;
+
+    /**
+     * The sorted characters of the children of each node, in reverse order of the extensions.
+     */
+    private final char[][] childChars;
+
+    /**
+     * The children of each node, in the same order as {@link #childChars}.
+     */
+    private final int[][] childNodes;
+
+    /**
+     * The MIME type of the extension ending at each node or {@code null} for none.
+     */
+    private final String[] types;
+
+    /**
+     * @param  extensions  The extensions, without any leading period, mapped to their MIME type.
+     *                     Extensions are case-insensitive.
+     *
+     * @throws  IllegalArgumentException  when an extension is empty or found more than once
+     */
+    public Mappings(Map<String, String> extensions) throws IllegalArgumentException {
+      Map<String, String> lowerExtensions = new LinkedHashMap<>(extensions.size() * 4 / 3 + 1);
+      List<Map<Character, Integer>> children = new ArrayList<>();
+      List<String> nodeTypes = new ArrayList<>();
+      children.add(new TreeMap<>());
+      nodeTypes.add(null);
+      for (Map.Entry<String, String> entry : extensions.entrySet()) {
+        String extension = entry.getKey().toLowerCase(Locale.ROOT);
+        if (extension.isEmpty()) {
+          throw new IllegalArgumentException("Empty extension");
+        }
+        String type = entry.getValue();
+        if (lowerExtensions.put(extension, type) != null) {
+          throw new IllegalArgumentException("Extension found more than once: " + extension);
+        }
+        int node = ROOT;
+        for (int i = extension.length() - 1; i >= 0; i--) {
+          Integer child = children.get(node).get(extension.charAt(i));
+          if (child == null) {
+            child = children.size();
+            children.add(new TreeMap<>());
+            nodeTypes.add(null);
+            children.get(node).put(extension.charAt(i), child);
+          }
+          node = child;
+        }
+        nodeTypes.set(node, type);
+      }
+      this.extensions = Collections.unmodifiableMap(lowerExtensions);
+      final int numNodes = children.size();
+      childChars = new char[numNodes][];
+      childNodes = new int[numNodes][];
+      types = nodeTypes.toArray(new String[numNodes]);
+      for (int node = 0; node < numNodes; node++) {
+        Map<Character, Integer> nodeChildren = children.get(node);
+        char[] chars = new char[nodeChildren.size()];
+        int[] nodes = new int[chars.length];
+        int i = 0;
+        for (Map.Entry<Character, Integer> entry : nodeChildren.entrySet()) {
+          chars[i] = entry.getKey();
+          nodes[i] = entry.getValue();
+          i++;
+        }
+        childChars[node] = chars;
+        childNodes[node] = nodes;
+      }
+    }
+
+    /**
+     * Gets the lower-case extensions mapped to their MIME type.
+     */
+    public Map<String, String> getExtensions() {
+      return extensions;
+    }
+
+    private static char toLowerCase(char ch) {
+      if (ch >= 'A' && ch <= 'Z') {
+        return (char) (ch + ('a' - 'A'));
+      }
+      return ch < 0x80 ? ch : Character.toLowerCase(ch);
+    }
+
+    /**
+     * Gets the MIME type for a file name, first by the extension after the last period,
+     * then by the double extension after the second to last period, such as
+     * <code>css.map</code>.
+     *
+     * @return  The MIME type or {@link #DEFAULT_MIME_TYPE} when not found
+     */
+    public String getMimeType(CharSequence filename) {
+      int node = ROOT;
+      int periods = 0;
+      for (int i = filename.length() - 1; i >= 0; i--) {
+        char ch = filename.charAt(i);
+        if (ch == '.') {
+          String type = types[node];
+          if (type != null) {
+            return type;
+          }
+          if (++periods == 2) {
+            break;
+          }
+        }
+        char[] chars = childChars[node];
+        int index = Arrays.binarySearch(chars, toLowerCase(ch));
+        if (index < 0) {
+          break;
+        }
+        node = childNodes[node][index];
+      }
+      return DEFAULT_MIME_TYPE;
+    }
+
+    /**
+     * Gets new mappings with these mappings overridden by the given mappings.
+     */
+    public Mappings with(Map<String, String> overrides) {
+      Map<String, String> merged = new LinkedHashMap<>(extensions);
+      for (Map.Entry<String, String> entry : overrides.entrySet()) {
+        merged.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+      }
+      return new Mappings(merged);
+    }
+  }
+
+  /**
+   * Parses the extensions in the <code>mime.types</code> format, with one MIME type per line
+   * followed by any number of its extensions, separated by whitespace.  Any text after
+   * <code>#</code> is a comment.  When an extension is listed more than once, the last is used.
+   *
+   * @return  The lower-case extensions mapped to their MIME type
+   */
+  public static Map<String, String> parseMimeTypes(Reader in) throws IOException {
+    Map<String, String> extensions = new LinkedHashMap<>();
+    BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      int commentPos = line.indexOf('#');
+      if (commentPos != -1) {
+        line = line.substring(0, commentPos);
+      }
+      String[] tokens = line.trim().split("\\s+");
+      for (int i = 1; i < tokens.length; i++) {
+        extensions.put(tokens[i].toLowerCase(Locale.ROOT), tokens[0]);
+      }
+    }
+    return extensions;
+  }
+
+  private static final Mappings defaultMappings;
 
   static {
+    Map<String, String> extensions = new LinkedHashMap<>(types.length * 2 / 3 + 1);
     for (int c = 0; c < types.length; c += 2) {
       String extension = types[c].toLowerCase(Locale.ROOT);
-      if (hash.put(extension, types[c + 1]) != null) {
+      if (extensions.put(extension, types[c + 1]) != null) {
         throw new AssertionError(MimeType.class.getName() + ": extension found more than once: " + extension);
       }
     }
+    defaultMappings = new Mappings(extensions);
   }
 
-  public static String getMimeType(String filename) {
-    int dotPos = filename.lastIndexOf('.');
-    if (dotPos != -1) {
-      String type = hash.get(filename.substring(dotPos + 1).toLowerCase(Locale.ROOT));
-      if (type != null) {
-        return type;
-      }
-      // Check for double-dot extension
-      dotPos = filename.lastIndexOf('.', dotPos - 1);
-      if (dotPos != -1) {
-        type = hash.get(filename.substring(dotPos + 1).toLowerCase(Locale.ROOT));
-        if (type != null) {
-          return type;
-        }
-      }
+  private static volatile Mappings mappings = defaultMappings;
+
+  /**
+   * Gets the built-in mappings.
+   */
+  public static Mappings getDefaultMappings() {
+    return defaultMappings;
+  }
+
+  /**
+   * Gets the mappings used by {@link #getMimeType(java.lang.String)}.
+   */
+  public static Mappings getMappings() {
+    return mappings;
+  }
+
+  /**
+   * Sets the mappings used by {@link #getMimeType(java.lang.String)}.
+   *
+   * @param  newMappings  The new mappings or {@code null} to restore the built-in mappings
+   */
+  public static void setMappings(Mappings newMappings) {
+    mappings = newMappings == null ? defaultMappings : newMappings;
+  }
+
+  /**
+   * Loads the built-in mappings overridden by a <code>mime.types</code> file, such as
+   * <code>/etc/mime.types</code>.  The mappings are not used until {@link #setMappings(com.aoapps.hodgepodge.email.MimeType.Mappings)}.
+   *
+   * @see  #parseMimeTypes(java.io.Reader)
+   */
+  public static Mappings loadMappings(Path file) throws IOException {
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return defaultMappings.with(parseMimeTypes(in));
     }
-    return DEFAULT_MIME_TYPE;
+  }
+
+  /**
+   * Gets the MIME type for a file name.
+   *
+   * @return  The MIME type or {@link #DEFAULT_MIME_TYPE} when not found
+   *
+   * @see  Mappings#getMimeType(java.lang.CharSequence)
+   */
+  public static String getMimeType(String filename) {
+    return mappings.getMimeType(filename);
   }
 }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2013, 2015, 2016, 2017, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2013, 2015, 2016, 2017, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -27,7 +27,10 @@ import com.aoapps.lang.LocalizedIllegalStateException;
 import com.aoapps.lang.i18n.Resources;
 import java.util.IdentityHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Each thread has a markup context associated with it.  When set, bundle lookups
@@ -37,7 +40,9 @@ import java.util.ResourceBundle;
  *
  * <p>Under concurrent programming, one context can
  * {@linkplain I18nThreadLocalRunnable end up being accessed concurrently by multiple threads},
- * thus BundleLookupThreadContext is a thread-safe implementation.</p>
+ * thus BundleLookupThreadContext is a thread-safe implementation.  Each thread records its
+ * lookups into its own buffer, so the buffer locks are only contended when a string
+ * from one thread is looked-up by another.</p>
  *
  * <p>Bundle lookups are not guaranteed to be recorded, such as when in-context translation
  * is disabled (production mode).</p>
@@ -132,17 +137,26 @@ public final class BundleLookupThreadContext {
     );
   }
 
-  private final IdentityHashMap<String, BundleLookupMarkup> lookupResults = new IdentityHashMap<>();
+  /**
+   * The lookups recorded by each thread.  Access to each map must be synchronized on the map.
+   */
+  private final ConcurrentMap<Thread, Map<String, BundleLookupMarkup>> threadLookupResults = new ConcurrentHashMap<>();
 
   BundleLookupThreadContext() {
     // Do nothing
   }
 
   /**
-   * @throws IllegalStateException   if the string has already been added to this context (as matched by identity)
+   * @throws IllegalStateException   if the string has already been added to this context by the current thread
+   *                                 (as matched by identity)
    */
   void addLookupMarkup(String lookupResult, BundleLookupMarkup lookupMarkup) throws IllegalStateException {
     assert lookupResult != null;
+    Thread thread = Thread.currentThread();
+    Map<String, BundleLookupMarkup> lookupResults = threadLookupResults.get(thread);
+    if (lookupResults == null) {
+      lookupResults = threadLookupResults.computeIfAbsent(thread, t -> new IdentityHashMap<>());
+    }
     synchronized (lookupResults) {
       if (lookupResults.put(lookupResult, lookupMarkup) != null) {
         throw new LocalizedIllegalStateException(RESOURCES, "addLookupMarkup.stringAlreadyAdded");
@@ -160,9 +174,7 @@ public final class BundleLookupThreadContext {
    */
   @Deprecated
   public void reset() {
-    synchronized (lookupResults) {
-      lookupResults.clear();
-    }
+    threadLookupResults.clear();
   }
 
   /**
@@ -171,13 +183,34 @@ public final class BundleLookupThreadContext {
    * <p>The string is looked-up by identity only: {@link String#equals(java.lang.Object)} is not called.
    * This is to give a more precise match to lookups.  Much care is taken care to support this string
    * identity lookup, including things like resource bundles, I/O buffers, and tag attribute manipulation.</p>
+   *
+   * <p>The lookups of the current thread are searched first, followed by those of any other threads.</p>
    */
   public BundleLookupMarkup getLookupMarkup(String result) {
     if (result == null) {
       return null;
     }
-    synchronized (lookupResults) {
-      return lookupResults.get(result);
+    Map<String, BundleLookupMarkup> currentResults = threadLookupResults.get(Thread.currentThread());
+    if (currentResults != null) {
+      synchronized (currentResults) {
+        BundleLookupMarkup lookupMarkup = currentResults.get(result);
+        if (lookupMarkup != null) {
+          return lookupMarkup;
+        }
+      }
+    }
+    if (currentResults == null || threadLookupResults.size() > 1) {
+      for (Map<String, BundleLookupMarkup> lookupResults : threadLookupResults.values()) {
+        if (lookupResults != currentResults) {
+          synchronized (lookupResults) {
+            BundleLookupMarkup lookupMarkup = lookupResults.get(result);
+            if (lookupMarkup != null) {
+              return lookupMarkup;
+            }
+          }
+        }
+      }
     }
+    return null;
   }
 }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2013, 2015, 2016, 2018, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2013, 2015, 2016, 2018, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -98,10 +99,7 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
 
     private final Sequence lookupIdGenerator;
 
-    /**
-     * Use of LookupValue must be synchronized on the LookupValue instance.
-     */
-    private final ConcurrentMap<LookupKey, LookupValue> requestLookups;
+    private final RequestLookups requestLookups;
 
     /**
      * The lookup context that will be active when markup is enabled.
@@ -114,7 +112,7 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
         boolean modifyAllText,
         Sequence elementIdGenerator,
         Sequence lookupIdGenerator,
-        ConcurrentMap<LookupKey, LookupValue> requestLookups,
+        RequestLookups requestLookups,
         BundleLookupThreadContext lookupContext
     ) {
       if (setValueUrl != null) {
@@ -144,7 +142,7 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
           modifyAllText,
           new AtomicSequence(),
           new AtomicSequence(),
-          new ConcurrentHashMap<>(),
+          new RequestLookups(),
           new BundleLookupThreadContext()
       );
     }
@@ -334,13 +332,13 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
     private final long id;
 
     /**
-     * Access must be synchronized on this LookupValue instance.
+     * Access must be synchronized on the map containing this LookupValue.
      */
     private final List<Long> elementIds = new ArrayList<>();
 
     /**
      * The set of locales that were queried.
-     * Access must be synchronized on this LookupValue instance.
+     * Access must be synchronized on the map containing this LookupValue.
      */
     private final Map<Locale, LookupLocaleValue> locales = new HashMap<>();
 
@@ -349,6 +347,77 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
     }
   }
 
+  /**
+   * The lookups of a request.  Each thread records its lookups into its own map,
+   * which are merged at the end of the request.  Only the lookup IDs are shared
+   * between threads so that a key has the same ID in every thread.
+   */
+  private static class RequestLookups {
+
+    private final ConcurrentMap<LookupKey, Long> lookupIds = new ConcurrentHashMap<>();
+
+    /**
+     * Access to each map must be synchronized on the map, which is only contended while being merged.
+     */
+    private final ConcurrentMap<Thread, Map<EditableResourceBundleSet, Map<String, LookupValue>>> threadLookups = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the lookups for the current thread.
+     */
+    private Map<EditableResourceBundleSet, Map<String, LookupValue>> getThreadLookups() {
+      Thread thread = Thread.currentThread();
+      Map<EditableResourceBundleSet, Map<String, LookupValue>> lookups = threadLookups.get(thread);
+      if (lookups == null) {
+        lookups = threadLookups.computeIfAbsent(thread, t -> new IdentityHashMap<>());
+      }
+      return lookups;
+    }
+
+    /**
+     * Gets the lookup ID for the given key, allocating the next ID when first seen by any thread.
+     */
+    private long getLookupId(EditableResourceBundleSet bundleSet, String key, Sequence lookupIdGenerator) {
+      LookupKey lookupKey = new LookupKey(bundleSet, key);
+      Long lookupId = lookupIds.get(lookupKey);
+      if (lookupId == null) {
+        lookupId = lookupIds.computeIfAbsent(lookupKey, k -> lookupIdGenerator.getNextSequenceValue());
+      }
+      return lookupId;
+    }
+
+    /**
+     * Merges the lookups of all threads.
+     */
+    private Map<LookupKey, LookupValue> merge() {
+      Map<LookupKey, LookupValue> merged = new HashMap<>();
+      for (Map<EditableResourceBundleSet, Map<String, LookupValue>> lookups : threadLookups.values()) {
+        synchronized (lookups) {
+          for (Map.Entry<EditableResourceBundleSet, Map<String, LookupValue>> setEntry : lookups.entrySet()) {
+            EditableResourceBundleSet bundleSet = setEntry.getKey();
+            for (Map.Entry<String, LookupValue> entry : setEntry.getValue().entrySet()) {
+              LookupValue lookupValue = entry.getValue();
+              LookupValue mergedValue = merged.computeIfAbsent(
+                  new LookupKey(bundleSet, entry.getKey()),
+                  k -> new LookupValue(lookupValue.id)
+              );
+              mergedValue.elementIds.addAll(lookupValue.elementIds);
+              for (Map.Entry<Locale, LookupLocaleValue> localeEntry : lookupValue.locales.entrySet()) {
+                mergedValue.locales.putIfAbsent(localeEntry.getKey(), localeEntry.getValue());
+              }
+            }
+          }
+        }
+      }
+      if (threadLookups.size() > 1) {
+        // Element IDs in the order allocated
+        for (LookupValue mergedValue : merged.values()) {
+          Collections.sort(mergedValue.elementIds);
+        }
+      }
+      return merged;
+    }
+  }
+
   /**
    * Any page that allows the editing of resources must set this at the beginning of the request.
    * If not all users of the site are allowed to edit the content, must also clear this at the end of the request
@@ -408,8 +477,8 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
     final ThreadSettings threadSettings = getThreadSettings();
     // Disable on current thread
     resetThreadSettings();
-    // Get a copy, in case is still being altered by other threads
-    final Map<LookupKey, LookupValue> lookups = new HashMap<>(threadSettings.requestLookups);
+    // Merge into a copy, in case is still being altered by other threads
+    final Map<LookupKey, LookupValue> lookups = threadSettings.requestLookups.merge();
     if (!lookups.isEmpty()) {
       // Sort by lookupValue.id to present the information in the same order as first seen in the request
       List<LookupKey> lookupKeys = new ArrayList<>(lookups.keySet());
@@ -429,13 +498,11 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
         int invalidatedCount = 0;
         int missingCount = 0;
         for (LookupValue lookupValue : lookups.values()) {
-          synchronized (lookupValue) {
-            for (LookupLocaleValue localeValue : lookupValue.locales.values()) {
-              if (localeValue.missing) {
-                missingCount++;
-              } else if (localeValue.invalidated) {
-                invalidatedCount++;
-              }
+          for (LookupLocaleValue localeValue : lookupValue.locales.values()) {
+            if (localeValue.missing) {
+              missingCount++;
+            } else if (localeValue.invalidated) {
+              invalidatedCount++;
             }
           }
         }
@@ -821,130 +888,121 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
         for (LookupKey lookupKey : lookupKeys) {
           EditableResourceBundleSet bundleSet = lookupKey.bundleSet;
           LookupValue lookupValue = lookups.get(lookupKey);
-          synchronized (lookupValue) {
-            List<Long> elementIds = lookupValue.elementIds;
-            final String key = lookupKey.key;
-            i++;
-            String lookupId = Long.toString(lookupValue.id);
-            out.append("      <tr"
-                + " id=\"EditableResourceBundleEditorRow").append(lookupId).append("\""
-                + " style=\"background-color:").append((i & 1) == 1 ? "white" : "#e0e0e0").append('"');
-            if (!elementIds.isEmpty()) {
-              out.append(" onmouseover=\"if (typeof EditableResourceBundleHighlightAll == &#39;function&#39;) EditableResourceBundleHighlightAll(")
-                  .append(elementIds.get(0).toString()).append(", false);\""
-                  + " onmouseout=\"if (typeof EditableResourceBundleUnhighlightAll == &#39;function&#39;) EditableResourceBundleUnhighlightAll(")
-                  .append(elementIds.get(0).toString()).append(");\"");
-            }
-            out.append(">\n"
-                + "        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
-                .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
-                .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
-                .append("');\" style=\"text-align:right; border:1px solid black\">")
-                .append(Long.toString(lookupValue.id))
-                .append("</td>\n"
-                + "        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
-                .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
-                .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
-                .append("');\" style=\"border:1px solid black\">");
-            textInXhtmlEncoder.append(lookupKey.key, out);
-            out.append("</td>\n");
-            int localeIndex = 0;
-            for (Locale locale : allLocales) {
-              localeIndex++;
-              if (bundleSet.getLocales().contains(locale)) {
-                // Supported by this bundleSet
-                LookupLocaleValue localeValue = lookupValue.locales.get(locale);
-
-                // The border color represents the specific lookups performed.
-                // Red: missing
-                // Blue: invalidated
-                // Black: validated
-                String borderColor = null;
-                if (localeValue != null) {
-                  if (localeValue.missing) {
-                    borderColor = "red";
-                  } else if (localeValue.invalidated) {
-                    borderColor = "blue";
-                  } else {
-                    borderColor = "black";
-                  }
+          List<Long> elementIds = lookupValue.elementIds;
+          final String key = lookupKey.key;
+          i++;
+          String lookupId = Long.toString(lookupValue.id);
+          out.append("      <tr"
+              + " id=\"EditableResourceBundleEditorRow").append(lookupId).append("\""
+              + " style=\"background-color:").append((i & 1) == 1 ? "white" : "#e0e0e0").append('"');
+          if (!elementIds.isEmpty()) {
+            out.append(" onmouseover=\"if (typeof EditableResourceBundleHighlightAll == &#39;function&#39;) EditableResourceBundleHighlightAll(")
+                .append(elementIds.get(0).toString()).append(", false);\""
+                + " onmouseout=\"if (typeof EditableResourceBundleUnhighlightAll == &#39;function&#39;) EditableResourceBundleUnhighlightAll(")
+                .append(elementIds.get(0).toString()).append(");\"");
+          }
+          out.append(">\n"
+              + "        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
+              .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
+              .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
+              .append("');\" style=\"text-align:right; border:1px solid black\">")
+              .append(Long.toString(lookupValue.id))
+              .append("</td>\n"
+              + "        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
+              .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
+              .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
+              .append("');\" style=\"border:1px solid black\">");
+          textInXhtmlEncoder.append(lookupKey.key, out);
+          out.append("</td>\n");
+          int localeIndex = 0;
+          for (Locale locale : allLocales) {
+            localeIndex++;
+            if (bundleSet.getLocales().contains(locale)) {
+              // Supported by this bundleSet
+              LookupLocaleValue localeValue = lookupValue.locales.get(locale);
+
+              // The border color represents the specific lookups performed.
+              // Red: missing
+              // Blue: invalidated
+              // Black: validated
+              String borderColor = null;
+              if (localeValue != null) {
+                if (localeValue.missing) {
+                  borderColor = "red";
+                } else if (localeValue.invalidated) {
+                  borderColor = "blue";
+                } else {
+                  borderColor = "black";
                 }
+              }
 
-                // The background color represents the value status.
-                // Green: is most recently modified (only one unless somehow multiple modified at same exact moment)
-                // Red: is missing
-                // Blue: is invalidated
-                // White: is validated
-                String backgroundColor;
-                EditableResourceBundle localeBundle = bundleSet.getResourceBundle(locale);
-                String currentValue = convertEmpty(localeBundle.getValue(key));
-                if (currentValue == null) {
-                  backgroundColor = "#ffc0c0"; // Missing
+              // The background color represents the value status.
+              // Green: is most recently modified (only one unless somehow multiple modified at same exact moment)
+              // Red: is missing
+              // Blue: is invalidated
+              // White: is validated
+              String backgroundColor;
+              EditableResourceBundle localeBundle = bundleSet.getResourceBundle(locale);
+              String currentValue = convertEmpty(localeBundle.getValue(key));
+              if (currentValue == null) {
+                backgroundColor = "#ffc0c0"; // Missing
+              } else {
+                // Find the most recently updated item
+                Long newestModifiedTime = bundleSet.getNewestModifiedTime(key);
+                Long modifiedTime = localeBundle.getModifiedTime(key);
+                if (modifiedTime != null && modifiedTime.equals(newestModifiedTime)) {
+                  backgroundColor = "#c0ffc0"; // Newest modified time
                 } else {
-                  // Find the most recently updated item
-                  Long newestModifiedTime = null;
-                  for (Locale possLocale : bundleSet.getLocales()) {
-                    EditableResourceBundle possBundle = bundleSet.getResourceBundle(possLocale);
-                    Long possModifiedTime = possBundle.getModifiedTime(key);
-                    if (possModifiedTime != null && (newestModifiedTime == null || possModifiedTime > newestModifiedTime)) {
-                      newestModifiedTime = possModifiedTime;
-                    }
-                  }
-                  Long modifiedTime = localeBundle.getModifiedTime(key);
-                  if (modifiedTime != null && modifiedTime.equals(newestModifiedTime)) {
-                    backgroundColor = "#c0ffc0"; // Newest modified time
+                  Long validatedTime = localeBundle.getValidatedTime(key);
+                  if (validatedTime == null) {
+                    backgroundColor = newestModifiedTime == null ? "white" : "#c0c0ff"; // Not yet validated
+                  } else if (newestModifiedTime == null) {
+                    backgroundColor = "white"; // Nothing modified, assume OK
+                  } else if (validatedTime < newestModifiedTime) {
+                    backgroundColor = "#c0c0ff"; // Invalidated
                   } else {
-                    Long validatedTime = localeBundle.getValidatedTime(key);
-                    if (validatedTime == null) {
-                      backgroundColor = newestModifiedTime == null ? "white" : "#c0c0ff"; // Not yet validated
-                    } else if (newestModifiedTime == null) {
-                      backgroundColor = "white"; // Nothing modified, assume OK
-                    } else if (validatedTime < newestModifiedTime) {
-                      backgroundColor = "#c0c0ff"; // Invalidated
-                    } else {
-                      backgroundColor = "white";
-                    }
+                    backgroundColor = "white";
                   }
                 }
+              }
 
-                out.append("        <td id=\"EditableResourceBundleEditorRow").append(Integer.toString(i))
-                    .append("Locale").append(Integer.toString(localeIndex)).append("\" style=\"white-space:pre; ");
-                if (borderColor != null) {
-                  out.append("border:2px solid ").append(borderColor).append("; ");
+              out.append("        <td id=\"EditableResourceBundleEditorRow").append(Integer.toString(i))
+                  .append("Locale").append(Integer.toString(localeIndex)).append("\" style=\"white-space:pre; ");
+              if (borderColor != null) {
+                out.append("border:2px solid ").append(borderColor).append("; ");
+              } else {
+                out.append("border:1px solid black; ");
+              }
+              out.append("background-color:").append(backgroundColor)
+                  .append("\" onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
+                  .append(Integer.toString(i - 1))
+                  .append(", document.getElementById('EditableResourceBundleEditorRow").append(lookupId)
+                  .append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
+                  .append("'); document.getElementById('EditableResourceBundleEditorTextArea")
+                  .append(Integer.toString(localeIndex))
+                  .append("').select(); document.getElementById('EditableResourceBundleEditorTextArea")
+                  .append(Integer.toString(localeIndex)).append("').focus();\">");
+              if (currentValue != null) {
+                if (currentValue.length() > 30) {
+                  textInXhtmlEncoder.append(currentValue, 0, 30, out);
+                  out.append("\u2026"); // Ellipsis
                 } else {
-                  out.append("border:1px solid black; ");
+                  textInXhtmlEncoder.append(currentValue, out);
                 }
-                out.append("background-color:").append(backgroundColor)
-                    .append("\" onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
-                    .append(Integer.toString(i - 1))
-                    .append(", document.getElementById('EditableResourceBundleEditorRow").append(lookupId)
-                    .append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0")
-                    .append("'); document.getElementById('EditableResourceBundleEditorTextArea")
-                    .append(Integer.toString(localeIndex))
-                    .append("').select(); document.getElementById('EditableResourceBundleEditorTextArea")
-                    .append(Integer.toString(localeIndex)).append("').focus();\">");
-                if (currentValue != null) {
-                  if (currentValue.length() > 30) {
-                    textInXhtmlEncoder.append(currentValue, 0, 30, out);
-                    out.append("\u2026"); // Ellipsis
-                  } else {
-                    textInXhtmlEncoder.append(currentValue, out);
-                  }
-                }
-                out.append("</td>\n");
-              } else {
-                // Not supported by this bundleSet
-                out.append("        <td style=\"opacity:.5; background-color:#404040; border:1px solid black\"></td>\n");
               }
+              out.append("</td>\n");
+            } else {
+              // Not supported by this bundleSet
+              out.append("        <td style=\"opacity:.5; background-color:#404040; border:1px solid black\"></td>\n");
             }
-            // Base Name
-            out.append("        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
-                .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
-                .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0").append("');\">");
-            textInXhtmlEncoder.append(bundleSet.getBaseName(), out);
-            out.append("</td>\n"
-                + "      </tr>\n");
           }
+          // Base Name
+          out.append("        <td onclick=\"EditableResourceBundleEditorSelectedRowOnClick(")
+              .append(Integer.toString(i - 1)).append(", document.getElementById('EditableResourceBundleEditorRow")
+              .append(lookupId).append("'), '").append((i & 1) == 1 ? "white" : "#e0e0e0").append("');\">");
+          textInXhtmlEncoder.append(bundleSet.getBaseName(), out);
+          out.append("</td>\n"
+              + "      </tr>\n");
         }
         out.append("    </table>\n"
             + "  </div>\n"
@@ -1004,15 +1062,13 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
         }
         out.append("\n    [");
         boolean didOne2 = false;
-        synchronized (lookupValue) {
-          for (Long id : lookupValue.elementIds) {
-            if (didOne2) {
-              out.append(',');
-            } else {
-              didOne2 = true;
-            }
-            out.append(id.toString());
+        for (Long id : lookupValue.elementIds) {
+          if (didOne2) {
+            out.append(',');
+          } else {
+            didOne2 = true;
           }
+          out.append(id.toString());
         }
         out.append(']');
       }
@@ -1103,14 +1159,27 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
   private final Locale locale;
   private final EditableResourceBundleSet bundleSet;
 
+  /**
+   * @param writeBehindDelay The number of milliseconds to coalesce changes before saving in the background,
+   *                         or {@code 0} to save on every change.
+   *
+   * @see  ModifiablePropertiesResourceBundle#ModifiablePropertiesResourceBundle(long, java.io.File...)
+   */
   @SuppressWarnings("LeakingThisInConstructor")
-  protected EditableResourceBundle(Locale locale, EditableResourceBundleSet bundleSet, File... sourceFiles) {
-    super(sourceFiles);
+  protected EditableResourceBundle(Locale locale, EditableResourceBundleSet bundleSet, long writeBehindDelay, File... sourceFiles) {
+    super(writeBehindDelay, sourceFiles);
     this.locale = locale;
     this.bundleSet = bundleSet;
     bundleSet.addBundle(this);
   }
 
+  /**
+   * Saves on every change.
+   */
+  protected EditableResourceBundle(Locale locale, EditableResourceBundleSet bundleSet, File... sourceFiles) {
+    this(locale, bundleSet, 0, sourceFiles);
+  }
+
   Locale getBundleLocale() {
     return locale;
   }
@@ -1119,6 +1188,34 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
     return bundleSet;
   }
 
+  /**
+   * Also updates the newest modified time of the bundle set, even when the save fails,
+   * since the key has already been removed from memory.
+   */
+  @Override
+  protected void handleRemoveKey(String key) {
+    try {
+      super.handleRemoveKey(key);
+    } finally {
+      bundleSet.keyModified(key);
+    }
+  }
+
+  /**
+   * Also updates the newest modified time of the bundle set when modified, even when the save fails,
+   * since the value has already been set in memory.
+   */
+  @Override
+  protected void handleSetObject(String key, Object value, boolean modified) {
+    try {
+      super.handleSetObject(key, value, modified);
+    } finally {
+      if (modified) {
+        bundleSet.keyModified(key);
+      }
+    }
+  }
+
   /**
    * The natural sorting is based on classname.
    */
@@ -1157,14 +1254,7 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
     // all translations
 
     // Find the most recently updated item
-    Long newestModifiedTime = null;
-    for (Locale possLocale : bundleSet.getLocales()) {
-      EditableResourceBundle possBundle = bundleSet.getResourceBundle(possLocale);
-      Long possModifiedTime = possBundle.getModifiedTime(key);
-      if (possModifiedTime != null && (newestModifiedTime == null || possModifiedTime > newestModifiedTime)) {
-        newestModifiedTime = possModifiedTime;
-      }
-    }
+    Long newestModifiedTime = bundleSet.getNewestModifiedTime(key);
     boolean invalidated;
     Long validatedTime = bundleSet.getResourceBundle(locale).getValidatedTime(key);
     if (newestModifiedTime == null) {
@@ -1177,17 +1267,15 @@ public abstract class EditableResourceBundle extends ModifiablePropertiesResourc
       }
     }
 
-    // Add to the log
-    LookupKey lookupKey = new LookupKey(bundleSet, key);
-    LookupValue lookupValue = threadSettings.requestLookups.get(lookupKey);
-    if (lookupValue == null) {
-      lookupValue = new LookupValue(threadSettings.lookupIdGenerator.getNextSequenceValue());
-      LookupValue existing = threadSettings.requestLookups.putIfAbsent(lookupKey, lookupValue);
-      if (existing != null) {
-        lookupValue = existing;
+    // Add to the log of the current thread
+    Map<EditableResourceBundleSet, Map<String, LookupValue>> threadLookups = threadSettings.requestLookups.getThreadLookups();
+    synchronized (threadLookups) {
+      Map<String, LookupValue> setLookups = threadLookups.computeIfAbsent(bundleSet, s -> new HashMap<>());
+      LookupValue lookupValue = setLookups.get(key);
+      if (lookupValue == null) {
+        lookupValue = new LookupValue(threadSettings.requestLookups.getLookupId(bundleSet, key, threadSettings.lookupIdGenerator));
+        setLookups.put(key, lookupValue);
       }
-    }
-    synchronized (lookupValue) {
       // Add this locale if not already set
       boolean missing = value == null;
       lookupValue.locales.computeIfAbsent(locale, l -> new LookupLocaleValue(missing, invalidated));
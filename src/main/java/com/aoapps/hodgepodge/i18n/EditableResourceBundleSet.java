@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -29,10 +29,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Groups resource bundles into a set.  Only the most recent bundle created
@@ -51,6 +53,13 @@ public class EditableResourceBundleSet {
 
   private final Map<Locale, EditableResourceBundle> bundles = new ConcurrentHashMap<>();
 
+  /**
+   * The most recent modified time of each key across all locales, computed as
+   * first needed and discarded when any bundle in this set modifies the key.
+   * An empty value is cached for keys not modified in any locale.
+   */
+  private final ConcurrentMap<String, Optional<Long>> newestModifiedTimes = new ConcurrentHashMap<>();
+
   /**
    * @param baseName the base name of the default locale's bundle.
    * @param locales the set of all allowed locales.
@@ -96,6 +105,42 @@ public class EditableResourceBundleSet {
       throw new AssertionError("locale not in locales: " + locale);
     }
     bundles.put(locale, bundle);
+    // A replaced bundle may have different modified times
+    newestModifiedTimes.clear();
+  }
+
+  /**
+   * Called by {@link EditableResourceBundle} after a key has been modified or removed.
+   */
+  void keyModified(String key) {
+    // Removal waits for any computation in progress, which may have seen the previous times
+    newestModifiedTimes.remove(key);
+  }
+
+  /**
+   * Gets the most recent modified time of the given key across all locales.
+   *
+   * @return  the newest modified time or {@code null} when not modified in any locale
+   */
+  public Long getNewestModifiedTime(String key) {
+    Optional<Long> newestModifiedTime = newestModifiedTimes.get(key);
+    if (newestModifiedTime == null) {
+      // Load all bundles first, since adding a bundle clears the cache
+      for (Locale possLocale : locales) {
+        getResourceBundle(possLocale);
+      }
+      newestModifiedTime = newestModifiedTimes.computeIfAbsent(key, k -> {
+        Long newest = null;
+        for (EditableResourceBundle possBundle : bundles.values()) {
+          Long possModifiedTime = possBundle.getModifiedTime(k);
+          if (possModifiedTime != null && (newest == null || possModifiedTime > newest)) {
+            newest = possModifiedTime;
+          }
+        }
+        return Optional.ofNullable(newest);
+      });
+    }
+    return newestModifiedTime.orElse(null);
   }
 
   public String getBaseName() {
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2024, 2025  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2024, 2025, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,7 +24,7 @@
 package com.aoapps.hodgepodge.i18n;
 
 import com.aoapps.hodgepodge.util.CommentCaptureInputStream;
-import com.aoapps.hodgepodge.util.DiffableProperties;
+import com.aoapps.hodgepodge.util.DiffablePropertiesWriter;
 import com.aoapps.hodgepodge.util.SkipCommentsFilterOutputStream;
 import com.aoapps.lang.LocalizedIllegalStateException;
 import com.aoapps.lang.i18n.Resources;
@@ -33,20 +33,26 @@ import com.aoapps.lang.io.LocalizedIOException;
 import com.aoapps.tempfiles.TempFile;
 import com.aoapps.tempfiles.TempFileContext;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,6 +61,10 @@ import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,6 +79,15 @@ import java.util.logging.Logger;
  * or locale.  For instance, class <code>com.aoapps.hodgepodge.swing.ApplicationResources_ja</code>
  * would load its properties from <code>com/aoapps/hodgepodge/swing/ApplicationResources_ja.properties</code>.</p>
  *
+ * <p>By default, the properties file is saved on every change.  With a write-behind delay,
+ * changes are coalesced over the delay and saved by a background thread, so a translator
+ * saving many strings only rewrites the file once.  Changes are available to queries
+ * immediately either way, before being saved.  Even without a delay, a change that fails to
+ * save remains visible to queries and is kept pending, to be saved with the next change or
+ * {@link #flush()}.  The changes of each save may be observed by
+ * {@link #addChangeListener(com.aoapps.hodgepodge.i18n.ModifiablePropertiesResourceBundle.ChangeListener)},
+ * such as for replication to other nodes.</p>
+ *
  * <p>Idea: Occasionally check sourceFile and reload properties if externally modified.</p>
  *
  * @author  AO Industries, Inc.
@@ -84,6 +103,108 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
   private static final String VALIDATED_SUFFIX = ".ModifiableResourceBundle.validated";
   private static final String MODIFIED_SUFFIX = ".ModifiableResourceBundle.modified";
 
+  /**
+   * The state of one key after a change.
+   */
+  public static final class Change {
+
+    private final String key;
+    private final String value;
+    private final Long validatedTime;
+    private final Long modifiedTime;
+
+    private Change(String key, String value, Long validatedTime, Long modifiedTime) {
+      this.key = key;
+      this.value = value;
+      this.validatedTime = validatedTime;
+      this.modifiedTime = modifiedTime;
+    }
+
+    @Override
+    public String toString() {
+      return key + '=' + value;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * Gets the new value.
+     *
+     * @return  The value or {@code null} when the key has been removed
+     */
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * Gets the new validated time.
+     *
+     * @return  The validated time or {@code null} when the key has been removed
+     */
+    public Long getValidatedTime() {
+      return validatedTime;
+    }
+
+    /**
+     * Gets the new modified time.
+     *
+     * @return  The modified time or {@code null} when never modified or the key has been removed
+     */
+    public Long getModifiedTime() {
+      return modifiedTime;
+    }
+  }
+
+  /**
+   * Notified of the changes of each save.
+   *
+   * @see  #addChangeListener(com.aoapps.hodgepodge.i18n.ModifiablePropertiesResourceBundle.ChangeListener)
+   */
+  @FunctionalInterface
+  public static interface ChangeListener {
+
+    /**
+     * Called once the changes have been saved, on the thread that saved the changes.
+     *
+     * @param  changes  the changes in the order first changed, with only the most recent state of each key
+     */
+    void changesSaved(ModifiablePropertiesResourceBundle bundle, List<Change> changes);
+  }
+
+  /**
+   * Performs all write-behind saves.
+   */
+  private static class WriteBehind {
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+      Thread thread = new Thread(r);
+      thread.setName(ModifiablePropertiesResourceBundle.class.getName() + ".WriteBehind");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      return thread;
+    });
+
+    /**
+     * The bundles that have changes not yet saved.
+     */
+    private static final Set<ModifiablePropertiesResourceBundle> pendingBundles = ConcurrentHashMap.newKeySet();
+
+    static {
+      // Save any pending changes on shutdown, since the executor thread is a daemon
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        for (ModifiablePropertiesResourceBundle bundle : pendingBundles) {
+          bundle.flushLogged();
+        }
+      }));
+    }
+
+    private WriteBehind() {
+      // Do not allow instantiation
+    }
+  }
+
   /**
    * Checks if a key is used for tracking status.
    */
@@ -133,12 +254,39 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
    */
   private final Properties properties = new Properties();
 
+  private final long writeBehindDelay;
+
+  /**
+   * The changes not yet saved, by key.
+   * Access must be synchronized on {@link #properties}.
+   */
+  private Map<String, Change> pendingChanges = new LinkedHashMap<>();
+
   /**
+   * Set when a write-behind save has been scheduled.
+   * Access must be synchronized on {@link #properties}.
+   */
+  private boolean saveScheduled;
+
+  /**
+   * Saves are serialized on this lock, without blocking updates while the file is written.
+   */
+  private final Object saveLock = new Object();
+
+  private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * @param writeBehindDelay The number of milliseconds to coalesce changes before saving in the background,
+   *                         or {@code 0} to save on every change.
    * @param sourceFiles The source file(s).  If multiple source files are provided,
    *                    only one may exist and be both readable and writable.  If more than
    *                    one possible source file exists, will throw an IllegalStateException.
    */
-  protected ModifiablePropertiesResourceBundle(File... sourceFiles) {
+  protected ModifiablePropertiesResourceBundle(long writeBehindDelay, File... sourceFiles) {
+    if (writeBehindDelay < 0) {
+      throw new IllegalArgumentException("writeBehindDelay < 0: " + writeBehindDelay);
+    }
+    this.writeBehindDelay = writeBehindDelay;
     File goodSourceFile = null;
     if (sourceFiles != null) {
       for (File file : sourceFiles) {
@@ -230,6 +378,17 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
     }
   }
 
+  /**
+   * Saves on every change.
+   *
+   * @param sourceFiles The source file(s).  If multiple source files are provided,
+   *                    only one may exist and be both readable and writable.  If more than
+   *                    one possible source file exists, will throw an IllegalStateException.
+   */
+  protected ModifiablePropertiesResourceBundle(File... sourceFiles) {
+    this(0, sourceFiles);
+  }
+
   @Override
   protected Object handleGetObject(String key) {
     if (key == null) {
@@ -346,55 +505,251 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
   };
 
   /**
-   * Saves the properties file in ascending key order.  All accesses must
-   * already hold a lock on the properties object.
+   * Writes the bytes of the properties file as ISO-8859-1 characters, which are one byte each.
    */
-  private void saveProperties() {
-    assert Thread.holdsLock(properties);
-    try {
-      // Create a properties instance that sorts the output by keys (case-insensitive)
-      @SuppressWarnings("deprecation")
-      com.aoapps.collections.SortedProperties writer = new com.aoapps.collections.SortedProperties() {
-        @Override
-        public Comparator<Object> getKeyComparator() {
-          return PROPERTIES_KEY_COMPARATOR;
-        }
-      };
-      writer.putAll(properties);
-      // Generate new file
-      byte[] newContent;
-      try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-        // Write any comments from when file was read
-        if (sourceFileComments != null) {
-          for (String line : sourceFileComments) {
-            out.write(line.getBytes(propertiesCharset));
-            out.write('\n');
+  private static class Latin1OutputStream extends OutputStream {
+
+    private final Writer out;
+
+    private Latin1OutputStream(Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b & 0xff);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(new String(b, off, len, propertiesCharset));
+    }
+  }
+
+  /**
+   * Writes to a file while comparing the bytes written to the contents of another file.
+   */
+  private static class ContentEqualsOutputStream extends OutputStream {
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final byte[] buff = new byte[4096];
+    private boolean equal;
+    private boolean closed;
+
+    /**
+     * @param  compareTo  the file to compare to, never equal when it does not exist
+     */
+    private ContentEqualsOutputStream(File file, File compareTo) throws IOException {
+      in = compareTo.exists() ? new BufferedInputStream(new FileInputStream(compareTo)) : null;
+      equal = in != null;
+      try {
+        out = new BufferedOutputStream(new FileOutputStream(file));
+      } catch (Error | RuntimeException | IOException e) {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (Error | RuntimeException | IOException e2) {
+            e.addSuppressed(e2);
           }
         }
-        // TODO: Java 9: Support UTF-8 properties files via reader/writer
-        writer.store(
-            // Wrap to skip any comments generated by Properties code
-            new SkipCommentsFilterOutputStream(out),
-            null
-        );
-        newContent = DiffableProperties.formatProperties(out.toString(propertiesCharset.name())).getBytes(propertiesCharset);
+        throw e;
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      if (equal && in.read() != (b & 0xff)) {
+        equal = false;
       }
-      if (!sourceFile.exists() || !FileUtils.contentEquals(sourceFile, newContent)) {
-        try (
-            TempFileContext tempFileContext = new TempFileContext(sourceFile.getParentFile());
-            TempFile tempFile = tempFileContext.createTempFile(sourceFile.getName())
-            ) {
-          try (OutputStream out = new FileOutputStream(tempFile.getFile())) {
-            out.write(newContent);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      while (equal && len > 0) {
+        int blockLen = Math.min(len, buff.length);
+        if (
+            in.readNBytes(buff, 0, blockLen) != blockLen
+                || !Arrays.equals(buff, 0, blockLen, b, off, off + blockLen)
+        ) {
+          equal = false;
+        }
+        off += blockLen;
+        len -= blockLen;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    /**
+     * Checks the end of the compared file then closes both files.
+     */
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try (out; InputStream i = in) {
+          if (equal && i.read() != -1) {
+            equal = false;
           }
-          FileUtils.renameAllowNonAtomic(tempFile.getFile(), sourceFile);
         }
       }
+    }
+
+    /**
+     * Checks if the bytes written are the same as the compared file, only valid once closed.
+     */
+    private boolean isEqual() {
+      assert closed;
+      return equal;
+    }
+  }
+
+  /**
+   * Writes the properties file in ascending key order, formatted while writing.
+   * Closes the output stream.
+   */
+  @SuppressWarnings("deprecation")
+  private void writeProperties(com.aoapps.collections.SortedProperties writer, OutputStream out) throws IOException {
+    try (Writer formatter = new DiffablePropertiesWriter(new OutputStreamWriter(out, propertiesCharset))) {
+      // Write any comments from when file was read
+      if (sourceFileComments != null) {
+        for (String line : sourceFileComments) {
+          formatter.write(line);
+          formatter.write('\n');
+        }
+      }
+      // TODO: Java 9: Support UTF-8 properties files via reader/writer
+      writer.store(
+          // Wrap to skip any comments generated by Properties code
+          new SkipCommentsFilterOutputStream(new Latin1OutputStream(formatter)),
+          null
+      );
+    }
+  }
+
+  /**
+   * Saves the properties file in ascending key order.  All accesses must
+   * already hold the save lock.
+   *
+   * <p>The new file is written to a temporary file while being compared to the existing file,
+   * then only renamed over the existing file when different, so the file is generated once and
+   * never held in memory.</p>
+   *
+   * @param  writer  a snapshot of the properties, sorted by key
+   */
+  @SuppressWarnings("deprecation")
+  private void saveProperties(com.aoapps.collections.SortedProperties writer) {
+    assert Thread.holdsLock(saveLock);
+    try (
+        TempFileContext tempFileContext = new TempFileContext(sourceFile.getParentFile());
+        TempFile tempFile = tempFileContext.createTempFile(sourceFile.getName())
+        ) {
+      ContentEqualsOutputStream out = new ContentEqualsOutputStream(tempFile.getFile(), sourceFile);
+      writeProperties(writer, out);
+      if (!out.isEqual()) {
+        FileUtils.renameAllowNonAtomic(tempFile.getFile(), sourceFile);
+      }
+      // Otherwise the unchanged temporary file is deleted on close
     } catch (IOException err) {
       throw new UncheckedIOException(err);
     }
   }
 
+  /**
+   * Saves any pending changes now, then notifies the change listeners.
+   * Should a save fail, its changes remain pending and will be saved with the next changes.
+   *
+   * @throws  UncheckedIOException  when unable to save the properties file
+   */
+  @SuppressWarnings("deprecation")
+  public void flush() throws UncheckedIOException {
+    synchronized (saveLock) {
+      Map<String, Change> changes;
+      com.aoapps.collections.SortedProperties writer;
+      synchronized (properties) {
+        saveScheduled = false;
+        changes = pendingChanges;
+        if (changes.isEmpty()) {
+          WriteBehind.pendingBundles.remove(this);
+          return;
+        }
+        pendingChanges = new LinkedHashMap<>();
+        // Create a properties instance that sorts the output by keys (case-insensitive)
+        writer = new com.aoapps.collections.SortedProperties() {
+          @Override
+          public Comparator<Object> getKeyComparator() {
+            return PROPERTIES_KEY_COMPARATOR;
+          }
+        };
+        writer.putAll(properties);
+      }
+      try {
+        saveProperties(writer);
+      } catch (Error | RuntimeException e) {
+        synchronized (properties) {
+          // Keep the changes pending, without replacing any more recent changes
+          for (Change change : changes.values()) {
+            pendingChanges.putIfAbsent(change.key, change);
+          }
+        }
+        throw e;
+      }
+      synchronized (properties) {
+        // Changes made during the save are still pending
+        if (pendingChanges.isEmpty()) {
+          WriteBehind.pendingBundles.remove(this);
+        }
+      }
+      List<Change> changeList = Collections.unmodifiableList(new ArrayList<>(changes.values()));
+      for (ChangeListener listener : changeListeners) {
+        try {
+          listener.changesSaved(this, changeList);
+        } catch (ThreadDeath td) {
+          throw td;
+        } catch (Throwable t) {
+          logger.log(Level.SEVERE, null, t);
+        }
+      }
+    }
+  }
+
+  /**
+   * Flushes, logging any failure.
+   */
+  private void flushLogged() {
+    try {
+      flush();
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      logger.log(Level.SEVERE, RESOURCES.getMessage("flush.failed", sourceFile), t);
+    }
+  }
+
+  /**
+   * Records a change then either saves now or schedules a save.
+   * All accesses must already hold a lock on the properties object.
+   */
+  private void changed(String key) {
+    assert Thread.holdsLock(properties);
+    Change change = new Change(key, valueMap.get(key), validatedMap.get(key), modifiedMap.get(key));
+    // Keep the order first changed
+    pendingChanges.put(key, change);
+    if (writeBehindDelay != 0) {
+      WriteBehind.pendingBundles.add(this);
+      if (!saveScheduled) {
+        WriteBehind.executor.schedule(this::flushLogged, writeBehindDelay, TimeUnit.MILLISECONDS);
+        saveScheduled = true;
+      }
+    }
+  }
+
   @Override
   protected void handleRemoveKey(String key) {
     checkKey(key);
@@ -403,10 +758,13 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
       properties.remove(key);
       properties.remove(key + VALIDATED_SUFFIX);
       properties.remove(key + MODIFIED_SUFFIX);
-      saveProperties();
       valueMap.remove(key);
       validatedMap.remove(key);
       modifiedMap.remove(key);
+      changed(key);
+    }
+    if (writeBehindDelay == 0) {
+      flush();
     }
   }
 
@@ -422,15 +780,41 @@ public abstract class ModifiablePropertiesResourceBundle extends ModifiableResou
       if (modified) {
         properties.setProperty(key + MODIFIED_SUFFIX, currentTimeString);
       }
-      saveProperties();
       valueMap.put(key, (String) value);
       validatedMap.put(key, currentTimeLong);
       if (modified) {
         modifiedMap.put(key, currentTimeLong);
       }
+      changed(key);
+    }
+    if (writeBehindDelay == 0) {
+      flush();
     }
   }
 
+  /**
+   * Gets the number of milliseconds changes are coalesced before saving in the background.
+   *
+   * @return  The delay or {@code 0} when saved on every change
+   */
+  public long getWriteBehindDelay() {
+    return writeBehindDelay;
+  }
+
+  /**
+   * Adds a listener notified of the changes of each save.
+   */
+  public void addChangeListener(ChangeListener listener) {
+    changeListeners.add(listener);
+  }
+
+  /**
+   * Removes a listener.
+   */
+  public void removeChangeListener(ChangeListener listener) {
+    changeListeners.remove(listener);
+  }
+
   /**
    * Provides direct read access to the value.
    */
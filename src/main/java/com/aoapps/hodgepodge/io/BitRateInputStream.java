@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2018, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2018, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -33,6 +33,8 @@ import java.io.InterruptedIOException;
  * A <code>BitRateInputStream</code> regulates an
  * Does not count bytes skipped toward bit rate.
  * <code>InputStream</code> to a specific bit rate.
+ * When the provider is a {@link TokenBucketBitRateProvider}, bytes are acquired from
+ * its bucket after being read, which may be shared with other streams.
  * Please note that this class is not synchronized
  * so it should only be used from a single Thread
  * or should be synchronized externally.
@@ -45,6 +47,11 @@ public class BitRateInputStream extends FilterInputStream implements NoClose {
 
   private final BitRateProvider provider;
 
+  /**
+   * The provider when it is token bucket based, otherwise {@code null}.
+   */
+  private final TokenBucketBitRateProvider tokenBucketProvider;
+
   private long blockStart = -1;
   private long catchupTime;
   private long byteCount;
@@ -52,6 +59,7 @@ public class BitRateInputStream extends FilterInputStream implements NoClose {
   public BitRateInputStream(InputStream out, BitRateProvider provider) {
     super(out);
     this.provider = provider;
+    this.tokenBucketProvider = (provider instanceof TokenBucketBitRateProvider) ? (TokenBucketBitRateProvider) provider : null;
   }
 
   @Override
@@ -62,11 +70,20 @@ public class BitRateInputStream extends FilterInputStream implements NoClose {
   @Override
   public void close() throws IOException {
     in.close();
-    sleep();
+    if (tokenBucketProvider == null) {
+      sleep();
+    }
   }
 
   @Override
   public int read() throws IOException {
+    if (tokenBucketProvider != null) {
+      int b = in.read();
+      if (b != -1) {
+        tokenBucketProvider.acquire(1);
+      }
+      return b;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -80,6 +97,9 @@ public class BitRateInputStream extends FilterInputStream implements NoClose {
 
   @Override
   public int read(byte[] buff) throws IOException {
+    if (tokenBucketProvider != null) {
+      return read(buff, 0, buff.length);
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -93,6 +113,14 @@ public class BitRateInputStream extends FilterInputStream implements NoClose {
 
   @Override
   public int read(byte[] buff, int off, int len) throws IOException {
+    if (tokenBucketProvider != null) {
+      // Read no more than the burst at a time, so reads are spread evenly
+      int count = in.read(buff, off, Math.min(len, tokenBucketProvider.getBlockSize()));
+      if (count > 0) {
+        tokenBucketProvider.acquire(count);
+      }
+      return count;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
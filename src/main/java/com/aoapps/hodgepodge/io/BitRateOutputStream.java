@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2018, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2018, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -32,6 +32,8 @@ import java.io.OutputStream;
 /**
  * A <code>BitRateOutputStream</code> regulates an
  * <code>OutputStream</code> to a specific bit rate.
+ * When the provider is a {@link TokenBucketBitRateProvider}, bytes are acquired from
+ * its bucket before being written, which may be shared with other streams.
  * Please note that this class is not synchronized
  * so it should only be used from a single Thread
  * or should be synchronized externally.
@@ -44,6 +46,11 @@ public class BitRateOutputStream extends FilterOutputStream implements NoClose {
 
   private final BitRateProvider provider;
 
+  /**
+   * The provider when it is token bucket based, otherwise {@code null}.
+   */
+  private final TokenBucketBitRateProvider tokenBucketProvider;
+
   private long blockStart = -1;
   private long catchupTime;
   private long byteCount;
@@ -51,10 +58,16 @@ public class BitRateOutputStream extends FilterOutputStream implements NoClose {
   public BitRateOutputStream(OutputStream out, BitRateProvider provider) {
     super(out);
     this.provider = provider;
+    this.tokenBucketProvider = (provider instanceof TokenBucketBitRateProvider) ? (TokenBucketBitRateProvider) provider : null;
   }
 
   @Override
   public void write(int b) throws IOException {
+    if (tokenBucketProvider != null) {
+      tokenBucketProvider.acquire(1);
+      out.write(b);
+      return;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -65,6 +78,10 @@ public class BitRateOutputStream extends FilterOutputStream implements NoClose {
 
   @Override
   public void write(byte[] b) throws IOException {
+    if (tokenBucketProvider != null) {
+      write(b, 0, b.length);
+      return;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -75,6 +92,18 @@ public class BitRateOutputStream extends FilterOutputStream implements NoClose {
 
   @Override
   public void write(byte[] b, int off, int len) throws IOException {
+    if (tokenBucketProvider != null) {
+      // Acquire no more than the burst at a time, so writes are spread evenly
+      int burst = tokenBucketProvider.getBlockSize();
+      while (len > 0) {
+        int blockLen = Math.min(len, burst);
+        tokenBucketProvider.acquire(blockLen);
+        out.write(b, off, blockLen);
+        off += blockLen;
+        len -= blockLen;
+      }
+      return;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -85,6 +114,10 @@ public class BitRateOutputStream extends FilterOutputStream implements NoClose {
 
   @Override
   public void flush() throws IOException {
+    if (tokenBucketProvider != null) {
+      out.flush();
+      return;
+    }
     if (blockStart == -1) {
       blockStart = System.currentTimeMillis();
     }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2013, 2016, 2019, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2013, 2016, 2019, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,10 +23,21 @@
 
 package com.aoapps.hodgepodge.io;
 
+import com.aoapps.hodgepodge.io.stream.StreamableInput;
+import com.aoapps.hodgepodge.io.stream.StreamableOutput;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -40,6 +51,13 @@ import java.util.TreeMap;
  * <p>Only watches the lengths and modified times for filesystem objects that Java
  * considers a file.</p>
  *
+ * <p>The snapshot is stored compactly: paths are prefix-compressed against the
+ * previous path, and modified times and lengths are primitive {@code long} columns.
+ * Entries are in the order of a depth-first traversal with each directory sorted,
+ * which allows two snapshots to be compared by {@link #diff(DirectoryMetaSnapshot)}
+ * in a single streaming pass.  Directories are also recorded, with their modified
+ * times, so a later snapshot may skip listing directories that have not changed.</p>
+ *
  * @see  File#isFile()  for what Java considers a file
  *
  * @author  AO Industries, Inc.
@@ -72,6 +90,11 @@ public final class DirectoryMetaSnapshot {
       return Long.hashCode(lastModified) ^ Long.hashCode(length);
     }
 
+    @Override
+    public String toString() {
+      return lastModified + ", " + length;
+    }
+
     public long getLastModified() {
       return lastModified;
     }
@@ -81,35 +104,555 @@ public final class DirectoryMetaSnapshot {
     }
   }
 
-  private final SortedMap<String, FileMetaSnapshot> files;
+  /**
+   * One file that differs between two snapshots.
+   *
+   * @see  DirectoryMetaSnapshot#diff(DirectoryMetaSnapshot)
+   */
+  public static final class Difference {
+
+    public enum Type {
+      ADDED,
+      REMOVED,
+      MODIFIED
+    }
+
+    private final Type type;
+    private final String path;
+    private final FileMetaSnapshot oldMeta;
+    private final FileMetaSnapshot newMeta;
+
+    private Difference(Type type, String path, FileMetaSnapshot oldMeta, FileMetaSnapshot newMeta) {
+      this.type = type;
+      this.path = path;
+      this.oldMeta = oldMeta;
+      this.newMeta = newMeta;
+    }
+
+    @Override
+    public String toString() {
+      return type + " " + path;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    /**
+     * Gets the path, relative to the start path.
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Gets the meta data in the older snapshot or {@code null} when added.
+     */
+    public FileMetaSnapshot getOldMeta() {
+      return oldMeta;
+    }
+
+    /**
+     * Gets the meta data in the newer snapshot or {@code null} when removed.
+     */
+    public FileMetaSnapshot getNewMeta() {
+      return newMeta;
+    }
+  }
+
+  /**
+   * The length recorded for directories.
+   */
+  private static final long DIRECTORY = -1;
+
+  private static final String MAGIC = "DirectoryMetaSnapshot";
+
+  private static final int VERSION = 1;
+
+  /**
+   * Compares relative paths in traversal order, which is the order of their
+   * path segments.  This is string order with the separator before all other
+   * characters.
+   */
+  private static int comparePaths(char[] path1, int len1, char[] path2, int len2) {
+    int len = Math.min(len1, len2);
+    for (int i = 0; i < len; i++) {
+      char ch1 = path1[i];
+      char ch2 = path2[i];
+      if (ch1 != ch2) {
+        if (ch1 == File.separatorChar) {
+          return -1;
+        }
+        if (ch2 == File.separatorChar) {
+          return 1;
+        }
+        return ch1 - ch2;
+      }
+    }
+    return len1 - len2;
+  }
+
+  /**
+   * Appends entries in traversal order, with prefix compression.
+   */
+  private static final class Builder {
+
+    private int size;
+    private int[] shared = new int[16];
+    private int[] suffixEnd = new int[16];
+    private char[] suffixes = new char[256];
+    private int suffixesLength;
+    private long[] lastModified = new long[16];
+    private long[] length = new long[16];
+    private char[] lastPath = new char[64];
+    private int lastPathLength;
+
+    private void add(char[] path, int pathLength, long entryLastModified, long entryLength) {
+      int common = 0;
+      int max = Math.min(pathLength, lastPathLength);
+      while (common < max && path[common] == lastPath[common]) {
+        common++;
+      }
+      if (size == shared.length) {
+        int capacity = size << 1;
+        shared = Arrays.copyOf(shared, capacity);
+        suffixEnd = Arrays.copyOf(suffixEnd, capacity);
+        lastModified = Arrays.copyOf(lastModified, capacity);
+        length = Arrays.copyOf(length, capacity);
+      }
+      int suffixLength = pathLength - common;
+      if (suffixesLength + suffixLength > suffixes.length) {
+        suffixes = Arrays.copyOf(suffixes, Math.max(suffixes.length << 1, suffixesLength + suffixLength));
+      }
+      System.arraycopy(path, common, suffixes, suffixesLength, suffixLength);
+      suffixesLength += suffixLength;
+      shared[size] = common;
+      suffixEnd[size] = suffixesLength;
+      lastModified[size] = entryLastModified;
+      length[size] = entryLength;
+      size++;
+      if (pathLength > lastPath.length) {
+        lastPath = Arrays.copyOf(lastPath, Math.max(lastPath.length << 1, pathLength));
+      }
+      System.arraycopy(path, common, lastPath, common, suffixLength);
+      lastPathLength = pathLength;
+    }
+  }
+
+  /**
+   * Decodes the entries of a snapshot in order.
+   */
+  private final class Cursor {
+
+    private int index = -1;
+    private char[] path = new char[64];
+    private int pathLength;
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return  {@code false} when there are no more entries
+     */
+    private boolean next() {
+      if (index >= size) {
+        return false;
+      }
+      if (++index == size) {
+        return false;
+      }
+      int common = shared[index];
+      int suffixStart = index == 0 ? 0 : suffixEnd[index - 1];
+      int suffixLength = suffixEnd[index] - suffixStart;
+      int newLength = common + suffixLength;
+      if (newLength > path.length) {
+        path = Arrays.copyOf(path, Math.max(path.length << 1, newLength));
+      }
+      System.arraycopy(suffixes, suffixStart, path, common, suffixLength);
+      pathLength = newLength;
+      return true;
+    }
+
+    private boolean isValid() {
+      return index >= 0 && index < size;
+    }
+
+    /**
+     * Moves to the next file, skipping directories.
+     */
+    private boolean nextFile() {
+      while (next()) {
+        if (length[index] != DIRECTORY) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isDirectory() {
+      return length[index] == DIRECTORY;
+    }
+
+    private long getLastModified() {
+      return lastModified[index];
+    }
+
+    private long getLength() {
+      return length[index];
+    }
+
+    private FileMetaSnapshot getMeta() {
+      return new FileMetaSnapshot(lastModified[index], length[index]);
+    }
+
+    private String getPath() {
+      return new String(path, 0, pathLength);
+    }
+  }
+
+  private final int size;
+  private final int[] shared;
+  private final int[] suffixEnd;
+  private final char[] suffixes;
+  private final long[] lastModified;
+  private final long[] length;
+
+  private volatile SortedMap<String, FileMetaSnapshot> files;
+  private volatile Integer hashCode;
+
+  private DirectoryMetaSnapshot(Builder builder) {
+    this.size = builder.size;
+    this.shared = Arrays.copyOf(builder.shared, size);
+    this.suffixEnd = Arrays.copyOf(builder.suffixEnd, size);
+    this.suffixes = Arrays.copyOf(builder.suffixes, builder.suffixesLength);
+    this.lastModified = Arrays.copyOf(builder.lastModified, size);
+    this.length = Arrays.copyOf(builder.length, size);
+  }
 
   public DirectoryMetaSnapshot(String startPath) throws IOException {
-    Map<String, FilesystemIteratorRule> noPrefixRules = Collections.emptyMap();
-    FilesystemIterator iter = new FilesystemIterator(
-        Collections.singletonMap(startPath, FilesystemIteratorRule.OK),
-        noPrefixRules,
-        startPath
-    );
-    final String expectedStart = startPath + File.separatorChar;
-    SortedMap<String, FileMetaSnapshot> newFiles = new TreeMap<>();
-    File file;
-    while ((file = iter.getNextFile()) != null) {
-      if (file.isFile()) {
-        String path = file.getPath();
-        if (!path.startsWith(expectedStart)) {
-          throw new AssertionError("Unexpected start of path: " + path);
+    this(startPath, null);
+  }
+
+  /**
+   * Gets a new snapshot, skipping the listing of any directory whose modified time is
+   * the same as in the previous snapshot.  The files directly in these directories are
+   * assumed unchanged and are not read, but their subdirectories are still checked.
+   *
+   * <p>A directory's modified time changes when its entries are added, removed, or
+   * renamed, but not when an existing file is modified in place.  Skipping is only
+   * appropriate for trees where files are replaced instead of modified.</p>
+   *
+   * @param  previous  the previous snapshot of the same directory or {@code null} to read everything
+   */
+  public DirectoryMetaSnapshot(String startPath, DirectoryMetaSnapshot previous) throws IOException {
+    this(scan(startPath, previous));
+  }
+
+  private static Builder scan(String startPath, DirectoryMetaSnapshot previous) throws IOException {
+    Builder builder = new Builder();
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(Paths.get(startPath), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException err) {
+      // Nothing to snapshot
+      return builder;
+    }
+    if (attributes.isDirectory()) {
+      Cursor cursor = previous == null ? null : previous.new Cursor();
+      if (cursor != null) {
+        cursor.next();
+      }
+      new Scanner(builder, cursor).scan(startPath, new StringBuilder(), attributes);
+    } else if (!attributes.isSymbolicLink()) {
+      throw new IOException("Not a directory: " + startPath);
+    }
+    return builder;
+  }
+
+  /**
+   * Scans directories depth-first, merging with the previous snapshot as it goes.
+   * Directories are listed, with the attributes of their entries, the same as {@link FilesystemIterator}:
+   * symbolic links are followed for files but not for directories, and anything deleted while
+   * accessing is skipped.
+   */
+  private static final class Scanner {
+
+    private final Builder builder;
+    private final Cursor previous;
+    private char[] chars = new char[64];
+
+    private Scanner(Builder builder, Cursor previous) {
+      this.builder = builder;
+      this.previous = previous;
+    }
+
+    private void add(CharSequence path, long entryLastModified, long entryLength) {
+      int len = path.length();
+      if (len > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length << 1, len));
+      }
+      for (int i = 0; i < len; i++) {
+        chars[i] = path.charAt(i);
+      }
+      builder.add(chars, len, entryLastModified, entryLength);
+    }
+
+    /**
+     * Moves the previous snapshot to the given path.
+     *
+     * @return  {@code true} when the previous snapshot has the given path
+     */
+    private boolean seek(CharSequence path) {
+      if (previous == null) {
+        return false;
+      }
+      int len = path.length();
+      if (len > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length << 1, len));
+      }
+      for (int i = 0; i < len; i++) {
+        chars[i] = path.charAt(i);
+      }
+      while (previous.isValid()) {
+        int diff = comparePaths(previous.path, previous.pathLength, chars, len);
+        if (diff == 0) {
+          return true;
+        }
+        if (diff > 0) {
+          return false;
         }
-        newFiles.put(
-            path.substring(expectedStart.length()),
-            new FileMetaSnapshot(file.lastModified(), file.length())
-        );
+        previous.next();
       }
+      return false;
     }
-    this.files = Collections.unmodifiableSortedMap(newFiles);
+
+    private static void appendName(StringBuilder path, CharSequence name, int start) {
+      if (path.length() > 0) {
+        path.append(File.separatorChar);
+      }
+      path.append(name, start, name.length());
+    }
+
+    /**
+     * Checks if an entry is a directory to be scanned, which excludes symbolic links to directories.
+     */
+    private static boolean isDirectory(FilesystemIterator.Entry entry) {
+      return entry.getAttributes().isDirectory() && !entry.isSymbolicLink();
+    }
+
+    private void scan(String directory, StringBuilder relPath, BasicFileAttributes attributes) throws IOException {
+      long directoryModified = attributes.lastModifiedTime().toMillis();
+      add(relPath, directoryModified, DIRECTORY);
+      final int relPathLength = relPath.length();
+      final boolean found = seek(relPath);
+      if (
+          found
+              && previous.isDirectory()
+              && previous.getLastModified() == directoryModified
+      ) {
+        // Unchanged directory: copy the files and check the subdirectories of the previous snapshot
+        final char[] directoryPath = relPath.toString().toCharArray();
+        previous.next();
+        while (previous.isValid()) {
+          char[] path = previous.path;
+          int pathLength = previous.pathLength;
+          // Stop when no longer within the directory
+          int nameStart;
+          if (relPathLength == 0) {
+            nameStart = 0;
+          } else {
+            if (
+                pathLength <= relPathLength
+                    || path[relPathLength] != File.separatorChar
+                    || comparePaths(path, relPathLength, directoryPath, relPathLength) != 0
+            ) {
+              break;
+            }
+            nameStart = relPathLength + 1;
+          }
+          boolean immediate = true;
+          for (int i = nameStart; i < pathLength; i++) {
+            if (path[i] == File.separatorChar) {
+              immediate = false;
+              break;
+            }
+          }
+          if (!immediate) {
+            // Left over from a subdirectory that has since changed
+            previous.next();
+          } else if (!previous.isDirectory()) {
+            builder.add(path, pathLength, previous.getLastModified(), previous.getLength());
+            previous.next();
+          } else {
+            String name = new String(path, nameStart, pathLength - nameStart);
+            FilesystemIterator.Entry[] entries = FilesystemIterator.stat(directory, new String[]{name}).entries;
+            if (entries.length == 1 && isDirectory(entries[0])) {
+              appendName(relPath, name, 0);
+              scan(entries[0].getPath(), relPath, entries[0].getAttributes());
+              relPath.setLength(relPathLength);
+            } else {
+              // Deleted while accessing or no longer a directory
+              previous.next();
+            }
+          }
+        }
+      } else {
+        if (found) {
+          previous.next();
+        }
+        // List the directory, sorted
+        FilesystemIterator.Entry[] entries = FilesystemIterator.list(directory, true).entries;
+        if (entries.length > 0) {
+          final int nameStart = FilesystemIterator.getFilename(directory, "").length();
+          for (FilesystemIterator.Entry entry : entries) {
+            BasicFileAttributes childAttributes = entry.getAttributes();
+            if (childAttributes.isRegularFile()) {
+              appendName(relPath, entry.getPath(), nameStart);
+              add(relPath, childAttributes.lastModifiedTime().toMillis(), childAttributes.size());
+              relPath.setLength(relPathLength);
+            } else if (isDirectory(entry)) {
+              appendName(relPath, entry.getPath(), nameStart);
+              scan(entry.getPath(), relPath, childAttributes);
+              relPath.setLength(relPathLength);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes this snapshot to a stream.
+   *
+   * @see  #readFrom(java.io.InputStream)
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    StreamableOutput sout = out instanceof StreamableOutput ? (StreamableOutput) out : new StreamableOutput(out);
+    sout.writeUTF(MAGIC);
+    sout.writeCompressedInt(VERSION);
+    sout.writeCompressedInt(size);
+    int suffixStart = 0;
+    for (int i = 0; i < size; i++) {
+      sout.writeCompressedInt(shared[i]);
+      int end = suffixEnd[i];
+      sout.writeCompressedInt(end - suffixStart);
+      for (int j = suffixStart; j < end; j++) {
+        sout.writeChar(suffixes[j]);
+      }
+      suffixStart = end;
+      sout.writeLong(lastModified[i]);
+      sout.writeLong(length[i]);
+    }
+    sout.flush();
+  }
+
+  /**
+   * Reads a snapshot written by {@link #writeTo(java.io.OutputStream)}.
+   */
+  public static DirectoryMetaSnapshot readFrom(InputStream in) throws IOException {
+    StreamableInput sin = in instanceof StreamableInput ? (StreamableInput) in : new StreamableInput(in);
+    String magic = sin.readUTF();
+    if (!MAGIC.equals(magic)) {
+      throw new IOException("Not a " + MAGIC + ": " + magic);
+    }
+    int version = sin.readCompressedInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported version: " + version);
+    }
+    int count = sin.readCompressedInt();
+    Builder builder = new Builder();
+    char[] path = new char[64];
+    int pathLength = 0;
+    for (int i = 0; i < count; i++) {
+      int common = sin.readCompressedInt();
+      int suffixLength = sin.readCompressedInt();
+      if (common < 0 || common > pathLength || suffixLength < 0) {
+        throw new IOException("Invalid path compression: " + common + ", " + suffixLength);
+      }
+      int newLength = common + suffixLength;
+      if (newLength > path.length) {
+        path = Arrays.copyOf(path, Math.max(path.length << 1, newLength));
+      }
+      for (int j = common; j < newLength; j++) {
+        path[j] = sin.readChar();
+      }
+      pathLength = newLength;
+      builder.add(path, pathLength, sin.readLong(), sin.readLong());
+    }
+    return new DirectoryMetaSnapshot(builder);
+  }
+
+  /**
+   * Finds the files that differ between this snapshot and a newer snapshot, in a single
+   * pass over both.  Directories are not compared.
+   *
+   * @return  the differences, in traversal order
+   */
+  public Iterator<Difference> diff(DirectoryMetaSnapshot newer) {
+    final Cursor oldCursor = new Cursor();
+    final Cursor newCursor = newer.new Cursor();
+    oldCursor.nextFile();
+    newCursor.nextFile();
+    return new Iterator<Difference>() {
+      private Difference next = findNext();
+
+      private Difference findNext() {
+        while (oldCursor.isValid() || newCursor.isValid()) {
+          int diff;
+          if (!oldCursor.isValid()) {
+            diff = 1;
+          } else if (!newCursor.isValid()) {
+            diff = -1;
+          } else {
+            diff = comparePaths(oldCursor.path, oldCursor.pathLength, newCursor.path, newCursor.pathLength);
+          }
+          if (diff < 0) {
+            Difference removed = new Difference(Difference.Type.REMOVED, oldCursor.getPath(), oldCursor.getMeta(), null);
+            oldCursor.nextFile();
+            return removed;
+          } else if (diff > 0) {
+            Difference added = new Difference(Difference.Type.ADDED, newCursor.getPath(), null, newCursor.getMeta());
+            newCursor.nextFile();
+            return added;
+          } else {
+            Difference modified;
+            if (
+                oldCursor.getLastModified() != newCursor.getLastModified()
+                    || oldCursor.getLength() != newCursor.getLength()
+            ) {
+              modified = new Difference(Difference.Type.MODIFIED, newCursor.getPath(), oldCursor.getMeta(), newCursor.getMeta());
+            } else {
+              modified = null;
+            }
+            oldCursor.nextFile();
+            newCursor.nextFile();
+            if (modified != null) {
+              return modified;
+            }
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Difference next() {
+        Difference current = next;
+        if (current == null) {
+          throw new NoSuchElementException();
+        }
+        next = findNext();
+        return current;
+      }
+    };
   }
 
   /**
    * Checks that all meta data is equal in the two directory tree snapshots.
+   * Only files are compared.
    */
   @Override
   public boolean equals(Object obj) {
@@ -117,16 +660,45 @@ public final class DirectoryMetaSnapshot {
       return false;
     }
     final DirectoryMetaSnapshot other = (DirectoryMetaSnapshot) obj;
-    return files.equals(other.files);
+    return !diff(other).hasNext();
   }
 
+  /**
+   * The hash code is the same as that of {@link #getFiles()}, without creating the map.
+   */
   @Override
   public int hashCode() {
-    return files.hashCode();
+    Integer h = hashCode;
+    if (h == null) {
+      int sum = 0;
+      Cursor cursor = new Cursor();
+      while (cursor.nextFile()) {
+        int pathHash = 0;
+        for (int i = 0; i < cursor.pathLength; i++) {
+          pathHash = 31 * pathHash + cursor.path[i];
+        }
+        sum += pathHash ^ (Long.hashCode(cursor.getLastModified()) ^ Long.hashCode(cursor.getLength()));
+      }
+      hashCode = h = sum;
+    }
+    return h;
   }
 
+  /**
+   * Gets the files, creating the map on first use.  Prefer {@link #diff(DirectoryMetaSnapshot)}
+   * for large trees.
+   */
   @SuppressWarnings("ReturnOfCollectionOrArrayField") // Returning unmodifiable
   public SortedMap<String, FileMetaSnapshot> getFiles() {
-    return files;
+    SortedMap<String, FileMetaSnapshot> f = files;
+    if (f == null) {
+      SortedMap<String, FileMetaSnapshot> newFiles = new TreeMap<>();
+      Cursor cursor = new Cursor();
+      while (cursor.nextFile()) {
+        newFiles.put(cursor.getPath(), cursor.getMeta());
+      }
+      files = f = Collections.unmodifiableSortedMap(newFiles);
+    }
+    return f;
   }
 }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2014, 2015, 2016, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2003, 2004, 2005, 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2014, 2015, 2016, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,19 +23,32 @@
 
 package com.aoapps.hodgepodge.io;
 
-import com.aoapps.lang.EmptyArrays;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.EmptyStackException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Iterates through all of the files in a file system.
@@ -44,8 +57,7 @@ import java.util.Stack;
  */
 public class FilesystemIterator implements Comparable<FilesystemIterator> {
 
-  private final Map<String, FilesystemIteratorRule> rules;
-  private final Map<String, FilesystemIteratorRule> prefixRules;
+  private final FilesystemIteratorRules compiledRules;
   private final String startPath;
   private final boolean isPreorder;
   private final boolean isSorted;
@@ -83,32 +95,358 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
 
   /**
    * Constructs a file system iterator with the provided rules and conversion.
+   * Directory listings are not prefetched.
+   *
+   * @see  #FilesystemIterator(Map, Map, String, boolean, boolean, Executor, int)
+   */
+  public FilesystemIterator(Map<String, FilesystemIteratorRule> rules, Map<String, FilesystemIteratorRule> prefixRules, String startPath, boolean isPreorder, boolean isSorted) {
+    this(rules, prefixRules, startPath, isPreorder, isSorted, null, 0);
+  }
+
+  /**
+   * Constructs a file system iterator with the provided rules and conversion.
+   *
+   * <p>The rules are compiled when the iterator is constructed, so later changes to
+   * either map do not affect the iteration.</p>
+   *
+   * <p>Each directory is listed along with the attributes of its entries.  When an
+   * executor is provided, the listings of the subdirectories that will be recursed
+   * are prefetched on the executor while iterating.  The order of iteration is the
+   * same either way.</p>
    *
    * @param  rules  the rules that will be applied during iteration
    * @param  startPath  if "", all roots will be used, otherwise starts at the provided path
+   * @param  prefetchExecutor  the executor used to list directories in advance or {@code null} to list as needed
+   * @param  maxPrefetch  the maximum number of directory listings prefetched and not yet iterated
    */
-  public FilesystemIterator(Map<String, FilesystemIteratorRule> rules, Map<String, FilesystemIteratorRule> prefixRules, String startPath, boolean isPreorder, boolean isSorted) {
-    this.rules = rules;
-    this.prefixRules = prefixRules;
-    currentDirectories = null;
-    currentLists = null;
-    currentIndexes = null;
+  public FilesystemIterator(
+      Map<String, FilesystemIteratorRule> rules,
+      Map<String, FilesystemIteratorRule> prefixRules,
+      String startPath,
+      boolean isPreorder,
+      boolean isSorted,
+      Executor prefetchExecutor,
+      int maxPrefetch
+  ) {
+    if (prefetchExecutor != null && maxPrefetch < 1) {
+      throw new IllegalArgumentException("maxPrefetch < 1: " + maxPrefetch);
+    }
+    this.compiledRules = new FilesystemIteratorRules(rules, prefixRules);
+    levels = null;
     filesDone = false;
     this.startPath = startPath;
     this.isPreorder = isPreorder;
     this.isSorted = isSorted;
+    this.prefetchExecutor = prefetchExecutor;
+    this.maxPrefetch = maxPrefetch;
   }
 
-  private Stack<String> currentDirectories;
-  private Stack<String[]> currentLists;
-  private Stack<Integer> currentIndexes;
+  /**
+   * Is the default file system POSIX, in which case {@link PosixFileAttributes} are read.
+   * These cost no more than {@link BasicFileAttributes} to read.
+   */
+  private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+  /**
+   * One file returned by the iterator, with the attributes read when its directory was listed.
+   */
+  public static final class Entry {
+
+    private final String path;
+    private final BasicFileAttributes attributes;
+    private final boolean symbolicLink;
+
+    private Entry(String path, BasicFileAttributes attributes, boolean symbolicLink) {
+      this.path = path;
+      this.attributes = attributes;
+      this.symbolicLink = symbolicLink;
+    }
+
+    @Override
+    public String toString() {
+      return path;
+    }
+
+    /**
+     * Gets the path of the file.
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Gets the file.
+     */
+    public File getFile() {
+      return new File(path);
+    }
+
+    /**
+     * Gets the attributes of the file.  Like {@link File}, these follow symbolic
+     * links, except for broken links which have the attributes of the link itself.
+     */
+    public BasicFileAttributes getAttributes() {
+      return attributes;
+    }
+
+    /**
+     * Gets the POSIX attributes of the file.
+     *
+     * @return  the attributes or {@code null} when the file system does not support POSIX attributes
+     *
+     * @see  #getAttributes()
+     */
+    public PosixFileAttributes getPosixAttributes() {
+      return attributes instanceof PosixFileAttributes ? (PosixFileAttributes) attributes : null;
+    }
+
+    /**
+     * Checks if the file is a symbolic link.
+     */
+    public boolean isSymbolicLink() {
+      return symbolicLink;
+    }
+  }
+
+  /**
+   * The entries of one directory.
+   */
+  static final class Listing {
+
+    private static final Listing EMPTY = new Listing(new Entry[0]);
+
+    final Entry[] entries;
+
+    private Listing(Entry[] entries) {
+      this.entries = entries;
+    }
+  }
+
+  static String getFilename(String directory, String name) {
+    if (directory.length() == 0) {
+      return name;
+    } else if (directory.endsWith(File.separator)) {
+      return directory + name;
+    } else {
+      return directory + File.separatorChar + name;
+    }
+  }
+
+  /**
+   * Reads the attributes of the given names in a directory, skipping any that no longer exist or cannot be read.
+   */
+  static Listing stat(String directory, String[] names) throws IOException {
+    Class<? extends BasicFileAttributes> type = POSIX ? PosixFileAttributes.class : BasicFileAttributes.class;
+    List<Entry> entries = new ArrayList<>(names.length);
+    for (String name : names) {
+      String filename = getFilename(directory, name);
+      Path path = Paths.get(filename);
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(path, type, LinkOption.NOFOLLOW_LINKS);
+      } catch (IOException err) {
+        // Normal if the file was deleted while accessing, otherwise no longer accessible
+        continue;
+      }
+      boolean symbolicLink = attributes.isSymbolicLink();
+      if (symbolicLink) {
+        try {
+          attributes = Files.readAttributes(path, type);
+        } catch (IOException err) {
+          // Broken link, keep the attributes of the link
+        }
+      }
+      entries.add(new Entry(filename, attributes, symbolicLink));
+    }
+    return entries.isEmpty() ? Listing.EMPTY : new Listing(entries.toArray(new Entry[entries.size()]));
+  }
+
+  /**
+   * Lists a directory with the attributes of its entries.
+   * A directory that cannot be listed is empty.
+   */
+  static Listing list(String directory, boolean isSorted) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory))) {
+      for (Path path : stream) {
+        names.add(path.getFileName().toString());
+      }
+    } catch (IOException | DirectoryIteratorException err) {
+      return Listing.EMPTY;
+    }
+    if (names.isEmpty()) {
+      return Listing.EMPTY;
+    }
+    String[] array = names.toArray(new String[names.size()]);
+    if (isSorted) {
+      Arrays.sort(array);
+    }
+    return stat(directory, array);
+  }
+
+  private static final byte ACTION_UNKNOWN = 0;
+  private static final byte ACTION_SKIP = 1;
+  private static final byte ACTION_INCLUDE = 2;
+  private static final byte ACTION_RECURSE = 3;
+
+  /**
+   * One directory being iterated.
+   */
+  private static final class Level {
+
+    /**
+     * The directory itself, or {@code null} for the parent of the start path.
+     */
+    private final Entry directory;
+    private final Entry[] entries;
+    private int index;
+
+    /**
+     * The action of each directory entry, computed when first needed.
+     */
+    private final byte[] actions;
+
+    /**
+     * The prefetched listing of each directory entry to be recursed.
+     */
+    private final Future<?>[] prefetched;
+    private int prefetchIndex;
+
+    private Level(Entry directory, Listing listing, boolean prefetch) {
+      this.directory = directory;
+      this.entries = listing.entries;
+      this.actions = new byte[entries.length];
+      this.prefetched = prefetch ? new Future<?>[entries.length] : null;
+    }
+  }
+
+  private final Executor prefetchExecutor;
+  private final int maxPrefetch;
+
+  private Stack<Level> levels;
+  private int prefetchCount;
   private boolean filesDone;
 
+  /**
+   * Determines if a directory is skipped, included without its contents, or recursed.
+   * This is performed before the directory is listed, allowing "/proc/"-style skips.
+   */
+  private byte getDirectoryAction(String filename) throws IOException {
+    final String filenamePlusSlash;
+    if (filename.endsWith(File.separator)) {
+      filenamePlusSlash = filename;
+    } else {
+      filenamePlusSlash = filename + File.separatorChar;
+    }
+    // If the settings for the directory indicate include
+    if (isIncluded(filename)) {
+      // Directory is included, optimized recurse follows
+      FilesystemIteratorRule rule = compiledRules.getRule(filenamePlusSlash);
+      if (rule == null) {
+        return ACTION_RECURSE;
+      } else {
+        if (rule.isIncluded(filenamePlusSlash)) {
+          return ACTION_RECURSE;
+        } else {
+          // This is the shortcut to not list directory when flagged as "/proc/"-style skip and
+          // there are no overriding children
+          return hasIncludedChild(filenamePlusSlash) ? ACTION_RECURSE : ACTION_INCLUDE;
+        }
+      }
+    } else {
+      // Force include if there are any backup-enabled settings that are a child of this
+      return hasIncludedChild(filenamePlusSlash) ? ACTION_RECURSE : ACTION_SKIP;
+    }
+  }
+
+  private byte getAction(Level level, int index) throws IOException {
+    byte action = level.actions[index];
+    if (action == ACTION_UNKNOWN) {
+      Entry entry = level.entries[index];
+      try {
+        if (entry.attributes.isDirectory()) {
+          action = getDirectoryAction(entry.path);
+        } else {
+          action = isIncluded(entry.path) ? ACTION_INCLUDE : ACTION_SKIP;
+        }
+      } catch (FileNotFoundException | NoSuchFileException err) {
+        // Normal if the file was deleted while accessing
+        action = ACTION_SKIP;
+      }
+      level.actions[index] = action;
+    }
+    return action;
+  }
+
+  /**
+   * Prefetches the listings of the next directories to be recursed in the given level,
+   * while fewer than the maximum listings are outstanding.  Only directories reached by
+   * listing their parent are prefetched, since these are known to not be symbolic links.
+   */
+  private void prefetch(Level level) throws IOException {
+    if (level.prefetched != null) {
+      while (prefetchCount < maxPrefetch && level.prefetchIndex < level.entries.length) {
+        int index = level.prefetchIndex++;
+        Entry entry = level.entries[index];
+        if (
+            entry.attributes.isDirectory()
+                && !entry.symbolicLink
+                && getAction(level, index) == ACTION_RECURSE
+        ) {
+          FutureTask<Listing> task = new FutureTask<>(() -> list(entry.path, isSorted));
+          prefetchExecutor.execute(task);
+          level.prefetched[index] = task;
+          prefetchCount++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the listing of a directory entry, waiting for it when prefetched.
+   */
+  private Listing getListing(Level level, int index, boolean canonical) throws IOException {
+    Future<?> future = level.prefetched == null ? null : level.prefetched[index];
+    if (future != null) {
+      level.prefetched[index] = null;
+      prefetchCount--;
+      try {
+        return (Listing) future.get();
+      } catch (InterruptedException err) {
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+        InterruptedIOException ioErr = new InterruptedIOException();
+        ioErr.initCause(err);
+        throw ioErr;
+      } catch (ExecutionException err) {
+        Throwable cause = err.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException(cause);
+      }
+    }
+    // Skip anything that is not canonical, this avoids symbolic link targets
+    return canonical ? list(level.entries[index].path, isSorted) : Listing.EMPTY;
+  }
+
   /**
    * Gets the next file from the iterator or <code>null</code> if the iterator has completed the iteration of the file system.
    * This method is internally synchronized and is thread-safe.
+   *
+   * @see  #getNextEntry()
    */
   public File getNextFile() throws IOException {
+    Entry entry = getNextEntry();
+    return entry == null ? null : entry.getFile();
+  }
+
+  /**
+   * Gets the next file, with its attributes, from the iterator or <code>null</code> if the iterator
+   * has completed the iteration of the file system.
+   * This method is internally synchronized and is thread-safe.
+   */
+  public Entry getNextEntry() throws IOException {
     synchronized (this) {
       // Loop trying to get the file because files may be removed during the loop
       while (true) {
@@ -116,155 +454,85 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
           return null;
         }
 
-        // Initialize the stacks, if needed
-        if (currentDirectories == null) {
+        // Initialize the stack, if needed
+        if (levels == null) {
+          levels = new Stack<>();
           if (startPath.length() == 0) {
             // Starting at root will include the starting directory itself
-            (currentDirectories = new Stack<>()).push("");
-            (currentLists = new Stack<>()).push(getFilesystemRoots());
+            levels.push(new Level(null, stat("", getFilesystemRoots()), false));
           } else {
             if (isFilesystemRoot(startPath)) {
               // Starting from a root, has no parent
-              (currentDirectories = new Stack<>()).push("");
-              (currentLists = new Stack<>()).push(new String[]{startPath});
+              levels.push(new Level(null, stat("", new String[]{startPath}), false));
             } else {
               // Starting at non root will include the starting directory itself
               File startPathFile = new File(startPath);
               String parent = startPathFile.getParent();
+              if (parent == null) {
+                filesDone = true;
+                return null;
+              }
               String name = startPathFile.getName();
-              (currentDirectories = new Stack<>()).push(parent);
-              (currentLists = new Stack<>()).push(new String[]{name});
+              levels.push(new Level(null, stat(parent, new String[]{name}), false));
             }
           }
-          (currentIndexes = new Stack<>()).push(0);
         }
-        String currentDirectory;
-        String[] currentList = null;
-        int currentIndex = -1;
-        try {
-          currentDirectory = currentDirectories.peek();
-          currentList = currentLists.peek();
-          currentIndex = currentIndexes.peek();
-
-          // Undo the stack as far as needed
-          while (currentDirectory != null && currentIndex >= currentList.length) {
-            currentDirectories.pop();
-            currentLists.pop();
-            currentIndexes.pop();
-            final String oldCurrentDirectory = currentDirectory;
-            currentDirectory = currentDirectories.peek();
-            currentList = currentLists.peek();
-            currentIndex = currentIndexes.peek();
-            if (!isPreorder) {
-              return new File(oldCurrentDirectory);
-            } // This is performed last because the EmptyStackException caused by peek indicates end of traversal
+        // Undo the stack as far as needed
+        Level level = levels.isEmpty() ? null : levels.peek();
+        while (level != null && level.index >= level.entries.length) {
+          levels.pop();
+          final Entry oldDirectory = level.directory;
+          level = levels.isEmpty() ? null : levels.peek();
+          if (!isPreorder && oldDirectory != null) {
+            return oldDirectory;
           }
-        } catch (EmptyStackException err) {
-          currentDirectory = null;
         }
-        if (currentDirectory == null) {
+        if (level == null) {
           filesDone = true;
           return null;
-        } else {
-          // Get the current filename
-          final String filename;
-          if (currentDirectory.length() == 0) {
-            filename = currentList[currentIndex];
-          } else if (currentDirectory.endsWith(File.separator)) {
-            filename = currentDirectory + currentList[currentIndex];
+        }
+        // Get the current entry and increment index to point to the next file
+        final int index = level.index++;
+        final Entry entry = level.entries[index];
+        prefetch(level);
+        byte action = getAction(level, index);
+        if (action == ACTION_SKIP) {
+          continue;
+        }
+        if (entry.attributes.isDirectory()) {
+          // Directories
+          Listing listing;
+          if (action == ACTION_RECURSE) {
+            try {
+              // The first level is not from a listing and must be checked
+              boolean canonical =
+                  level.directory == null
+                      ? new File(entry.path).getCanonicalPath().equals(entry.path)
+                      : !entry.symbolicLink;
+              listing = getListing(level, index, canonical);
+            } catch (FileNotFoundException | NoSuchFileException err) {
+              // Normal if the file was deleted while accessing
+              continue;
+            }
           } else {
-            filename = currentDirectory + File.separatorChar + currentList[currentIndex];
+            listing = Listing.EMPTY;
           }
-
-          // Increment index to point to the next file
-          currentIndexes.pop();
-          currentIndexes.push(currentIndex + 1);
-
-          try {
-            final File file = new File(filename);
-            if (file.isDirectory()) {
-              // Directories
-              final String filenamePlusSlash;
-              if (filename.endsWith(File.separator)) {
-                filenamePlusSlash = filename;
-              } else {
-                filenamePlusSlash = filename + File.separatorChar;
-              }
-
-              final boolean includeDirectory;
-              final boolean recurse;
-              // If the settings for the directory indicate include
-              if (isIncluded(filename)) {
-                // Directory is included, optimized recurse follows
-                includeDirectory = true;
-                FilesystemIteratorRule rule = rules.get(filenamePlusSlash);
-                if (rule == null) {
-                  recurse = true;
-                } else {
-                  if (rule.isIncluded(filenamePlusSlash)) {
-                    recurse = true;
-                  } else {
-                    // This is the shortcut to not list directory when flagged as "/proc/"-style skip and
-                    // there are no overriding children
-                    recurse = hasIncludedChild(filenamePlusSlash);
-                  }
-                }
-              } else {
-                // Force include if there are any backup-enabled settings that are a child of this
-                if (hasIncludedChild(filenamePlusSlash)) {
-                  includeDirectory = true;
-                  recurse = true;
-                } else {
-                  includeDirectory = false;
-                  recurse = false;
-                }
-              }
-              // Push on stacks for next level
-              if (includeDirectory) {
-                String[] list;
-                if (recurse) {
-                  // Skip anything that is not canonical, this avoids symbolic link targets
-                  if (file.getCanonicalPath().equals(filename)) {
-                    list = file.list();
-                    if (list == null) {
-                      list = EmptyArrays.EMPTY_STRING_ARRAY;
-                    } else if (isSorted && list.length > 0) {
-                      Arrays.sort(list);
-                    }
-                  } else {
-                    //System.err.println("Skipping non-canonical directory listing: "+filename);
-                    list = EmptyArrays.EMPTY_STRING_ARRAY;
-                  }
-                } else {
-                  list = EmptyArrays.EMPTY_STRING_ARRAY;
-                }
-                // No need to push onto the stack if the children are empty?
-                if (list.length > 0) {
-                  currentDirectories.push(filename);
-                  currentLists.push(list);
-                  currentIndexes.push(0);
-                  if (isPreorder) {
-                    return file;
-                  }
-                } else {
-                  // If empty directory both preorder and postorder return directory immediately
-                  // and bypass using the stack.
-                  return file;
-                }
-              } else {
-                if (recurse) {
-                  throw new AssertionError("recurse=true and includeDirectory=false");
-                }
-              }
-            } else {
-              // Non-directories
-              if (isIncluded(filename)) {
-                return file;
-              }
+          // No need to push onto the stack if the children are empty
+          if (listing.entries.length > 0) {
+            Level child = new Level(entry, listing, prefetchExecutor != null);
+            levels.push(child);
+            prefetch(child);
+            if (isPreorder) {
+              return entry;
             }
-          } catch (FileNotFoundException err) {
-            // Normal if the file was deleted while accessing
+          } else {
+            // If empty directory both preorder and postorder return directory immediately
+            // and bypass using the stack.
+            return entry;
           }
+        } else {
+          // Non-directories
+          return entry;
         }
       }
     }
@@ -298,7 +566,7 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
     for (File fileRoot : fileRoots) {
       String root = fileRoot.getPath();
       // Only add if this root is used for at least one backup setting
-      FilesystemIteratorRule defaultRule = rules.get("");
+      FilesystemIteratorRule defaultRule = compiledRules.getRule("");
       if (
           (defaultRule != null && defaultRule.isIncluded(root))
               || hasIncludedChild(root)
@@ -326,11 +594,9 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
    * Gets the rule that best suits the provided filename.  The rule is the longer
    * rule between the regular rules and the prefix rules.
    *
-   * <p>The regular rules are scanned first by looking through the filename and then
-   * all parents up to the root for the first match.  These use Map lookups in the
-   * set of rules so this should still perform well when there are many rules.
-   * For example, when searching for the rule for /home/u/username/tmp/, this
-   * will search:</p>
+   * <p>The regular rules match the filename or any of its parents up to the root,
+   * with or without a trailing separator.  For example, when searching for the
+   * rule for /home/u/username/tmp/, this will consider:</p>
    *
    * <ol>
    *   <li>/home/u/username/tmp/</li>
@@ -345,57 +611,14 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
    *   <li></li>
    * </ol>
    *
-   * <p>Next, the entire list of prefix rules is searched, with the longest rule
-   * being used if it is a longer match than that found in the regular rules.</p>
+   * <p>Any prefix rule is used instead when it is a longer match than that found in
+   * the regular rules.  Both are found in a single walk of the compiled rules,
+   * in time proportional to the length of the filename.</p>
+   *
+   * @see  FilesystemIteratorRules#getBestRule(java.lang.String)
    */
   private FilesystemIteratorRule getBestRule(final String filename) {
-    String longestPrefix = null;
-    FilesystemIteratorRule rule = null;
-    // First search the path and all of its parents for the first regular rule
-    String path = filename;
-    while (true) {
-      // Check the current path for an exact match
-      //System.out.println("DEBUG: Checking "+path);
-      rule = rules.get(path);
-      if (rule != null) {
-        longestPrefix = path;
-        break;
-      }
-
-      // If done, break the loop
-      int pathLen = path.length();
-      if (pathLen == 0) {
-        break;
-      }
-
-      int lastSlashPos = path.lastIndexOf(File.separatorChar);
-      if (lastSlashPos == -1) {
-        path = "";
-      } else if (lastSlashPos == (pathLen - 1)) {
-        // If ends with a slash, remove that slash
-        path = path.substring(0, lastSlashPos);
-      } else {
-        // Otherwise, remove and leave the last slash
-        path = path.substring(0, lastSlashPos + 1);
-      }
-    }
-    if (prefixRules != null) {
-      // TODO: If there are many more prefix rules than the length of this filename, it will at some threshold
-      //       be faster to do a map lookup for each possible length of the string.
-      //       Would also only need to look down to longestPrefix
-      for (Map.Entry<String, FilesystemIteratorRule> entry : prefixRules.entrySet()) {
-        String prefix = entry.getKey();
-        if (
-            (longestPrefix == null || prefix.length() > longestPrefix.length())
-                && filename.startsWith(prefix)
-        ) {
-          //System.err.println("DEBUG: FilesystemIterator: getBestRule: filename="+filename+", prefix="+prefix+", longestPrefix="+longestPrefix);
-          longestPrefix = prefix;
-          rule = entry.getValue();
-        }
-      }
-    }
-    return rule;
+    return compiledRules.getBestRule(filename);
   }
 
   private boolean isIncluded(String filename) throws IOException {
@@ -406,25 +629,13 @@ public class FilesystemIterator implements Comparable<FilesystemIterator> {
     return false;
   }
 
+  /**
+   * Looks for any rule that starts with the current filename+File.separatorChar and has backup enabled.
+   *
+   * @see  FilesystemIteratorRules#hasIncludedChild(java.lang.String)
+   */
   private boolean hasIncludedChild(String filenamePlusSlash) throws IOException {
-    // Iterate through all rules, looking for the first one that starts with the current filename+File.separatorChar and has backup enabled
-    for (Map.Entry<String, FilesystemIteratorRule> entry : rules.entrySet()) {
-      String path = entry.getKey();
-      if (path.startsWith(filenamePlusSlash)) {
-        FilesystemIteratorRule rule = entry.getValue();
-        if (rule.isIncluded(filenamePlusSlash)) {
-          return true;
-        }
-      }
-    }
-    for (Map.Entry<String, FilesystemIteratorRule> entry : prefixRules.entrySet()) {
-      String path = entry.getKey();
-      FilesystemIteratorRule rule = entry.getValue();
-      if (path.startsWith(filenamePlusSlash) && rule.isIncluded(filenamePlusSlash)) {
-        return true;
-      }
-    }
-    return false;
+    return compiledRules.hasIncludedChild(filenamePlusSlash);
   }
 
   static class FilenameIterator implements Iterator<String> {
@@ -0,0 +1,274 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The rules of a {@link FilesystemIterator} compiled into a single trie of the
+ * characters of their paths, so the best rule for a filename and whether a
+ * directory has any included descendant are both found in time proportional to
+ * the length of the filename instead of the number of rules.
+ *
+ * <p>Regular rules and prefix rules share the trie, each node having at most one
+ * of each.  Regular rules only apply on path segment boundaries: a regular rule
+ * matches its exact path, any path beneath it, and the path with or without a
+ * trailing separator.  Prefix rules match any filename starting with their
+ * prefix.</p>
+ *
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class FilesystemIteratorRules {
+
+  private static final int ROOT = 0;
+
+  /**
+   * The sorted characters of the children of each node.
+   */
+  private final char[][] childChars;
+
+  /**
+   * The children of each node, in the same order as {@link #childChars}.
+   */
+  private final int[][] childNodes;
+
+  /**
+   * The regular rule at each node or {@code null} for none.
+   */
+  private final FilesystemIteratorRule[] rule;
+
+  /**
+   * The prefix rule at each node or {@code null} for none.
+   */
+  private final FilesystemIteratorRule[] prefixRule;
+
+  /**
+   * Whether any rule at or beneath each node is {@link FilesystemIteratorRule#OK}.
+   */
+  private final boolean[] subtreeOk;
+
+  /**
+   * The number of rules at or beneath each node that are neither
+   * {@link FilesystemIteratorRule#OK} nor {@link FilesystemIteratorRule#SKIP}, and
+   * must be evaluated.
+   */
+  private final int[] subtreeDynamic;
+
+  /**
+   * @param  rules  the regular rules
+   * @param  prefixRules  the prefix rules or {@code null} for none
+   */
+  FilesystemIteratorRules(Map<String, FilesystemIteratorRule> rules, Map<String, FilesystemIteratorRule> prefixRules) {
+    // Build the trie
+    List<Map<Character, Integer>> children = new ArrayList<>();
+    List<FilesystemIteratorRule> ruleList = new ArrayList<>();
+    List<FilesystemIteratorRule> prefixRuleList = new ArrayList<>();
+    List<Integer> parentList = new ArrayList<>();
+    children.add(new TreeMap<>());
+    ruleList.add(null);
+    prefixRuleList.add(null);
+    parentList.add(-1);
+    for (int i = 0; i < 2; i++) {
+      Map<String, FilesystemIteratorRule> map = i == 0 ? rules : prefixRules;
+      if (map != null) {
+        List<FilesystemIteratorRule> list = i == 0 ? ruleList : prefixRuleList;
+        for (Map.Entry<String, FilesystemIteratorRule> entry : map.entrySet()) {
+          String path = entry.getKey();
+          int node = ROOT;
+          for (int j = 0, len = path.length(); j < len; j++) {
+            Character ch = path.charAt(j);
+            Integer child = children.get(node).get(ch);
+            if (child == null) {
+              child = children.size();
+              children.add(new TreeMap<>());
+              ruleList.add(null);
+              prefixRuleList.add(null);
+              parentList.add(node);
+              children.get(node).put(ch, child);
+            }
+            node = child;
+          }
+          list.set(node, entry.getValue());
+        }
+      }
+    }
+    // Freeze the trie
+    final int numNodes = children.size();
+    childChars = new char[numNodes][];
+    childNodes = new int[numNodes][];
+    rule = ruleList.toArray(new FilesystemIteratorRule[numNodes]);
+    prefixRule = prefixRuleList.toArray(new FilesystemIteratorRule[numNodes]);
+    subtreeOk = new boolean[numNodes];
+    subtreeDynamic = new int[numNodes];
+    for (int node = 0; node < numNodes; node++) {
+      Map<Character, Integer> nodeChildren = children.get(node);
+      char[] chars = new char[nodeChildren.size()];
+      int[] nodes = new int[chars.length];
+      int i = 0;
+      for (Map.Entry<Character, Integer> entry : nodeChildren.entrySet()) {
+        chars[i] = entry.getKey();
+        nodes[i] = entry.getValue();
+        i++;
+      }
+      childChars[node] = chars;
+      childNodes[node] = nodes;
+    }
+    // Children are always created after their parents, so summarize in reverse
+    for (int node = numNodes - 1; node >= 0; node--) {
+      for (FilesystemIteratorRule r : new FilesystemIteratorRule[]{rule[node], prefixRule[node]}) {
+        if (r == FilesystemIteratorRule.OK) {
+          subtreeOk[node] = true;
+        } else if (r != null && r != FilesystemIteratorRule.SKIP) {
+          subtreeDynamic[node]++;
+        }
+      }
+      int parent = parentList.get(node);
+      if (parent != -1) {
+        if (subtreeOk[node]) {
+          subtreeOk[parent] = true;
+        }
+        subtreeDynamic[parent] += subtreeDynamic[node];
+      }
+    }
+  }
+
+  private int getChild(int node, char ch) {
+    int i = Arrays.binarySearch(childChars[node], ch);
+    return i >= 0 ? childNodes[node][i] : -1;
+  }
+
+  /**
+   * Gets the regular rule for exactly the given path.
+   *
+   * @return  the rule or {@code null} when none
+   */
+  FilesystemIteratorRule getRule(String path) {
+    int node = ROOT;
+    for (int i = 0, len = path.length(); i < len; i++) {
+      node = getChild(node, path.charAt(i));
+      if (node == -1) {
+        return null;
+      }
+    }
+    return rule[node];
+  }
+
+  /**
+   * Gets the rule that best suits the provided filename.  The rule is the longer
+   * rule between the regular rules and the prefix rules, with the regular rule
+   * used when they are the same length.
+   *
+   * @return  the rule or {@code null} when no rule applies
+   */
+  FilesystemIteratorRule getBestRule(String filename) {
+    final int len = filename.length();
+    FilesystemIteratorRule best = null;
+    int bestLen = -1;
+    FilesystemIteratorRule bestPrefix = null;
+    int bestPrefixLen = -1;
+    int node = ROOT;
+    int pos = 0;
+    while (true) {
+      FilesystemIteratorRule r = rule[node];
+      if (
+          r != null
+              && (
+                  pos == 0
+                      || pos == len
+                      || filename.charAt(pos - 1) == File.separatorChar
+                      || filename.charAt(pos) == File.separatorChar
+              )
+      ) {
+        best = r;
+        bestLen = pos;
+      }
+      r = prefixRule[node];
+      if (r != null) {
+        bestPrefix = r;
+        bestPrefixLen = pos;
+      }
+      if (pos == len) {
+        break;
+      }
+      node = getChild(node, filename.charAt(pos++));
+      if (node == -1) {
+        break;
+      }
+    }
+    return bestPrefixLen > bestLen ? bestPrefix : best;
+  }
+
+  /**
+   * Checks if any rule, regular or prefix, for the given path or any path beneath
+   * it includes the given path.
+   */
+  boolean hasIncludedChild(String filenamePlusSlash) throws IOException {
+    int node = ROOT;
+    for (int i = 0, len = filenamePlusSlash.length(); i < len; i++) {
+      node = getChild(node, filenamePlusSlash.charAt(i));
+      if (node == -1) {
+        return false;
+      }
+    }
+    if (subtreeOk[node]) {
+      return true;
+    }
+    if (subtreeDynamic[node] == 0) {
+      return false;
+    }
+    // Evaluate only the rules that depend on the path, skipping subtrees without any
+    int[] stack = new int[16];
+    int size = 0;
+    stack[size++] = node;
+    while (size > 0) {
+      node = stack[--size];
+      for (FilesystemIteratorRule r : new FilesystemIteratorRule[]{rule[node], prefixRule[node]}) {
+        if (
+            r != null
+                && r != FilesystemIteratorRule.SKIP
+                && r.isIncluded(filenamePlusSlash)
+        ) {
+          return true;
+        }
+      }
+      for (int child : childNodes[node]) {
+        if (subtreeDynamic[child] != 0) {
+          if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size << 1);
+          }
+          stack[size++] = child;
+        }
+      }
+    }
+    return false;
+  }
+}
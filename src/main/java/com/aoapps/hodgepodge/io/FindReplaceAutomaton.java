@@ -0,0 +1,270 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Any number of find/replace pairs compiled into a single Aho-Corasick automaton,
+ * for streaming replacement.
+ *
+ * <p>Matches are replaced in the order they end.  When more than one find ends at
+ * the same character, the longest is replaced.  Matching restarts after each
+ * replacement, so matches never overlap and replacements are never rescanned.</p>
+ *
+ * <p>While streaming, the state is a single node.  The characters that may still
+ * become part of a match are exactly the path from the root to the current node,
+ * so they need not be buffered: they are available from {@link #getLabel(int)}.</p>
+ *
+ * <p>This class is immutable and thread-safe, and may be shared by any number of
+ * writers.</p>
+ *
+ * @see  FindReplaceWriter
+ * @see  FindReplaceOutputStream
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class FindReplaceAutomaton {
+
+  /**
+   * The root node, which is the state before any characters are matched.
+   */
+  static final int ROOT = 0;
+
+  /**
+   * Children of the root for characters below this are in a direct lookup table.
+   */
+  private static final int ROOT_TABLE_SIZE = 128;
+
+  private final int[] rootTable;
+
+  /**
+   * The sorted characters of the children of each node.
+   */
+  private final char[][] childChars;
+
+  /**
+   * The children of each node, in the same order as {@link #childChars}.
+   */
+  private final int[][] childNodes;
+
+  private final int[] fail;
+
+  /**
+   * The number of characters from the root to each node.
+   */
+  private final int[] depth;
+
+  /**
+   * A find starting with the path to each node.
+   */
+  private final char[][] label;
+
+  /**
+   * The length of the longest find ending at each node or {@code 0} for none.
+   */
+  private final int[] matchLength;
+
+  /**
+   * The replacement for the longest find ending at each node or {@code null} for none.
+   */
+  private final char[][] matchReplace;
+
+  /**
+   * When all finds and replacements are in ISO-8859-1.
+   */
+  private final boolean iso88591;
+
+  /**
+   * @param  findReplaces  The text to find mapped to its replacement.  Each find must be non-empty.
+   *
+   * @throws  IllegalArgumentException  when any find is empty
+   */
+  public FindReplaceAutomaton(Map<String, String> findReplaces) throws IllegalArgumentException {
+    // Build the trie
+    List<Map<Character, Integer>> children = new ArrayList<>();
+    List<char[]> labels = new ArrayList<>();
+    List<Integer> depths = new ArrayList<>();
+    List<char[]> replaces = new ArrayList<>();
+    children.add(new TreeMap<>());
+    labels.add(new char[0]);
+    depths.add(0);
+    replaces.add(null);
+    boolean allIso88591 = true;
+    for (Map.Entry<String, String> entry : findReplaces.entrySet()) {
+      char[] find = entry.getKey().toCharArray();
+      if (find.length == 0) {
+        throw new IllegalArgumentException("Empty find");
+      }
+      allIso88591 = allIso88591 && isIso88591(entry.getKey()) && isIso88591(entry.getValue());
+      int node = ROOT;
+      for (int i = 0; i < find.length; i++) {
+        Integer child = children.get(node).get(find[i]);
+        if (child == null) {
+          child = children.size();
+          children.add(new TreeMap<>());
+          labels.add(find);
+          depths.add(i + 1);
+          replaces.add(null);
+          children.get(node).put(find[i], child);
+        }
+        node = child;
+      }
+      replaces.set(node, entry.getValue().toCharArray());
+    }
+    iso88591 = allIso88591;
+    // Freeze the trie
+    final int numNodes = children.size();
+    childChars = new char[numNodes][];
+    childNodes = new int[numNodes][];
+    depth = new int[numNodes];
+    label = new char[numNodes][];
+    matchLength = new int[numNodes];
+    matchReplace = new char[numNodes][];
+    for (int node = 0; node < numNodes; node++) {
+      Map<Character, Integer> nodeChildren = children.get(node);
+      char[] chars = new char[nodeChildren.size()];
+      int[] nodes = new int[chars.length];
+      int i = 0;
+      for (Map.Entry<Character, Integer> entry : nodeChildren.entrySet()) {
+        chars[i] = entry.getKey();
+        nodes[i] = entry.getValue();
+        i++;
+      }
+      childChars[node] = chars;
+      childNodes[node] = nodes;
+      depth[node] = depths.get(node);
+      label[node] = labels.get(node);
+      char[] replace = replaces.get(node);
+      if (replace != null) {
+        matchLength[node] = depth[node];
+        matchReplace[node] = replace;
+      }
+    }
+    rootTable = new int[ROOT_TABLE_SIZE];
+    for (int i = 0; i < childChars[ROOT].length; i++) {
+      char ch = childChars[ROOT][i];
+      if (ch < ROOT_TABLE_SIZE) {
+        rootTable[ch] = childNodes[ROOT][i];
+      }
+    }
+    // Failure links, breadth-first, inheriting the longest find ending at the failure node
+    fail = new int[numNodes];
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(ROOT);
+    while (!queue.isEmpty()) {
+      int node = queue.remove();
+      char[] chars = childChars[node];
+      int[] nodes = childNodes[node];
+      for (int i = 0; i < chars.length; i++) {
+        int child = nodes[i];
+        int childFail = node == ROOT ? ROOT : step(fail[node], chars[i]);
+        fail[child] = childFail;
+        if (matchLength[child] == 0 && matchLength[childFail] != 0) {
+          matchLength[child] = matchLength[childFail];
+          matchReplace[child] = matchReplace[childFail];
+        }
+        queue.add(child);
+      }
+    }
+  }
+
+  private static boolean isIso88591(String value) {
+    for (int i = 0, len = value.length(); i < len; i++) {
+      if (value.charAt(i) > 0xff) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if all finds and replacements are in ISO-8859-1, which is required to match bytes.
+   */
+  boolean isIso88591() {
+    return iso88591;
+  }
+
+  /**
+   * Gets the node after the given character.
+   */
+  int step(int node, char ch) {
+    while (true) {
+      if (node == ROOT) {
+        if (ch < ROOT_TABLE_SIZE) {
+          return rootTable[ch];
+        }
+        int i = Arrays.binarySearch(childChars[ROOT], ch);
+        return i >= 0 ? childNodes[ROOT][i] : ROOT;
+      }
+      char[] chars = childChars[node];
+      int i = Arrays.binarySearch(chars, ch);
+      if (i >= 0) {
+        return childNodes[node][i];
+      }
+      node = fail[node];
+    }
+  }
+
+  /**
+   * Gets the number of nodes.
+   */
+  int getNodeCount() {
+    return depth.length;
+  }
+
+  /**
+   * Gets the number of characters from the root to the given node.
+   */
+  int getDepth(int node) {
+    return depth[node];
+  }
+
+  /**
+   * Gets an array starting with the characters from the root to the given node.
+   * Only the first {@link #getDepth(int)} characters are meaningful.
+   */
+  char[] getLabel(int node) {
+    return label[node];
+  }
+
+  /**
+   * Gets the length of the longest find ending at the given node or {@code 0} for none.
+   */
+  int getMatchLength(int node) {
+    return matchLength[node];
+  }
+
+  /**
+   * Gets the replacement of the longest find ending at the given node.
+   */
+  char[] getMatchReplace(int node) {
+    return matchReplace[node];
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Replaces bytes while writing, with each byte matched as the ISO-8859-1 character of the same value.
+ *
+ * <p>This class is not thread safe and requires external synchronization if used by more than one thread.</p>
+ *
+ * <p>This is the byte-oriented equivalent of {@link FindReplaceWriter}, sharing the same
+ * {@link FindReplaceAutomaton}.  Matches may span any number of writes.  Only the bytes that
+ * may still become part of a match are held back, and are written on {@link #close()}.
+ * {@link #flush()} does not write held back bytes.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class FindReplaceOutputStream extends OutputStream {
+
+  private final OutputStream out;
+  private final FindReplaceAutomaton automaton;
+
+  /**
+   * The current node.  The bytes from the root to this node are held back.
+   */
+  private int node = FindReplaceAutomaton.ROOT;
+
+  /**
+   * The replacement of each node, converted to bytes as first used.
+   */
+  private final byte[][] replaceBytes;
+
+  /**
+   * @param out  The stream that will receive the converted bytes.
+   * @param findReplaces  The text to find mapped to its replacement, all in ISO-8859-1.
+   *
+   * @see  FindReplaceAutomaton#FindReplaceAutomaton(java.util.Map)
+   */
+  public FindReplaceOutputStream(OutputStream out, Map<String, String> findReplaces) {
+    this(out, new FindReplaceAutomaton(findReplaces));
+  }
+
+  /**
+   * @param out  The stream that will receive the converted bytes.
+   * @param automaton  The compiled find/replace pairs, all in ISO-8859-1.
+   *
+   * @throws  IllegalArgumentException  when any find or replacement is not in ISO-8859-1
+   */
+  public FindReplaceOutputStream(OutputStream out, FindReplaceAutomaton automaton) throws IllegalArgumentException {
+    if (!automaton.isIso88591()) {
+      throw new IllegalArgumentException("All finds and replacements must be in ISO-8859-1");
+    }
+    this.out = out;
+    this.automaton = automaton;
+    this.replaceBytes = new byte[automaton.getNodeCount()][];
+  }
+
+  private static byte[] toBytes(char[] chars, int len) {
+    byte[] bytes = new byte[len];
+    for (int i = 0; i < len; i++) {
+      bytes[i] = (byte) chars[i];
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes the bytes in the range {@code [from, to)}, where negative positions
+   * are the bytes held back before this write.
+   */
+  private void writeRange(char[] heldLabel, int heldLength, byte[] b, int off, int from, int to) throws IOException {
+    if (from < to) {
+      if (from < off) {
+        int heldStart = off - heldLength;
+        int heldFrom = from - heldStart;
+        out.write(toBytes(heldLabel, Math.min(to, off) - heldStart), heldFrom, Math.min(to, off) - from);
+        from = off;
+      }
+      if (from < to) {
+        out.write(b, from, to - from);
+      }
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new IndexOutOfBoundsException();
+    }
+    final int end = off + len;
+    int current = node;
+    final char[] heldLabel = automaton.getLabel(current);
+    final int heldLength = automaton.getDepth(current);
+    // The first position not yet written
+    int unwritten = off - heldLength;
+    for (int i = off; i < end; i++) {
+      current = automaton.step(current, (char) (b[i] & 0xff));
+      int matchLength = automaton.getMatchLength(current);
+      if (matchLength != 0) {
+        writeRange(heldLabel, heldLength, b, off, unwritten, i + 1 - matchLength);
+        byte[] replace = replaceBytes[current];
+        if (replace == null) {
+          char[] chars = automaton.getMatchReplace(current);
+          replace = toBytes(chars, chars.length);
+          replaceBytes[current] = replace;
+        }
+        if (replace.length > 0) {
+          out.write(replace);
+        }
+        current = FindReplaceAutomaton.ROOT;
+        unwritten = i + 1;
+      }
+    }
+    // Hold back any partial match
+    writeRange(heldLabel, heldLength, b, off, unwritten, end - automaton.getDepth(current));
+    node = current;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Writes any held back partial match without closing the wrapped stream.
+   * Any following bytes are matched as if at the start of the stream.
+   */
+  public void finish() throws IOException {
+    int depth = automaton.getDepth(node);
+    if (depth > 0) {
+      out.write(toBytes(automaton.getLabel(node), depth));
+      node = FindReplaceAutomaton.ROOT;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.close();
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2012, 2013, 2016, 2018, 2019, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2012, 2013, 2016, 2018, 2019, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,22 +23,38 @@
 
 package com.aoapps.hodgepodge.io;
 
+import com.aoapps.hodgepodge.net.relay.Relay;
+import com.aoapps.hodgepodge.net.relay.RelayConnection;
+import com.aoapps.hodgepodge.net.relay.RelayDirection;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Listens on a socket, connects to another socket, while finding and replacing
  * values in the communication.
  *
+ * <p>All connections are handled by a single thread with a {@link Selector}.  Each direction
+ * of each connection streams through a {@link FindReplaceOutputStream}, so all find/replace
+ * pairs are matched together in a single pass, and matches split between reads are still
+ * replaced.  Reading stops while the replaced bytes are waiting to be written.</p>
+ *
+ * <p>Matches are replaced in the order they end, not the order they start.  When more than one
+ * find ends at the same byte, the longest is replaced.  For example, with the finds <code>abc</code>
+ * and <code>b</code>, the input <code>abc</code> has <code>b</code> replaced and keeps the
+ * <code>a</code> and <code>c</code>, since <code>b</code> ends first.  This allows replacing
+ * while streaming, without waiting to see if a longer match that started earlier completes.</p>
+ *
  * @author  AO Industries, Inc.
  */
 @SuppressWarnings("UseOfSystemOutOrSystemErr")
@@ -51,13 +67,138 @@ public final class FindReplaceProxy {
 
   private static final Charset CHARSET = StandardCharsets.ISO_8859_1;
 
-  static class FindReplace {
-    private final byte[] findBytes;
-    private final byte[] replaceBytes;
+  /**
+   * The size of the read buffer for each direction, and the number of replaced bytes
+   * waiting to be written at which reading stops.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
+  /**
+   * The replaced bytes waiting to be written, which grows when replacements expand a read.
+   */
+  private static final class PendingBuffer extends OutputStream {
+
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+
+    @Override
+    public void write(int b) {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      int newCount = count + len;
+      if (newCount > buf.length) {
+        byte[] newBuf = new byte[Math.max(buf.length << 1, newCount)];
+        System.arraycopy(buf, 0, newBuf, 0, count);
+        buf = newBuf;
+      }
+      System.arraycopy(b, off, buf, count, len);
+      count = newCount;
+    }
+
+    /**
+     * Writes as many bytes as possible without blocking.
+     */
+    private void writeTo(SocketChannel target) throws IOException {
+      int written = target.write(ByteBuffer.wrap(buf, 0, count));
+      if (written > 0) {
+        count -= written;
+        System.arraycopy(buf, written, buf, 0, count);
+      }
+    }
+  }
+
+  /**
+   * One direction of a connection, streaming through a {@link FindReplaceOutputStream}.
+   */
+  private static final class Direction extends RelayDirection {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final PendingBuffer pending = new PendingBuffer();
+    private final FindReplaceOutputStream replacer;
+
+    private Direction(SocketChannel source, SocketChannel target, FindReplaceAutomaton automaton) {
+      super(source, target);
+      this.replacer = new FindReplaceOutputStream(pending, automaton);
+    }
+
+    @Override
+    protected int readFrom(SocketChannel source) throws IOException {
+      buffer.clear();
+      int count = source.read(buffer);
+      if (count > 0) {
+        replacer.write(buffer.array(), 0, count);
+      }
+      return count;
+    }
+
+    /**
+     * Releases any held back partial match.
+     */
+    @Override
+    protected void finish() throws IOException {
+      replacer.finish();
+    }
+
+    @Override
+    protected boolean hasPending() {
+      return pending.count > 0;
+    }
+
+    /**
+     * Reads while not too many bytes are waiting to be written.
+     */
+    @Override
+    protected boolean hasSpace() {
+      return pending.count < BUFFER_SIZE;
+    }
+
+    @Override
+    protected long writeTo(SocketChannel target, long now) throws IOException {
+      pending.writeTo(target);
+      return Long.MIN_VALUE;
+    }
+  }
+
+  /**
+   * Connects from the source address, replacing in each direction.
+   */
+  private static final class FindReplaceRelay extends Relay {
+
+    private final InetAddress sourceAddress;
+    private final FindReplaceAutomaton inAutomaton;
+    private final FindReplaceAutomaton outAutomaton;
+
+    private FindReplaceRelay(InetAddress sourceAddress, FindReplaceAutomaton inAutomaton, FindReplaceAutomaton outAutomaton) {
+      this.sourceAddress = sourceAddress;
+      this.inAutomaton = inAutomaton;
+      this.outAutomaton = outAutomaton;
+    }
+
+    @Override
+    protected RelayConnection newConnection(SocketChannel listenChannel, SocketChannel connectChannel) throws IOException {
+      connectChannel.bind(new InetSocketAddress(sourceAddress, 0));
+      return new RelayConnection(
+          listenChannel,
+          connectChannel,
+          new Direction(listenChannel, connectChannel, inAutomaton),
+          new Direction(connectChannel, listenChannel, outAutomaton)
+      );
+    }
+  }
 
-    FindReplace(String find, String replace) {
-      this.findBytes = find.getBytes(CHARSET);
-      this.replaceBytes = replace.getBytes(CHARSET);
+  /**
+   * Adds a find/replace, limited to ISO-8859-1 the same as the bytes matched.  Empty finds
+   * are ignored, and the first replacement of each find is used.
+   */
+  private static void addFindReplace(Map<String, String> findReplaces, String find, String replace) {
+    if (!find.isEmpty()) {
+      findReplaces.putIfAbsent(
+          new String(find.getBytes(CHARSET), CHARSET),
+          new String(replace.getBytes(CHARSET), CHARSET)
+      );
     }
   }
 
@@ -65,49 +206,50 @@ public final class FindReplaceProxy {
   public static void main(String[] args) {
     // Must have an even number of arguments
     boolean showArgs = false;
-    if (((args.length - 4) % 3) != 0) {
+    if (args.length < 4 || ((args.length - 4) % 3) != 0) {
       showArgs = true;
     } else {
       try {
         final int listenPort = Integer.parseInt(args[1]);
         final int connectPort = Integer.parseInt(args[3]);
 
-        List<FindReplace> inFindReplaces = new ArrayList<>();
-        List<FindReplace> outFindReplaces = new ArrayList<>();
+        Map<String, String> inFindReplaces = new LinkedHashMap<>();
+        Map<String, String> outFindReplaces = new LinkedHashMap<>();
         for (int pos = 4; pos < args.length; pos += 3) {
           String find = args[pos];
           String replace = args[pos + 1];
           String mode = args[pos + 2];
-          FindReplace findReplace = new FindReplace(find, replace);
           if ("in".equals(mode)) {
-            inFindReplaces.add(findReplace);
+            addFindReplace(inFindReplaces, find, replace);
           } else if ("out".equals(mode)) {
-            outFindReplaces.add(findReplace);
+            addFindReplace(outFindReplaces, find, replace);
           } else if ("both".equals(mode)) {
-            inFindReplaces.add(findReplace);
-            outFindReplaces.add(findReplace);
+            addFindReplace(inFindReplaces, find, replace);
+            addFindReplace(outFindReplaces, find, replace);
           } else {
             showArgs = true;
             break;
           }
         }
         if (!showArgs) {
+          FindReplaceAutomaton inAutomaton = new FindReplaceAutomaton(inFindReplaces);
+          FindReplaceAutomaton outAutomaton = new FindReplaceAutomaton(outFindReplaces);
           while (!Thread.currentThread().isInterrupted()) {
             try {
               InetAddress listenAddress = InetAddress.getByName(args[0]);
               InetAddress connectAddress = InetAddress.getByName(args[2]);
-              try (ServerSocket ss = new ServerSocket(listenPort, 50, listenAddress)) {
-                while (!Thread.currentThread().isInterrupted()) {
-                  Socket socketIn = ss.accept();
-                  new FindReplaceProxyThread(
-                      socketIn,
-                      listenAddress,
-                      connectAddress,
-                      connectPort,
-                      Collections.unmodifiableList(inFindReplaces),
-                      Collections.unmodifiableList(outFindReplaces)
-                  ).start();
-                }
+              try (
+                  Selector selector = Selector.open();
+                  ServerSocketChannel serverChannel = ServerSocketChannel.open()
+              ) {
+                serverChannel.bind(new InetSocketAddress(listenAddress, listenPort), 50);
+                serverChannel.configureBlocking(false);
+                serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                new FindReplaceRelay(listenAddress, inAutomaton, outAutomaton).select(
+                    selector,
+                    serverChannel,
+                    new InetSocketAddress(connectAddress, connectPort)
+                );
               }
             } catch (IOException e) {
               e.printStackTrace(System.err);
@@ -127,148 +269,8 @@ public final class FindReplaceProxy {
       }
     }
     if (showArgs) {
-      System.err.println("Usage: " + FindReplaceProxy.class.getName() + "listen_address listen_port connect_address connect_port [find replace {in|out|both}]...");
+      System.err.println("Usage: " + FindReplaceProxy.class.getName() + " listen_address listen_port connect_address connect_port [find replace {in|out|both}]...");
       System.exit(1);
     }
   }
-
-  static class FindReplaceProxyThread extends Thread {
-    private final Socket socketIn;
-    private final InetAddress sourceAddress;
-    private final InetAddress connectAddress;
-    private final int connectPort;
-    private final List<FindReplace> inFindReplaces;
-    private final List<FindReplace> outFindReplaces;
-
-    FindReplaceProxyThread(
-        Socket socketIn,
-        InetAddress sourceAddress,
-        InetAddress connectAddress,
-        int connectPort,
-        List<FindReplace> inFindReplaces,
-        List<FindReplace> outFindReplaces
-    ) {
-      this.socketIn = socketIn;
-      this.sourceAddress = sourceAddress;
-      this.connectAddress = connectAddress;
-      this.connectPort = connectPort;
-      this.inFindReplaces = inFindReplaces;
-      this.outFindReplaces = outFindReplaces;
-    }
-
-    @Override
-    public void run() {
-      try {
-        try {
-          try (Socket socketOut = new Socket(connectAddress, connectPort, sourceAddress, 0)) {
-            FindReplaceReadThread inThread = new FindReplaceReadThread(socketIn.getInputStream(), socketOut.getOutputStream(), inFindReplaces);
-            try {
-              inThread.start();
-              FindReplaceReadThread outThread = new FindReplaceReadThread(socketOut.getInputStream(), socketIn.getOutputStream(), outFindReplaces);
-              try {
-                outThread.start();
-              } finally {
-                try {
-                  inThread.join();
-                } catch (InterruptedException e) {
-                  e.printStackTrace(System.err);
-                  // Restore the interrupted status
-                  Thread.currentThread().interrupt();
-                }
-              }
-            } finally {
-              try {
-                inThread.join();
-              } catch (InterruptedException e) {
-                e.printStackTrace(System.err);
-                // Restore the interrupted status
-                Thread.currentThread().interrupt();
-              }
-            }
-          }
-        } finally {
-          socketIn.close();
-        }
-      } catch (IOException e) {
-        e.printStackTrace(System.err);
-      }
-    }
-  }
-
-  static int indexOf(byte[] buff, int numBytes, byte[] findBytes, int pos) {
-    final int findLen = findBytes.length;
-    if (findLen > 0) {
-      while ((pos + findLen) < numBytes) {
-        boolean found = true;
-        for (int i = 0; i < findLen; i++) {
-          if (buff[pos + i] != findBytes[i]) {
-            found = false;
-            break;
-          }
-        }
-        if (found) {
-          return pos;
-        }
-        pos++;
-      }
-    }
-    return -1;
-  }
-
-  static class FindReplaceReadThread extends Thread {
-    private final InputStream in;
-    private final OutputStream out;
-    private final List<FindReplace> findReplaces;
-
-    FindReplaceReadThread(InputStream in, OutputStream out, List<FindReplace> findReplaces) {
-      this.in = in;
-      this.out = out;
-      this.findReplaces = findReplaces;
-    }
-
-    @Override
-    public void run() {
-      try {
-        try {
-          try {
-            byte[] buff = new byte[4096];
-            int numBytes;
-            while ((numBytes = in.read(buff, 0, 4096)) != -1) {
-              // Do find/replace
-              int pos = 0;
-              while (pos < numBytes) {
-                // Look for the matching find/replace with the lowest index
-                int lowestIndex = -1;
-                FindReplace lowestFindReplace = null;
-                for (FindReplace findReplace : findReplaces) {
-                  int index = indexOf(buff, numBytes, findReplace.findBytes, pos);
-                  if (index != -1 && (lowestIndex == -1 || index < lowestIndex)) {
-                    lowestIndex = index;
-                    lowestFindReplace = findReplace;
-                  }
-                }
-                if (lowestIndex != -1) {
-                  assert lowestFindReplace != null;
-                  out.write(buff, pos, lowestIndex - pos);
-                  out.write(lowestFindReplace.replaceBytes);
-                  pos = lowestIndex + lowestFindReplace.findBytes.length;
-                } else {
-                  // No more find/replace in this block
-                  out.write(buff, pos, numBytes - pos);
-                  pos = numBytes;
-                }
-              }
-              out.flush();
-            }
-          } finally {
-            out.close();
-          }
-        } finally {
-          in.close();
-        }
-      } catch (IOException e) {
-        e.printStackTrace(System.err);
-      }
-    }
-  }
 }
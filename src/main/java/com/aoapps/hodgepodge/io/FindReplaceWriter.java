@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2013, 2016, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2013, 2016, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,89 +23,141 @@
 
 package com.aoapps.hodgepodge.io;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Replaces strings while writing.
  *
  * <p>This class is not thread safe and requires external synchronization if used by more than one thread.</p>
  *
- * <p>This is a simple implementation that forces all writes to be one character at a time.
- * It is recommended to use along with {@link BufferedWriter} when used in a performance-sensitive application.</p>
+ * <p>Any number of find/replace pairs are matched together by a {@link FindReplaceAutomaton},
+ * which may be shared between writers.  Writes are scanned in bulk, with each run of unmatched
+ * characters forwarded in a single write.  Matches may span any number of writes.  Only the
+ * characters that may still become part of a match are held back, and are written on
+ * {@link #close()}.  {@link #flush()} does not write held back characters.</p>
  *
  * @author  AO Industries, Inc.
  */
 public class FindReplaceWriter extends Writer {
 
+  /**
+   * The size of the buffer used to scan strings.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
   private final Writer out;
-  private final char[] find;
-  private final char[] replace;
+  private final FindReplaceAutomaton automaton;
 
   /**
-   * The number of characters in find currently matched.
+   * The current node.  The characters from the root to this node are held back.
    */
-  private int findMatched;
+  private int node = FindReplaceAutomaton.ROOT;
+
+  private char[] buffer;
 
   /**
    * @see  #FindReplaceWriter(java.io.Writer, char[], char[])
    */
   public FindReplaceWriter(Writer out, String find, String replace) {
-    this(out, find.toCharArray(), replace.toCharArray());
+    this(out, new FindReplaceAutomaton(Collections.singletonMap(find, replace)));
   }
 
   /**
    * @param out  The writer that will receive the converted stream.
-   * @param find  The text to find.  No defensive copy is made.  Do not modify after giving to this writer.
-   * @param replace  The text to replace.  No defensive copy is made.  Do not modify after giving to this writer.
+   * @param find  The text to find.
+   * @param replace  The text to replace.
    */
   public FindReplaceWriter(Writer out, char[] find, char[] replace) {
+    this(out, new String(find), new String(replace));
+  }
+
+  /**
+   * @param out  The writer that will receive the converted stream.
+   * @param findReplaces  The text to find mapped to its replacement.
+   *
+   * @see  FindReplaceAutomaton#FindReplaceAutomaton(java.util.Map)
+   */
+  public FindReplaceWriter(Writer out, Map<String, String> findReplaces) {
+    this(out, new FindReplaceAutomaton(findReplaces));
+  }
+
+  /**
+   * @param out  The writer that will receive the converted stream.
+   * @param automaton  The compiled find/replace pairs.
+   */
+  public FindReplaceWriter(Writer out, FindReplaceAutomaton automaton) {
     this.out = out;
-    this.find = find;
-    this.replace = replace;
+    this.automaton = automaton;
   }
 
   /**
-   * Writes any buffered match.
+   * Writes the characters in the range {@code [from, to)}, where negative positions
+   * are the characters held back before this write.
    */
-  private void clearBuffer() throws IOException {
-    if (findMatched > 0) {
-      out.write(find, 0, findMatched);
-      findMatched = 0;
+  private void writeRange(char[] heldLabel, int heldLength, char[] cbuf, int off, int from, int to) throws IOException {
+    if (from < to) {
+      if (from < off) {
+        int heldStart = off - heldLength;
+        out.write(heldLabel, from - heldStart, Math.min(to, off) - from);
+        from = off;
+      }
+      if (from < to) {
+        out.write(cbuf, from, to - from);
+      }
     }
   }
 
   @Override
-  public void write(int c) throws IOException {
-    char ch = (char) c; // Cast to char to ignore the high-order bits when comparing to the find text
-    if (ch == find[findMatched]) {
-      findMatched++;
-      if (findMatched >= find.length) {
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    final int end = off + len;
+    int current = node;
+    final char[] heldLabel = automaton.getLabel(current);
+    final int heldLength = automaton.getDepth(current);
+    // The first position not yet written
+    int unwritten = off - heldLength;
+    for (int i = off; i < end; i++) {
+      current = automaton.step(current, cbuf[i]);
+      int matchLength = automaton.getMatchLength(current);
+      if (matchLength != 0) {
+        writeRange(heldLabel, heldLength, cbuf, off, unwritten, i + 1 - matchLength);
+        char[] replace = automaton.getMatchReplace(current);
         if (replace.length > 0) {
           out.write(replace);
         }
-        findMatched = 0;
+        current = FindReplaceAutomaton.ROOT;
+        unwritten = i + 1;
       }
-    } else {
-      clearBuffer();
-      out.write(c);
     }
+    // Hold back any partial match
+    writeRange(heldLabel, heldLength, cbuf, off, unwritten, end - automaton.getDepth(current));
+    node = current;
   }
 
   @Override
-  public void write(char[] cbuf, int off, int len) throws IOException  {
-    while (len > 0) {
-      write(cbuf[off++]);
-      len--;
+  public void write(int c) throws IOException {
+    char[] buf = buffer;
+    if (buf == null) {
+      buffer = buf = new char[BUFFER_SIZE];
     }
+    buf[0] = (char) c;
+    write(buf, 0, 1);
   }
 
   @Override
   public void write(String str, int off, int len) throws IOException {
+    char[] buf = buffer;
+    if (buf == null) {
+      buffer = buf = new char[BUFFER_SIZE];
+    }
     while (len > 0) {
-      write(str.charAt(off++));
-      len--;
+      int blockLen = Math.min(len, BUFFER_SIZE);
+      str.getChars(off, off + blockLen, buf, 0);
+      write(buf, 0, blockLen);
+      off += blockLen;
+      len -= blockLen;
     }
   }
 
@@ -121,8 +173,23 @@ public class FindReplaceWriter extends Writer {
 
   @Override
   public FindReplaceWriter append(CharSequence csq, int start, int end) throws IOException {
-    while (start < end) {
-      write(csq.charAt(start++));
+    if (csq == null) {
+      return append("null", start, end);
+    }
+    if (csq instanceof String) {
+      write((String) csq, start, end - start);
+    } else {
+      char[] buf = buffer;
+      if (buf == null) {
+        buffer = buf = new char[BUFFER_SIZE];
+      }
+      while (start < end) {
+        int blockLen = Math.min(end - start, BUFFER_SIZE);
+        for (int i = 0; i < blockLen; i++) {
+          buf[i] = csq.charAt(start++);
+        }
+        write(buf, 0, blockLen);
+      }
     }
     return this;
   }
@@ -140,7 +207,12 @@ public class FindReplaceWriter extends Writer {
 
   @Override
   public void close() throws IOException {
-    clearBuffer();
+    // Write any held back partial match
+    int depth = automaton.getDepth(node);
+    if (depth > 0) {
+      out.write(automaton.getLabel(node), 0, depth);
+      node = FindReplaceAutomaton.ROOT;
+    }
     out.close();
   }
 }
@@ -0,0 +1,157 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets: values below
+ * 64 are exact, and each power of two above is divided into 32 buckets, for a
+ * relative error of at most about 3% at a fixed size regardless of the number
+ * of values recorded.
+ *
+ * <p>This class is not thread safe.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] counts = new long[NUM_BUCKETS];
+  private long count;
+  private long sum;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  static int getBucket(long value) {
+    if (value < (SUB_BUCKETS << 1)) {
+      return (int) value;
+    }
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+  }
+
+  /**
+   * Gets the highest value in the given bucket.
+   */
+  static long getHighestValue(int bucket) {
+    if (bucket < (SUB_BUCKETS << 1)) {
+      return bucket;
+    }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long mantissa = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+    return ((mantissa + 1) << shift) - 1;
+  }
+
+  /**
+   * Records one value.
+   *
+   * @param  nanos  the latency, negative values are recorded as zero
+   */
+  void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts[getBucket(nanos)]++;
+    count++;
+    sum += nanos;
+    if (nanos < min) {
+      min = nanos;
+    }
+    if (nanos > max) {
+      max = nanos;
+    }
+  }
+
+  /**
+   * Adds all the values of another histogram to this one.
+   */
+  void add(LatencyHistogram other) {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    if (other.min < min) {
+      min = other.min;
+    }
+    if (other.max > max) {
+      max = other.max;
+    }
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * @return  the minimum value or {@code 0} when empty
+   */
+  long getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * @return  the maximum value or {@code 0} when empty
+   */
+  long getMax() {
+    return count == 0 ? 0 : max;
+  }
+
+  /**
+   * @return  the mean value or {@code 0} when empty
+   */
+  double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Gets the value at the given percentile, which is the highest value of the bucket
+   * containing the percentile, but never more than the maximum recorded.
+   *
+   * @param  percentile  the percentile, from {@code 0} to {@code 100}
+   *
+   * @return  the value or {@code 0} when empty
+   */
+  long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile out of range: " + percentile);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.min(getHighestValue(i), max);
+      }
+    }
+    return max;
+  }
+}
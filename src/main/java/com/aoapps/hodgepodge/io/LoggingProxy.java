@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2012, 2016, 2018, 2019, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2012, 2016, 2018, 2019, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,22 +23,67 @@
 
 package com.aoapps.hodgepodge.io;
 
+import com.aoapps.hodgepodge.io.stream.StreamableInput;
+import com.aoapps.hodgepodge.io.stream.StreamableOutput;
+import com.aoapps.hodgepodge.net.relay.BufferedRelayDirection;
+import com.aoapps.hodgepodge.net.relay.Relay;
+import com.aoapps.hodgepodge.net.relay.RelayConnection;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.Writer;
+import java.io.PushbackInputStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Listens on a socket, connects to another socket, and dumps all communication line-by-line to
+ * Listens on a socket, connects to another socket, and dumps all communication to
  * a single log file.
  *
+ * <p>All connections are handled by a single thread with a {@link Selector}.  Each chunk
+ * read is queued, with its connection id, direction, and time, to a single log writer
+ * thread that writes in batches and flushes periodically.  When the queue is full, the
+ * proxy waits for the log writer to catch up so no traffic is missing from the log.
+ * Should the log writer fail, such as when the disk is full, the failure is reported once
+ * and the proxy continues without logging.</p>
+ *
+ * <p>The log is written as text by default, with one line per chunk in the form
+ * <code>&lt;time&gt; &lt;connection_id&gt;&lt;direction&gt; &lt;data&gt;</code>, where the direction is
+ * <code>&lt;</code> from the client, <code>&gt;</code> to the client, or <code>:</code> for
+ * connection events.  The data is written as-is, without any character conversion.</p>
+ *
+ * <p>With <code>-b</code>, the log is a compact binary capture instead, starting with
+ * the {@link StreamableOutput#writeUTF(java.lang.String) UTF} string {@link #BINARY_MAGIC}
+ * and the {@link StreamableOutput#writeCompressedInt(int) compressed} {@link #BINARY_VERSION}
+ * when the file is new, followed by records of:</p>
+ * <ol>
+ *   <li>the time in milliseconds since the epoch as a <code>long</code></li>
+ *   <li>the connection id as a <code>long</code></li>
+ *   <li>the direction as a <code>byte</code></li>
+ *   <li>the compressed number of bytes of data</li>
+ *   <li>the data</li>
+ * </ol>
+ *
+ * <p>Binary captures are read with {@link BinaryReader}.</p>
+ *
  * @author  AO Industries, Inc.
  */
 @SuppressWarnings("UseOfSystemOutOrSystemErr")
@@ -52,155 +97,462 @@ public final class LoggingProxy {
   private static final Charset CHARSET = StandardCharsets.ISO_8859_1;
 
   /**
-   * Writes one line to the given file, synchronizes on the file object.
+   * The header of binary captures.
    */
-  private static void log(File logFile, long connectionId, char separator, String line) {
-    synchronized (logFile) {
+  public static final String BINARY_MAGIC = "LoggingProxy";
+
+  /**
+   * The version of binary captures.
+   */
+  public static final int BINARY_VERSION = 1;
+
+  /**
+   * The direction of data from the client.
+   */
+  public static final char FROM_CLIENT = '<';
+
+  /**
+   * The direction of data to the client.
+   */
+  public static final char TO_CLIENT = '>';
+
+  /**
+   * The direction of connection events.
+   */
+  public static final char EVENT = ':';
+
+  /**
+   * The size of the buffer for each direction.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
+  /**
+   * The maximum number of records waiting to be written.
+   */
+  private static final int QUEUE_CAPACITY = 4096;
+
+  /**
+   * The maximum number of milliseconds between flushes of the log.
+   */
+  private static final long FLUSH_INTERVAL = 1000;
+
+  /**
+   * The number of milliseconds to wait for space in the queue before checking the log writer again.
+   */
+  private static final long OFFER_TIMEOUT = 100;
+
+  /**
+   * One record of the log.
+   */
+  public static final class LogRecord {
+
+    private final long time;
+    private final long connectionId;
+    private final char direction;
+    private final byte[] data;
+
+    private LogRecord(long time, long connectionId, char direction, byte[] data) {
+      this.time = time;
+      this.connectionId = connectionId;
+      this.direction = direction;
+      this.data = data;
+    }
+
+    /**
+     * Gets the time in milliseconds since the epoch.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * Gets the connection id, starting at one for each run of the proxy.
+     */
+    public long getConnectionId() {
+      return connectionId;
+    }
+
+    /**
+     * Gets the direction, one of {@link #FROM_CLIENT}, {@link #TO_CLIENT}, or {@link #EVENT}.
+     */
+    public char getDirection() {
+      return direction;
+    }
+
+    /**
+     * Gets the data, which is not copied.
+     */
+    @SuppressWarnings("ReturnOfCollectionOrArrayField")
+    public byte[] getData() {
+      return data;
+    }
+  }
+
+  /**
+   * Reads a binary capture written with <code>-b</code>.  This class is not thread safe.
+   */
+  public static final class BinaryReader implements Closeable {
+
+    private final PushbackInputStream pushback;
+    private final StreamableInput in;
+
+    /**
+     * Reads and verifies the header.
+     *
+     * @throws  IOException  when not a binary capture or an unsupported version
+     */
+    public BinaryReader(InputStream in) throws IOException {
+      this.pushback = new PushbackInputStream(in);
+      this.in = new StreamableInput(pushback);
+      String magic = this.in.readUTF();
+      if (!BINARY_MAGIC.equals(magic)) {
+        throw new IOException("Not a " + BINARY_MAGIC + " capture");
+      }
+      int version = this.in.readCompressedInt();
+      if (version != BINARY_VERSION) {
+        throw new IOException("Unsupported version: " + version);
+      }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return  The record or {@code null} at the end of the capture
+     *
+     * @throws  java.io.EOFException  when the capture ends within a record, such as when the proxy was killed
+     */
+    public LogRecord read() throws IOException {
+      int first = pushback.read();
+      if (first == -1) {
+        return null;
+      }
+      pushback.unread(first);
+      long time = in.readLong();
+      long connectionId = in.readLong();
+      char direction = (char) in.readUnsignedByte();
+      int length = in.readCompressedInt();
+      if (length < 0) {
+        throw new IOException("Invalid length: " + length);
+      }
+      byte[] data = new byte[length];
+      in.readFully(data);
+      return new LogRecord(time, connectionId, direction, data);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Marks the end of the log.
+   */
+  private static final LogRecord END = new LogRecord(0, 0, EVENT, new byte[0]);
+
+  /**
+   * Writes all records to the log file on a single thread.
+   */
+  static final class LogWriter implements Closeable {
+
+    private final BlockingQueue<LogRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final OutputStream out;
+    private final StreamableOutput binaryOut;
+    private final Thread thread;
+
+    /**
+     * The reason the log writer stopped before being closed, or {@code null} while running.
+     */
+    private volatile Throwable failure;
+
+    LogWriter(File logFile, boolean binary) throws IOException {
+      this(logFile.length() == 0, new FileOutputStream(logFile, true), binary);
+    }
+
+    /**
+     * @param  isNew  writes the header of a binary capture when {@code true}
+     * @param  out    is closed when the log writer ends
+     */
+    LogWriter(boolean isNew, OutputStream out, boolean binary) throws IOException {
+      this.out = new BufferedOutputStream(out, 64 * 1024);
       try {
-        try (Writer out = new FileWriter(logFile, true)) {
-          out.write(Long.toString(connectionId));
-          out.write(separator);
-          out.write(' ');
-          out.write(line);
-          out.write('\n');
+        if (binary) {
+          binaryOut = new StreamableOutput(this.out);
+          if (isNew) {
+            binaryOut.writeUTF(BINARY_MAGIC);
+            binaryOut.writeCompressedInt(BINARY_VERSION);
+          }
+        } else {
+          binaryOut = null;
         }
-      } catch (IOException e) {
-        e.printStackTrace(System.err);
+      } catch (IOException | RuntimeException e) {
+        this.out.close();
+        throw e;
       }
+      thread = new Thread(this::run, LoggingProxy.class.getName() + ".LogWriter");
+      thread.setDaemon(true);
+      thread.start();
     }
-  }
 
-  @SuppressWarnings("SleepWhileInLoop")
-  public static void main(String[] args) {
-    if (args.length == 5) {
+    /**
+     * Gets the reason the log writer stopped before being closed.
+     *
+     * @return  The failure or {@code null} while running
+     */
+    Throwable getFailure() {
+      return failure;
+    }
+
+    /**
+     * Queues a record, waiting while the queue is full.  Returns immediately
+     * without logging once the log writer has stopped.
+     *
+     * @return  {@code true} when queued or {@code false} when dropped
+     */
+    boolean log(long connectionId, char direction, byte[] data) {
+      return offer(new LogRecord(System.currentTimeMillis(), connectionId, direction, data));
+    }
+
+    boolean log(long connectionId, String message) {
+      return log(connectionId, EVENT, message.getBytes(CHARSET));
+    }
+
+    /**
+     * Waits for space in the queue while the log writer is running.
+     */
+    private boolean offer(LogRecord log) {
       try {
-        final int listenPort = Integer.parseInt(args[1]);
-        final int connectPort = Integer.parseInt(args[3]);
-        long connectionId = 1;
-        while (!Thread.currentThread().isInterrupted()) {
-          try {
-            InetAddress listenAddress = InetAddress.getByName(args[0]);
-            InetAddress connectAddress = InetAddress.getByName(args[2]);
-            File logFile = new File(args[4]);
-            try (ServerSocket ss = new ServerSocket(listenPort, 50, listenAddress)) {
-              while (!Thread.currentThread().isInterrupted()) {
-                Socket socketIn = ss.accept();
-                new LoggingProxyThread(socketIn, connectionId++, connectAddress, connectPort, logFile).start();
+        while (failure == null && thread.isAlive()) {
+          if (queue.offer(log, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        }
+      } catch (InterruptedException e) {
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    private void write(LogRecord log) throws IOException {
+      if (binaryOut != null) {
+        binaryOut.writeLong(log.time);
+        binaryOut.writeLong(log.connectionId);
+        binaryOut.writeByte(log.direction);
+        binaryOut.writeCompressedInt(log.data.length);
+        binaryOut.write(log.data);
+      } else {
+        out.write(Instant.ofEpochMilli(log.time).toString().getBytes(CHARSET));
+        out.write(' ');
+        out.write(Long.toString(log.connectionId).getBytes(CHARSET));
+        out.write(log.direction);
+        out.write(' ');
+        out.write(log.data);
+        out.write('\n');
+      }
+    }
+
+    /**
+     * Writes batches of records until {@link #END}, flushing when idle or at
+     * least every {@link #FLUSH_INTERVAL} milliseconds.
+     */
+    private void run() {
+      try {
+        try (out) {
+          List<LogRecord> batch = new ArrayList<>(QUEUE_CAPACITY);
+          boolean dirty = false;
+          long lastFlush = System.nanoTime();
+          while (true) {
+            LogRecord first = dirty ? queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS) : queue.take();
+            if (first != null) {
+              batch.add(first);
+              queue.drainTo(batch);
+              for (LogRecord log : batch) {
+                if (log == END) {
+                  return;
+                }
+                write(log);
               }
+              batch.clear();
+              dirty = true;
             }
-          } catch (IOException e) {
-            e.printStackTrace(System.err);
-            try {
-              Thread.sleep(1000);
-            } catch (InterruptedException ie) {
-              ie.printStackTrace(System.err);
-              // Restore the interrupted status
-              Thread.currentThread().interrupt();
+            long now = System.nanoTime();
+            if (dirty && (first == null || now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL))) {
+              out.flush();
+              dirty = false;
+              lastFlush = now;
             }
           }
         }
-      } catch (NumberFormatException e) {
-        e.printStackTrace(System.err);
-        System.exit(2);
+      } catch (ThreadDeath td) {
+        failure = td;
+        throw td;
+      } catch (Throwable t) {
+        failure = t;
+        if (t instanceof InterruptedException) {
+          // Restore the interrupted status
+          Thread.currentThread().interrupt();
+        }
+        System.err.println("Log writer failed, no more traffic will be logged");
+        t.printStackTrace(System.err);
+      } finally {
+        // Free any records queued before the failure, nothing more will be taken
+        queue.clear();
+      }
+    }
+
+    /**
+     * Writes all queued records and closes the log file.
+     * Returns immediately when the log writer has already stopped.
+     */
+    @Override
+    public void close() {
+      if (offer(END)) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          // Restore the interrupted status
+          Thread.currentThread().interrupt();
+        }
       }
-    } else {
-      System.err.println("Usage: " + LoggingProxy.class.getName() + "listen_address listen_port connect_address connect_port log_file");
-      System.exit(1);
     }
   }
 
-  private static class LoggingProxyThread extends Thread {
-    private final Socket socketIn;
+  /**
+   * One direction of a connection, logging the bytes read.
+   */
+  private static final class Direction extends BufferedRelayDirection {
+
+    private final LogWriter log;
     private final long connectionId;
-    private final InetAddress connectAddress;
-    private final int connectPort;
-    private final File logFile;
+    private final char direction;
 
-    private LoggingProxyThread(Socket socketIn, long connectionId, InetAddress connectAddress, int connectPort, File logFile) {
-      this.socketIn = socketIn;
+    private Direction(SocketChannel source, SocketChannel target, LogWriter log, long connectionId, char direction) {
+      super(source, target, ByteBuffer.allocate(BUFFER_SIZE));
+      this.log = log;
       this.connectionId = connectionId;
-      this.connectAddress = connectAddress;
-      this.connectPort = connectPort;
-      this.logFile = logFile;
+      this.direction = direction;
     }
 
     @Override
-    public void run() {
-      try {
-        try {
-          log(logFile, connectionId, ':', "Connection accepted from " + socketIn.getRemoteSocketAddress() + ":" + socketIn.getPort());
-          log(logFile, connectionId, ':', "Connecting to " + connectAddress + ":" + connectPort);
-          try (Socket socketOut = new Socket(connectAddress, connectPort)) {
-            ReadLogWriteThread inThread = new ReadLogWriteThread(socketIn.getInputStream(), socketOut.getOutputStream(), connectionId, '<', logFile);
-            try {
-              inThread.start();
-              ReadLogWriteThread outThread = new ReadLogWriteThread(socketOut.getInputStream(), socketIn.getOutputStream(), connectionId, '>', logFile);
-              try {
-                outThread.start();
-              } finally {
-                try {
-                  inThread.join();
-                } catch (InterruptedException e) {
-                  e.printStackTrace(System.err);
-                  // Restore the interrupted status
-                  Thread.currentThread().interrupt();
-                }
-              }
-            } finally {
-              try {
-                inThread.join();
-              } catch (InterruptedException e) {
-                e.printStackTrace(System.err);
-                // Restore the interrupted status
-                Thread.currentThread().interrupt();
-              }
-            }
-          }
-        } finally {
-          socketIn.close();
-        }
-      } catch (IOException e) {
-        log(logFile, connectionId, ':', "IOException: " + e.toString());
+    protected int readFrom(SocketChannel source) throws IOException {
+      int start = buffer.position();
+      int count = super.readFrom(source);
+      if (count > 0) {
+        log.log(connectionId, direction, Arrays.copyOfRange(buffer.array(), start, start + count));
       }
+      return count;
     }
   }
 
-  private static class ReadLogWriteThread extends Thread {
-    private final InputStream in;
-    private final OutputStream out;
+  /**
+   * One connection through the proxy.
+   */
+  private static final class Connection extends RelayConnection {
+
     private final long connectionId;
-    private final char separator;
-    private final File logFile;
 
-    ReadLogWriteThread(InputStream in, OutputStream out, long connectionId, char separator, File logFile) {
-      this.in = in;
-      this.out = out;
+    private Connection(long connectionId, SocketChannel listenChannel, SocketChannel connectChannel, LogWriter log) {
+      super(
+          listenChannel,
+          connectChannel,
+          new Direction(listenChannel, connectChannel, log, connectionId, FROM_CLIENT),
+          new Direction(connectChannel, listenChannel, log, connectionId, TO_CLIENT)
+      );
       this.connectionId = connectionId;
-      this.separator = separator;
-      this.logFile = logFile;
+    }
+  }
+
+  /**
+   * Logs each connection, numbering the connections across restarts of the listener.
+   */
+  private static final class LoggingRelay extends Relay {
+
+    private final long[] nextConnectionId;
+    private final SocketAddress connectAddress;
+    private final LogWriter log;
+
+    private LoggingRelay(long[] nextConnectionId, SocketAddress connectAddress, LogWriter log) {
+      this.nextConnectionId = nextConnectionId;
+      this.connectAddress = connectAddress;
+      this.log = log;
     }
 
     @Override
-    public void run() {
+    protected RelayConnection newConnection(SocketChannel listenChannel, SocketChannel connectChannel) throws IOException {
+      long connectionId = nextConnectionId[0]++;
+      log.log(connectionId, "Connection accepted from " + listenChannel.getRemoteAddress());
+      log.log(connectionId, "Connecting to " + connectAddress);
+      return new Connection(connectionId, listenChannel, connectChannel, log);
+    }
+
+    @Override
+    protected void closed(RelayConnection connection, IOException e) {
+      long connectionId = ((Connection) connection).connectionId;
+      if (e != null) {
+        log.log(connectionId, "IOException: " + e.toString());
+      }
+      log.log(connectionId, "Connection closed");
+    }
+  }
+
+  private static void usage() {
+    System.err.println("Usage: " + LoggingProxy.class.getName() + " [-b] listen_address listen_port connect_address connect_port log_file");
+    System.err.println();
+    System.err.println("        -b - write a binary capture instead of text");
+  }
+
+  @SuppressWarnings("SleepWhileInLoop")
+  public static void main(String[] args) {
+    int argPos = 0;
+    boolean binary = false;
+    if (args.length > 0 && "-b".equals(args[0])) {
+      binary = true;
+      argPos++;
+    }
+    if (args.length - argPos == 5) {
       try {
-        try {
-          try {
-            byte[] buff = new byte[4096];
-            int numBytes;
-            while ((numBytes = in.read(buff, 0, 4096)) != -1) {
-              log(logFile, connectionId, separator, new String(buff, 0, numBytes, CHARSET));
-              out.write(buff, 0, numBytes);
-              out.flush();
+        final int listenPort = Integer.parseInt(args[argPos + 1]);
+        final int connectPort = Integer.parseInt(args[argPos + 3]);
+        try (LogWriter log = new LogWriter(new File(args[argPos + 4]), binary)) {
+          Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+          long[] nextConnectionId = {1};
+          while (!Thread.currentThread().isInterrupted()) {
+            try {
+              InetAddress listenAddress = InetAddress.getByName(args[argPos]);
+              InetAddress connectAddress = InetAddress.getByName(args[argPos + 2]);
+              try (
+                  Selector selector = Selector.open();
+                  ServerSocketChannel serverChannel = ServerSocketChannel.open()
+              ) {
+                serverChannel.bind(new InetSocketAddress(listenAddress, listenPort), 50);
+                serverChannel.configureBlocking(false);
+                serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                SocketAddress connectSocketAddress = new InetSocketAddress(connectAddress, connectPort);
+                new LoggingRelay(nextConnectionId, connectSocketAddress, log).select(selector, serverChannel, connectSocketAddress);
+              }
+            } catch (IOException e) {
+              e.printStackTrace(System.err);
+              try {
+                Thread.sleep(1000);
+              } catch (InterruptedException ie) {
+                ie.printStackTrace(System.err);
+                // Restore the interrupted status
+                Thread.currentThread().interrupt();
+              }
             }
-          } finally {
-            out.close();
           }
-        } finally {
-          in.close();
+        } catch (IOException e) {
+          e.printStackTrace(System.err);
+          System.exit(3);
         }
-      } catch (IOException e) {
-        log(logFile, connectionId, separator, "IOException: " + e.toString());
+      } catch (NumberFormatException e) {
+        e.printStackTrace(System.err);
+        System.exit(2);
       }
+    } else {
+      usage();
+      System.exit(1);
     }
   }
 }
@@ -0,0 +1,354 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A <code>MultiFileInputChannel</code> reads multiple <code>File</code>s as
+ * if they were one contiguous file, with random access by the position within
+ * all the files.
+ *
+ * <p>The lengths of the files are taken when created and must not change while
+ * being read.  Files are opened as first read and remain open until closed.</p>
+ *
+ * <p>Positional reads by {@link #read(java.nio.ByteBuffer, long)} are thread-safe
+ * and may be performed concurrently, such as by multiple streams from
+ * {@link #newInputStream(long, long)} reading different ranges in parallel.</p>
+ *
+ * @see  MultiFileOutputChannel
+ * @see  MultiFileInputStream
+ *
+ * @author  AO Industries, Inc.
+ */
+public class MultiFileInputChannel implements SeekableByteChannel {
+
+  private final File[] files;
+
+  /**
+   * The position of the start of each file, followed by the total size.
+   */
+  private final long[] starts;
+
+  private final FileChannel[] channels;
+
+  private volatile boolean closed;
+
+  private long position;
+
+  public MultiFileInputChannel(File[] files) throws IOException {
+    this.files = files.clone();
+    this.starts = new long[files.length + 1];
+    long total = 0;
+    for (int i = 0; i < files.length; i++) {
+      File file = files[i];
+      if (!file.isFile()) {
+        throw new IOException("Not a file: " + file);
+      }
+      starts[i] = total;
+      total += file.length();
+    }
+    starts[files.length] = total;
+    this.channels = new FileChannel[files.length];
+  }
+
+  /**
+   * Gets the number of files.
+   */
+  public int getFileCount() {
+    return files.length;
+  }
+
+  /**
+   * Gets the position of the start of the given file.
+   */
+  public long getFileStart(int index) {
+    if (index < 0 || index >= files.length) {
+      throw new IndexOutOfBoundsException(Integer.toString(index));
+    }
+    return starts[index];
+  }
+
+  /**
+   * Gets the length of the given file when this channel was created.
+   */
+  public long getFileLength(int index) {
+    if (index < 0 || index >= files.length) {
+      throw new IndexOutOfBoundsException(Integer.toString(index));
+    }
+    return starts[index + 1] - starts[index];
+  }
+
+  /**
+   * Gets the index of the file containing the given position.
+   *
+   * @param  position  the position, {@code 0 <= position < size()}
+   */
+  public int getFileIndex(long position) {
+    if (position < 0 || position >= starts[files.length]) {
+      throw new IndexOutOfBoundsException(Long.toString(position));
+    }
+    int index = Arrays.binarySearch(starts, 0, files.length, position);
+    if (index < 0) {
+      index = -(index + 1) - 1;
+    } else {
+      // Skip empty files starting at the same position
+      while (starts[index + 1] == position) {
+        index++;
+      }
+    }
+    return index;
+  }
+
+  private FileChannel getChannel(int index) throws IOException {
+    synchronized (channels) {
+      if (closed) {
+        throw new ClosedChannelException();
+      }
+      FileChannel channel = channels[index];
+      if (channel == null) {
+        channel = FileChannel.open(files[index].toPath(), StandardOpenOption.READ);
+        channels[index] = channel;
+      }
+      return channel;
+    }
+  }
+
+  /**
+   * Reads from the given position, crossing into following files as needed.
+   * Does not change the position of this channel.
+   * This method is thread-safe.
+   *
+   * @return  the number of bytes read, possibly zero, or {@code -1} when the position is at or past the end
+   *
+   * @throws  EOFException  when a file is shorter than its length when this channel was created
+   *
+   * @see  FileChannel#read(java.nio.ByteBuffer, long)
+   */
+  public int read(ByteBuffer dst, long position) throws IOException {
+    if (position < 0) {
+      throw new IllegalArgumentException("position < 0: " + position);
+    }
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    final long size = starts[files.length];
+    if (position >= size) {
+      return -1;
+    }
+    int total = 0;
+    int index = getFileIndex(position);
+    while (dst.hasRemaining() && position < size) {
+      long fileRemaining = starts[index + 1] - position;
+      if (fileRemaining == 0) {
+        index++;
+        continue;
+      }
+      int limit = dst.limit();
+      if (dst.remaining() > fileRemaining) {
+        dst.limit(dst.position() + (int) fileRemaining);
+      }
+      int count;
+      try {
+        count = getChannel(index).read(dst, position - starts[index]);
+      } finally {
+        dst.limit(limit);
+      }
+      if (count == -1) {
+        throw new EOFException("File shorter than expected: " + files[index]);
+      }
+      total += count;
+      position += count;
+    }
+    return total;
+  }
+
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    int count = read(dst, position);
+    if (count > 0) {
+      position += count;
+    }
+    return count;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized long position() throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    return position;
+  }
+
+  /**
+   * Sets the position.  Setting the position past the end is allowed, but reads
+   * will return {@code -1}.
+   */
+  @Override
+  public synchronized MultiFileInputChannel position(long newPosition) throws IOException {
+    if (newPosition < 0) {
+      throw new IllegalArgumentException("newPosition < 0: " + newPosition);
+    }
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    position = newPosition;
+    return this;
+  }
+
+  /**
+   * Gets the total number of bytes in all the files.
+   */
+  @Override
+  public long size() throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    return starts[files.length];
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException error = null;
+    synchronized (channels) {
+      closed = true;
+      for (int i = 0; i < channels.length; i++) {
+        FileChannel channel = channels[i];
+        if (channel != null) {
+          channels[i] = null;
+          try {
+            channel.close();
+          } catch (IOException e) {
+            if (error == null) {
+              error = e;
+            } else {
+              error.addSuppressed(e);
+            }
+          }
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Gets a new stream reading the given range using positional reads.  The stream has
+   * its own position, so any number of streams may read concurrently.  Closing the
+   * stream does not close this channel.
+   *
+   * @param  position  the position to start reading
+   * @param  length  the maximum number of bytes to read
+   */
+  public InputStream newInputStream(long position, long length) {
+    if (position < 0) {
+      throw new IllegalArgumentException("position < 0: " + position);
+    }
+    if (length < 0) {
+      throw new IllegalArgumentException("length < 0: " + length);
+    }
+    return new RangeInputStream(position, length);
+  }
+
+  private class RangeInputStream extends InputStream {
+
+    private long pos;
+    private long remaining;
+
+    private RangeInputStream(long pos, long remaining) {
+      this.pos = pos;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (off < 0 || len < 0 || off > b.length - len) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining == 0) {
+        return -1;
+      }
+      if (len > remaining) {
+        len = (int) remaining;
+      }
+      int count = MultiFileInputChannel.this.read(ByteBuffer.wrap(b, off, len), pos);
+      if (count > 0) {
+        pos += count;
+        remaining -= count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+      long skipped = Math.min(n, Math.min(remaining, Math.max(0, size() - pos)));
+      pos += skipped;
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(Integer.MAX_VALUE, Math.min(remaining, Math.max(0, size() - pos)));
+    }
+  }
+}
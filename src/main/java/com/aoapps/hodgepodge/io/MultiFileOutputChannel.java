@@ -0,0 +1,329 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A <code>MultiFileOutputChannel</code> writes to multiple <code>File</code>s as
+ * if they were one contiguous file, named the same as {@link MultiFileOutputStream}.
+ *
+ * <p>When an executor is provided, the next file is opened in the background while
+ * the current file is written, so moving to the next file does not wait on the
+ * filesystem.  Files may also be preallocated to their full size when opened, with
+ * the last file truncated on close.</p>
+ *
+ * <p>All writes are synchronized.</p>
+ *
+ * @see  MultiFileInputChannel
+ *
+ * @author  AO Industries, Inc.
+ */
+public class MultiFileOutputChannel implements GatheringByteChannel {
+
+  private final File parent;
+  private final String prefix;
+  private final String suffix;
+  private final long fileSize;
+  private final boolean preallocate;
+  private final ExecutorService executor;
+
+  private final List<File> files = new ArrayList<>();
+  private FileChannel out;
+  private long bytesOut;
+  private long position;
+
+  /**
+   * The next file, being opened in the background, or {@code null} when not yet started.
+   */
+  private Future<FileChannel> next;
+
+  private boolean closed;
+
+  /**
+   * @param  preallocate  extends each file to its full size when opened.  Java does not provide a way to
+   *                      allocate space without writing it, so this is only a hint to the filesystem and
+   *                      may result in a sparse file.
+   * @param  executor  opens the next file in the background or {@code null} to open files as first written
+   */
+  public MultiFileOutputChannel(File parent, String prefix, String suffix, long fileSize, boolean preallocate, ExecutorService executor) {
+    if (fileSize < 1) {
+      throw new IllegalArgumentException("fileSize < 1: " + fileSize);
+    }
+    this.parent = parent;
+    this.prefix = prefix;
+    this.suffix = suffix;
+    this.fileSize = fileSize;
+    this.preallocate = preallocate;
+    this.executor = executor;
+  }
+
+  public MultiFileOutputChannel(File parent, String prefix, String suffix, long fileSize) {
+    this(parent, prefix, suffix, fileSize, false, null);
+  }
+
+  public MultiFileOutputChannel(File parent, String prefix, String suffix) {
+    this(parent, prefix, suffix, MultiFileOutputStream.DEFAULT_FILE_SIZE);
+  }
+
+  private File getFile(int index) {
+    return new File(parent, prefix + (index + 1) + suffix);
+  }
+
+  private FileChannel open(File file) throws IOException {
+    FileChannel channel = FileChannel.open(
+        file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE
+    );
+    try {
+      if (preallocate) {
+        channel.write(ByteBuffer.allocate(1), fileSize - 1);
+      }
+      return channel;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Starts opening the file after the current file in the background.
+   * All accesses are already synchronized.
+   */
+  private void openNext() {
+    if (executor != null) {
+      final File file = getFile(files.size());
+      Callable<FileChannel> task = () -> open(file);
+      next = executor.submit(task);
+    }
+  }
+
+  /**
+   * Moves to the next file, waiting for it to be opened when needed.
+   * All accesses are already synchronized.
+   */
+  private void makeNewFile() throws IOException {
+    File file = getFile(files.size());
+    FileChannel newOut;
+    Future<FileChannel> future = next;
+    if (future == null) {
+      newOut = open(file);
+    } else {
+      next = null;
+      try {
+        newOut = future.get();
+      } catch (InterruptedException e) {
+        // Do not leave the file open
+        closeNext(future);
+        InterruptedIOException ioExc = new InterruptedIOException(e.getMessage());
+        ioExc.initCause(e);
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+        throw ioExc;
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException(cause);
+      }
+    }
+    out = newOut;
+    bytesOut = 0;
+    files.add(file);
+    openNext();
+  }
+
+  /**
+   * Finishes the current file.
+   * All accesses are already synchronized.
+   */
+  private void closeCurrent() throws IOException {
+    FileChannel tempOut = out;
+    if (tempOut != null) {
+      out = null;
+      try (FileChannel c = tempOut) {
+        if (preallocate && bytesOut < fileSize) {
+          c.truncate(bytesOut);
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes and removes a file opened in the background but never written.
+   */
+  private void closeNext(Future<FileChannel> future) throws IOException {
+    // Not canceled, since a task that has started would still open the file
+    try {
+      future.get().close();
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // Not opened
+    }
+    Files.deleteIfExists(getFile(files.size()).toPath());
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return !closed;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      try {
+        closeCurrent();
+      } finally {
+        Future<FileChannel> future = next;
+        if (future != null) {
+          next = null;
+          closeNext(future);
+        }
+      }
+    }
+  }
+
+  /**
+   * Forces any updates to the current file to storage.
+   *
+   * @see  FileChannel#force(boolean)
+   */
+  public synchronized void force(boolean metaData) throws IOException {
+    if (out != null) {
+      out.force(metaData);
+    }
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return (int) write(new ByteBuffer[]{src}, 0, 1);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  /**
+   * Writes the buffers, splitting them between files as needed.  Each file is written
+   * with as few gathering writes as possible.
+   */
+  @Override
+  public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    if (offset < 0 || length < 0 || offset > srcs.length - length) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    final int end = offset + length;
+    long total = 0;
+    while (true) {
+      // Skip empty buffers
+      while (offset < end && !srcs[offset].hasRemaining()) {
+        offset++;
+      }
+      if (offset == end) {
+        return total;
+      }
+      if (out == null) {
+        makeNewFile();
+      }
+      // Find the buffers that fit in the current file, limiting the last if needed
+      final long fileRemaining = fileSize - bytesOut;
+      long fits = 0;
+      int last = offset;
+      ByteBuffer split = null;
+      int splitLimit = 0;
+      while (last < end && fits < fileRemaining) {
+        ByteBuffer src = srcs[last++];
+        int remaining = src.remaining();
+        if (fits + remaining > fileRemaining) {
+          split = src;
+          splitLimit = src.limit();
+          src.limit(src.position() + (int) (fileRemaining - fits));
+          fits = fileRemaining;
+        } else {
+          fits += remaining;
+        }
+      }
+      long written = 0;
+      try {
+        while (written < fits) {
+          written += out.write(srcs, offset, last - offset);
+        }
+      } finally {
+        if (split != null) {
+          split.limit(splitLimit);
+        }
+        bytesOut += written;
+        position += written;
+        total += written;
+      }
+      if (bytesOut >= fileSize) {
+        closeCurrent();
+      }
+    }
+  }
+
+  /**
+   * Gets the total number of bytes written.
+   */
+  public synchronized long position() {
+    return position;
+  }
+
+  /**
+   * Gets the files written so far.
+   */
+  public synchronized File[] getFiles() {
+    return files.toArray(new File[files.size()]);
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -225,17 +225,7 @@ public final class RateLimitCat {
             if (bwlimit != null) {
               out = new BitRateOutputStream(
                   out,
-                  new BitRateProvider() {
-                    @Override
-                    public Long getBitRate() {
-                      return bwlimit.getBitRate();
-                    }
-
-                    @Override
-                    public int getBlockSize() {
-                      return blockSize;
-                    }
-                  }
+                  new TokenBucketBitRateProvider(null, bwlimit.getBitRate(), blockSize)
               );
             }
             byte[] buff = new byte[blockSize];
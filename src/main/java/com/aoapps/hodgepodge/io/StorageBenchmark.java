@@ -0,0 +1,735 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.lang.math.Statistics;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A storage benchmark running configurable {@link StorageWorkload workloads} against
+ * files or devices through {@link FileChannel}, reporting throughput and latency
+ * percentiles.
+ *
+ * <p>The kernel page cache is bypassed with direct I/O where supported.  Otherwise,
+ * every workload starts at random positions within its working set, so the working set
+ * should be larger than RAM for meaningful results.</p>
+ *
+ * <p>Results may be written as JSON, one object per line, including the host, for
+ * comparison between runs and hosts.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class StorageBenchmark {
+
+  /** Make no instances. */
+  private StorageBenchmark() {
+    throw new AssertionError();
+  }
+
+  private static final long DEFAULT_DURATION = 30L * 1000;
+
+  /**
+   * The option to open a file for direct I/O or {@code null} when not available.
+   * This is {@code com.sun.nio.file.ExtendedOpenOption.DIRECT}, found reflectively since
+   * the {@code jdk.unsupported} module is optional.
+   */
+  private static final OpenOption DIRECT_OPEN_OPTION;
+
+  static {
+    OpenOption direct;
+    try {
+      direct = (OpenOption) Class.forName("com.sun.nio.file.ExtendedOpenOption").getField("DIRECT").get(null);
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException | SecurityException e) {
+      // Direct I/O not available
+      direct = null;
+    }
+    DIRECT_OPEN_OPTION = direct;
+  }
+
+  /**
+   * The percentiles included in results.
+   */
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  /**
+   * The result of running one workload against one file.
+   *
+   * <p>This class is immutable and thread-safe.</p>
+   */
+  public static final class Result {
+
+    private final File file;
+    private final StorageWorkload workload;
+    private final boolean direct;
+    private final long workingSet;
+    private final long elapsedNanos;
+    private final long bytes;
+    private final LatencyHistogram latencies;
+
+    private Result(File file, StorageWorkload workload, boolean direct, long workingSet, long elapsedNanos, long bytes, LatencyHistogram latencies) {
+      this.file = file;
+      this.workload = workload;
+      this.direct = direct;
+      this.workingSet = workingSet;
+      this.elapsedNanos = elapsedNanos;
+      this.bytes = bytes;
+      this.latencies = latencies;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public StorageWorkload getWorkload() {
+      return workload;
+    }
+
+    /**
+     * Checks if direct I/O was used.  When {@code false}, the page cache may have been involved.
+     */
+    public boolean isDirect() {
+      return direct;
+    }
+
+    /**
+     * Gets the number of bytes within which the blocks were accessed.
+     */
+    public long getWorkingSet() {
+      return workingSet;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of operations completed.
+     */
+    public long getOperations() {
+      return latencies.getCount();
+    }
+
+    /**
+     * Gets the number of bytes transferred.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Gets the throughput in bytes per second.
+     */
+    public double getThroughput() {
+      return elapsedNanos == 0 ? 0 : bytes * 1000000000D / elapsedNanos;
+    }
+
+    /**
+     * Gets the number of operations per second.
+     */
+    public double getIops() {
+      return elapsedNanos == 0 ? 0 : latencies.getCount() * 1000000000D / elapsedNanos;
+    }
+
+    public long getMinLatencyNanos() {
+      return latencies.getMin();
+    }
+
+    public double getMeanLatencyNanos() {
+      return latencies.getMean();
+    }
+
+    public long getMaxLatencyNanos() {
+      return latencies.getMax();
+    }
+
+    /**
+     * Gets the latency at the given percentile, with a relative error of at most about 3%.
+     *
+     * @param  percentile  the percentile, from {@code 0} to {@code 100}
+     */
+    public long getLatencyNanos(double percentile) {
+      return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * Gets this result as a single line of JSON, including the host and Java runtime.
+     */
+    public String toJson() {
+      StringBuilder json = new StringBuilder();
+      json.append('{');
+      appendJson(json, "host", getHostName()).append(',');
+      appendJson(json, "os", System.getProperty("os.name") + ' ' + System.getProperty("os.version")).append(',');
+      appendJson(json, "java", System.getProperty("java.version")).append(',');
+      json.append("\"processors\":").append(Runtime.getRuntime().availableProcessors()).append(',');
+      appendJson(json, "file", file.getPath()).append(',');
+      appendJson(json, "workload", workload.toString()).append(',');
+      appendJson(json, "pattern", workload.getPattern().name().toLowerCase(Locale.ROOT)).append(',');
+      appendJson(json, "operation", workload.getOperation().name().toLowerCase(Locale.ROOT)).append(',');
+      json.append("\"blockSize\":").append(workload.getBlockSize()).append(',');
+      json.append("\"queueDepth\":").append(workload.getQueueDepth()).append(',');
+      json.append("\"threads\":").append(workload.getThreads()).append(',');
+      json.append("\"direct\":").append(direct).append(',');
+      json.append("\"workingSet\":").append(workingSet).append(',');
+      json.append("\"elapsedNanos\":").append(elapsedNanos).append(',');
+      json.append("\"operations\":").append(getOperations()).append(',');
+      json.append("\"bytes\":").append(bytes).append(',');
+      json.append("\"throughput\":").append(Math.round(getThroughput())).append(',');
+      json.append("\"iops\":").append(Math.round(getIops())).append(',');
+      json.append("\"latencyNanos\":{");
+      json.append("\"min\":").append(getMinLatencyNanos()).append(',');
+      json.append("\"mean\":").append(Math.round(getMeanLatencyNanos())).append(',');
+      for (double percentile : PERCENTILES) {
+        json.append("\"p").append(formatPercentile(percentile)).append("\":").append(getLatencyNanos(percentile)).append(',');
+      }
+      json.append("\"max\":").append(getMaxLatencyNanos());
+      json.append("}}");
+      return json.toString();
+    }
+  }
+
+  private static String formatPercentile(double percentile) {
+    return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+  }
+
+  private static StringBuilder appendJson(StringBuilder json, String name, String value) {
+    json.append('"').append(name).append("\":\"");
+    for (int i = 0, len = value.length(); i < len; i++) {
+      char ch = value.charAt(i);
+      if (ch == '"' || ch == '\\') {
+        json.append('\\').append(ch);
+      } else if (ch < ' ') {
+        json.append(String.format("\\u%04x", (int) ch));
+      } else {
+        json.append(ch);
+      }
+    }
+    return json.append('"');
+  }
+
+  private static volatile String hostName;
+
+  private static String getHostName() {
+    String name = hostName;
+    if (name == null) {
+      try {
+        name = InetAddress.getLocalHost().getHostName();
+      } catch (UnknownHostException e) {
+        name = "unknown";
+      }
+      hostName = name;
+    }
+    return name;
+  }
+
+  /**
+   * The work and measurements of one thread.
+   */
+  private static final class Worker {
+
+    private final StorageWorkload workload;
+    private final long startBlock;
+    private final long blocks;
+    private final long deadline;
+    private final SplittableRandom random;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long bytes;
+    private long sequentialBlock;
+
+    private Worker(StorageWorkload workload, long startBlock, long blocks, long deadline, SplittableRandom random) {
+      this.workload = workload;
+      this.startBlock = startBlock;
+      this.blocks = blocks;
+      this.deadline = deadline;
+      this.random = random;
+      this.sequentialBlock = random.nextLong(blocks);
+    }
+
+    private long nextPosition() {
+      long block;
+      if (workload.getPattern() == StorageWorkload.Pattern.SEQUENTIAL) {
+        block = sequentialBlock;
+        if (++sequentialBlock == blocks) {
+          sequentialBlock = 0;
+        }
+      } else {
+        block = random.nextLong(blocks);
+      }
+      return (startBlock + block) * workload.getBlockSize();
+    }
+
+    private boolean isDone() {
+      return System.nanoTime() - deadline >= 0;
+    }
+
+    private synchronized void record(long latency, long count) {
+      latencies.record(latency);
+      bytes += count;
+    }
+
+    /**
+     * Performs one operation at a time.
+     */
+    private void run(FileChannel channel, ByteBuffer buffer) throws IOException {
+      final boolean read = workload.getOperation() == StorageWorkload.Operation.READ;
+      while (!isDone()) {
+        long pos = nextPosition();
+        buffer.clear();
+        long startTime = System.nanoTime();
+        while (buffer.hasRemaining()) {
+          if (read) {
+            if (channel.read(buffer, pos + buffer.position()) == -1) {
+              throw new EOFException("Unexpected end of file at " + (pos + buffer.position()));
+            }
+          } else {
+            channel.write(buffer, pos + buffer.position());
+          }
+        }
+        record(System.nanoTime() - startTime, buffer.position());
+      }
+    }
+
+    /**
+     * Keeps one operation outstanding per buffer.
+     */
+    private void run(AsynchronousFileChannel channel, List<ByteBuffer> buffers) throws IOException {
+      final boolean read = workload.getOperation() == StorageWorkload.Operation.READ;
+      final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(buffers.size(), false, buffers);
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+      try {
+        while (true) {
+          ByteBuffer buffer = free.take();
+          if (error.get() != null || isDone()) {
+            free.add(buffer);
+            break;
+          }
+          long pos = nextPosition();
+          buffer.clear();
+          final long startTime = System.nanoTime();
+          CompletionHandler<Integer, ByteBuffer> handler = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer result, ByteBuffer attachment) {
+              if (result == -1) {
+                failed(new EOFException("Unexpected end of file at " + pos), attachment);
+              } else {
+                record(System.nanoTime() - startTime, result);
+                free.add(attachment);
+              }
+            }
+
+            @Override
+            public void failed(Throwable exc, ByteBuffer attachment) {
+              error.compareAndSet(null, exc);
+              free.add(attachment);
+            }
+          };
+          if (read) {
+            channel.read(buffer, pos, buffer, handler);
+          } else {
+            channel.write(buffer, pos, buffer, handler);
+          }
+        }
+        // Wait for all outstanding operations
+        for (int i = 0; i < buffers.size(); i++) {
+          free.take();
+        }
+      } catch (InterruptedException e) {
+        InterruptedIOException ioExc = new InterruptedIOException(e.getMessage());
+        ioExc.initCause(e);
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+        throw ioExc;
+      }
+      Throwable t = error.get();
+      if (t != null) {
+        if (t instanceof IOException) {
+          throw (IOException) t;
+        }
+        throw new IOException(t);
+      }
+    }
+  }
+
+  /**
+   * Allocates a buffer aligned for direct I/O, filled with random data for writes.
+   */
+  private static ByteBuffer allocateBuffer(int blockSize, int alignment, SplittableRandom random) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(blockSize + alignment - 1).alignedSlice(alignment);
+    buffer.limit(blockSize);
+    // Random data defeats any compression or deduplication
+    while (buffer.remaining() >= Long.BYTES) {
+      buffer.putLong(random.nextLong());
+    }
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) random.nextInt());
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Gets the alignment required for direct I/O or {@code -1} when direct I/O cannot be used.
+   */
+  private static int getDirectAlignment(Path path, int blockSize) {
+    if (DIRECT_OPEN_OPTION == null) {
+      return -1;
+    }
+    try {
+      long alignment = Files.getFileStore(path).getBlockSize();
+      if (
+          alignment > 0
+              && alignment <= blockSize
+              && Long.bitCount(alignment) == 1
+              && blockSize % alignment == 0
+      ) {
+        return (int) alignment;
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      // Direct I/O not available
+    }
+    return -1;
+  }
+
+  /**
+   * Runs one workload.
+   *
+   * @param  workingSet  the number of bytes within which blocks are accessed or {@code 0} for the entire file.
+   *                     When smaller than the file, the working set is at a random position in the file.
+   * @param  direct  attempt direct I/O, falling back to buffered I/O when not supported
+   * @param  durationMillis  the number of milliseconds to run
+   */
+  public static Result run(File file, StorageWorkload workload, long workingSet, boolean direct, long durationMillis) throws IOException {
+    final int blockSize = workload.getBlockSize();
+    final boolean write = workload.getOperation() == StorageWorkload.Operation.WRITE;
+    final long length;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      length = ZeroFile.getFileLengthWithFallbackBlockdev(file, raf);
+    }
+    final long fileBlocks = length / blockSize;
+    final long blocks = (workingSet <= 0 || workingSet >= length) ? fileBlocks : workingSet / blockSize;
+    if (blocks < 1) {
+      throw new IOException("Working set smaller than block size: " + file);
+    }
+    final Path path = file.toPath();
+    Set<OpenOption> options = new HashSet<>();
+    options.add(StandardOpenOption.READ);
+    if (write) {
+      options.add(StandardOpenOption.WRITE);
+    }
+    int alignment = direct ? getDirectAlignment(path, blockSize) : -1;
+    if (alignment != -1) {
+      options.add(DIRECT_OPEN_OPTION);
+      try {
+        // Not all filesystems support direct I/O
+        FileChannel.open(path, options).close();
+      } catch (IOException | UnsupportedOperationException e) {
+        options.remove(DIRECT_OPEN_OPTION);
+        alignment = -1;
+      }
+    }
+    final boolean isDirect = alignment != -1;
+    if (!isDirect) {
+      alignment = 1;
+    }
+    final SplittableRandom random = new SplittableRandom();
+    final long startBlock = fileBlocks == blocks ? 0 : random.nextLong(fileBlocks - blocks + 1);
+    final int threads = workload.getThreads();
+    final int queueDepth = workload.getQueueDepth();
+    final List<Worker> workers = new ArrayList<>(threads);
+    final List<List<ByteBuffer>> buffers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      SplittableRandom workerRandom = random.split();
+      List<ByteBuffer> workerBuffers = new ArrayList<>(queueDepth);
+      for (int j = 0; j < queueDepth; j++) {
+        workerBuffers.add(allocateBuffer(blockSize, alignment, workerRandom));
+      }
+      buffers.add(workerBuffers);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    // The asynchronous channel performs blocking I/O on its own pool, sized for every outstanding operation
+    ExecutorService asyncExecutor = queueDepth == 1 ? null : Executors.newFixedThreadPool(threads * queueDepth);
+    try (
+        FileChannel channel = asyncExecutor == null ? FileChannel.open(path, options) : null;
+        AsynchronousFileChannel asyncChannel = asyncExecutor == null ? null : AsynchronousFileChannel.open(path, options, asyncExecutor)
+    ) {
+      final long startTime = System.nanoTime();
+      final long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+      List<Future<?>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        Worker worker = new Worker(workload, startBlock, blocks, deadline, random.split());
+        workers.add(worker);
+        List<ByteBuffer> workerBuffers = buffers.get(i);
+        futures.add(executor.submit(() -> {
+          if (channel != null) {
+            worker.run(channel, workerBuffers.get(0));
+          } else {
+            worker.run(asyncChannel, workerBuffers);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      long elapsedNanos = System.nanoTime() - startTime;
+      LatencyHistogram latencies = new LatencyHistogram();
+      long bytes = 0;
+      for (Worker worker : workers) {
+        synchronized (worker) {
+          latencies.add(worker.latencies);
+          bytes += worker.bytes;
+        }
+      }
+      return new Result(file, workload, isDirect, blocks * blockSize, elapsedNanos, bytes, latencies);
+    } catch (InterruptedException e) {
+      InterruptedIOException ioExc = new InterruptedIOException(e.getMessage());
+      ioExc.initCause(e);
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      throw ioExc;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      executor.shutdownNow();
+      if (asyncExecutor != null) {
+        asyncExecutor.shutdownNow();
+      }
+    }
+  }
+
+  private static void printUsage() {
+    System.err.println("usage: " + StorageBenchmark.class.getName() + " [-p passes] [-t seconds] [-s working_set] [-b] [-W] [-j results] [-w workload]... <file> [<file>...]");
+    System.err.println("        -p passes     - the number of times to run every workload, defaults to 1");
+    System.err.println("        -t seconds    - the duration of each workload, defaults to " + (DEFAULT_DURATION / 1000));
+    System.err.println("        -s size       - the working set, defaults to the entire file");
+    System.err.println("        -b            - use buffered I/O instead of direct I/O");
+    System.err.println("        -W            - allow write workloads, which destroy the contents of the files");
+    System.err.println("        -j results    - append results as JSON, one per line, \"-\" for standard output");
+    System.err.println("        -w workload   - <pattern>-<operation>[:<block_size>[:<queue_depth>[:<threads>]]],");
+    System.err.println("                        such as random-read:4k:1:16, defaults to a standard set of read workloads");
+  }
+
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  public static void main(String[] args) {
+    int passes = 1;
+    long duration = DEFAULT_DURATION;
+    long workingSet = 0;
+    boolean direct = true;
+    boolean allowWrite = false;
+    String jsonPath = null;
+    List<StorageWorkload> workloads = new ArrayList<>();
+    int pos = 0;
+    try {
+      while (pos < args.length && args[pos].startsWith("-") && args[pos].length() > 1) {
+        String arg = args[pos++];
+        if ("-b".equals(arg)) {
+          direct = false;
+        } else if ("-W".equals(arg)) {
+          allowWrite = true;
+        } else if (pos < args.length && "-p".equals(arg)) {
+          passes = Integer.parseInt(args[pos++]);
+        } else if (pos < args.length && "-t".equals(arg)) {
+          duration = Long.parseLong(args[pos++]) * 1000;
+        } else if (pos < args.length && "-s".equals(arg)) {
+          workingSet = StorageWorkload.parseSize(args[pos++]);
+        } else if (pos < args.length && "-j".equals(arg)) {
+          jsonPath = args[pos++];
+        } else if (pos < args.length && "-w".equals(arg)) {
+          workloads.add(StorageWorkload.valueOf(args[pos++]));
+        } else {
+          pos = -1;
+          break;
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      pos = -1;
+    }
+    if (pos == -1 || pos >= args.length || passes < 1 || duration < 1) {
+      printUsage();
+      System.exit(1);
+      return;
+    }
+    if (workloads.isEmpty()) {
+      workloads = StorageWorkload.getDefaultWorkloads();
+    }
+    if (!allowWrite) {
+      for (StorageWorkload workload : workloads) {
+        if (workload.getOperation() == StorageWorkload.Operation.WRITE) {
+          System.err.println("Write workloads destroy the contents of the files, use -W to allow: " + workload);
+          System.exit(1);
+          return;
+        }
+      }
+    }
+    List<File> files = new ArrayList<>(args.length - pos);
+    while (pos < args.length) {
+      files.add(new File(args[pos++]));
+    }
+    NumberFormat numberFormat = NumberFormat.getNumberInstance();
+    numberFormat.setMinimumFractionDigits(3);
+    numberFormat.setMaximumFractionDigits(3);
+    // Throughputs by file then workload, across passes
+    Map<File, Map<StorageWorkload, List<Double>>> throughputs = new HashMap<>();
+    final boolean jsonStdout = "-".equals(jsonPath);
+    PrintWriter json = null;
+    try {
+      if (jsonPath != null) {
+        json = new PrintWriter(
+            new OutputStreamWriter(
+                jsonStdout ? System.out : new FileOutputStream(jsonPath, true),
+                StandardCharsets.UTF_8
+            ),
+            true
+        );
+      }
+      for (int pass = 1; pass <= passes; pass++) {
+        if (pass > 1) {
+          System.out.println();
+        }
+        System.out.print("Pass #");
+        System.out.println(pass);
+        for (File file : files) {
+          System.out.println();
+          System.out.println(file);
+          Map<StorageWorkload, List<Double>> fileThroughputs = throughputs.computeIfAbsent(file, f -> new HashMap<>());
+          for (StorageWorkload workload : workloads) {
+            Result result = run(file, workload, workingSet, direct, duration);
+            if (json != null) {
+              json.println(result.toJson());
+            }
+            List<Double> workloadThroughputs = fileThroughputs.computeIfAbsent(workload, w -> new ArrayList<>());
+            double throughput = result.getThroughput() / 1048576D;
+            workloadThroughputs.add(throughput);
+            printResult(result, throughput, workloadThroughputs, numberFormat);
+          }
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace(System.err);
+      System.exit(2);
+    } finally {
+      if (json != null) {
+        if (jsonStdout) {
+          // Do not close standard output
+          json.flush();
+        } else {
+          json.close();
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  private static void printResult(Result result, double throughput, List<Double> throughputs, NumberFormat numberFormat) {
+    StorageWorkload workload = result.getWorkload();
+    StringBuilder out = new StringBuilder();
+    out.append("    ")
+        .append(workload.getPattern().name().toLowerCase(Locale.ROOT))
+        .append(' ')
+        .append(workload.getOperation().name().toLowerCase(Locale.ROOT))
+        .append(' ')
+        .append(Strings.getApproximateSize(workload.getBlockSize()))
+        .append(", queue depth ")
+        .append(workload.getQueueDepth())
+        .append(", ")
+        .append(workload.getThreads())
+        .append(workload.getThreads() == 1 ? " thread" : " threads")
+        .append(result.isDirect() ? ", direct" : ", buffered")
+        .append(": ")
+        .append(numberFormat.format(throughput))
+        .append(" MiB/sec, ")
+        .append(numberFormat.format(result.getIops()))
+        .append(" IOPS");
+    if (throughputs.size() > 1) {
+      double mean = Statistics.mean(throughputs);
+      out.append(" (")
+          .append(numberFormat.format(Collections.min(throughputs)))
+          .append(", ")
+          .append(numberFormat.format(mean))
+          .append('±')
+          .append(numberFormat.format(Statistics.standardDeviation(mean, throughputs)))
+          .append(", ")
+          .append(numberFormat.format(Collections.max(throughputs)))
+          .append(')');
+    }
+    System.out.println(out);
+    out.setLength(0);
+    out.append("        latency ms: mean ").append(numberFormat.format(result.getMeanLatencyNanos() / 1000000D));
+    for (double percentile : PERCENTILES) {
+      out.append(", p")
+          .append(formatPercentile(percentile))
+          .append(' ')
+          .append(numberFormat.format(result.getLatencyNanos(percentile) / 1000000D));
+    }
+    out.append(", max ").append(numberFormat.format(result.getMaxLatencyNanos() / 1000000D));
+    System.out.println(out);
+  }
+}
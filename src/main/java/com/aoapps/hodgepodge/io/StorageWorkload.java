@@ -0,0 +1,234 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One workload run by a {@link StorageBenchmark}.
+ *
+ * <p>A workload is written as
+ * <code>&lt;pattern&gt;-&lt;operation&gt;[:&lt;block_size&gt;[:&lt;queue_depth&gt;[:&lt;threads&gt;]]]</code>,
+ * such as <code>random-read:4k:1:16</code>.  Block sizes may have a suffix of
+ * <code>k</code>, <code>m</code>, <code>g</code>, or <code>t</code> for binary multiples.</p>
+ *
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class StorageWorkload {
+
+  /**
+   * The order of the blocks accessed.
+   */
+  public enum Pattern {
+    /**
+     * Each thread accesses consecutive blocks, starting at a random block.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Each access is to a random block.
+     */
+    RANDOM
+  }
+
+  /**
+   * The operation performed on each block.
+   */
+  public enum Operation {
+    READ,
+
+    /**
+     * Overwrites the blocks with random data, destroying the previous contents.
+     */
+    WRITE
+  }
+
+  private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private static final int[] DEFAULT_SEQUENTIAL_BLOCK_SIZES = {4096, 16384, 65536, 262144, 1048576};
+
+  private static final int[] DEFAULT_RANDOM_THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+  /**
+   * Gets the default workloads: sequential reads by block size followed by random reads of 4 KiB by thread count.
+   */
+  public static List<StorageWorkload> getDefaultWorkloads() {
+    List<StorageWorkload> workloads = new ArrayList<>(DEFAULT_SEQUENTIAL_BLOCK_SIZES.length + DEFAULT_RANDOM_THREADS.length);
+    for (int blockSize : DEFAULT_SEQUENTIAL_BLOCK_SIZES) {
+      workloads.add(new StorageWorkload(Pattern.SEQUENTIAL, Operation.READ, blockSize, 1, 1));
+    }
+    for (int threads : DEFAULT_RANDOM_THREADS) {
+      workloads.add(new StorageWorkload(Pattern.RANDOM, Operation.READ, DEFAULT_BLOCK_SIZE, 1, threads));
+    }
+    return Collections.unmodifiableList(workloads);
+  }
+
+  /**
+   * Parses a size with an optional binary suffix of <code>k</code>, <code>m</code>, <code>g</code>, or <code>t</code>.
+   *
+   * @throws  NumberFormatException  when not a valid size
+   */
+  static long parseSize(String value) throws NumberFormatException {
+    String lower = value.trim().toLowerCase(Locale.ROOT);
+    int shift;
+    if (lower.endsWith("k")) {
+      shift = 10;
+    } else if (lower.endsWith("m")) {
+      shift = 20;
+    } else if (lower.endsWith("g")) {
+      shift = 30;
+    } else if (lower.endsWith("t")) {
+      shift = 40;
+    } else {
+      shift = 0;
+    }
+    long number = Long.parseLong(shift == 0 ? lower : lower.substring(0, lower.length() - 1));
+    if (number < 0 || number > (Long.MAX_VALUE >> shift)) {
+      throw new NumberFormatException("Size out of range: " + value);
+    }
+    return number << shift;
+  }
+
+  /**
+   * Parses a workload.
+   *
+   * @throws  IllegalArgumentException  when not a valid workload
+   */
+  public static StorageWorkload valueOf(String value) throws IllegalArgumentException {
+    String[] parts = value.split(":", -1);
+    if (parts.length > 4) {
+      throw new IllegalArgumentException("Too many parts in workload: " + value);
+    }
+    String name = parts[0];
+    int dashPos = name.indexOf('-');
+    if (dashPos == -1) {
+      throw new IllegalArgumentException("Workload must be <pattern>-<operation>: " + value);
+    }
+    Pattern pattern = Pattern.valueOf(name.substring(0, dashPos).toUpperCase(Locale.ROOT));
+    Operation operation = Operation.valueOf(name.substring(dashPos + 1).toUpperCase(Locale.ROOT));
+    long blockSize = parts.length > 1 ? parseSize(parts[1]) : DEFAULT_BLOCK_SIZE;
+    if (blockSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Block size too large: " + blockSize);
+    }
+    return new StorageWorkload(
+        pattern,
+        operation,
+        (int) blockSize,
+        parts.length > 2 ? Integer.parseInt(parts[2]) : 1,
+        parts.length > 3 ? Integer.parseInt(parts[3]) : 1
+    );
+  }
+
+  private final Pattern pattern;
+  private final Operation operation;
+  private final int blockSize;
+  private final int queueDepth;
+  private final int threads;
+
+  /**
+   * @param  queueDepth  the number of operations each thread keeps outstanding
+   */
+  public StorageWorkload(Pattern pattern, Operation operation, int blockSize, int queueDepth, int threads) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize < 1: " + blockSize);
+    }
+    if (queueDepth < 1) {
+      throw new IllegalArgumentException("queueDepth < 1: " + queueDepth);
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads < 1: " + threads);
+    }
+    this.pattern = pattern;
+    this.operation = operation;
+    this.blockSize = blockSize;
+    this.queueDepth = queueDepth;
+    this.threads = threads;
+  }
+
+  /**
+   * Gets the workload in the form parsed by {@link #valueOf(java.lang.String)}.
+   */
+  @Override
+  public String toString() {
+    return pattern.name().toLowerCase(Locale.ROOT)
+        + '-' + operation.name().toLowerCase(Locale.ROOT)
+        + ':' + blockSize
+        + ':' + queueDepth
+        + ':' + threads;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof StorageWorkload)) {
+      return false;
+    }
+    StorageWorkload other = (StorageWorkload) obj;
+    return
+        pattern == other.pattern
+            && operation == other.operation
+            && blockSize == other.blockSize
+            && queueDepth == other.queueDepth
+            && threads == other.threads;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = pattern.hashCode();
+    hash = hash * 31 + operation.hashCode();
+    hash = hash * 31 + blockSize;
+    hash = hash * 31 + queueDepth;
+    return hash * 31 + threads;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  /**
+   * Gets the number of bytes of each operation.
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Gets the number of operations each thread keeps outstanding.
+   */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2012, 2016, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2012, 2016, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,133 +23,566 @@
 
 package com.aoapps.hodgepodge.io;
 
-import com.aoapps.collections.AoArrays;
+import com.aoapps.hodgepodge.io.stream.StreamableInput;
+import com.aoapps.hodgepodge.io.stream.StreamableOutput;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Copies one file to another, only writing the blocks of the destination
  * file if they either didn't already exist or contain different content.
  * This is to update flash media where reads are much faster than reads.
  *
+ * <p>The source is read sequentially while the blocks already read are compared
+ * to the destination on a pool of threads, so the reads of the source and the
+ * destination overlap.  When a {@link Manifest} of the checksums of the
+ * destination blocks is provided, blocks matching the manifest are not read from
+ * the destination at all.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public class SyncFile {
 
+  private static final int BLOCK_SIZE = 1048576;
+
   /**
-   * Debug flags.
+   * The number of milliseconds between progress reports from {@link #main(java.lang.String[])}.
    */
-  private static final boolean DEBUG = true;
-  private static final boolean DRY_RUN = false;
+  private static final long PROGRESS_INTERVAL = 10L * 1000;
 
-  private static final int BLOCK_SIZE = 1048576;
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+  private static final int CHECKSUM_LENGTH = 32;
 
+  private static void printUsage() {
+    System.err.println("usage: " + SyncFile.class.getName() + " [-n] [-v] [-m manifest] <from> <to>");
+    System.err.println("        -n          - dry run, report what would be written without writing");
+    System.err.println("        -v          - display progress and throughput on standard error");
+    System.err.println("        -m manifest - the file containing the checksums of the blocks of the destination,");
+    System.err.println("                      created when missing and updated after each sync");
+  }
+
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
   public static void main(String[] args) {
-    if (args.length != 2) {
-      System.err.println("usage: " + SyncFile.class.getName() + " <from> <to>");
+    boolean dryRun = false;
+    boolean verbose = false;
+    File manifestFile = null;
+    int pos = 0;
+    while (pos < args.length && args[pos].startsWith("-")) {
+      String arg = args[pos++];
+      if ("-n".equals(arg)) {
+        dryRun = true;
+      } else if ("-v".equals(arg)) {
+        verbose = true;
+      } else if ("-m".equals(arg) && pos < args.length) {
+        manifestFile = new File(args[pos++]);
+      } else {
+        printUsage();
+        System.exit(1);
+        return;
+      }
+    }
+    if (args.length - pos != 2) {
+      printUsage();
       System.exit(1);
     } else {
+      File from = new File(args[pos++]);
+      File to = new File(args[pos++]);
+      ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
       try {
-        long bytesWritten;
-        File from = new File(args[0]);
-        File to = new File(args[1]);
-        if (DEBUG) {
-          System.err.println("Opening " + from);
-        }
-        FileInputStream in = new FileInputStream(from);
-        try {
-          if (DEBUG) {
-            System.err.println("Opening " + to);
+        Manifest manifest;
+        if (manifestFile == null) {
+          manifest = null;
+        } else if (manifestFile.exists()) {
+          try (InputStream in = new FileInputStream(manifestFile)) {
+            manifest = Manifest.readFrom(in);
           }
-          RandomAccessFile out = new RandomAccessFile(to, DRY_RUN ? "r" : "rw");
-          try {
-            bytesWritten = syncFile(in, out);
-          } finally {
-            if (DEBUG) {
-              System.err.println("Closing " + to);
-            }
-            out.close();
-          }
-        } finally {
-          if (DEBUG) {
-            System.err.println("Closing " + from);
+        } else {
+          manifest = new Manifest();
+        }
+        long bytesWritten;
+        try (
+            InputStream in = new FileInputStream(from);
+            RandomAccessFile out = new RandomAccessFile(to, dryRun ? "r" : "rw")
+        ) {
+          Progress progress;
+          if (verbose) {
+            final long startTime = System.currentTimeMillis();
+            final long[] lastReport = {startTime, 0};
+            progress = (bytesSynced, written) -> {
+              long currentTime = System.currentTimeMillis();
+              long reportTime = currentTime - lastReport[0];
+              if (reportTime < 0) {
+                // System time updated
+                lastReport[0] = currentTime;
+                lastReport[1] = bytesSynced;
+              } else if (reportTime >= PROGRESS_INTERVAL) {
+                System.err.println(
+                    bytesSynced + " bytes synced, "
+                        + written + " bytes written in "
+                        + BigDecimal.valueOf(currentTime - startTime, 3) + " seconds, "
+                        + getMibPerSecond(bytesSynced - lastReport[1], reportTime) + " MiB/second"
+                );
+                lastReport[0] = currentTime;
+                lastReport[1] = bytesSynced;
+              }
+            };
+          } else {
+            progress = null;
           }
-          in.close();
+          bytesWritten = syncFile(in, out.getChannel(), executor, manifest, dryRun, progress);
         }
-        if (DEBUG) {
-          System.err.println("Wrote " + bytesWritten + " bytes");
+        if (manifest != null && !dryRun) {
+          try (OutputStream out = new FileOutputStream(manifestFile)) {
+            manifest.writeTo(out);
+          }
         }
+        System.err.println((dryRun ? "Would have written " : "Wrote ") + bytesWritten + " bytes");
       } catch (IOException e) {
         e.printStackTrace(System.err);
+      } finally {
+        executor.shutdown();
       }
     }
   }
 
+  private static BigDecimal getMibPerSecond(long bytes, long millis) {
+    if (millis <= 0) {
+      return BigDecimal.ZERO;
+    }
+    return BigDecimal.valueOf(bytes * 1000 / millis).divide(BigDecimal.valueOf(1048576), 1, RoundingMode.HALF_UP);
+  }
+
+  /**
+   * Receives progress from {@link #syncFile(java.io.InputStream, java.nio.channels.FileChannel, java.util.concurrent.ExecutorService, com.aoapps.hodgepodge.io.SyncFile.Manifest, boolean, com.aoapps.hodgepodge.io.SyncFile.Progress)}.
+   * Called on the thread performing the sync.
+   */
+  @FunctionalInterface
+  public static interface Progress {
+
+    /**
+     * Called after each block is synchronized.
+     *
+     * @param  bytesSynced  the number of bytes of the input completed, all blocks in order
+     * @param  bytesWritten  the number of bytes written, or that would have been written on a dry run
+     */
+    void progress(long bytesSynced, long bytesWritten);
+  }
+
+  /**
+   * The checksums of the blocks of a file, used to find the blocks that need to be
+   * written without reading the file.  The manifest is updated by each sync and must
+   * be saved after the sync.
+   *
+   * <p>This class is not thread safe.  During a sync, the manifest is only updated
+   * by the thread performing the sync.</p>
+   */
+  public static final class Manifest {
+
+    private static final String MAGIC = "SyncFile.Manifest";
+
+    private static final int VERSION = 1;
+
+    private long length;
+    private byte[] checksums = new byte[0];
+
+    /**
+     * Creates an empty manifest, which will be filled during the first sync.
+     */
+    public Manifest() {
+      // Nothing to do
+    }
+
+    /**
+     * Gets the length of the file described by this manifest.
+     */
+    public long getLength() {
+      return length;
+    }
+
+    private int getBlockCount() {
+      return checksums.length / CHECKSUM_LENGTH;
+    }
+
+    /**
+     * Resizes to the given length, clearing any partial last block since its checksum no longer applies.
+     */
+    private void setLength(long newLength) {
+      int oldBlocks = getBlockCount();
+      int newBlocks = Math.toIntExact((newLength + BLOCK_SIZE - 1) / BLOCK_SIZE);
+      checksums = Arrays.copyOf(checksums, newBlocks * CHECKSUM_LENGTH);
+      if (newLength % BLOCK_SIZE != 0 && newBlocks <= oldBlocks) {
+        Arrays.fill(checksums, (newBlocks - 1) * CHECKSUM_LENGTH, newBlocks * CHECKSUM_LENGTH, (byte) 0);
+      }
+      length = newLength;
+    }
+
+    private void clear() {
+      length = 0;
+      checksums = new byte[0];
+    }
+
+    private boolean matches(int block, byte[] checksum) {
+      int offset = block * CHECKSUM_LENGTH;
+      if (offset + CHECKSUM_LENGTH > checksums.length) {
+        return false;
+      }
+      for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+        if (checksums[offset + i] != checksum[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void set(int block, byte[] checksum) {
+      System.arraycopy(checksum, 0, checksums, block * CHECKSUM_LENGTH, CHECKSUM_LENGTH);
+    }
+
+    /**
+     * Writes this manifest to a stream.
+     *
+     * @see  #readFrom(java.io.InputStream)
+     */
+    public void writeTo(OutputStream out) throws IOException {
+      StreamableOutput sout = out instanceof StreamableOutput ? (StreamableOutput) out : new StreamableOutput(out);
+      sout.writeUTF(MAGIC);
+      sout.writeCompressedInt(VERSION);
+      sout.writeInt(BLOCK_SIZE);
+      sout.writeLong(length);
+      sout.write(checksums);
+      sout.flush();
+    }
+
+    /**
+     * Reads a manifest written by {@link #writeTo(java.io.OutputStream)}.
+     */
+    public static Manifest readFrom(InputStream in) throws IOException {
+      StreamableInput sin = in instanceof StreamableInput ? (StreamableInput) in : new StreamableInput(in);
+      String magic = sin.readUTF();
+      if (!MAGIC.equals(magic)) {
+        throw new IOException("Not a " + MAGIC + ": " + magic);
+      }
+      int version = sin.readCompressedInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version: " + version);
+      }
+      int blockSize = sin.readInt();
+      if (blockSize != BLOCK_SIZE) {
+        throw new IOException("Unexpected block size: " + blockSize);
+      }
+      Manifest manifest = new Manifest();
+      long length = sin.readLong();
+      if (length < 0) {
+        throw new IOException("Invalid length: " + length);
+      }
+      manifest.setLength(length);
+      sin.readFully(manifest.checksums);
+      return manifest;
+    }
+  }
+
   /**
    * Synchronized the input to the provided output, only writing data that
    * doesn't already match the input.
    * Returns the number of bytes written.
+   *
+   * @see  #syncFile(java.io.InputStream, java.nio.channels.FileChannel, java.util.concurrent.ExecutorService, com.aoapps.hodgepodge.io.SyncFile.Manifest, boolean, com.aoapps.hodgepodge.io.SyncFile.Progress)
    */
   public static long syncFile(InputStream in, RandomAccessFile out) throws IOException {
-    byte[] inBuff = new byte[BLOCK_SIZE];
-    byte[] outBuff = new byte[BLOCK_SIZE];
+    return syncFile(in, out.getChannel(), null, null, false, null);
+  }
+
+  /**
+   * One block of the input, which is compared and written on the executor.
+   */
+  private static final class Block {
+
+    private final long pos;
+    private final int numBytes;
+    private final byte[] buffer;
+
+    /**
+     * The checksum of the block, set when the manifest is to be updated.
+     */
+    private byte[] checksum;
+
+    private Future<Boolean> written;
+
+    private Block(long pos, int numBytes, byte[] buffer) {
+      this.pos = pos;
+      this.numBytes = numBytes;
+      this.buffer = buffer;
+    }
+  }
+
+  private static boolean waitFor(Future<Boolean> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException err) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      InterruptedIOException ioErr = new InterruptedIOException();
+      ioErr.initCause(err);
+      throw ioErr;
+    } catch (ExecutionException err) {
+      Throwable cause = err.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Reads a full block, short only at the end of the input.
+   *
+   * @return  the number of bytes read or {@code -1} at the end of the input
+   */
+  private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+    int numBytes = 0;
+    while (numBytes < BLOCK_SIZE) {
+      int count = in.read(buffer, numBytes, BLOCK_SIZE - numBytes);
+      if (count == -1) {
+        break;
+      }
+      numBytes += count;
+    }
+    return numBytes == 0 ? -1 : numBytes;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int count = channel.read(buffer, position);
+      if (count == -1) {
+        throw new FileNotFoundException("Unexpected end of file at " + position);
+      }
+      position += count;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Compares one block to the output, writing it when different.
+   *
+   * @return  {@code true} when the block was written, or would have been written on a dry run
+   */
+  private static boolean syncBlock(
+      Block blk,
+      long outLength,
+      FileChannel out,
+      Manifest manifest,
+      boolean dryRun,
+      BlockingQueue<ByteBuffer> outBuffers
+  ) throws IOException {
+    final byte[] inBuff = blk.buffer;
+    final int numBytes = blk.numBytes;
+    final long pos = blk.pos;
+    final int block = (int) (pos / BLOCK_SIZE);
+    final ByteBuffer inBuffer = ByteBuffer.wrap(inBuff, 0, numBytes);
+    byte[] checksum;
+    if (manifest != null) {
+      try {
+        MessageDigest digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        digest.update(inBuff, 0, numBytes);
+        checksum = digest.digest();
+      } catch (NoSuchAlgorithmException e) {
+        throw new AssertionError(CHECKSUM_ALGORITHM + " is required on all Java platforms", e);
+      }
+      if (manifest.matches(block, checksum)) {
+        return false;
+      }
+    } else {
+      checksum = null;
+    }
+    boolean write;
+    if (outLength >= pos + numBytes) {
+      // Read block from out, into a buffer only used by this block until returned
+      ByteBuffer outBuffer = outBuffers.poll();
+      if (outBuffer == null) {
+        outBuffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+      }
+      try {
+        outBuffer.clear().limit(numBytes);
+        readFully(out, outBuffer, pos);
+        outBuffer.flip();
+        write = !inBuffer.equals(outBuffer);
+      } finally {
+        outBuffers.offer(outBuffer);
+      }
+    } else {
+      // At end, write entire block
+      write = true;
+    }
+    if (write && !dryRun) {
+      writeFully(out, inBuffer, pos);
+    }
+    if (!dryRun) {
+      // The manifest is updated by the thread performing the sync
+      blk.checksum = checksum;
+    }
+    return write;
+  }
+
+  /**
+   * Synchronized the input to the provided output, only writing data that
+   * doesn't already match the input.
+   *
+   * <p>The input is read sequentially on the current thread, in blocks, while a limited
+   * number of blocks already read are compared and written on the executor.  The output
+   * is accessed by position only, so its position is not changed.</p>
+   *
+   * @param  executor  the executor to compare and write blocks or {@code null} to do everything on the current thread
+   * @param  manifest  the checksums of the blocks of the output, which are updated as blocks are synchronized,
+   *                   or {@code null} to compare every block to the output.  When the manifest length does not
+   *                   match the output, every block is compared and, unless a dry run, the manifest is cleared.
+   * @param  dryRun  when {@code true}, the output and manifest are not modified
+   * @param  progress  notified of progress or {@code null} for none
+   *
+   * @return  the number of bytes written, or that would have been written on a dry run
+   */
+  public static long syncFile(
+      InputStream in,
+      final FileChannel out,
+      ExecutorService executor,
+      final Manifest manifest,
+      final boolean dryRun,
+      Progress progress
+  ) throws IOException {
+    final long outLength = out.size();
+    final Manifest syncManifest;
+    if (manifest != null && manifest.getLength() != outLength) {
+      // Manifest is not for this output
+      if (dryRun) {
+        // Compare every block without modifying the manifest
+        syncManifest = null;
+      } else {
+        manifest.clear();
+        syncManifest = manifest;
+      }
+    } else {
+      syncManifest = manifest;
+    }
+    final int maxInFlight = executor == null ? 1 : Runtime.getRuntime().availableProcessors() * 2;
+    final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(maxInFlight + 1);
+    // Direct buffers shared by the blocks of this sync only, released with this sync
+    final BlockingQueue<ByteBuffer> outBuffers = new ArrayBlockingQueue<>(maxInFlight);
+    final ArrayDeque<Block> inFlight = new ArrayDeque<>(maxInFlight);
     long pos = 0;
+    long bytesSynced = 0;
     long bytesWritten = 0;
-    int numBytes;
-    while ((numBytes = in.read(inBuff, 0, BLOCK_SIZE)) != -1) {
-      if (DEBUG) {
-        System.err.println(pos + ": Read " + numBytes + " bytes of input");
-      }
-      out.seek(pos);
-      long blockEnd = pos + numBytes;
-      if (out.length() >= blockEnd) {
-        // Read block from out
-        if (DEBUG) {
-          System.err.println(pos + ": Reading " + numBytes + " bytes of output");
+    try {
+      while (true) {
+        byte[] inBuff = buffers.poll();
+        if (inBuff == null) {
+          inBuff = new byte[BLOCK_SIZE];
         }
-        out.readFully(outBuff, 0, numBytes);
-        if (!AoArrays.equals(inBuff, outBuff, 0, numBytes)) {
-          if (DEBUG) {
-            System.err.println(pos + ": Updating " + numBytes + " bytes of output");
-          }
-          out.seek(pos);
-          if (!DRY_RUN) {
-            out.write(inBuff, 0, numBytes);
+        final int numBytes = readBlock(in, inBuff);
+        if (numBytes == -1) {
+          break;
+        }
+        final long blockPos = pos;
+        pos += numBytes;
+        if (syncManifest != null && !dryRun && pos > syncManifest.getLength()) {
+          syncManifest.setLength(pos);
+        }
+        final Block block = new Block(blockPos, numBytes, inBuff);
+        if (executor == null) {
+          boolean written = syncBlock(block, outLength, out, syncManifest, dryRun, outBuffers);
+          bytesWritten += complete(block, written, syncManifest, buffers);
+          bytesSynced += numBytes;
+          if (progress != null) {
+            progress.progress(bytesSynced, bytesWritten);
           }
-          bytesWritten += numBytes;
         } else {
-          if (DEBUG) {
-            System.err.println(pos + ": Data matches, not writing");
+          // Wait for the oldest block while at the limit
+          if (inFlight.size() >= maxInFlight) {
+            Block oldest = inFlight.remove();
+            bytesWritten += complete(oldest, waitFor(oldest.written), syncManifest, buffers);
+            bytesSynced += oldest.numBytes;
+            if (progress != null) {
+              progress.progress(bytesSynced, bytesWritten);
+            }
           }
+          block.written = executor.submit(() -> syncBlock(block, outLength, out, syncManifest, dryRun, outBuffers));
+          inFlight.add(block);
         }
-      } else {
-        // At end, write entire block
-        if (DEBUG) {
-          System.err.println(pos + ": Appending " + numBytes + " bytes to output");
+      }
+      while (!inFlight.isEmpty()) {
+        Block oldest = inFlight.remove();
+        bytesWritten += complete(oldest, waitFor(oldest.written), syncManifest, buffers);
+        bytesSynced += oldest.numBytes;
+        if (progress != null) {
+          progress.progress(bytesSynced, bytesWritten);
         }
-        if (!DRY_RUN) {
-          out.write(inBuff, 0, numBytes);
+      }
+    } finally {
+      // Do not leave tasks writing after an exception
+      for (Block block : inFlight) {
+        try {
+          waitFor(block.written);
+        } catch (IOException | RuntimeException | Error e) {
+          // Already failing
         }
-        bytesWritten += numBytes;
       }
-      pos = blockEnd;
     }
-    if (out.length() != pos) {
-      if (DEBUG) {
-        System.err.println(pos + ": Truncating output to " + pos + " bytes");
-      }
-      assert out.length() > pos;
-      if (!DRY_RUN) {
+    if (outLength > pos) {
+      if (!dryRun) {
         try {
-          out.setLength(pos);
+          out.truncate(pos);
         } catch (IOException e) {
           System.err.println("Warning: Unable to truncate output to " + pos + " bytes");
         }
+        if (syncManifest != null) {
+          syncManifest.setLength(pos);
+        }
       }
     }
     return bytesWritten;
   }
+
+  /**
+   * Completes a block on the thread performing the sync.
+   *
+   * @return  the number of bytes written
+   */
+  private static int complete(Block block, boolean written, Manifest manifest, BlockingQueue<byte[]> buffers) {
+    if (block.checksum != null) {
+      manifest.set((int) (block.pos / BLOCK_SIZE), block.checksum);
+    }
+    buffers.offer(block.buffer);
+    return written ? block.numBytes : 0;
+  }
 }
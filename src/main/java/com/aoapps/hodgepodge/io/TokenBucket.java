@@ -0,0 +1,321 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe token bucket limiting the rate of bytes transferred, optionally
+ * within the limits of a parent bucket.  For example, each connection may have
+ * its own bucket, all sharing a parent bucket that limits their aggregate rate.
+ *
+ * <p>The bucket is implemented by virtual scheduling: it tracks the theoretical
+ * time at which all bytes consumed so far will have been paid for.  Bytes are
+ * available while that time is no more than the burst time ahead of now.  This
+ * is a single {@code long} per bucket, updated without locking.</p>
+ *
+ * <p>Bytes are consumed after being transferred, so a bucket may briefly go into
+ * debt when shared, which is repaid by delaying later transfers.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class TokenBucket {
+
+  private static final long NANOS_PER_SECOND = 1000L * 1000L * 1000L;
+
+  /**
+   * The default burst, in seconds of the bit rate.
+   */
+  private static final double DEFAULT_BURST_SECONDS = 0.1;
+
+  /**
+   * The minimum default burst in bytes.
+   */
+  private static final long MIN_DEFAULT_BURST = 1500;
+
+  private final TokenBucket parent;
+  private final Long bitRate;
+  private final long burst;
+
+  /**
+   * The nanoseconds per byte or {@code 0} when unlimited.
+   */
+  private final double nanosPerByte;
+
+  /**
+   * The nanoseconds of the burst.
+   */
+  private final long burstNanos;
+
+  /**
+   * The theoretical time, in {@link System#nanoTime()}, when all consumed bytes are paid for.
+   */
+  private final AtomicLong paidThrough = new AtomicLong(System.nanoTime());
+
+  /**
+   * @param  parent  The parent bucket or {@code null} for none
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited
+   * @param  burst  The maximum number of bytes that may be transferred at once after being idle
+   */
+  public TokenBucket(TokenBucket parent, Long bitRate, long burst) {
+    if (bitRate != null && bitRate < 1) {
+      throw new IllegalArgumentException("bitRate < 1: " + bitRate);
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("burst < 1: " + burst);
+    }
+    this.parent = parent;
+    this.bitRate = bitRate;
+    this.burst = burst;
+    if (bitRate == null) {
+      nanosPerByte = 0;
+      burstNanos = 0;
+    } else {
+      nanosPerByte = (double) Byte.SIZE * NANOS_PER_SECOND / bitRate;
+      burstNanos = (long) Math.ceil(burst * nanosPerByte);
+    }
+  }
+
+  /**
+   * Uses a default burst of one tenth of a second at the given bit rate, but at least 1500 bytes.
+   * When unlimited, the burst of the parent is used.
+   *
+   * @param  parent  The parent bucket or {@code null} for none
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited
+   */
+  public TokenBucket(TokenBucket parent, Long bitRate) {
+    this(parent, bitRate, getDefaultBurst(parent, bitRate));
+  }
+
+  private static long getDefaultBurst(TokenBucket parent, Long bitRate) {
+    if (bitRate == null) {
+      return parent == null ? MIN_DEFAULT_BURST : parent.burst;
+    }
+    return Math.max(
+        MIN_DEFAULT_BURST,
+        (long) (bitRate / (double) Byte.SIZE * DEFAULT_BURST_SECONDS)
+    );
+  }
+
+  /**
+   * Gets the parent bucket.
+   *
+   * @return  The parent or {@code null} for none
+   */
+  public TokenBucket getParent() {
+    return parent;
+  }
+
+  /**
+   * Gets the bit rate of this bucket, not considering any parent.
+   *
+   * @return  The bit rate in bits per second or {@code null} for unlimited
+   */
+  public Long getBitRate() {
+    return bitRate;
+  }
+
+  /**
+   * Gets the burst in bytes.
+   */
+  public long getBurst() {
+    return burst;
+  }
+
+  /**
+   * Gets the smallest burst of this bucket and all parents that limit the bit rate,
+   * which is the most that may be transferred at once without exceeding any of their bursts.
+   *
+   * @return  The number of bytes, {@link Long#MAX_VALUE} when unlimited
+   */
+  public long getEffectiveBurst() {
+    long effectiveBurst = Long.MAX_VALUE;
+    for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+      if (bucket.bitRate != null && bucket.burst < effectiveBurst) {
+        effectiveBurst = bucket.burst;
+      }
+    }
+    return effectiveBurst;
+  }
+
+  /**
+   * Gets the number of bytes available now from this bucket and all parents.
+   *
+   * @return  The number of bytes, {@link Long#MAX_VALUE} when unlimited
+   */
+  public long getAvailable() {
+    return getAvailable(System.nanoTime());
+  }
+
+  /**
+   * Gets the number of bytes available at the given time from this bucket and all parents.
+   *
+   * @param  now  The time in {@link System#nanoTime()}
+   *
+   * @return  The number of bytes, {@link Long#MAX_VALUE} when unlimited
+   */
+  public long getAvailable(long now) {
+    long available = Long.MAX_VALUE;
+    for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+      if (bucket.bitRate != null) {
+        long ahead = bucket.paidThrough.get() - now;
+        long bucketAvailable;
+        if (ahead <= 0) {
+          bucketAvailable = bucket.burst;
+        } else if (ahead >= bucket.burstNanos) {
+          return 0;
+        } else {
+          bucketAvailable = (long) ((bucket.burstNanos - ahead) / bucket.nanosPerByte);
+        }
+        if (bucketAvailable < available) {
+          available = bucketAvailable;
+        }
+      }
+    }
+    return available;
+  }
+
+  /**
+   * Consumes the given number of bytes from this bucket and all parents.
+   * This may consume more than currently available, delaying future transfers.
+   */
+  public void consume(long bytes) {
+    consume(System.nanoTime(), bytes);
+  }
+
+  /**
+   * Consumes the given number of bytes from this bucket and all parents.
+   * This may consume more than currently available, delaying future transfers.
+   *
+   * @param  now  The time in {@link System#nanoTime()}
+   */
+  public void consume(long now, long bytes) {
+    if (bytes > 0) {
+      for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+        if (bucket.bitRate != null) {
+          long cost = (long) Math.ceil(bytes * bucket.nanosPerByte);
+          long current;
+          long updated;
+          do {
+            current = bucket.paidThrough.get();
+            // Any idle time beyond the burst is lost
+            long start = now - current > 0 ? now : current;
+            updated = start + cost;
+          } while (!bucket.paidThrough.compareAndSet(current, updated));
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of nanoseconds until the given number of bytes are available from
+   * this bucket and all parents.  Requests larger than the burst of a bucket wait only
+   * for its full burst.
+   *
+   * @param  now  The time in {@link System#nanoTime()}
+   *
+   * @return  The number of nanoseconds, {@code 0} when available now
+   */
+  public long getDelayNanos(long now, long bytes) {
+    long delay = 0;
+    for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+      if (bucket.bitRate != null) {
+        long cost = (long) Math.ceil(Math.min(bytes, bucket.burst) * bucket.nanosPerByte);
+        long bucketDelay = bucket.paidThrough.get() + cost - bucket.burstNanos - now;
+        if (bucketDelay > delay) {
+          delay = bucketDelay;
+        }
+      }
+    }
+    return delay;
+  }
+
+  /**
+   * Consumes the given number of bytes when available now from this bucket and all parents.
+   * This never waits, and is suitable for non-blocking I/O.
+   *
+   * @param  now  The time in {@link System#nanoTime()}
+   *
+   * @return  {@code 0} when consumed, otherwise the number of nanoseconds until they will be available
+   *
+   * @see  #getDelayNanos(long, long)
+   */
+  public long tryAcquire(long now, long bytes) {
+    long delay = getDelayNanos(now, bytes);
+    if (delay <= 0) {
+      consume(now, bytes);
+      return 0;
+    }
+    return delay;
+  }
+
+  /**
+   * Waits until the given number of bytes are available from this bucket and all parents,
+   * then consumes them.  Does not sleep when the bytes are available now, so small
+   * transfers within the burst have little overhead.
+   */
+  public void acquire(long bytes) throws InterruptedException {
+    while (true) {
+      long delay = tryAcquire(System.nanoTime(), bytes);
+      if (delay == 0) {
+        return;
+      }
+      TimeUnit.NANOSECONDS.sleep(delay);
+    }
+  }
+
+  /**
+   * Acquires the given number of bytes without blocking the current thread.
+   * When available now, the bytes are consumed and the returned future is already completed.
+   * Otherwise, the bytes are acquired by the given scheduler when available.
+   *
+   * @param  scheduler  schedules later attempts to acquire the bytes
+   *
+   * @return  a future completed once the bytes are consumed.  Canceling the future stops further attempts.
+   */
+  public CompletableFuture<Void> acquireAsync(long bytes, ScheduledExecutorService scheduler) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    new Runnable() {
+      @Override
+      public void run() {
+        if (!future.isDone()) {
+          try {
+            long delay = tryAcquire(System.nanoTime(), bytes);
+            if (delay == 0) {
+              future.complete(null);
+            } else {
+              scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+            }
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        }
+      }
+    }.run();
+    return future;
+  }
+}
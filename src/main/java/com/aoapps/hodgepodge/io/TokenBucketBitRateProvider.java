@@ -0,0 +1,167 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A thread-safe {@link BitRateProvider} backed by a {@link TokenBucket}, so any
+ * number of streams and channels may share one bandwidth budget.
+ *
+ * <p>Providers form a hierarchy: each provider may have its own bit rate while
+ * also being limited by its parent.  For example, a global provider may cap total
+ * backup egress, with a child per backup and a child of that per stream:</p>
+ *
+ * <pre>TokenBucketBitRateProvider global = new TokenBucketBitRateProvider(null, 100000000L);
+ * TokenBucketBitRateProvider backup = global.newChild(50000000L);
+ * OutputStream out = new BitRateOutputStream(socketOut, backup.newChild(null));</pre>
+ *
+ * <p>{@link BitRateInputStream} and {@link BitRateOutputStream} acquire bytes directly from
+ * the bucket instead of sleeping per block.  Transfers within the burst only update the
+ * bucket without sleeping.  Non-blocking I/O may use {@link #tryAcquire(long, long)} or
+ * {@link #acquireAsync(long, java.util.concurrent.ScheduledExecutorService)}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class TokenBucketBitRateProvider implements BitRateProvider {
+
+  private final TokenBucketBitRateProvider parent;
+  private final TokenBucket bucket;
+
+  /**
+   * @param  parent  The parent provider or {@code null} for none
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited, only limited by the parent
+   * @param  burst  The maximum number of bytes that may be transferred at once after being idle
+   */
+  public TokenBucketBitRateProvider(TokenBucketBitRateProvider parent, Long bitRate, long burst) {
+    this.parent = parent;
+    this.bucket = new TokenBucket(parent == null ? null : parent.bucket, bitRate, burst);
+  }
+
+  /**
+   * Uses the default burst of {@link TokenBucket#TokenBucket(com.aoapps.hodgepodge.io.TokenBucket, java.lang.Long)}.
+   *
+   * @param  parent  The parent provider or {@code null} for none
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited, only limited by the parent
+   */
+  public TokenBucketBitRateProvider(TokenBucketBitRateProvider parent, Long bitRate) {
+    this.parent = parent;
+    this.bucket = new TokenBucket(parent == null ? null : parent.bucket, bitRate);
+  }
+
+  /**
+   * Creates a new provider limited by this provider, with the default burst.
+   * An unlimited child has the burst of this provider.
+   *
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited, only limited by this provider
+   */
+  public TokenBucketBitRateProvider newChild(Long bitRate) {
+    return new TokenBucketBitRateProvider(this, bitRate);
+  }
+
+  /**
+   * Creates a new provider limited by this provider.
+   *
+   * @param  bitRate  The bit rate in bits per second or {@code null} for unlimited, only limited by this provider
+   * @param  burst  The maximum number of bytes that may be transferred at once after being idle
+   */
+  public TokenBucketBitRateProvider newChild(Long bitRate, long burst) {
+    return new TokenBucketBitRateProvider(this, bitRate, burst);
+  }
+
+  /**
+   * Gets the parent provider.
+   *
+   * @return  The parent or {@code null} for none
+   */
+  public TokenBucketBitRateProvider getParent() {
+    return parent;
+  }
+
+  public TokenBucket getTokenBucket() {
+    return bucket;
+  }
+
+  /**
+   * Gets the bit rate of this provider, not considering any parent.
+   */
+  @Override
+  public Long getBitRate() {
+    return bucket.getBitRate();
+  }
+
+  /**
+   * The block size is the smallest burst of this provider and its limited parents, which is the most
+   * that may be transferred at once.  When neither this provider nor any parent is limited, transfers
+   * are not split into blocks.
+   *
+   * @see  TokenBucket#getEffectiveBurst()
+   */
+  @Override
+  public int getBlockSize() {
+    return (int) Math.min(Integer.MAX_VALUE, bucket.getEffectiveBurst());
+  }
+
+  /**
+   * Waits until the given number of bytes are available from this provider and all parents,
+   * then consumes them.
+   *
+   * @see  TokenBucket#acquire(long)
+   */
+  public void acquire(long bytes) throws InterruptedIOException {
+    try {
+      bucket.acquire(bytes);
+    } catch (InterruptedException err) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+      InterruptedIOException ioErr = new InterruptedIOException();
+      ioErr.initCause(err);
+      throw ioErr;
+    }
+  }
+
+  /**
+   * Consumes the given number of bytes when available now, never waiting.
+   *
+   * @param  now  The time in {@link System#nanoTime()}
+   *
+   * @return  {@code 0} when consumed, otherwise the number of nanoseconds until they will be available
+   *
+   * @see  TokenBucket#tryAcquire(long, long)
+   */
+  public long tryAcquire(long now, long bytes) {
+    return bucket.tryAcquire(now, bytes);
+  }
+
+  /**
+   * Acquires the given number of bytes without blocking the current thread.
+   *
+   * @see  TokenBucket#acquireAsync(long, java.util.concurrent.ScheduledExecutorService)
+   */
+  public CompletableFuture<Void> acquireAsync(long bytes, ScheduledExecutorService scheduler) {
+    return bucket.acquireAsync(bytes, scheduler);
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2012, 2013, 2014, 2016, 2018, 2019, 2020, 2021, 2022, 2023  AO Industries, Inc.
+ * Copyright (C) 2012, 2013, 2014, 2016, 2018, 2019, 2020, 2021, 2022, 2023, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,44 +25,97 @@ package com.aoapps.hodgepodge.io;
 
 import com.aoapps.lang.ProcessResult;
 import com.aoapps.lang.Strings;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.BitSet;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Zeros-out a file, only writing the blocks of the destination that contain any
  * non-zero value.  This is to clear flash media with minimal writes.
  *
+ * <p>Blocks are read and, when dirty, written in a single pass by a number of
+ * threads using positional I/O, so reads and writes overlap.  Reads and writes
+ * are each limited by a {@link TokenBucket}.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public class ZeroFile {
 
   /**
-   * Flags - these should become commandline switches.
+   * Must be power of two.
    */
-  private static final boolean DEBUG = false;
-  private static final boolean PROGRESS = true;
-  private static final boolean DRY_RUN = false;
+  private static final int BLOCK_SIZE = 1048576;
 
   /**
-   * Must be power of two.
+   * A block of zeros, duplicated by each use.
    */
-  private static final int BLOCK_SIZE = 1048576;
+  private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(BLOCK_SIZE).asReadOnlyBuffer();
+
+  /**
+   * The number of milliseconds between progress updates.
+   */
+  private static final long PROGRESS_INTERVAL = 1000;
+
+  private static void printUsage() {
+    System.err.println("usage: " + ZeroFile.class.getName() + " [-n] [-q] [-v] [-t threads] <mb_per_sec>[/<mb_per_sec_write>] <path>");
+    System.err.println("        -n         - dry run, report dirty blocks without writing");
+    System.err.println("        -q         - do not display progress");
+    System.err.println("        -v         - display opening, closing, and bytes written");
+    System.err.println("        -t threads - the number of threads, defaults to the number of processors");
+  }
 
   @SuppressWarnings("UseOfSystemOutOrSystemErr")
   public static void main(String[] args) {
-    if (args.length != 2) {
-      System.err.println("usage: " + ZeroFile.class.getName() + " <mb_per_sec>[/<mb_per_sec_write>] <path>");
+    boolean dryRun = false;
+    boolean progress = true;
+    boolean debug = false;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int pos = 0;
+    try {
+      while (pos < args.length && args[pos].startsWith("-")) {
+        String arg = args[pos++];
+        if ("-n".equals(arg)) {
+          dryRun = true;
+        } else if ("-q".equals(arg)) {
+          progress = false;
+        } else if ("-v".equals(arg)) {
+          debug = true;
+        } else if ("-t".equals(arg) && pos < args.length) {
+          threads = Integer.parseInt(args[pos++]);
+          if (threads < 1) {
+            throw new NumberFormatException("threads < 1: " + threads);
+          }
+        } else {
+          pos = -1;
+          break;
+        }
+      }
+    } catch (NumberFormatException e) {
+      pos = -1;
+    }
+    if (pos == -1 || args.length - pos != 2) {
+      printUsage();
       System.exit(1);
     } else {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
       try {
         int bpsIn;
         int bpsOut;
-        String bpsArg = args[0];
+        String bpsArg = args[pos++];
         int slashPos = bpsArg.indexOf('/');
         if (slashPos == -1) {
           bpsIn = bpsOut = Integer.parseInt(bpsArg);
@@ -71,47 +124,56 @@ public class ZeroFile {
           bpsOut = Integer.parseInt(bpsArg.substring(slashPos + 1));
         }
         long bytesWritten;
-        File file = new File(args[1]);
-        if (DEBUG) {
+        File file = new File(args[pos++]);
+        if (debug) {
           System.err.println("Opening " + file);
         }
-        RandomAccessFile raf = new RandomAccessFile(file, DRY_RUN ? "r" : "rw");
+        RandomAccessFile raf = new RandomAccessFile(file, dryRun ? "r" : "rw");
         try {
-          bytesWritten = zeroFile(bpsIn, bpsOut, file, raf);
+          bytesWritten = zeroFile(
+              raf.getChannel(),
+              getFileLengthWithFallbackBlockdev(file, raf),
+              executor,
+              threads,
+              new TokenBucket(null, getBitRate(bpsIn), BLOCK_SIZE),
+              new TokenBucket(null, getBitRate(bpsOut), BLOCK_SIZE),
+              dryRun,
+              progress
+          );
         } finally {
-          if (DEBUG) {
+          if (debug) {
             System.err.println("Closing " + file);
           }
           raf.close();
         }
-        if (DEBUG) {
-          System.err.println("Wrote " + bytesWritten + " bytes");
+        if (debug) {
+          System.err.println((dryRun ? "Would have written " : "Wrote ") + bytesWritten + " bytes");
         }
-      } catch (IOException e) {
+      } catch (IOException | NumberFormatException e) {
         e.printStackTrace(System.err);
         System.exit(2);
+      } finally {
+        executor.shutdown();
       }
     }
   }
 
-  private static long sleep(int bps, long lastTime) throws IOException {
+  /**
+   * Gets the bit rate of a number of blocks per second.
+   */
+  private static long getBitRate(int bps) {
+    if (bps < 1) {
+      throw new NumberFormatException("bps < 1: " + bps);
+    }
+    return (long) bps * BLOCK_SIZE * Byte.SIZE;
+  }
+
+  /**
+   * Waits until the given number of bytes are available from the bucket, then consumes them.
+   */
+  private static void acquire(TokenBucket bucket, int bytes) throws IOException {
     try {
-      long millisPerBlock = 1000 / bps;
-      long sleepUntil = lastTime + millisPerBlock;
-      long currentTime = System.currentTimeMillis();
-      long sleepyTime = sleepUntil - currentTime;
-      if (sleepyTime <= 0) {
-        // IO too slow or system time set to future
-        return currentTime;
-      } else if (sleepyTime > millisPerBlock) {
-        // System time set to past
-        Thread.sleep(millisPerBlock);
-        return currentTime + millisPerBlock;
-      } else {
-        // Normal case
-        Thread.sleep(sleepyTime);
-        return currentTime + sleepyTime;
-      }
+      bucket.acquire(bytes);
     } catch (InterruptedException e) {
       InterruptedIOException ioExc = new InterruptedIOException(e.getMessage());
       ioExc.initCause(e);
@@ -150,105 +212,241 @@ public class ZeroFile {
    * Reads at the maximum provided bpsIn blocks per second.
    * Writes at the maximum provided bpsOut blocks per second.
    * Returns the number of bytes written.
+   *
+   * <p>This is performed on the current thread, with progress displayed on standard error.</p>
+   *
+   * @see  #zeroFile(java.nio.channels.FileChannel, long, java.util.concurrent.ExecutorService, int, com.aoapps.hodgepodge.io.TokenBucket, com.aoapps.hodgepodge.io.TokenBucket, boolean, boolean)
    */
-  @SuppressWarnings({"UseOfSystemOutOrSystemErr", "UnusedAssignment"})
   public static long zeroFile(int bpsIn, int bpsOut, File file, RandomAccessFile raf) throws IOException {
-    // Initialize bitset
-    long len = getFileLengthWithFallbackBlockdev(file, raf);
-    final int blocks;
-      {
-        long blocksLong = len / BLOCK_SIZE;
-        if ((len & (BLOCK_SIZE - 1)) != 0) {
-          blocksLong++;
-        }
-        if (blocksLong > Integer.MAX_VALUE) {
-          throw new IOException("File too large: " + len);
-        }
-        blocks = (int) blocksLong;
+    return zeroFile(
+        raf.getChannel(),
+        getFileLengthWithFallbackBlockdev(file, raf),
+        null,
+        1,
+        new TokenBucket(null, getBitRate(bpsIn), BLOCK_SIZE),
+        new TokenBucket(null, getBitRate(bpsOut), BLOCK_SIZE),
+        false,
+        true
+    );
+  }
+
+  /**
+   * Checks if the given buffer, from position to limit, contains only zeros.
+   * This uses {@link ByteBuffer#mismatch(java.nio.ByteBuffer)}, which compares many bytes at a time.
+   */
+  static boolean isZero(ByteBuffer buffer) {
+    ByteBuffer zeros = ZEROS.duplicate();
+    zeros.limit(buffer.remaining());
+    return buffer.mismatch(zeros) == -1;
+  }
+
+  /**
+   * The counters shared by the threads of one call to zero a file.
+   */
+  private static final class Counters {
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final AtomicLong blocksRead = new AtomicLong();
+    private final AtomicLong dirtyBlocks = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+  }
+
+  /**
+   * Claims and zeroes blocks until none remain or the given time is reached.
+   *
+   * @param  deadline  the time, in {@link System#nanoTime()}, after which to stop claiming blocks
+   *                   or {@code null} to continue until no blocks remain
+   *
+   * @return  {@code true} when no blocks remain
+   */
+  private static boolean zeroBlocks(
+      FileChannel channel,
+      long len,
+      long blocks,
+      TokenBucket readBucket,
+      TokenBucket writeBucket,
+      boolean dryRun,
+      Counters counters,
+      ByteBuffer buff,
+      Long deadline
+  ) throws IOException {
+    while (true) {
+      if (deadline != null && System.nanoTime() - deadline >= 0) {
+        return false;
       }
-    BitSet dirtyBlocks = new BitSet(blocks);
-    int numDirtyBlocks = 0;
-    // Pass one: read for non zeros
-    long lastTime = System.currentTimeMillis();
-    byte[] buff = new byte[BLOCK_SIZE];
-    int blockIndex = 0;
-    String lastVerboseString = "";
-    int block = 0;
-    for (long pos = 0; pos < len; pos += BLOCK_SIZE, blockIndex++) {
+      long blockIndex = counters.nextBlock.getAndIncrement();
+      if (blockIndex >= blocks) {
+        return true;
+      }
+      long pos = blockIndex * BLOCK_SIZE;
       int blockSize;
         {
           long blockSizeLong = len - pos;
           blockSize = blockSizeLong > BLOCK_SIZE ? BLOCK_SIZE : (int) blockSizeLong;
         }
-      raf.seek(pos);
-      raf.readFully(buff, 0, blockSize);
-      block++;
-      lastTime = sleep(bpsIn, lastTime);
-      boolean allZero = true;
-      for (int i = 0; i < blockSize; i++) {
-        if (buff[i] != 0) {
-          allZero = false;
-          break;
+      if (readBucket != null) {
+        acquire(readBucket, blockSize);
+      }
+      buff.clear().limit(blockSize);
+      while (buff.hasRemaining()) {
+        if (channel.read(buff, pos + buff.position()) == -1) {
+          throw new EOFException("Unexpected end of file at " + (pos + buff.position()));
         }
       }
+      buff.flip();
+      boolean allZero = isZero(buff);
+      counters.blocksRead.incrementAndGet();
       if (!allZero) {
-        dirtyBlocks.set(blockIndex);
-        numDirtyBlocks++;
-      }
-      if (PROGRESS) {
-        lastVerboseString = TerminalWriter.progressOutput(
-            lastVerboseString,
-            Strings.getApproximateSize(pos + blockSize)
-                + ": "
-                + BigDecimal.valueOf(block * 10000L / blocks, 2)
-                + "% read, "
-                + BigDecimal.valueOf(numDirtyBlocks * 10000L / block, 2)
-                + "% dirty",
-            System.err
-        );
-        //System.err.println("0x"+Long.toString(pos, 16)+"-0x"+Long.toString(pos+blockSize-1, 16)+": "+(allZero ? "Already zero" : "Dirty"));
+        counters.dirtyBlocks.incrementAndGet();
+        if (!dryRun) {
+          if (writeBucket != null) {
+            acquire(writeBucket, blockSize);
+          }
+          ByteBuffer zeros = ZEROS.duplicate();
+          zeros.limit(blockSize);
+          while (zeros.hasRemaining()) {
+            channel.write(zeros, pos + zeros.position());
+          }
+        }
+        counters.bytesWritten.addAndGet(blockSize);
       }
     }
-    if (PROGRESS && !lastVerboseString.isEmpty()) {
-      System.err.println();
-      lastVerboseString = "";
+  }
+
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  private static String progressOutput(String lastVerboseString, long len, long blocks, Counters counters, boolean dryRun) {
+    long blocksRead = counters.blocksRead.get();
+    if (blocksRead == 0) {
+      return lastVerboseString;
+    }
+    long dirtyBlocks = counters.dirtyBlocks.get();
+    return TerminalWriter.progressOutput(
+        lastVerboseString,
+        Strings.getApproximateSize(Math.min(len, blocksRead * BLOCK_SIZE))
+            + ": "
+            + BigDecimal.valueOf(blocksRead * 10000L / blocks, 2)
+            + "% read, "
+            + BigDecimal.valueOf(dirtyBlocks * 10000L / blocksRead, 2)
+            + "% dirty, "
+            + Strings.getApproximateSize(counters.bytesWritten.get())
+            + (dryRun ? " would be written" : " written"),
+        System.err
+    );
+  }
+
+  /**
+   * Zeroes the provided channel, only writing blocks that contain non-zero.
+   * Blocks are read and, when dirty, written in a single pass by the given number of
+   * tasks, each claiming the next block in order.  The position of the channel is not
+   * changed.
+   *
+   * @param  len  the number of bytes to zero, see {@link #getFileLengthWithFallbackBlockdev(java.io.File, java.io.RandomAccessFile)}
+   * @param  executor  the executor to run the tasks or {@code null} to do everything on the current thread
+   * @param  threads  the number of tasks to run on the executor
+   * @param  readBucket  limits the rate of reads or {@code null} for unlimited
+   * @param  writeBucket  limits the rate of writes or {@code null} for unlimited
+   * @param  dryRun  when {@code true}, dirty blocks are counted but not written
+   * @param  progress  when {@code true}, progress is displayed on standard error
+   *
+   * @return  the number of bytes written, or that would have been written on a dry run
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  public static long zeroFile(
+      FileChannel channel,
+      long len,
+      ExecutorService executor,
+      int threads,
+      TokenBucket readBucket,
+      TokenBucket writeBucket,
+      boolean dryRun,
+      boolean progress
+  ) throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads < 1: " + threads);
     }
-    // Pass two: write dirty blocks
-    long bytesWritten = 0;
-    blockIndex = 0;
-    Arrays.fill(buff, (byte) 0);
-    int written = 0;
-    for (long pos = 0; pos < len; pos += BLOCK_SIZE, blockIndex++) {
-      if (dirtyBlocks.get(blockIndex)) {
-        int blockSize;
-          {
-            long blockSizeLong = len - pos;
-            blockSize = blockSizeLong > BLOCK_SIZE ? BLOCK_SIZE : (int) blockSizeLong;
+    final long blocks;
+      {
+        long blocksLong = len / BLOCK_SIZE;
+        if ((len & (BLOCK_SIZE - 1)) != 0) {
+          blocksLong++;
+        }
+        blocks = blocksLong;
+      }
+    Counters counters = new Counters();
+    String lastVerboseString = "";
+    if (executor == null) {
+      ByteBuffer buff = ByteBuffer.allocateDirect(BLOCK_SIZE);
+      Long deadline = null;
+      while (true) {
+        if (progress) {
+          deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL);
+        }
+        if (zeroBlocks(channel, len, blocks, readBucket, writeBucket, dryRun, counters, buff, deadline)) {
+          break;
+        }
+        lastVerboseString = progressOutput(lastVerboseString, len, blocks, counters, dryRun);
+      }
+    } else {
+      List<Future<Void>> futures = new ArrayList<>(threads);
+      try {
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(() -> {
+            zeroBlocks(channel, len, blocks, readBucket, writeBucket, dryRun, counters, ByteBuffer.allocateDirect(BLOCK_SIZE), null);
+            return null;
+          }));
+        }
+        for (Future<Void> future : futures) {
+          while (true) {
+            try {
+              future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+              break;
+            } catch (TimeoutException e) {
+              if (progress) {
+                lastVerboseString = progressOutput(lastVerboseString, len, blocks, counters, dryRun);
+              }
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        InterruptedIOException ioExc = new InterruptedIOException(e.getMessage());
+        ioExc.initCause(e);
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+        throw ioExc;
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException(cause);
+      } finally {
+        // Stop any remaining tasks from claiming more blocks, then wait for them to finish their current block.
+        // They are not interrupted, since an interrupt would close the channel.
+        counters.nextBlock.set(blocks);
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (InterruptedException e) {
+            // Restore the interrupted status
+            Thread.currentThread().interrupt();
+            break;
+          } catch (ExecutionException e) {
+            // Already failing or reported above
           }
-        if (!DRY_RUN) {
-          raf.seek(pos);
-          raf.write(buff, 0, blockSize);
-          lastTime = sleep(bpsOut, lastTime);
-          bytesWritten += blockSize;
-        }
-        written++;
-        if (PROGRESS) {
-          lastVerboseString = TerminalWriter.progressOutput(
-              lastVerboseString,
-              Strings.getApproximateSize(bytesWritten)
-                  + ": "
-                  + BigDecimal.valueOf(written * 10000L / numDirtyBlocks, 2)
-                  + "% written",
-              System.err
-          );
-          // System.err.println("0x"+Long.toString(pos, 16)+"-0x"+Long.toString(pos+blockSize-1, 16)+": Cleared");
         }
       }
     }
-    if (PROGRESS && !lastVerboseString.isEmpty()) {
-      System.err.println();
-      lastVerboseString = "";
+    if (progress) {
+      lastVerboseString = progressOutput(lastVerboseString, len, blocks, counters, dryRun);
+      if (!lastVerboseString.isEmpty()) {
+        System.err.println();
+      }
     }
-    return bytesWritten;
+    return counters.bytesWritten.get();
   }
 }
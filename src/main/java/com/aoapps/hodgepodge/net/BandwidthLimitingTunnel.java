@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2015, 2016, 2018, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2006, 2007, 2008, 2009, 2010, 2011, 2013, 2015, 2016, 2018, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,10 +23,23 @@
 
 package com.aoapps.hodgepodge.net;
 
+import com.aoapps.hodgepodge.io.TokenBucket;
+import com.aoapps.hodgepodge.net.relay.Relay;
+import com.aoapps.hodgepodge.net.relay.RelayConnection;
 import com.aoapps.lang.util.ErrorPrinter;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a tunnel for TCP sockets that limits the bandwidth for both upstream and downstream bandwidth.
@@ -34,10 +47,21 @@ import java.net.Socket;
  * our main office in order to keep the network responsive.  However, it is general purpose and might find additional
  * uses.
  *
+ * <p>All connections are handled by a single thread with a {@link Selector}.  Each connection
+ * is limited by its own {@link TokenBucket} in each direction, which share a parent bucket
+ * that limits the aggregate bandwidth of the whole tunnel.  Rather than sleeping, throttled
+ * connections stop writing until their buckets have refilled.  The connect address is
+ * resolved each time the tunnel starts listening, not for each connection.</p>
+ *
  * @author  AO Industries, Inc.
  */
 @SuppressWarnings("UseOfSystemOutOrSystemErr")
-public class BandwidthLimitingTunnel implements Runnable {
+public class BandwidthLimitingTunnel implements Runnable, AutoCloseable {
+
+  /**
+   * The number of milliseconds between verbose bits/second output.
+   */
+  private static final long VERBOSE_REPORT_INTERVAL = 10L * 1000;
 
   private final boolean verbose;
   private final String listenAddress;
@@ -46,8 +70,17 @@ public class BandwidthLimitingTunnel implements Runnable {
   private final int connectPort;
   private final Long upstreamBandwidth;
   private final Long downstreamBandwidth;
+  private final TokenBucket upstreamBucket;
+  private final TokenBucket downstreamBucket;
+  private final Map<RelayConnection, BandwidthLimitingTunnelConnection> connections = new ConcurrentHashMap<>();
   private final Thread thread;
 
+  /**
+   * @param  upstreamBandwidth  The maximum bits per second upstream for each connection or {@code null} for unlimited
+   * @param  downstreamBandwidth  The maximum bits per second downstream for each connection or {@code null} for unlimited
+   * @param  upstreamTunnelBandwidth  The maximum bits per second upstream for all connections combined or {@code null} for unlimited
+   * @param  downstreamTunnelBandwidth  The maximum bits per second downstream for all connections combined or {@code null} for unlimited
+   */
   @SuppressWarnings("CallToThreadStartDuringObjectConstruction")
   public BandwidthLimitingTunnel(
       boolean verbose,
@@ -56,7 +89,9 @@ public class BandwidthLimitingTunnel implements Runnable {
       String connectAddress,
       int connectPort,
       Long upstreamBandwidth,
-      Long downstreamBandwidth
+      Long downstreamBandwidth,
+      Long upstreamTunnelBandwidth,
+      Long downstreamTunnelBandwidth
   ) {
     this.verbose = verbose;
     this.listenAddress = listenAddress;
@@ -65,9 +100,26 @@ public class BandwidthLimitingTunnel implements Runnable {
     this.connectPort = connectPort;
     this.upstreamBandwidth = upstreamBandwidth;
     this.downstreamBandwidth = downstreamBandwidth;
+    this.upstreamBucket = new TokenBucket(null, upstreamTunnelBandwidth);
+    this.downstreamBucket = new TokenBucket(null, downstreamTunnelBandwidth);
     (this.thread = new Thread(this)).start();
   }
 
+  /**
+   * Limits each connection, without any limit on all connections combined.
+   */
+  public BandwidthLimitingTunnel(
+      boolean verbose,
+      String listenAddress,
+      int listenPort,
+      String connectAddress,
+      int connectPort,
+      Long upstreamBandwidth,
+      Long downstreamBandwidth
+  ) {
+    this(verbose, listenAddress, listenPort, connectAddress, connectPort, upstreamBandwidth, downstreamBandwidth, null, null);
+  }
+
   @SuppressWarnings("ResultOfObjectAllocationIgnored")
   public static void main(String[] args) {
     // Listen address
@@ -76,10 +128,12 @@ public class BandwidthLimitingTunnel implements Runnable {
     // Connect port
     // Upstream max bandwidth
     // Downstream max bandwidth
-    if (args.length == 6 || args.length == 7) {
+    // Upstream max tunnel bandwidth (optional)
+    // Downstream max tunnel bandwidth (optional)
+    if (args.length >= 6 && args.length <= 9) {
       int pos = 0;
       boolean verbose;
-      if (args.length == 7) {
+      if (args.length == 7 || args.length == 9) {
         if ("-v".equals(args[pos++])) {
           verbose = true;
         } else {
@@ -98,7 +152,28 @@ public class BandwidthLimitingTunnel implements Runnable {
       Long upstreamBandwidth = s.length() == 0 ? null : Long.parseLong(s);
       s = args[pos++];
       Long downstreamBandwidth = s.length() == 0 ? null : Long.parseLong(s);
-      new BandwidthLimitingTunnel(verbose, listenAddress, listenPort, connectAddress, connectPort, upstreamBandwidth, downstreamBandwidth);
+      Long upstreamTunnelBandwidth;
+      Long downstreamTunnelBandwidth;
+      if (pos < args.length) {
+        s = args[pos++];
+        upstreamTunnelBandwidth = s.length() == 0 ? null : Long.parseLong(s);
+        s = args[pos++];
+        downstreamTunnelBandwidth = s.length() == 0 ? null : Long.parseLong(s);
+      } else {
+        upstreamTunnelBandwidth = null;
+        downstreamTunnelBandwidth = null;
+      }
+      new BandwidthLimitingTunnel(
+          verbose,
+          listenAddress,
+          listenPort,
+          connectAddress,
+          connectPort,
+          upstreamBandwidth,
+          downstreamBandwidth,
+          upstreamTunnelBandwidth,
+          downstreamTunnelBandwidth
+      );
     } else {
       printUsage();
       System.exit(1);
@@ -112,36 +187,64 @@ public class BandwidthLimitingTunnel implements Runnable {
         + " {connect_address}"
         + " {connect_port}"
         + " {upstream_bandwidth|\"\"}"
-        + " {downstream_bandwidth|\"\"}");
-    System.err.println("        -v                   - switch to display status of each connection on standard output");
-    System.err.println("        listen_address       - the hostname or IP address to listen to or * to listen on all local IP addresses");
-    System.err.println("        listen_port          - the port to listen to");
-    System.err.println("        connect_address      - the hostname or IP address to connect to for each tunnel");
-    System.err.println("        connect_port         - the port to connect to for each tunnel");
-    System.err.println("        upstream_bandwidth   - the maximum number of bits per second for upstream bandwidth or \"\" for unlimited");
-    System.err.println("        downstream_bandwidth - the maximum number of bits per second for downstream bandwidth or \"\" for unlimited");
+        + " {downstream_bandwidth|\"\"}"
+        + " [{upstream_tunnel_bandwidth|\"\"} {downstream_tunnel_bandwidth|\"\"}]");
+    System.err.println("        -v                          - switch to display status of each connection on standard output");
+    System.err.println("        listen_address              - the hostname or IP address to listen to or * to listen on all local IP addresses");
+    System.err.println("        listen_port                 - the port to listen to");
+    System.err.println("        connect_address             - the hostname or IP address to connect to for each tunnel");
+    System.err.println("        connect_port                - the port to connect to for each tunnel");
+    System.err.println("        upstream_bandwidth          - the maximum number of bits per second for upstream bandwidth of each connection or \"\" for unlimited");
+    System.err.println("        downstream_bandwidth        - the maximum number of bits per second for downstream bandwidth of each connection or \"\" for unlimited");
+    System.err.println("        upstream_tunnel_bandwidth   - the maximum number of bits per second for upstream bandwidth of all connections or \"\" for unlimited");
+    System.err.println("        downstream_tunnel_bandwidth - the maximum number of bits per second for downstream bandwidth of all connections or \"\" for unlimited");
+  }
+
+  /**
+   * Stops the tunnel and closes all connections, waiting for the tunnel thread to end.
+   * When interrupted while waiting, returns early with the interrupt status restored.
+   */
+  @Override
+  public void close() {
+    thread.interrupt();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the current connections.
+   */
+  public List<BandwidthLimitingTunnelConnection> getConnections() {
+    return Collections.unmodifiableList(new ArrayList<>(connections.values()));
   }
 
   @Override
-  @SuppressWarnings({"ResultOfObjectAllocationIgnored", "UseSpecificCatch", "TooBroadCatch", "SleepWhileInLoop"})
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch", "SleepWhileInLoop"})
   public void run() {
     while (thread == Thread.currentThread() && !Thread.currentThread().isInterrupted()) {
       try {
         if (verbose) {
           System.out.println("Accepting connections on " + listenAddress + ":" + listenPort);
         }
-        try (ServerSocket serverSocket = new ServerSocket(
-            listenPort,
-            50,
-            "*".equals(listenAddress) ? null : InetAddress.getByName(listenAddress)
-        )) {
-          while (!Thread.currentThread().isInterrupted()) {
-            Socket socket = serverSocket.accept();
-            if (verbose) {
-              System.out.println("New connection from " + socket.getInetAddress().getHostAddress() + ":" + socket.getPort());
-            }
-            new BandwidthLimitingTunnelHandler(verbose, connectAddress, connectPort, upstreamBandwidth, downstreamBandwidth, socket);
-          }
+        try (
+            Selector selector = Selector.open();
+            ServerSocketChannel serverChannel = ServerSocketChannel.open()
+        ) {
+          serverChannel.bind(
+              "*".equals(listenAddress)
+                  ? new InetSocketAddress(listenPort)
+                  : new InetSocketAddress(InetAddress.getByName(listenAddress), listenPort),
+              50
+          );
+          serverChannel.configureBlocking(false);
+          serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+          // Resolved once here, since resolving on the selector thread would stall all connections
+          InetSocketAddress connectSocketAddress = new InetSocketAddress(InetAddress.getByName(connectAddress), connectPort);
+          new TunnelRelay().select(selector, serverChannel, connectSocketAddress);
         }
       } catch (ThreadDeath td) {
         throw td;
@@ -157,4 +260,72 @@ public class BandwidthLimitingTunnel implements Runnable {
       }
     }
   }
+
+  /**
+   * Relays each connection through its own buckets, tracking the connections for
+   * {@link #getConnections()} and verbose output.
+   */
+  private final class TunnelRelay extends Relay {
+
+    private long lastReport = System.currentTimeMillis();
+
+    @Override
+    protected RelayConnection newConnection(SocketChannel listenChannel, SocketChannel connectChannel) throws IOException {
+      if (verbose) {
+        System.out.println("New connection from " + listenChannel.getRemoteAddress());
+      }
+      BandwidthLimitingTunnelConnection connection = new BandwidthLimitingTunnelConnection(
+          listenChannel,
+          connectChannel,
+          new TokenBucket(upstreamBucket, upstreamBandwidth),
+          new TokenBucket(downstreamBucket, downstreamBandwidth)
+      );
+      connections.put(connection.getRelay(), connection);
+      return connection.getRelay();
+    }
+
+    @Override
+    protected void closed(RelayConnection relay, IOException e) {
+      super.closed(relay, e);
+      BandwidthLimitingTunnelConnection connection = connections.remove(relay);
+      if (verbose && connection != null) {
+        report(connection, System.currentTimeMillis(), "Connection closing: ");
+      }
+    }
+
+    @Override
+    protected long getSelectTimeout() {
+      return verbose ? VERBOSE_REPORT_INTERVAL : 0;
+    }
+
+    @Override
+    protected void afterSelect() {
+      if (verbose) {
+        long currentTime = System.currentTimeMillis();
+        long reportTime = currentTime - lastReport;
+        if (reportTime < 0) {
+          // System time updated
+          lastReport = currentTime;
+        } else if (reportTime >= VERBOSE_REPORT_INTERVAL) {
+          for (BandwidthLimitingTunnelConnection connection : connections.values()) {
+            report(connection, currentTime, "");
+          }
+          lastReport = currentTime;
+        }
+      }
+    }
+  }
+
+  private static void report(BandwidthLimitingTunnelConnection connection, long currentTime, String prefix) {
+    long time = currentTime - connection.getStartTime();
+    for (boolean upstream : new boolean[]{true, false}) {
+      long bytes = upstream ? connection.getUpstreamBytes() : connection.getDownstreamBytes();
+      System.out.println(
+          connection + " " + (upstream ? "Upstream" : "Downstream") + " " + prefix
+              + bytes + " bytes sent in "
+              + BigDecimal.valueOf(time, 3) + " seconds, "
+              + (time <= 0 ? 0 : (bytes * Byte.SIZE * 1000 / time)) + " bits/second average"
+      );
+    }
+  }
 }
@@ -0,0 +1,169 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net;
+
+import com.aoapps.hodgepodge.io.TokenBucket;
+import com.aoapps.hodgepodge.net.relay.BufferedRelayDirection;
+import com.aoapps.hodgepodge.net.relay.RelayConnection;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One connection through a {@link BandwidthLimitingTunnel}, with its throughput counters.
+ *
+ * <p>All I/O is performed by the selector thread of the tunnel.  The counters may
+ * be read from any thread.</p>
+ *
+ * @see  BandwidthLimitingTunnel
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class BandwidthLimitingTunnelConnection {
+
+  /**
+   * The size of the direct buffer for each direction.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Writes smaller than this wait for more bytes to become available, unless
+   * fewer bytes are buffered.
+   */
+  private static final int MIN_WRITE_SIZE = 1024;
+
+  /**
+   * One direction of the connection, writing as allowed by its bucket.
+   */
+  private static final class Direction extends BufferedRelayDirection {
+
+    private final TokenBucket bucket;
+
+    private volatile long bytes;
+
+    private Direction(SocketChannel source, SocketChannel target, TokenBucket bucket) {
+      super(source, target, ByteBuffer.allocateDirect(BUFFER_SIZE));
+      this.bucket = bucket;
+    }
+
+    @Override
+    protected long writeTo(SocketChannel target, long now) throws IOException {
+      buffer.flip();
+      try {
+        int remaining = buffer.remaining();
+        long available = bucket.getAvailable(now);
+        int minWrite = Math.min(remaining, MIN_WRITE_SIZE);
+        if (available < minWrite) {
+          return now + Math.max(1, bucket.getDelayNanos(now, minWrite));
+        }
+        int limit = buffer.limit();
+        if (available < remaining) {
+          buffer.limit(buffer.position() + (int) available);
+        }
+        int count = target.write(buffer);
+        buffer.limit(limit);
+        if (count > 0) {
+          bucket.consume(now, count);
+          bytes += count;
+        }
+        return Long.MIN_VALUE;
+      } finally {
+        buffer.compact();
+      }
+    }
+  }
+
+  private final SocketAddress remoteAddress;
+  private final long startTime = System.currentTimeMillis();
+  private final Direction upstream;
+  private final Direction downstream;
+  private final RelayConnection relay;
+
+  BandwidthLimitingTunnelConnection(
+      SocketChannel listenChannel,
+      SocketChannel connectChannel,
+      TokenBucket upstreamBucket,
+      TokenBucket downstreamBucket
+  ) throws IOException {
+    this.remoteAddress = listenChannel.getRemoteAddress();
+    this.upstream = new Direction(listenChannel, connectChannel, upstreamBucket);
+    this.downstream = new Direction(connectChannel, listenChannel, downstreamBucket);
+    this.relay = new RelayConnection(listenChannel, connectChannel, upstream, downstream);
+  }
+
+  /**
+   * Gets the connection as relayed by the selector thread.
+   */
+  RelayConnection getRelay() {
+    return relay;
+  }
+
+  /**
+   * Gets the address of the client.
+   */
+  public SocketAddress getRemoteAddress() {
+    return remoteAddress;
+  }
+
+  /**
+   * Gets the time the connection was accepted, in milliseconds since the epoch.
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Checks if the connection to the connect address has completed.
+   */
+  public boolean isConnected() {
+    return relay.isConnected();
+  }
+
+  /**
+   * Checks if the connection has been closed.
+   */
+  public boolean isClosed() {
+    return relay.isClosed();
+  }
+
+  /**
+   * Gets the total number of bytes sent upstream, from the client to the connect address.
+   */
+  public long getUpstreamBytes() {
+    return upstream.bytes;
+  }
+
+  /**
+   * Gets the total number of bytes sent downstream, from the connect address to the client.
+   */
+  public long getDownstreamBytes() {
+    return downstream.bytes;
+  }
+
+  @Override
+  public String toString() {
+    return remoteAddress.toString();
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2006, 2007, 2008, 2009, 2010, 2011, 2016, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -33,7 +33,11 @@ import java.net.Socket;
  * @see  BandwidthLimitingTunnel
  *
  * @author  AO Industries, Inc.
+ *
+ * @deprecated  {@link BandwidthLimitingTunnel} now handles all connections with a single selector thread,
+ *              see {@link BandwidthLimitingTunnelConnection}.
  */
+@Deprecated
 public class BandwidthLimitingTunnelHandler {
 
   //private boolean verbose;
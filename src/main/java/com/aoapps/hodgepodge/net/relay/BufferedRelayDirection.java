@@ -0,0 +1,73 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net.relay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@link RelayDirection} that writes bytes as read, through a single buffer.
+ * Reading stops while the buffer is full.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class BufferedRelayDirection extends RelayDirection {
+
+  /**
+   * The bytes read and not yet written, from the start of the buffer to its position.
+   */
+  protected final ByteBuffer buffer;
+
+  public BufferedRelayDirection(SocketChannel source, SocketChannel target, ByteBuffer buffer) {
+    super(source, target);
+    this.buffer = buffer;
+  }
+
+  @Override
+  protected int readFrom(SocketChannel source) throws IOException {
+    return source.read(buffer);
+  }
+
+  @Override
+  protected boolean hasPending() {
+    return buffer.position() > 0;
+  }
+
+  @Override
+  protected boolean hasSpace() {
+    return buffer.hasRemaining();
+  }
+
+  @Override
+  protected long writeTo(SocketChannel target, long now) throws IOException {
+    buffer.flip();
+    try {
+      target.write(buffer);
+    } finally {
+      buffer.compact();
+    }
+    return Long.MIN_VALUE;
+  }
+}
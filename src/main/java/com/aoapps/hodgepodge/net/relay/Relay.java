@@ -0,0 +1,241 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net.relay;
+
+import com.aoapps.lang.util.ErrorPrinter;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays every connection accepted on a server channel to a connect address, handling
+ * all connections on a single thread with a {@link Selector}.  Subclasses create the
+ * {@link RelayConnection connections}, whose {@link RelayDirection directions} decide
+ * what happens to the bytes on the way through.
+ *
+ * <p>Throttled directions stop writing, and the selector waits no longer than the first
+ * throttled direction, so connections are limited without sleeping.</p>
+ *
+ * <p>This is the shared engine of {@link com.aoapps.hodgepodge.net.BandwidthLimitingTunnel},
+ * {@link com.aoapps.hodgepodge.io.FindReplaceProxy}, and {@link com.aoapps.hodgepodge.io.LoggingProxy}.
+ * It is public only to be shared between packages, and is not exported by the module.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public abstract class Relay {
+
+  /**
+   * The current connections, only accessed by the selector thread.
+   */
+  private final Set<RelayConnection> connections = new LinkedHashSet<>();
+
+  /**
+   * Creates the connection for a newly accepted channel, before connecting.  The connect
+   * channel may be configured, such as binding its local address.
+   */
+  protected abstract RelayConnection newConnection(SocketChannel listenChannel, SocketChannel connectChannel) throws IOException;
+
+  /**
+   * Called after a connection is closed, normally or on error.
+   *
+   * @param  e  The error causing the connection to close or {@code null} when closed normally
+   */
+  protected void closed(RelayConnection connection, IOException e) {
+    if (e != null) {
+      ErrorPrinter.printStackTraces(e, System.err);
+    }
+  }
+
+  /**
+   * Called when an accepted channel fails before its connection is created.
+   */
+  protected void acceptFailed(IOException e) {
+    ErrorPrinter.printStackTraces(e, System.err);
+  }
+
+  /**
+   * Gets the maximum number of milliseconds to wait for each select or {@code 0} for no limit.
+   */
+  protected long getSelectTimeout() {
+    return 0;
+  }
+
+  /**
+   * Called after each select, once the ready connections have been transferred.
+   */
+  protected void afterSelect() {
+    // Nothing by default
+  }
+
+  /**
+   * Handles all connections until interrupted, then closes them.
+   *
+   * @param  serverChannel  The non-blocking server channel, registered with the selector for {@link SelectionKey#OP_ACCEPT}
+   */
+  public final void select(Selector selector, ServerSocketChannel serverChannel, SocketAddress connectAddress) throws IOException {
+    Set<RelayConnection> ready = new LinkedHashSet<>();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        // Wait no longer than the first throttled connection
+        long now = System.nanoTime();
+        long timeout = getSelectTimeout();
+        for (RelayConnection connection : connections) {
+          timeout = getTimeout(timeout, now, connection.getUpstream().getThrottledUntil());
+          timeout = getTimeout(timeout, now, connection.getDownstream().getThrottledUntil());
+        }
+        if (timeout == -1) {
+          selector.selectNow();
+        } else {
+          selector.select(timeout);
+        }
+        now = System.nanoTime();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept(selector, serverChannel, connectAddress);
+          } else {
+            RelayConnection connection = (RelayConnection) key.attachment();
+            if (key.isConnectable()) {
+              try {
+                connection.finishConnect();
+              } catch (IOException e) {
+                close(connection, e);
+                continue;
+              }
+            }
+            ready.add(connection);
+          }
+        }
+        // Resume connections no longer throttled
+        for (RelayConnection connection : connections) {
+          if (
+              isResumed(now, connection.getUpstream().getThrottledUntil())
+                  || isResumed(now, connection.getDownstream().getThrottledUntil())
+          ) {
+            ready.add(connection);
+          }
+        }
+        for (RelayConnection connection : ready) {
+          if (!connection.isClosed()) {
+            try {
+              if (connection.transfer(now)) {
+                close(connection, null);
+              }
+            } catch (IOException e) {
+              close(connection, e);
+            }
+          }
+        }
+        ready.clear();
+        afterSelect();
+      }
+    } finally {
+      for (RelayConnection connection : new ArrayList<>(connections)) {
+        close(connection, null);
+      }
+    }
+  }
+
+  /**
+   * Reduces the select timeout, in milliseconds, to the given throttled time.
+   *
+   * @return  The timeout, {@code 0} for none, or {@code -1} to not block
+   */
+  private static long getTimeout(long timeout, long now, long throttledUntil) {
+    if (throttledUntil == Long.MIN_VALUE || timeout == -1) {
+      return timeout;
+    }
+    long nanos = throttledUntil - now;
+    if (nanos <= 0) {
+      return -1;
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    return timeout == 0 ? millis : Math.min(timeout, millis);
+  }
+
+  private static boolean isResumed(long now, long throttledUntil) {
+    return throttledUntil != Long.MIN_VALUE && now - throttledUntil >= 0;
+  }
+
+  /**
+   * Accepts a connection and starts connecting to the connect address.
+   */
+  private void accept(Selector selector, ServerSocketChannel serverChannel, SocketAddress connectAddress) throws IOException {
+    SocketChannel listenChannel = serverChannel.accept();
+    if (listenChannel == null) {
+      return;
+    }
+    SocketChannel connectChannel = null;
+    RelayConnection connection = null;
+    try {
+      listenChannel.configureBlocking(false);
+      connectChannel = SocketChannel.open();
+      connectChannel.configureBlocking(false);
+      connection = newConnection(listenChannel, connectChannel);
+      connection.register(selector);
+      connections.add(connection);
+      connectChannel.connect(connectAddress);
+      connection.finishConnect();
+      connection.transfer(System.nanoTime());
+    } catch (IOException e) {
+      if (connection != null) {
+        close(connection, e);
+      } else {
+        acceptFailed(e);
+        try {
+          listenChannel.close();
+        } catch (IOException err) {
+          // Ignored, closing
+        }
+        if (connectChannel != null) {
+          try {
+            connectChannel.close();
+          } catch (IOException err) {
+            // Ignored, closing
+          }
+        }
+      }
+    }
+  }
+
+  private void close(RelayConnection connection, IOException e) {
+    connection.close();
+    connections.remove(connection);
+    closed(connection, e);
+  }
+}
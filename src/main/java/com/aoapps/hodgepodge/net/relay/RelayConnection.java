@@ -0,0 +1,151 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net.relay;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One connection through a {@link Relay}, from an accepted channel to a channel
+ * connecting to the far side.
+ *
+ * <p>All I/O is performed by the selector thread of the relay.  The connected and
+ * closed states may be read from any thread.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class RelayConnection {
+
+  private final SocketChannel listenChannel;
+  private final SocketChannel connectChannel;
+  private final RelayDirection upstream;
+  private final RelayDirection downstream;
+
+  private SelectionKey listenKey;
+  private SelectionKey connectKey;
+  private volatile boolean connected;
+  private volatile boolean closed;
+
+  /**
+   * @param  upstream    reads from the listen channel and writes to the connect channel
+   * @param  downstream  reads from the connect channel and writes to the listen channel
+   */
+  public RelayConnection(
+      SocketChannel listenChannel,
+      SocketChannel connectChannel,
+      RelayDirection upstream,
+      RelayDirection downstream
+  ) {
+    this.listenChannel = listenChannel;
+    this.connectChannel = connectChannel;
+    this.upstream = upstream;
+    this.downstream = downstream;
+  }
+
+  /**
+   * Registers both channels with the selector, without any interest until {@link #transfer(long)}.
+   */
+  public void register(Selector selector) throws ClosedChannelException {
+    listenKey = listenChannel.register(selector, 0, this);
+    connectKey = connectChannel.register(selector, 0, this);
+  }
+
+  public RelayDirection getUpstream() {
+    return upstream;
+  }
+
+  public RelayDirection getDownstream() {
+    return downstream;
+  }
+
+  /**
+   * Completes the connection to the far side.
+   */
+  public void finishConnect() throws IOException {
+    if (!connected && connectChannel.finishConnect()) {
+      connected = true;
+    }
+  }
+
+  /**
+   * Transfers as much as possible in both directions, then updates interest in the channels.
+   *
+   * @return  {@code true} when both directions are done and the connection should be closed
+   */
+  public boolean transfer(long now) throws IOException {
+    if (connected) {
+      for (RelayDirection direction : new RelayDirection[]{upstream, downstream}) {
+        direction.read();
+        if (direction.wantsWrite(now)) {
+          direction.write(now);
+          // Read again when space was made
+          direction.read();
+        }
+      }
+      if (upstream.isDone() && downstream.isDone()) {
+        return true;
+      }
+      listenKey.interestOps(
+          (upstream.wantsRead() ? SelectionKey.OP_READ : 0)
+              | (downstream.wantsWrite(now) ? SelectionKey.OP_WRITE : 0)
+      );
+      connectKey.interestOps(
+          (downstream.wantsRead() ? SelectionKey.OP_READ : 0)
+              | (upstream.wantsWrite(now) ? SelectionKey.OP_WRITE : 0)
+      );
+    } else {
+      listenKey.interestOps(0);
+      connectKey.interestOps(SelectionKey.OP_CONNECT);
+    }
+    return false;
+  }
+
+  /**
+   * Closes both channels.
+   */
+  public void close() {
+    closed = true;
+    try {
+      listenChannel.close();
+    } catch (IOException e) {
+      // Ignored, closing
+    }
+    try {
+      connectChannel.close();
+    } catch (IOException e) {
+      // Ignored, closing
+    }
+  }
+
+  public boolean isConnected() {
+    return connected;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net.relay;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One direction of a {@link RelayConnection}, reading from one channel and writing to
+ * the other.  Subclasses hold the bytes between the read and the write, and may
+ * transform them, log them, or throttle their writes.
+ *
+ * <p>The end of stream is passed on by shutting down the output of the target once
+ * all pending bytes are written, so each direction of a connection may end independently.</p>
+ *
+ * <p>All methods are called by the selector thread of the {@link Relay}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public abstract class RelayDirection {
+
+  private final SocketChannel source;
+  private final SocketChannel target;
+
+  private boolean endOfStream;
+  private boolean shutdown;
+
+  /**
+   * The time, in {@link System#nanoTime()}, until which writes are throttled or
+   * {@code Long.MIN_VALUE} when not throttled.
+   */
+  private long throttledUntil = Long.MIN_VALUE;
+
+  protected RelayDirection(SocketChannel source, SocketChannel target) {
+    this.source = source;
+    this.target = target;
+  }
+
+  /**
+   * Reads from the source without blocking.  Only called while {@link #hasSpace()}.
+   *
+   * @return  The number of bytes read or {@code -1} at the end of stream
+   */
+  protected abstract int readFrom(SocketChannel source) throws IOException;
+
+  /**
+   * Called once at the end of stream, before the pending bytes are written.
+   * Any bytes held back may be made pending.
+   */
+  protected void finish() throws IOException {
+    // Nothing held back by default
+  }
+
+  /**
+   * Checks if any bytes are waiting to be written.
+   */
+  protected abstract boolean hasPending();
+
+  /**
+   * Checks if more bytes may be read.
+   */
+  protected abstract boolean hasSpace();
+
+  /**
+   * Writes pending bytes to the target without blocking.  Only called while {@link #hasPending()}.
+   *
+   * @return  The time, in {@link System#nanoTime()}, to resume writing when throttled or
+   *          {@code Long.MIN_VALUE} when not throttled.
+   */
+  protected abstract long writeTo(SocketChannel target, long now) throws IOException;
+
+  final void read() throws IOException {
+    if (wantsRead() && readFrom(source) == -1) {
+      endOfStream = true;
+      finish();
+    }
+  }
+
+  final void write(long now) throws IOException {
+    if (hasPending()) {
+      throttledUntil = writeTo(target, now);
+    } else {
+      throttledUntil = Long.MIN_VALUE;
+      if (endOfStream && !shutdown) {
+        target.shutdownOutput();
+        shutdown = true;
+      }
+    }
+  }
+
+  final boolean wantsRead() {
+    return !endOfStream && hasSpace();
+  }
+
+  final boolean wantsWrite(long now) {
+    return
+        (hasPending() || (endOfStream && !shutdown))
+            && (throttledUntil == Long.MIN_VALUE || now - throttledUntil >= 0);
+  }
+
+  /**
+   * Checks if the end of stream has been passed on to the target.
+   */
+  public final boolean isDone() {
+    return shutdown;
+  }
+
+  /**
+   * Gets the time, in {@link System#nanoTime()}, until which writes are throttled or
+   * {@code Long.MIN_VALUE} when not throttled.
+   */
+  public final long getThrottledUntil() {
+    return throttledUntil;
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2015, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2015, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,6 +23,7 @@
 
 package com.aoapps.hodgepodge.schedule;
 
+import java.time.LocalDate;
 import java.util.Calendar;
 
 /**
@@ -41,6 +42,11 @@ public class DayDuration {
       void offset(int count, Calendar cal) {
         cal.add(Calendar.DATE, count);
       }
+
+      @Override
+      LocalDate offset(int count, LocalDate date) {
+        return date.plusDays(count);
+      }
     },
     WEEKS {
       @Override
@@ -52,6 +58,11 @@ public class DayDuration {
       void offset(int count, Calendar cal) {
         cal.add(Calendar.WEEK_OF_YEAR, count);
       }
+
+      @Override
+      LocalDate offset(int count, LocalDate date) {
+        return date.plusWeeks(count);
+      }
     },
     MONTHS {
       @Override
@@ -63,6 +74,11 @@ public class DayDuration {
       void offset(int count, Calendar cal) {
         cal.add(Calendar.MONTH, count);
       }
+
+      @Override
+      LocalDate offset(int count, LocalDate date) {
+        return date.plusMonths(count);
+      }
     },
     YEARS {
       @Override
@@ -74,6 +90,11 @@ public class DayDuration {
       void offset(int count, Calendar cal) {
         cal.add(Calendar.YEAR, count);
       }
+
+      @Override
+      LocalDate offset(int count, LocalDate date) {
+        return date.plusYears(count);
+      }
     };
 
     /**
@@ -110,6 +131,8 @@ public class DayDuration {
     abstract void toString(int count, StringBuilder sb);
 
     abstract void offset(int count, Calendar cal);
+
+    abstract LocalDate offset(int count, LocalDate date);
   }
 
   /**
@@ -187,4 +210,13 @@ public class DayDuration {
   public void offset(Calendar cal) {
     unit.offset(count, cal);
   }
+
+  /**
+   * Offsets the given date by the unit and count.
+   * If the day is past the last day of the month, the last day of the month is used,
+   * the same as {@link #offset(java.util.Calendar)}.
+   */
+  public LocalDate offset(LocalDate date) {
+    return unit.offset(count, date);
+  }
 }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2013, 2014, 2015, 2016, 2020, 2021, 2022, 2023, 2025  AO Industries, Inc.
+ * Copyright (C) 2013, 2014, 2015, 2016, 2020, 2021, 2022, 2023, 2025, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,14 +25,33 @@ package com.aoapps.hodgepodge.schedule;
 
 import com.aoapps.lang.Strings;
 import com.aoapps.lang.util.UnmodifiableCalendar;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.LongStream;
 
 /**
+ * A recurring schedule.  Each schedule is anchored on its start date, such as
+ * {@link #WEEKLY} recurring on the day of week of the start date.
+ *
+ * <p>The occurrences may be iterated as {@link Calendar} by {@link #getScheduleIterator(java.util.Calendar)}
+ * or queried as {@link LocalDate} by {@link #nextOccurrence(java.time.LocalDate, java.time.LocalDate)},
+ * {@link #matches(java.time.LocalDate, java.time.LocalDate)}, and
+ * {@link #occurrencesBetween(java.time.LocalDate, java.time.LocalDate, java.time.LocalDate)}.
+ * The built-in schedules compute these directly, without stepping through the days in-between.
+ * The {@link LocalDate} queries use the proleptic Gregorian calendar.</p>
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public abstract class Recurring {
@@ -52,6 +71,13 @@ public abstract class Recurring {
    */
   private static final EnumSet<Month> ALL_MONTHS = EnumSet.allOf(Month.class);
 
+  /**
+   * The maximum number of parsed values to cache.  The cache is cleared when full.
+   */
+  private static final int PARSE_CACHE_MAX_SIZE = 1000;
+
+  private static final ConcurrentMap<String, Recurring> parseCache = new ConcurrentHashMap<>();
+
   /**
    * Parses a human-readable representation of a recurring schedule.
    * All parsing case-insensitive.
@@ -85,6 +111,8 @@ public abstract class Recurring {
    *   </li>
    * </ul>
    *
+   * <p>Since recurring schedules are immutable, the results are cached by the exact value parsed.</p>
+   *
    * @param  recurring  when null, returns null
    *
    * @throws IllegalArgumentException if unable to parse recurring
@@ -93,6 +121,18 @@ public abstract class Recurring {
     if (recurring == null) {
       return null;
     }
+    Recurring parsed = parseCache.get(recurring);
+    if (parsed == null) {
+      parsed = parseUncached(recurring);
+      if (parseCache.size() >= PARSE_CACHE_MAX_SIZE) {
+        parseCache.clear();
+      }
+      parseCache.put(recurring, parsed);
+    }
+    return parsed;
+  }
+
+  private static Recurring parseUncached(String recurring) throws IllegalArgumentException {
     if ("everyday".equalsIgnoreCase(recurring)) {
       return EVERYDAY;
     }
@@ -305,6 +345,154 @@ public abstract class Recurring {
    */
   public abstract Iterator<Calendar> getScheduleIterator(Calendar from);
 
+  /**
+   * Gets the first occurrence on or after the given date.
+   *
+   * <p>This default implementation steps through {@link #getScheduleIterator(java.util.Calendar)}.
+   * The built-in schedules compute the occurrence directly.</p>
+   *
+   * @param  start  the date the schedule starts, equivalent to the date given to {@link #getScheduleIterator(java.util.Calendar)}
+   * @param  from  the first date to consider, which may be before the start
+   */
+  public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+    Iterator<Calendar> schedule = getScheduleIterator(GregorianCalendar.from(start.atStartOfDay(ZoneId.systemDefault())));
+    while (true) {
+      Calendar cal = schedule.next();
+      LocalDate date = LocalDate.of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+      if (!date.isBefore(from)) {
+        return date;
+      }
+    }
+  }
+
+  /**
+   * Gets the first occurrence on or after the given date, for the schedule starting on the given date.
+   * This is the first date of {@link #getScheduleIterator(java.util.Calendar)}.
+   *
+   * @see  #nextOccurrence(java.time.LocalDate, java.time.LocalDate)
+   */
+  public LocalDate nextOccurrence(LocalDate from) {
+    return nextOccurrence(from, from);
+  }
+
+  /**
+   * Checks if the schedule occurs on the given date.
+   *
+   * @param  start  the date the schedule starts
+   *
+   * @return  {@code false} when before the start
+   *
+   * @see  #nextOccurrence(java.time.LocalDate, java.time.LocalDate)
+   */
+  public boolean matches(LocalDate start, LocalDate date) {
+    return !date.isBefore(start) && date.equals(nextOccurrence(start, date));
+  }
+
+  /**
+   * Gets the occurrences within a range of dates, as a lazy stream of {@linkplain LocalDate#toEpochDay() epoch days}
+   * in ascending order.
+   *
+   * @param  start  the date the schedule starts
+   * @param  from  the first date, inclusive
+   * @param  to  the last date, exclusive
+   *
+   * @see  #nextOccurrence(java.time.LocalDate, java.time.LocalDate)
+   */
+  public LongStream occurrencesBetween(LocalDate start, LocalDate from, LocalDate to) {
+    if (!from.isBefore(to)) {
+      return LongStream.empty();
+    }
+    long toEpochDay = to.toEpochDay();
+    return LongStream.iterate(
+        nextOccurrence(start, from).toEpochDay(),
+        epochDay -> epochDay < toEpochDay,
+        epochDay -> epochDay + 1 < toEpochDay
+            ? nextOccurrence(start, LocalDate.ofEpochDay(epochDay + 1)).toEpochDay()
+            : toEpochDay
+    );
+  }
+
+  /**
+   * Gets the occurrences within a range of dates, for the schedule starting on the first date.
+   *
+   * @see  #occurrencesBetween(java.time.LocalDate, java.time.LocalDate, java.time.LocalDate)
+   */
+  public LongStream occurrencesBetween(LocalDate from, LocalDate to) {
+    return occurrencesBetween(from, from, to);
+  }
+
+  private static LocalDate max(LocalDate date1, LocalDate date2) {
+    return date1.isBefore(date2) ? date2 : date1;
+  }
+
+  private static long ceilDiv(long x, long y) {
+    return -Math.floorDiv(-x, y);
+  }
+
+  /**
+   * Gets the bit for the given day of week, with Monday as the lowest bit.
+   */
+  private static int getDayOfWeekBit(DayOfWeek dayOfWeek) {
+    return 1 << ((dayOfWeek.getCalendarDayOfWeek() + 5) % 7);
+  }
+
+  /**
+   * Gets the first date on or after the given date with a day of week in the given bits.
+   *
+   * @param  daysOfWeek  the bits of {@link #getDayOfWeekBit(com.aoapps.hodgepodge.schedule.DayOfWeek)}, at least one set
+   */
+  private static LocalDate nextDayOfWeek(LocalDate date, int daysOfWeek) {
+    // 1970-01-01 was a Thursday
+    int index = (int) Math.floorMod(date.toEpochDay() + 3, 7L);
+    int rotated = ((daysOfWeek >>> index) | (daysOfWeek << (7 - index))) & 0x7f;
+    int days = Integer.numberOfTrailingZeros(rotated);
+    return days == 0 ? date : date.plusDays(days);
+  }
+
+  /**
+   * Gets the first occurrence on or after the given date of a schedule repeating every given number of days.
+   */
+  private static LocalDate nextByDays(LocalDate first, long periodDays, LocalDate from) {
+    long firstEpochDay = first.toEpochDay();
+    long fromEpochDay = from.toEpochDay();
+    if (fromEpochDay <= firstEpochDay) {
+      return first;
+    }
+    return LocalDate.ofEpochDay(firstEpochDay + ceilDiv(fromEpochDay - firstEpochDay, periodDays) * periodDays);
+  }
+
+  /**
+   * Gets the number of months since year zero.
+   */
+  private static long getEpochMonth(LocalDate date) {
+    return date.getYear() * 12L + date.getMonthValue() - 1;
+  }
+
+  /**
+   * Gets the given day of the month, or the last day of the month when past the end of the month.
+   */
+  private static LocalDate ofEpochMonth(long epochMonth, int dayOfMonth) {
+    YearMonth yearMonth = YearMonth.of(Math.toIntExact(Math.floorDiv(epochMonth, 12)), (int) Math.floorMod(epochMonth, 12L) + 1);
+    return yearMonth.atDay(Math.min(dayOfMonth, yearMonth.lengthOfMonth()));
+  }
+
+  /**
+   * Gets the first occurrence on or after the given date of a schedule repeating every given number of months.
+   * If the day is past the last day of the month, the last day of the month is used.
+   */
+  private static LocalDate nextByMonths(long firstEpochMonth, long periodMonths, int dayOfMonth, LocalDate from) {
+    long epochMonth = firstEpochMonth;
+    long fromEpochMonth = getEpochMonth(from);
+    if (fromEpochMonth > epochMonth) {
+      epochMonth += ceilDiv(fromEpochMonth - epochMonth, periodMonths) * periodMonths;
+    }
+    LocalDate next = ofEpochMonth(epochMonth, dayOfMonth);
+    if (next.isBefore(from)) {
+      next = ofEpochMonth(epochMonth + periodMonths, dayOfMonth);
+    }
+    return next;
+  }
+
   private static final int EVERYDAY_HASH_CODE = 0;
   public static final Recurring EVERYDAY = new Recurring() {
 
@@ -324,6 +512,11 @@ public abstract class Recurring {
       return "Everyday";
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return max(start, from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -349,6 +542,12 @@ public abstract class Recurring {
   };
 
   private static final int WEEKDAYS_HASH_CODE = EVERYDAY_HASH_CODE + 1;
+
+  /**
+   * Monday through Friday.
+   */
+  private static final int WEEKDAYS_BITS = 0x1f;
+
   public static final Recurring WEEKDAYS = new Recurring() {
 
     @Override
@@ -367,6 +566,11 @@ public abstract class Recurring {
       return "Week Days";
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextDayOfWeek(max(start, from), WEEKDAYS_BITS);
+    }
+
     @Override
     public String checkScheduleFrom(Calendar from, String attribute) {
       // The first day "on" must be a weekday
@@ -415,11 +619,21 @@ public abstract class Recurring {
 
     private final EnumSet<DayOfWeek> daysOfWeek;
 
+    /**
+     * The bits of {@link #getDayOfWeekBit(com.aoapps.hodgepodge.schedule.DayOfWeek)}.
+     */
+    private final int daysOfWeekBits;
+
     public DayOfWeekList(Collection<DayOfWeek> daysOfWeek) {
       if (daysOfWeek.isEmpty()) {
         throw new IllegalArgumentException("At least one day of week required");
       }
       this.daysOfWeek = EnumSet.copyOf(daysOfWeek);
+      int bits = 0;
+      for (DayOfWeek dow : this.daysOfWeek) {
+        bits |= getDayOfWeekBit(dow);
+      }
+      this.daysOfWeekBits = bits;
     }
 
     @Override
@@ -470,6 +684,11 @@ public abstract class Recurring {
       return null;
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextDayOfWeek(max(start, from), daysOfWeekBits);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -522,6 +741,11 @@ public abstract class Recurring {
       return "Weekly";
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextByDays(start, 7, from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -565,6 +789,11 @@ public abstract class Recurring {
       return "Monthly";
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextByMonths(getEpochMonth(start), 1, start.getDayOfMonth(), from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -597,11 +826,21 @@ public abstract class Recurring {
 
     private final EnumSet<Month> months;
 
+    /**
+     * The bits of the selected months, with January as the lowest bit.
+     */
+    private final int monthsBits;
+
     public MonthList(Collection<Month> months) {
       if (months.isEmpty()) {
         throw new IllegalArgumentException("At least one month required");
       }
       this.months = EnumSet.copyOf(months);
+      int bits = 0;
+      for (Month month : this.months) {
+        bits |= 1 << month.getCalendarMonth();
+      }
+      this.monthsBits = bits;
     }
 
     @Override
@@ -652,6 +891,20 @@ public abstract class Recurring {
       return null;
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      int dayOfMonth = start.getDayOfMonth();
+      LocalDate date = max(start, from);
+      long epochMonth = getEpochMonth(date);
+      if (ofEpochMonth(epochMonth, dayOfMonth).isBefore(date)) {
+        epochMonth++;
+      }
+      // Skip past months that are not selected
+      int index = (int) Math.floorMod(epochMonth, 12L);
+      int rotated = ((monthsBits >>> index) | (monthsBits << (12 - index))) & 0xfff;
+      return ofEpochMonth(epochMonth + Integer.numberOfTrailingZeros(rotated), dayOfMonth);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -711,6 +964,11 @@ public abstract class Recurring {
       return "Yearly";
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextByMonths(getEpochMonth(start), 12, start.getDayOfMonth(), from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -813,6 +1071,22 @@ public abstract class Recurring {
       return sb.toString();
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      switch (field) {
+        case Calendar.DAY_OF_MONTH:
+          return nextByDays(start, increment, from);
+        case Calendar.WEEK_OF_YEAR:
+          return nextByDays(start, 7L * increment, from);
+        case Calendar.MONTH:
+          return nextByMonths(getEpochMonth(start), increment, start.getDayOfMonth(), from);
+        case Calendar.YEAR:
+          return nextByMonths(getEpochMonth(start), 12L * increment, start.getDayOfMonth(), from);
+        default:
+          throw new AssertionError("Unexpected value for field: " + field);
+      }
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       switch (field) {
@@ -928,6 +1202,11 @@ public abstract class Recurring {
       return null;
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      return nextByDays(nextDayOfWeek(start, getDayOfWeekBit(dayOfWeek)), 7L * increment, from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
@@ -1021,6 +1300,14 @@ public abstract class Recurring {
       return null;
     }
 
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      long startEpochMonth = getEpochMonth(start);
+      // Skip past months that are not selected
+      long firstEpochMonth = startEpochMonth + Math.floorMod(month.getCalendarMonth() - startEpochMonth, 12L);
+      return nextByMonths(firstEpochMonth, 12L * increment, start.getDayOfMonth(), from);
+    }
+
     @Override
     public Iterator<Calendar> getScheduleIterator(final Calendar from) {
       return new Iterator<>() {
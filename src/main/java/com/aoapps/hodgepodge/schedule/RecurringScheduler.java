@@ -0,0 +1,553 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.schedule;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs tasks on {@link Recurring} schedules.  All registrations are kept in a single
+ * queue ordered by their next fire time, with one thread waiting for the next task
+ * to be due.  Due tasks are run on the provided {@link Executor}, so any number of
+ * registrations may be scheduled without a thread per task.
+ *
+ * <p>Each registration fires at a time of day on each occurrence of its schedule,
+ * offset by a {@link DayDuration}.  Times are in the time zone of the {@link Clock}.
+ * When a time does not exist due to a daylight saving time gap, the task fires at the
+ * time after the gap.  When a time occurs twice due to an overlap, the task fires only
+ * at the first.</p>
+ *
+ * <p>Fire times are in wall-clock time.  Since the wall clock may be changed while waiting,
+ * the scheduler checks the clock at least every {@link #MAX_WAIT} milliseconds.  When the
+ * clock moves backward, tasks are not run until their time is reached again.  When the
+ * clock moves forward, or the system is suspended, the runs passed are handled by the
+ * {@link MissedRuns} of each registration.</p>
+ *
+ * <p>Consecutive runs of the same registration are not prevented from overlapping when a
+ * task runs longer than the time between its occurrences.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class RecurringScheduler implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(RecurringScheduler.class.getName());
+
+  /**
+   * The maximum number of milliseconds to wait before checking the clock again.
+   */
+  public static final long MAX_WAIT = 60L * 1000;
+
+  /**
+   * The default number of milliseconds late a run may be while still being on time.
+   */
+  public static final long DEFAULT_MISFIRE_THRESHOLD = 60L * 1000;
+
+  /**
+   * How runs are handled when their times have passed without being run, such as when the
+   * clock moves forward or the system has been suspended.
+   */
+  public enum MissedRuns {
+    /**
+     * Runs once for all missed runs.
+     */
+    RUN_ONCE,
+
+    /**
+     * Runs once for each missed run.
+     */
+    RUN_ALL,
+
+    /**
+     * Does not run missed runs.  A run that is later than the misfire threshold is missed.
+     */
+    SKIP
+  }
+
+  /**
+   * A scheduled task.
+   */
+  public final class Registration implements Comparable<Registration> {
+
+    private final Recurring recurring;
+    private final LocalDate start;
+    private final LocalTime timeOfDay;
+    private final DayDuration offset;
+    private final MissedRuns missedRuns;
+    private final Runnable task;
+
+    /**
+     * Breaks ties between registrations due at the same time, in the order registered.
+     */
+    private final long sequence;
+
+    /**
+     * The next occurrence and its fire time.
+     * Access must be synchronized on the lock.
+     */
+    private LocalDate nextOccurrence;
+    private long nextFireTime;
+
+    /**
+     * Access must be synchronized on the lock.
+     */
+    private boolean cancelled;
+
+    private Registration(
+        Recurring recurring,
+        LocalDate start,
+        LocalTime timeOfDay,
+        DayDuration offset,
+        MissedRuns missedRuns,
+        Runnable task,
+        long sequence
+    ) {
+      this.recurring = recurring;
+      this.start = start;
+      this.timeOfDay = timeOfDay;
+      this.offset = offset;
+      this.missedRuns = missedRuns;
+      this.task = task;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Registration o) {
+      int diff = Long.compare(nextFireTime, o.nextFireTime);
+      if (diff != 0) {
+        return diff;
+      }
+      return Long.compare(sequence, o.sequence);
+    }
+
+    /**
+     * Gets the time, in milliseconds since the epoch, the given occurrence will fire.
+     */
+    private long getFireTime(LocalDate occurrence) {
+      return ZonedDateTime.of(offset.offset(occurrence), timeOfDay, zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Moves to the first occurrence that fires after the given time.
+     */
+    private void seekAfter(long after) {
+      // The occurrence of a fire date is near the fire date minus the offset.  Start a few days earlier,
+      // since adding months is shortened at the end of a month and the time zone may change the date.
+      LocalDate afterDate = Instant.ofEpochMilli(after).atZone(zone).toLocalDate();
+      LocalDate from = DayDuration.getInstance(-offset.getCount(), offset.getUnit()).offset(afterDate).minusDays(4);
+      LocalDate occurrence = recurring.nextOccurrence(start, from);
+      long fireTime = getFireTime(occurrence);
+      while (fireTime <= after) {
+        occurrence = recurring.nextOccurrence(start, occurrence.plusDays(1));
+        fireTime = getFireTime(occurrence);
+      }
+      nextOccurrence = occurrence;
+      nextFireTime = fireTime;
+    }
+
+    /**
+     * Moves to the following occurrence.
+     */
+    private void advance() {
+      nextOccurrence = recurring.nextOccurrence(start, nextOccurrence.plusDays(1));
+      nextFireTime = getFireTime(nextOccurrence);
+    }
+
+    /**
+     * Gets the number of times to run for the runs due at the given time, then moves to the
+     * first occurrence after the given time.
+     */
+    private int due(long now) {
+      assert nextFireTime <= now;
+      int runs;
+      switch (missedRuns) {
+        case RUN_ONCE:
+          runs = 1;
+          seekAfter(now);
+          break;
+        case RUN_ALL:
+          runs = 0;
+          do {
+            if (runs < Integer.MAX_VALUE) {
+              runs++;
+            }
+            advance();
+          } while (nextFireTime <= now);
+          break;
+        case SKIP:
+          // Only runs when a run is due within the threshold
+          seekAfter(now - misfireThreshold - 1);
+          runs = nextFireTime <= now ? 1 : 0;
+          if (runs != 0) {
+            seekAfter(now);
+          }
+          break;
+        default:
+          throw new AssertionError("Unexpected value for missedRuns: " + missedRuns);
+      }
+      return runs;
+    }
+
+    public Recurring getRecurring() {
+      return recurring;
+    }
+
+    /**
+     * Gets the date the schedule starts.
+     */
+    public LocalDate getStart() {
+      return start;
+    }
+
+    public LocalTime getTimeOfDay() {
+      return timeOfDay;
+    }
+
+    public DayDuration getOffset() {
+      return offset;
+    }
+
+    public MissedRuns getMissedRuns() {
+      return missedRuns;
+    }
+
+    /**
+     * Gets the next time this task will fire.
+     *
+     * @return  The next fire time or {@code null} when cancelled
+     */
+    public ZonedDateTime getNextFireTime() {
+      synchronized (lock) {
+        return cancelled ? null : Instant.ofEpochMilli(nextFireTime).atZone(zone);
+      }
+    }
+
+    /**
+     * Gets the occurrence of the schedule for the next fire time.
+     *
+     * @return  The next occurrence or {@code null} when cancelled
+     */
+    public LocalDate getNextOccurrence() {
+      synchronized (lock) {
+        return cancelled ? null : nextOccurrence;
+      }
+    }
+
+    /**
+     * Cancels this registration.  A run already started is not interrupted.
+     *
+     * @return  {@code true} when cancelled or {@code false} when already cancelled
+     */
+    public boolean cancel() {
+      synchronized (lock) {
+        if (cancelled) {
+          return false;
+        }
+        cancelled = true;
+        // Left in the queue and discarded when it reaches the head, since removal from the middle of the queue is O(n)
+        cancelledInQueue++;
+        if (cancelledInQueue > queue.size() / 2) {
+          queue.removeIf(registration -> registration.cancelled);
+          cancelledInQueue = 0;
+        }
+        return true;
+      }
+    }
+  }
+
+  private final Executor executor;
+  private final Clock clock;
+  private final ZoneId zone;
+  private final long misfireThreshold;
+
+  private final Object lock = new Object();
+
+  /**
+   * Access must be synchronized on the lock.
+   */
+  private final PriorityQueue<Registration> queue = new PriorityQueue<>();
+  /**
+   * The number of cancelled registrations not yet discarded from the queue.
+   * Access must be synchronized on the lock.
+   */
+  private int cancelledInQueue;
+  private long nextSequence;
+  private boolean closed;
+
+  private final Thread thread;
+
+  /**
+   * @param  executor  runs the due tasks, such as a thread pool or, when available, one virtual thread per task.
+   *                   The executor is not shut down when this scheduler is closed.
+   * @param  clock  the source of the current time and the time zone of the fire times
+   * @param  misfireThreshold  the number of milliseconds late a run may be while still being on time
+   *                           for {@link MissedRuns#SKIP}
+   */
+  public RecurringScheduler(Executor executor, Clock clock, long misfireThreshold) {
+    this(executor, clock, misfireThreshold, true);
+  }
+
+  /**
+   * Uses the default misfire threshold of {@link #DEFAULT_MISFIRE_THRESHOLD}.
+   *
+   * @see  #RecurringScheduler(java.util.concurrent.Executor, java.time.Clock, long)
+   */
+  public RecurringScheduler(Executor executor, Clock clock) {
+    this(executor, clock, DEFAULT_MISFIRE_THRESHOLD);
+  }
+
+  /**
+   * Uses the system clock in the default time zone.
+   *
+   * @see  #RecurringScheduler(java.util.concurrent.Executor, java.time.Clock, long)
+   */
+  public RecurringScheduler(Executor executor) {
+    this(executor, Clock.systemDefaultZone());
+  }
+
+  /**
+   * @param  startThread  when {@code false}, due tasks are only run by {@link #runDue()}
+   */
+  RecurringScheduler(Executor executor, Clock clock, long misfireThreshold, boolean startThread) {
+    if (misfireThreshold < 0) {
+      throw new IllegalArgumentException("misfireThreshold < 0: " + misfireThreshold);
+    }
+    this.executor = Objects.requireNonNull(executor);
+    this.clock = clock;
+    this.zone = clock.getZone();
+    this.misfireThreshold = misfireThreshold;
+    if (startThread) {
+      thread = new Thread(this::runThread, RecurringScheduler.class.getName());
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      thread = null;
+    }
+  }
+
+  /**
+   * Schedules a task.
+   *
+   * @param  start  the date the schedule starts, as given to {@link Recurring#getScheduleIterator(java.util.Calendar)}
+   * @param  timeOfDay  the time of day the task runs
+   * @param  offset  the offset from each occurrence of the schedule to the date the task runs, which may be negative
+   * @param  lastRun  the time the task last ran, such as before a restart, or {@code null} to only run in the future.
+   *                  Any runs after this time that have already passed are handled by {@code missedRuns}.
+   *
+   * @throws  IllegalStateException  when this scheduler has been closed
+   */
+  public Registration schedule(
+      Recurring recurring,
+      LocalDate start,
+      LocalTime timeOfDay,
+      DayDuration offset,
+      MissedRuns missedRuns,
+      Instant lastRun,
+      Runnable task
+  ) throws IllegalStateException {
+    Objects.requireNonNull(recurring);
+    Objects.requireNonNull(start);
+    Objects.requireNonNull(timeOfDay);
+    Objects.requireNonNull(offset);
+    Objects.requireNonNull(missedRuns);
+    Objects.requireNonNull(task);
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("Scheduler closed");
+      }
+      Registration registration = new Registration(recurring, start, timeOfDay, offset, missedRuns, task, nextSequence++);
+      registration.seekAfter(lastRun == null ? clock.millis() - 1 : lastRun.toEpochMilli());
+      queue.add(registration);
+      if (peek() == registration) {
+        // Wake the thread for the new first registration
+        lock.notify();
+      }
+      return registration;
+    }
+  }
+
+  /**
+   * Schedules a task without offset, only running in the future, with {@link MissedRuns#RUN_ONCE}.
+   *
+   * @see  #schedule(com.aoapps.hodgepodge.schedule.Recurring, java.time.LocalDate, java.time.LocalTime,
+   *                 com.aoapps.hodgepodge.schedule.DayDuration, com.aoapps.hodgepodge.schedule.RecurringScheduler.MissedRuns,
+   *                 java.time.Instant, java.lang.Runnable)
+   */
+  public Registration schedule(Recurring recurring, LocalDate start, LocalTime timeOfDay, Runnable task) throws IllegalStateException {
+    return schedule(recurring, start, timeOfDay, DayDuration.ZERO_DAYS, MissedRuns.RUN_ONCE, null, task);
+  }
+
+  /**
+   * Gets the number of registrations not cancelled.
+   */
+  public int size() {
+    synchronized (lock) {
+      return queue.size() - cancelledInQueue;
+    }
+  }
+
+  /**
+   * Gets the first registration not cancelled, discarding any cancelled registrations ahead of it.
+   * Must be synchronized on the lock.
+   *
+   * @return  the first registration or {@code null} when no tasks are scheduled
+   */
+  private Registration peek() {
+    assert Thread.holdsLock(lock);
+    Registration registration;
+    while ((registration = queue.peek()) != null && registration.cancelled) {
+      queue.poll();
+      cancelledInQueue--;
+    }
+    return registration;
+  }
+
+  /**
+   * Runs the tasks that are due.  A registration that fails to find its next occurrence is logged and cancelled,
+   * without affecting the other registrations.
+   *
+   * @return  the number of milliseconds until the next task is due or {@code -1} when no tasks are scheduled
+   */
+  long runDue() {
+    List<Runnable> tasks = new ArrayList<>();
+    long wait;
+    synchronized (lock) {
+      long now = clock.millis();
+      List<Registration> due = new ArrayList<>();
+      Registration registration;
+      while ((registration = peek()) != null && registration.nextFireTime <= now) {
+        queue.poll();
+        due.add(registration);
+      }
+      for (Registration dueRegistration : due) {
+        int runs;
+        try {
+          runs = dueRegistration.due(now);
+        } catch (ThreadDeath td) {
+          throw td;
+        } catch (Throwable t) {
+          logger.log(Level.SEVERE, null, t);
+          // Not added back to the queue
+          dueRegistration.cancelled = true;
+          continue;
+        }
+        for (; runs > 0; runs--) {
+          tasks.add(dueRegistration.task);
+        }
+        queue.add(dueRegistration);
+      }
+      wait = getWait(now);
+    }
+    for (Runnable task : tasks) {
+      try {
+        executor.execute(() -> {
+          try {
+            task.run();
+          } catch (ThreadDeath td) {
+            throw td;
+          } catch (Throwable t) {
+            logger.log(Level.SEVERE, null, t);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        logger.log(Level.WARNING, null, e);
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t) {
+        logger.log(Level.SEVERE, null, t);
+      }
+    }
+    return wait;
+  }
+
+  /**
+   * Gets the number of milliseconds until the first registration is due.
+   * Must be synchronized on the lock.
+   *
+   * @return  the number of milliseconds or {@code -1} when no tasks are scheduled
+   */
+  private long getWait(long now) {
+    assert Thread.holdsLock(lock);
+    Registration registration = peek();
+    return registration == null ? -1 : Math.max(registration.nextFireTime - now, 0);
+  }
+
+  private void runThread() {
+    try {
+      while (true) {
+        runDue();
+        synchronized (lock) {
+          if (closed) {
+            return;
+          }
+          // The wait is found while holding the lock, so a registration added after runDue() is not missed
+          long wait = getWait(clock.millis());
+          if (wait != 0) {
+            // Check the clock periodically, since it may be changed while waiting
+            lock.wait(wait == -1 ? MAX_WAIT : Math.min(wait, MAX_WAIT));
+          }
+          if (closed) {
+            return;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      // Restore the interrupted status
+      Thread.currentThread().interrupt();
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      logger.log(Level.SEVERE, null, t);
+    }
+  }
+
+  /**
+   * Cancels all registrations and stops the scheduler thread.  Runs already started are not interrupted.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      if (!closed) {
+        closed = true;
+        for (Registration registration : queue) {
+          registration.cancelled = true;
+        }
+        queue.clear();
+        cancelledInQueue = 0;
+        lock.notify();
+      }
+    }
+  }
+}
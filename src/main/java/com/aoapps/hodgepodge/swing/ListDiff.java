@@ -0,0 +1,364 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.swing;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes the changes from one list to another, using the O(ND) difference algorithm
+ * of Eugene W. Myers in linear space.  Elements are compared by their hash codes before
+ * {@link Object#equals(java.lang.Object)}, and elements only in one of the lists are
+ * removed from the comparison up front, so replacing a list entirely is linear.
+ *
+ * <p>The changes are a sequence of hunks in ascending order, each removing a range of
+ * the old list and inserting a range of the new list in its place.  Applying the hunks
+ * from last to first keeps the indexes of the earlier hunks valid.</p>
+ *
+ * <p>This may be computed on any thread, as long as neither list is modified.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class ListDiff {
+
+  /**
+   * The number of steps after which {@link #bisect(int, int, int, int)} gives up on finding the middle
+   * of the shortest edit path and splits at the furthest point reached instead.  This bounds the time
+   * for lists with many changes, at the cost of possibly more changes than the minimum.
+   */
+  private static final int TOO_EXPENSIVE = 256;
+
+  private final Object[] oldElements;
+  private final int[] oldHashes;
+  private final Object[] newElements;
+  private final int[] newHashes;
+
+  /**
+   * The elements of each list that are compared by {@link #compareSeq(int, int, int, int)},
+   * as indexes into the full lists.
+   */
+  private final int[] oldIndexes;
+  private final int[] newIndexes;
+
+  private final boolean[] removed;
+  private final boolean[] inserted;
+
+  /**
+   * The hunks, four values per hunk: old start (inclusive), old end (exclusive),
+   * new start (inclusive), new end (exclusive).
+   */
+  private final int[] hunks;
+
+  ListDiff(List<?> oldList, List<?> newList) {
+    oldElements = oldList.toArray();
+    newElements = newList.toArray();
+    final int oldSize = oldElements.length;
+    final int newSize = newElements.length;
+    oldHashes = new int[oldSize];
+    for (int i = 0; i < oldSize; i++) {
+      oldHashes[i] = Objects.hashCode(oldElements[i]);
+    }
+    newHashes = new int[newSize];
+    for (int i = 0; i < newSize; i++) {
+      newHashes[i] = Objects.hashCode(newElements[i]);
+    }
+    removed = new boolean[oldSize];
+    inserted = new boolean[newSize];
+    // Elements with a hash not in the other list can't match
+    Set<Integer> newHashSet = new HashSet<>(newSize * 4 / 3 + 1);
+    for (int hash : newHashes) {
+      newHashSet.add(hash);
+    }
+    Set<Integer> oldHashSet = new HashSet<>(oldSize * 4 / 3 + 1);
+    int oldCount = 0;
+    int[] oldIndexesTemp = new int[oldSize];
+    for (int i = 0; i < oldSize; i++) {
+      int hash = oldHashes[i];
+      oldHashSet.add(hash);
+      if (newHashSet.contains(hash)) {
+        oldIndexesTemp[oldCount++] = i;
+      } else {
+        removed[i] = true;
+      }
+    }
+    int newCount = 0;
+    int[] newIndexesTemp = new int[newSize];
+    for (int i = 0; i < newSize; i++) {
+      if (oldHashSet.contains(newHashes[i])) {
+        newIndexesTemp[newCount++] = i;
+      } else {
+        inserted[i] = true;
+      }
+    }
+    oldIndexes = oldIndexesTemp;
+    newIndexes = newIndexesTemp;
+    compareSeq(0, oldCount, 0, newCount);
+    hunks = toHunks();
+  }
+
+  private boolean equals(int oldIndex, int newIndex) {
+    int i = oldIndexes[oldIndex];
+    int j = newIndexes[newIndex];
+    return oldHashes[i] == newHashes[j] && Objects.equals(oldElements[i], newElements[j]);
+  }
+
+  /**
+   * Finds the changes between the given ranges of the compared elements.
+   */
+  private void compareSeq(int oldOff, int oldLim, int newOff, int newLim) {
+    // Common prefix
+    while (oldOff < oldLim && newOff < newLim && equals(oldOff, newOff)) {
+      oldOff++;
+      newOff++;
+    }
+    // Common suffix
+    while (oldLim > oldOff && newLim > newOff && equals(oldLim - 1, newLim - 1)) {
+      oldLim--;
+      newLim--;
+    }
+    if (oldOff == oldLim) {
+      for (int j = newOff; j < newLim; j++) {
+        inserted[newIndexes[j]] = true;
+      }
+    } else if (newOff == newLim) {
+      for (int i = oldOff; i < oldLim; i++) {
+        removed[oldIndexes[i]] = true;
+      }
+    } else {
+      bisect(oldOff, oldLim, newOff, newLim);
+    }
+  }
+
+  /**
+   * Finds the middle of the shortest edit path between the given ranges, then
+   * compares each side of it.
+   */
+  private void bisect(int oldOff, int oldLim, int newOff, int newLim) {
+    final int n = oldLim - oldOff;
+    final int m = newLim - newOff;
+    final int maxD = (n + m + 1) / 2;
+    // Gives up after TOO_EXPENSIVE steps, so the diagonals past it are never reached
+    final int vOffset = Math.min(maxD, TOO_EXPENSIVE + 1);
+    final int vLength = 2 * vOffset + 2;
+    // Furthest reaching paths forward and backward, by diagonal
+    int[] v1 = new int[vLength];
+    int[] v2 = new int[vLength];
+    Arrays.fill(v1, -1);
+    Arrays.fill(v2, -1);
+    v1[vOffset + 1] = 0;
+    v2[vOffset + 1] = 0;
+    final int delta = n - m;
+    // When the total length is odd, the front path will collide with the reverse path
+    final boolean front = (delta & 1) != 0;
+    // Offsets for the start and end of the diagonals, to skip those off the grid
+    int k1start = 0;
+    int k1end = 0;
+    int k2start = 0;
+    int k2end = 0;
+    // The furthest point reached by the forward path
+    int bestX = 0;
+    int bestY = 0;
+    for (int d = 0; d < maxD; d++) {
+      // Forward path one step
+      for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+        int k1Offset = vOffset + k1;
+        int x1;
+        if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+          x1 = v1[k1Offset + 1];
+        } else {
+          x1 = v1[k1Offset - 1] + 1;
+        }
+        int y1 = x1 - k1;
+        while (x1 < n && y1 < m && equals(oldOff + x1, newOff + y1)) {
+          x1++;
+          y1++;
+        }
+        v1[k1Offset] = x1;
+        if (x1 > n) {
+          // Ran off the right of the grid
+          k1end += 2;
+        } else if (y1 > m) {
+          // Ran off the bottom of the grid
+          k1start += 2;
+        } else {
+          if (x1 + y1 > bestX + bestY) {
+            bestX = x1;
+            bestY = y1;
+          }
+          if (front) {
+            int k2Offset = vOffset + delta - k1;
+            if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+              // Mirror x2 onto the top-left coordinate system
+              int x2 = n - v2[k2Offset];
+              if (x1 >= x2) {
+                // Overlap detected
+                compareSeq(oldOff, oldOff + x1, newOff, newOff + y1);
+                compareSeq(oldOff + x1, oldLim, newOff + y1, newLim);
+                return;
+              }
+            }
+          }
+        }
+      }
+      // Reverse path one step
+      for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+        int k2Offset = vOffset + k2;
+        int x2;
+        if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+          x2 = v2[k2Offset + 1];
+        } else {
+          x2 = v2[k2Offset - 1] + 1;
+        }
+        int y2 = x2 - k2;
+        while (x2 < n && y2 < m && equals(oldLim - x2 - 1, newLim - y2 - 1)) {
+          x2++;
+          y2++;
+        }
+        v2[k2Offset] = x2;
+        if (x2 > n) {
+          // Ran off the left of the grid
+          k2end += 2;
+        } else if (y2 > m) {
+          // Ran off the top of the grid
+          k2start += 2;
+        } else if (!front) {
+          int k1Offset = vOffset + delta - k2;
+          if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+            int x1 = v1[k1Offset];
+            int y1 = vOffset + x1 - k1Offset;
+            // Mirror x2 onto the top-left coordinate system
+            if (x1 >= n - x2) {
+              // Overlap detected
+              compareSeq(oldOff, oldOff + x1, newOff, newOff + y1);
+              compareSeq(oldOff + x1, oldLim, newOff + y1, newLim);
+              return;
+            }
+          }
+        }
+      }
+      if (d >= TOO_EXPENSIVE) {
+        if (bestX + bestY > 0 && bestX + bestY < n + m) {
+          // Too many changes, split at the furthest point reached
+          compareSeq(oldOff, oldOff + bestX, newOff, newOff + bestY);
+          compareSeq(oldOff + bestX, oldLim, newOff + bestY, newLim);
+          return;
+        }
+        // Nowhere to split, and the diagonals are not tracked past here
+        break;
+      }
+    }
+    // No commonality
+    for (int i = oldOff; i < oldLim; i++) {
+      removed[oldIndexes[i]] = true;
+    }
+    for (int j = newOff; j < newLim; j++) {
+      inserted[newIndexes[j]] = true;
+    }
+  }
+
+  private int[] toHunks() {
+    final int oldSize = removed.length;
+    final int newSize = inserted.length;
+    int[] result = new int[16];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < oldSize || j < newSize) {
+      if (i < oldSize && j < newSize && !removed[i] && !inserted[j]) {
+        // Unchanged
+        i++;
+        j++;
+      } else {
+        int oldStart = i;
+        int newStart = j;
+        while (i < oldSize && removed[i]) {
+          i++;
+        }
+        while (j < newSize && inserted[j]) {
+          j++;
+        }
+        if (count + 4 > result.length) {
+          result = Arrays.copyOf(result, result.length * 2);
+        }
+        result[count++] = oldStart;
+        result[count++] = i;
+        result[count++] = newStart;
+        result[count++] = j;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Gets the number of hunks.
+   */
+  int getHunkCount() {
+    return hunks.length / 4;
+  }
+
+  /**
+   * Gets the first index of the old list removed by the given hunk.
+   */
+  int getOldStart(int hunk) {
+    return hunks[hunk * 4];
+  }
+
+  /**
+   * Gets the index after the last index of the old list removed by the given hunk.
+   */
+  int getOldEnd(int hunk) {
+    return hunks[hunk * 4 + 1];
+  }
+
+  /**
+   * Gets the first index of the new list inserted by the given hunk.
+   */
+  int getNewStart(int hunk) {
+    return hunks[hunk * 4 + 2];
+  }
+
+  /**
+   * Gets the index after the last index of the new list inserted by the given hunk.
+   */
+  int getNewEnd(int hunk) {
+    return hunks[hunk * 4 + 3];
+  }
+
+  /**
+   * Checks if the given element of the old list is removed.
+   */
+  boolean isRemoved(int oldIndex) {
+    return removed[oldIndex];
+  }
+
+  /**
+   * Checks if the given element of the new list is inserted.
+   */
+  boolean isInserted(int newIndex) {
+    return inserted[newIndex];
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2016, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2016, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,7 +23,10 @@
 
 package com.aoapps.hodgepodge.swing;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.SwingUtilities;
 
@@ -55,60 +58,125 @@ public class SynchronizingComboBoxModel<E> extends DefaultComboBoxModel<E> {
   }
 
   /**
-   * Synchronizes the list, adding and removing only a minimum number of elements.
-   * Comparisons are performed using .equals.  This must be called from the
-   * Swing event dispatch thread.
+   * Counts modifications to detect changes while synchronizing in the background.
+   * Only accessed on the Swing event dispatch thread.
    */
-  public void synchronize(List<? extends E> list) {
-    assert SwingUtilities.isEventDispatchThread() : Resources.PACKAGE_RESOURCES.getMessage("assert.notRunningInSwingEventThread");
+  private transient int modCount;
 
-    // Make sure the first element exists and matches
-    int modelOffset;
+  @Override
+  protected void fireContentsChanged(Object source, int index0, int index1) {
+    modCount++;
+    super.fireContentsChanged(source, index0, index1);
+  }
+
+  @Override
+  protected void fireIntervalAdded(Object source, int index0, int index1) {
+    modCount++;
+    super.fireIntervalAdded(source, index0, index1);
+  }
+
+  @Override
+  protected void fireIntervalRemoved(Object source, int index0, int index1) {
+    modCount++;
+    super.fireIntervalRemoved(source, index0, index1);
+  }
+
+  /**
+   * Gets the full list of elements the model will contain, including any constant first row.
+   */
+  private List<E> getTarget(List<? extends E> list) {
+    List<E> target = new ArrayList<>(list.size() + 1);
     if (constantFirstRow != null) {
-      modelOffset = 1;
-      if (getSize() == 0) {
-        addElement(constantFirstRow);
-      } else if (!getElementAt(0).equals(constantFirstRow)) {
-        insertElementAt(constantFirstRow, 0);
-      }
-    } else {
-      modelOffset = 0;
+      target.add(constantFirstRow);
     }
+    target.addAll(list);
+    return target;
+  }
 
-    // Synchronize the dynamic part of the list
-    int size = list.size();
-    for (int index = 0; index < size; index++) {
-      E obj = list.get(index);
-      if (index >= (getSize() - modelOffset)) {
-        addElement(obj);
-      } else if (!obj.equals(getElementAt(index + modelOffset))) {
-        // Objects don't match
-        // If this object is found further down the list, then delete up to that object
-        int foundIndex = -1;
-        for (int searchIndex = index + 1; searchIndex < (getSize() - modelOffset); searchIndex++) {
-          if (obj.equals(getElementAt(searchIndex + modelOffset))) {
-            foundIndex = searchIndex;
-            break;
-          }
-        }
-        if (foundIndex != -1) {
-          // No removeRange
-          // removeRange(index+modelOffset, foundIndex-1+modelOffset);
-          for (int removeIndex = foundIndex - 1 + modelOffset, end = index + modelOffset;
-              removeIndex >= end;
-              removeIndex--
-          ) {
-            removeElementAt(removeIndex);
-          }
-        } else {
-          // Otherwise, insert in the current index
-          insertElementAt(obj, index + modelOffset);
-        }
+  private List<E> getElements() {
+    int size = getSize();
+    List<E> elements = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      elements.add(getElementAt(i));
+    }
+    return elements;
+  }
+
+  /**
+   * Applies the changes, from last to first, with one event per inserted range.
+   * There is no removeRange, so removals are one event per element.
+   */
+  private void apply(ListDiff diff, List<E> target) {
+    boolean wasEmpty = getSize() == 0;
+    for (int hunk = diff.getHunkCount() - 1; hunk >= 0; hunk--) {
+      int oldStart = diff.getOldStart(hunk);
+      for (int removeIndex = diff.getOldEnd(hunk) - 1; removeIndex >= oldStart; removeIndex--) {
+        removeElementAt(removeIndex);
+      }
+      int newStart = diff.getNewStart(hunk);
+      int newEnd = diff.getNewEnd(hunk);
+      if (newEnd > newStart) {
+        addAll(oldStart, target.subList(newStart, newEnd));
       }
     }
-    // Remove any extra
-    while ((getSize() - modelOffset) > size) {
-      removeElementAt(getSize() - 1);
+    // Select the first element like addElement
+    if (wasEmpty && getSelectedItem() == null && getSize() > 0) {
+      E first = getElementAt(0);
+      if (first != null) {
+        setSelectedItem(first);
+      }
     }
   }
+
+  /**
+   * Synchronizes the list, adding and removing only a minimum number of elements.
+   * Comparisons are performed using .equals.  This must be called from the
+   * Swing event dispatch thread.
+   *
+   * <p>The changes are found with a difference algorithm, then applied with one event per
+   * contiguous range of elements inserted.</p>
+   *
+   * @see  #synchronize(java.util.List, java.util.concurrent.Executor)
+   */
+  public void synchronize(List<? extends E> list) {
+    assert SwingUtilities.isEventDispatchThread() : Resources.PACKAGE_RESOURCES.getMessage("assert.notRunningInSwingEventThread");
+    List<E> target = getTarget(list);
+    apply(new ListDiff(getElements(), target), target);
+  }
+
+  /**
+   * Synchronizes the list, finding the changes in the background then applying them
+   * on the Swing event dispatch thread.  When this model is modified while the changes are
+   * being found, the changes are found again on the Swing event dispatch thread.  This may
+   * be called from any thread.
+   *
+   * @param  list  copied before returning, so may be modified after this call
+   * @param  executor  finds the changes
+   *
+   * @return  completed once the changes have been applied
+   */
+  public CompletableFuture<Void> synchronize(List<? extends E> list, Executor executor) {
+    List<E> target = getTarget(list);
+    Executor swing = SwingUtilities::invokeLater;
+    int[] snapshotModCount = new int[1];
+    return CompletableFuture.supplyAsync(
+        () -> {
+          snapshotModCount[0] = modCount;
+          return getElements();
+        },
+        SwingUtilities.isEventDispatchThread() ? Runnable::run : swing
+    ).thenApplyAsync(
+        elements -> new ListDiff(elements, target),
+        executor
+    ).thenAcceptAsync(
+        diff -> {
+          if (snapshotModCount[0] != modCount) {
+            // Modified while finding the changes
+            diff = new ListDiff(getElements(), target);
+          }
+          apply(diff, target);
+        },
+        swing
+    );
+  }
 }
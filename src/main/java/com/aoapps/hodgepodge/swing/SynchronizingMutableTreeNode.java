@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2013, 2016, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -27,6 +27,7 @@ import com.aoapps.hodgepodge.tree.Node;
 import com.aoapps.hodgepodge.tree.Tree;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import javax.swing.SwingUtilities;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -78,6 +79,9 @@ public class SynchronizingMutableTreeNode<E> extends DefaultMutableTreeNode {
    * Comparisons are performed using equals on the value objects.  This must
    * be called from the Swing event dispatch thread.
    *
+   * <p>The changes are found with a difference algorithm, then applied with one
+   * event for all removed children and one event for all inserted children.</p>
+   *
    * @param  children  If children is null, then doesn't allow children.
    */
   @SuppressWarnings("unchecked")
@@ -99,46 +103,63 @@ public class SynchronizingMutableTreeNode<E> extends DefaultMutableTreeNode {
         treeModel.reload(this);
       }
 
-      // Update the children minimally
+      // Find the changes to the children
       int size = children.size();
-      for (int index = 0; index < size; index++) {
-        Node<E> child = children.get(index);
-        E value = child.getValue();
-        SynchronizingMutableTreeNode<E> synchronizingNode;
-        if (index >= getChildCount()) {
-          synchronizingNode = new SynchronizingMutableTreeNode<>(value);
-          treeModel.insertNodeInto(synchronizingNode, this, index);
-        } else {
-          synchronizingNode = (SynchronizingMutableTreeNode<E>) getChildAt(index);
-          if (!synchronizingNode.getUserObject().equals(value)) {
-            // Objects don't match
-            // If this object is found further down the list, then delete up to that object
-            int foundIndex = -1;
-            for (int searchIndex = index + 1, count = getChildCount(); searchIndex < count; searchIndex++) {
-              synchronizingNode = (SynchronizingMutableTreeNode<E>) getChildAt(searchIndex);
-              if (synchronizingNode.getUserObject().equals(value)) {
-                foundIndex = searchIndex;
-                break;
-              }
-            }
-            if (foundIndex != -1) {
-              for (int removeIndex = foundIndex - 1; removeIndex >= index; removeIndex--) {
-                treeModel.removeNodeFromParent((MutableTreeNode) getChildAt(removeIndex));
-              }
-              // synchronizingNode already contains the right node
-            } else {
-              // Otherwise, insert in the current index
-              synchronizingNode = new SynchronizingMutableTreeNode<>(value);
-              treeModel.insertNodeInto(synchronizingNode, this, index);
-            }
+      List<E> values = new ArrayList<>(size);
+      for (Node<E> child : children) {
+        values.add(child.getValue());
+      }
+      int childCount = getChildCount();
+      List<Object> userObjects = new ArrayList<>(childCount);
+      for (int i = 0; i < childCount; i++) {
+        userObjects.add(((DefaultMutableTreeNode) getChildAt(i)).getUserObject());
+      }
+      ListDiff diff = new ListDiff(userObjects, values);
+
+      // Remove children with a single event
+      int removedCount = 0;
+      for (int i = 0; i < childCount; i++) {
+        if (diff.isRemoved(i)) {
+          removedCount++;
+        }
+      }
+      if (removedCount > 0) {
+        int[] removedIndexes = new int[removedCount];
+        Object[] removedChildren = new Object[removedCount];
+        for (int i = 0, removedIndex = 0; removedIndex < removedCount; i++) {
+          if (diff.isRemoved(i)) {
+            removedIndexes[removedIndex] = i;
+            removedChildren[removedIndex] = getChildAt(i);
+            removedIndex++;
           }
         }
-        // Recursively synchronize the children
-        synchronizingNode.synchronize(treeModel, child.getChildren());
+        for (int removedIndex = removedCount - 1; removedIndex >= 0; removedIndex--) {
+          remove(removedIndexes[removedIndex]);
+        }
+        treeModel.nodesWereRemoved(this, removedIndexes, removedChildren);
       }
-      // Remove any extra children
-      while (getChildCount() > size) {
-        treeModel.removeNodeFromParent((MutableTreeNode) getChildAt(getChildCount() - 1));
+
+      // Insert children with a single event
+      int insertedCount = 0;
+      for (int i = 0; i < size; i++) {
+        if (diff.isInserted(i)) {
+          insertedCount++;
+        }
+      }
+      if (insertedCount > 0) {
+        int[] insertedIndexes = new int[insertedCount];
+        for (int i = 0, insertedIndex = 0; insertedIndex < insertedCount; i++) {
+          if (diff.isInserted(i)) {
+            insert(new SynchronizingMutableTreeNode<>(values.get(i)), i);
+            insertedIndexes[insertedIndex++] = i;
+          }
+        }
+        treeModel.nodesWereInserted(this, insertedIndexes);
+      }
+
+      // Recursively synchronize the children
+      for (int index = 0; index < size; index++) {
+        ((SynchronizingMutableTreeNode<E>) getChildAt(index)).synchronize(treeModel, children.get(index).getChildren());
       }
     }
   }
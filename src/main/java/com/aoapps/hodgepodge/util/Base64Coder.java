@@ -1,5 +1,12 @@
 package com.aoapps.hodgepodge.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -72,7 +79,8 @@ public final class Base64Coder {
    * @return   A String with the Base64 encoded data.
    */
   public static String encodeString(String s) {
-    return new String(encode(s.getBytes(StandardCharsets.UTF_8)));
+    // Same alphabet and padding, without the intermediate char[]
+    return Base64.getEncoder().encodeToString(s.getBytes(StandardCharsets.UTF_8));
   }
 
   /**
@@ -95,29 +103,38 @@ public final class Base64Coder {
    * @return     A character array with the Base64 encoded data.
    */
   public static char[] encode(byte[] in, int inLen) {
-    int odataLen = (inLen * 4 + 2) / 3;       // output length without padding
     int olen = ((inLen + 2) / 3) * 4;         // output length including padding
     char[] out = new char[olen];
-    int ip = 0;
-    int op = 0;
-    while (ip < inLen) {
-      int i0 = in[ip++] & 0xff;
-      int i1 = ip < inLen ? in[ip++] & 0xff : 0;
-      int i2 = ip < inLen ? in[ip++] & 0xff : 0;
-      int o0 = i0 >>> 2;
-      int o1 = ((i0 &   3) << 4) | (i1 >>> 4);
-      int o2 = ((i1 & 0xf) << 2) | (i2 >>> 6);
-      final int o3 = i2 & 0x3F;
-      out[op++] = map1[o0];
-      out[op++] = map1[o1];
-      out[op] = op < odataLen ? map1[o2] : '=';
-      op++;
-      out[op] = op < odataLen ? map1[o3] : '=';
-      op++;
+    int groups = inLen / 3;
+    encodeGroups(in, 0, out, 0, groups);
+    int remaining = inLen - groups * 3;
+    if (remaining > 0) {
+      int ip = groups * 3;
+      int op = groups * 4;
+      int i0 = in[ip] & 0xff;
+      int i1 = remaining > 1 ? in[ip + 1] & 0xff : 0;
+      out[op] = map1[i0 >>> 2];
+      out[op + 1] = map1[((i0 & 3) << 4) | (i1 >>> 4)];
+      out[op + 2] = remaining > 1 ? map1[(i1 & 0xf) << 2] : '=';
+      out[op + 3] = '=';
     }
     return out;
   }
 
+  /**
+   * Encodes whole groups of three bytes into four characters each, without bounds checks between groups.
+   */
+  private static void encodeGroups(byte[] in, int ip, char[] out, int op, int groups) {
+    final char[] map = map1;
+    for (int end = ip + groups * 3; ip < end; ip += 3, op += 4) {
+      int bits = (in[ip] & 0xff) << 16 | (in[ip + 1] & 0xff) << 8 | (in[ip + 2] & 0xff);
+      out[op] = map[bits >>> 18];
+      out[op + 1] = map[(bits >>> 12) & 0x3f];
+      out[op + 2] = map[(bits >>> 6) & 0x3f];
+      out[op + 3] = map[bits & 0x3f];
+    }
+  }
+
   /**
    * Decodes a string from Base64 format.
    *
@@ -188,4 +205,270 @@ public final class Base64Coder {
     }
     return out;
   }
+
+  /**
+   * Encodes as much of the source as fits in the destination, in groups of three bytes.
+   * No blanks or line breaks are inserted.
+   *
+   * @param  endOfInput  when no more bytes will follow the source, so the last one or two
+   *                     bytes are encoded with padding
+   */
+  public static void encode(ByteBuffer src, CharBuffer dst, boolean endOfInput) {
+    if (src.hasArray() && dst.hasArray()) {
+      int groups = Math.min(src.remaining() / 3, dst.remaining() / 4);
+      encodeGroups(
+          src.array(), src.arrayOffset() + src.position(),
+          dst.array(), dst.arrayOffset() + dst.position(),
+          groups
+      );
+      src.position(src.position() + groups * 3);
+      dst.position(dst.position() + groups * 4);
+    }
+    while (src.remaining() >= 3 && dst.remaining() >= 4) {
+      int i0 = src.get() & 0xff;
+      int i1 = src.get() & 0xff;
+      int i2 = src.get() & 0xff;
+      dst.put(map1[i0 >>> 2]);
+      dst.put(map1[((i0 & 3) << 4) | (i1 >>> 4)]);
+      dst.put(map1[((i1 & 0xf) << 2) | (i2 >>> 6)]);
+      dst.put(map1[i2 & 0x3F]);
+    }
+    int remaining = src.remaining();
+    if (endOfInput && remaining > 0 && remaining < 3 && dst.remaining() >= 4) {
+      int i0 = src.get() & 0xff;
+      int i1 = remaining > 1 ? src.get() & 0xff : 0;
+      dst.put(map1[i0 >>> 2]);
+      dst.put(map1[((i0 & 3) << 4) | (i1 >>> 4)]);
+      dst.put(remaining > 1 ? map1[(i1 & 0xf) << 2] : '=');
+      dst.put('=');
+    }
+  }
+
+  private static int getNibble(char ch) {
+    int b = ch < map2.length ? map2[ch] : -1;
+    if (b < 0) {
+      throw new IllegalArgumentException("Illegal character in Base64 encoded data.");
+    }
+    return b;
+  }
+
+  /**
+   * Decodes as much of the source as fits in the destination, in groups of four characters.
+   * No blanks or line breaks are allowed within the Base64 encoded data.  A group with padding
+   * must be the end of the data.
+   *
+   * @param  endOfInput  when no more characters will follow the source
+   *
+   * @throws    IllegalArgumentException if the input is not valid Base64 encoded data.
+   */
+  public static void decode(CharBuffer src, ByteBuffer dst, boolean endOfInput) {
+    while (src.remaining() >= 4) {
+      int pos = src.position();
+      char c2 = src.get(pos + 2);
+      char c3 = src.get(pos + 3);
+      int olen = c3 != '=' ? 3 : c2 != '=' ? 2 : 1;
+      if (olen < 3 && src.remaining() > 4) {
+        throw new IllegalArgumentException("Padding before end of Base64 encoded data.");
+      }
+      if (dst.remaining() < olen) {
+        return;
+      }
+      int b0 = getNibble(src.get(pos));
+      int b1 = getNibble(src.get(pos + 1));
+      int b2 = olen > 1 ? getNibble(c2) : 0;
+      int b3 = olen > 2 ? getNibble(c3) : 0;
+      dst.put((byte) ((b0 << 2) | (b1 >>> 4)));
+      if (olen > 1) {
+        dst.put((byte) (((b1 & 0xf) << 4) | (b2 >>> 2)));
+      }
+      if (olen > 2) {
+        dst.put((byte) (((b2 & 3) << 6) | b3));
+      }
+      src.position(pos + 4);
+    }
+    if (endOfInput && src.hasRemaining()) {
+      throw new IllegalArgumentException("Length of Base64 encoded input string is not a multiple of 4.");
+    }
+  }
+
+  /**
+   * The size of the buffers used by streaming encoders and decoders, a multiple of four.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
+  private static final class EncoderOutputStream extends OutputStream {
+
+    private final Writer out;
+    private final ByteBuffer partial = ByteBuffer.allocate(3);
+    private final CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+
+    private EncoderOutputStream(Writer out) {
+      this.out = out;
+    }
+
+    private void writeBuffer() throws IOException {
+      if (buffer.position() > 0) {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+    }
+
+    private void encode(ByteBuffer src, boolean endOfInput) throws IOException {
+      while (true) {
+        Base64Coder.encode(src, buffer, endOfInput);
+        if (src.remaining() < (endOfInput ? 1 : 3)) {
+          break;
+        }
+        writeBuffer();
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (off < 0 || len < 0 || off > b.length - len) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (partial.position() > 0) {
+        // Complete the group from the previous write
+        int count = Math.min(partial.remaining(), len);
+        partial.put(b, off, count);
+        off += count;
+        len -= count;
+        if (partial.hasRemaining()) {
+          return;
+        }
+        partial.flip();
+        encode(partial, false);
+        partial.clear();
+      }
+      ByteBuffer src = ByteBuffer.wrap(b, off, len);
+      encode(src, false);
+      // Keep any incomplete group
+      partial.put(src);
+    }
+
+    /**
+     * Writes all complete groups.  The last one or two bytes are not written until closed.
+     */
+    @Override
+    public void flush() throws IOException {
+      writeBuffer();
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      partial.flip();
+      encode(partial, true);
+      partial.clear();
+      writeBuffer();
+      out.close();
+    }
+  }
+
+  /**
+   * Gets a stream that encodes all bytes in Base64 format to the given writer, using bounded memory.
+   * No blanks or line breaks are inserted.  Closing the stream writes any padding and closes the given writer.
+   */
+  public static OutputStream newEncoder(Writer out) {
+    return new EncoderOutputStream(out);
+  }
+
+  private static final class DecoderInputStream extends InputStream {
+
+    private final Reader in;
+    private final CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The decoded bytes of a group not yet read, when read in less than whole groups.
+     */
+    private final ByteBuffer partial = ByteBuffer.allocate(3);
+
+    private boolean endOfInput;
+
+    private DecoderInputStream(Reader in) {
+      this.in = in;
+      buffer.flip();
+      partial.flip();
+    }
+
+    /**
+     * Decodes into the destination, which must have space for at least one group.
+     *
+     * @return  the number of bytes decoded or {@code -1} when at end of input
+     */
+    private int decode(ByteBuffer dst) throws IOException {
+      int start = dst.position();
+      while (true) {
+        try {
+          Base64Coder.decode(buffer, dst, endOfInput);
+        } catch (IllegalArgumentException e) {
+          throw new IOException(e);
+        }
+        int count = dst.position() - start;
+        if (count > 0) {
+          return count;
+        }
+        if (endOfInput) {
+          return -1;
+        }
+        buffer.compact();
+        try {
+          if (in.read(buffer) == -1) {
+            endOfInput = true;
+          }
+        } finally {
+          buffer.flip();
+        }
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (off < 0 || len < 0 || off > b.length - len) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (!partial.hasRemaining() && len < partial.capacity()) {
+        partial.clear();
+        int count = decode(partial);
+        partial.flip();
+        if (count == -1) {
+          return -1;
+        }
+      }
+      if (partial.hasRemaining()) {
+        int count = Math.min(partial.remaining(), len);
+        partial.get(b, off, count);
+        return count;
+      }
+      return decode(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Gets a stream that decodes all bytes in Base64 format from the given reader, using bounded memory.
+   * No blanks or line breaks are allowed within the Base64 encoded data.  Closing the stream closes the given reader.
+   */
+  public static InputStream newDecoder(Reader in) {
+    return new DecoderInputStream(in);
+  }
 }
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2019, 2020, 2021, 2022, 2023, 2024, 2025  AO Industries, Inc.
+ * Copyright (C) 2019, 2020, 2021, 2022, 2023, 2024, 2025, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,6 +23,7 @@
 
 package com.aoapps.hodgepodge.util;
 
+import com.aoapps.hodgepodge.io.StringBuilderWriter;
 import com.aoapps.lang.SysExits;
 import com.aoapps.lang.io.IoUtils;
 import java.io.File;
@@ -52,6 +53,8 @@ import java.util.Properties;
  *
  * <p>For maximum diffability, this should be used along with {@link com.aoapps.collections.SortedProperties}.</p>
  *
+ * <p>Large files may be formatted while being written by {@link DiffablePropertiesWriter}.</p>
+ *
  * @see  Properties
  * @see  com.aoapps.collections.SortedProperties
  */
@@ -62,21 +65,6 @@ public final class DiffableProperties {
     throw new AssertionError();
   }
 
-  private static boolean isHex(char ch) {
-    return
-        (ch >= '0' && ch <= '9')
-            || (ch >= 'a' && ch <= 'f')
-            || (ch >= 'A' && ch <= 'F');
-  }
-
-  private static char lowerHex(char ch) {
-    if (ch >= 'A' && ch <= 'F') {
-      return (char) (ch + ('a' - 'A'));
-    } else {
-      return ch;
-    }
-  }
-
   public static class FormatResult {
     private final String before;
     private final String after;
@@ -104,90 +92,30 @@ public final class DiffableProperties {
    * For Java &gt;= 9, this may be stored in the UTF-8 encoding.</p>
    */
   public static String formatProperties(String properties) {
-    int len = properties.length();
-    StringBuilder sb = new StringBuilder(len * 6 / 5); // Space for 20% increase before growing buffer
-    boolean isLeadingWhitespace = true;
-    boolean isComment = false;
-    int pos = 0;
-    while (pos < len) {
-      char ch1 = properties.charAt(pos++);
-      if (ch1 == '\r') {
-        // Skip \r
-      } else if (!isComment && ch1 == '\\' && pos < len) {
-        isLeadingWhitespace = false;
-        // Is escape
-        char ch2 = properties.charAt(pos++);
-        char ch3;
-        char ch4;
-        char ch5;
-        char ch6;
-        if (
-            ch2 == 'u'
-                && (pos + 4) <= len
-                && isHex(ch3 = properties.charAt(pos))
-                && isHex(ch4 = properties.charAt(pos + 1))
-                && isHex(ch5 = properties.charAt(pos + 2))
-                && isHex(ch6 = properties.charAt(pos + 3))
-        ) {
-          sb
-              .append(ch1)
-              .append(ch2)
-              .append(lowerHex(ch3))
-              .append(lowerHex(ch4))
-              .append(lowerHex(ch5))
-              .append(lowerHex(ch6));
-          pos += 4;
-        } else if (
-            ch2 == 'n'
-                // If already at end-of-line, do nothing
-                && !(
-                pos >= len
-                    || (ch3 = properties.charAt(pos)) == '\r' || ch3 == '\n'
-            )
-                // If already followed by \(EOL) end-of-line, do nothing
-                && !(
-                ch3 == '\\'
-                    && (
-                    (pos + 1) >= len
-                        || (ch4 = properties.charAt(pos + 1)) == '\r' || ch4 == '\n'
-                )
-            )
-        ) {
-          // Add \(EOL) escape, and possible \ if the next value is ' ', '\t', '\f'
-          sb.append(ch1).append(ch2).append("\\\n");
-          if (ch3 == ' ' || ch3 == '\t' || ch3 == '\f') {
-            sb.append('\\');
-          }
-        } else {
-          // Nothing to change
-          sb.append(ch1);
-          if (ch2 == '\r') {
-            // Skip \r
-          } else {
-            sb.append(ch2);
-            if (ch2 == '\n') {
-              isLeadingWhitespace = true;
-              isComment = false;
-            }
-          }
-        }
-      } else if (ch1 == '#') {
-        // Possible start of comment
-        sb.append(ch1);
-        if (isLeadingWhitespace) {
-          isLeadingWhitespace = false;
-          isComment = true;
-        }
-      } else {
-        // Nothing to change
-        sb.append(ch1);
-        if (ch1 == '\n') {
-          isLeadingWhitespace = true;
-          isComment = false;
-        }
-      }
+    StringBuilderWriter out = new StringBuilderWriter(properties.length() * 6 / 5); // Space for 20% increase before growing buffer
+    try (DiffablePropertiesWriter formatter = new DiffablePropertiesWriter(out)) {
+      formatter.write(properties);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilderWriter does not throw IOException", e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Formats a properties file while copying from the given reader to the given writer,
+   * without needing the entire file in memory.  Neither the reader nor the writer is closed.
+   *
+   * @see  DiffablePropertiesWriter
+   */
+  public static void formatProperties(Reader in, Writer out) throws IOException {
+    DiffablePropertiesWriter formatter = new DiffablePropertiesWriter(out);
+    char[] buf = new char[4096];
+    int count;
+    while ((count = in.read(buf)) != -1) {
+      formatter.write(buf, 0, count);
     }
-    return sb.toString();
+    // Closing would close the writer
+    formatter.finish();
   }
 
   /**
@@ -0,0 +1,294 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Formats a {@link java.util.Properties} file while writing, in the same format as
+ * {@link DiffableProperties#formatProperties(java.lang.String)}, without needing the
+ * entire file in memory.
+ *
+ * <p>This class is not thread safe and requires external synchronization if used by more than one thread.</p>
+ *
+ * <p>Escapes are recognized across any number of writes.  Up to five characters that may
+ * still be part of an escape are held back, and are written on {@link #finish()} or {@link #close()}.
+ * {@link #flush()} does not write held back characters.</p>
+ *
+ * @see  DiffableProperties
+ *
+ * @author  AO Industries, Inc.
+ */
+public class DiffablePropertiesWriter extends Writer {
+
+  /**
+   * The size of the buffer used to process characters.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
+  /**
+   * The number of characters needed to format the character at the current position.
+   * The longest is a Unicode escape <code>\\uHHHH</code>.
+   */
+  private static final int LOOKAHEAD = 6;
+
+  private final Writer out;
+
+  /**
+   * The characters held back followed by the characters being processed.
+   */
+  private final char[] in = new char[BUFFER_SIZE + LOOKAHEAD];
+  private int inLen;
+
+  /**
+   * Each "\n" may add up to three characters, so the output is at most two and a half times the input.
+   */
+  private final char[] buffer = new char[in.length * 5 / 2 + 1];
+
+  private boolean isLeadingWhitespace = true;
+  private boolean isComment;
+
+  /**
+   * @param out  The writer that will receive the formatted properties file.
+   */
+  public DiffablePropertiesWriter(Writer out) {
+    this.out = out;
+  }
+
+  private static boolean isHex(char ch) {
+    return
+        (ch >= '0' && ch <= '9')
+            || (ch >= 'a' && ch <= 'f')
+            || (ch >= 'A' && ch <= 'F');
+  }
+
+  private static char lowerHex(char ch) {
+    if (ch >= 'A' && ch <= 'F') {
+      return (char) (ch + ('a' - 'A'));
+    } else {
+      return ch;
+    }
+  }
+
+  /**
+   * Formats the buffered characters, holding back any at the end that may still be part of an escape.
+   *
+   * @param  eof  when {@code true}, there are no more characters and none are held back
+   */
+  private void process(boolean eof) throws IOException {
+    final char[] chars = in;
+    final int len = inLen;
+    final char[] buf = buffer;
+    // Only format characters with all their possible lookahead available
+    final int limit = eof ? len : (len - (LOOKAHEAD - 1));
+    int pos = 0;
+    int count = 0;
+    while (pos < limit) {
+      char ch1 = chars[pos++];
+      if (ch1 == '\r') {
+        // Skip \r
+      } else if (!isComment && ch1 == '\\' && pos < len) {
+        isLeadingWhitespace = false;
+        // Is escape
+        char ch2 = chars[pos++];
+        char ch3;
+        char ch4;
+        if (
+            ch2 == 'u'
+                && (pos + 4) <= len
+                && isHex(chars[pos])
+                && isHex(chars[pos + 1])
+                && isHex(chars[pos + 2])
+                && isHex(chars[pos + 3])
+        ) {
+          buf[count++] = ch1;
+          buf[count++] = ch2;
+          buf[count++] = lowerHex(chars[pos++]);
+          buf[count++] = lowerHex(chars[pos++]);
+          buf[count++] = lowerHex(chars[pos++]);
+          buf[count++] = lowerHex(chars[pos++]);
+        } else if (
+            ch2 == 'n'
+                // If already at end-of-line, do nothing
+                && !(
+                pos >= len
+                    || (ch3 = chars[pos]) == '\r' || ch3 == '\n'
+            )
+                // If already followed by \(EOL) end-of-line, do nothing
+                && !(
+                ch3 == '\\'
+                    && (
+                    (pos + 1) >= len
+                        || (ch4 = chars[pos + 1]) == '\r' || ch4 == '\n'
+                )
+            )
+        ) {
+          // Add \(EOL) escape, and possible \ if the next value is ' ', '\t', '\f'
+          buf[count++] = ch1;
+          buf[count++] = ch2;
+          buf[count++] = '\\';
+          buf[count++] = '\n';
+          if (ch3 == ' ' || ch3 == '\t' || ch3 == '\f') {
+            buf[count++] = '\\';
+          }
+        } else {
+          // Nothing to change
+          buf[count++] = ch1;
+          if (ch2 == '\r') {
+            // Skip \r
+          } else {
+            buf[count++] = ch2;
+            if (ch2 == '\n') {
+              isLeadingWhitespace = true;
+              isComment = false;
+            }
+          }
+        }
+      } else if (ch1 == '#') {
+        // Possible start of comment
+        buf[count++] = ch1;
+        if (isLeadingWhitespace) {
+          isLeadingWhitespace = false;
+          isComment = true;
+        }
+      } else {
+        // Nothing to change
+        buf[count++] = ch1;
+        if (ch1 == '\n') {
+          isLeadingWhitespace = true;
+          isComment = false;
+        }
+      }
+    }
+    // Hold back the remaining characters
+    inLen = len - pos;
+    if (inLen > 0) {
+      System.arraycopy(chars, pos, chars, 0, inLen);
+    }
+    if (count > 0) {
+      out.write(buf, 0, count);
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || off > cbuf.length - len) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      int blockLen = Math.min(len, in.length - inLen);
+      System.arraycopy(cbuf, off, in, inLen, blockLen);
+      inLen += blockLen;
+      off += blockLen;
+      len -= blockLen;
+      if (inLen == in.length) {
+        process(false);
+      }
+    }
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    in[inLen++] = (char) c;
+    if (inLen == in.length) {
+      process(false);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || off > str.length() - len) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      int blockLen = Math.min(len, in.length - inLen);
+      str.getChars(off, off + blockLen, in, inLen);
+      inLen += blockLen;
+      off += blockLen;
+      len -= blockLen;
+      if (inLen == in.length) {
+        process(false);
+      }
+    }
+  }
+
+  @Override
+  public DiffablePropertiesWriter append(CharSequence csq) throws IOException {
+    if (csq == null) {
+      write("null");
+    } else {
+      append(csq, 0, csq.length());
+    }
+    return this;
+  }
+
+  @Override
+  public DiffablePropertiesWriter append(CharSequence csq, int start, int end) throws IOException {
+    if (csq == null) {
+      return append("null", start, end);
+    }
+    if (csq instanceof String) {
+      write((String) csq, start, end - start);
+    } else {
+      for (int i = start; i < end; i++) {
+        write(csq.charAt(i));
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public DiffablePropertiesWriter append(char c) throws IOException {
+    write(c);
+    return this;
+  }
+
+  /**
+   * Writes all characters that are not held back, then flushes the underlying writer.
+   */
+  @Override
+  public void flush() throws IOException {
+    process(false);
+    out.flush();
+  }
+
+  /**
+   * Writes any held back characters and flushes the underlying writer, without closing it.
+   * No more characters may be written.
+   */
+  public void finish() throws IOException {
+    process(true);
+    out.flush();
+  }
+
+  /**
+   * Writes any held back characters, then closes the underlying writer.
+   */
+  @Override
+  public void close() throws IOException {
+    process(true);
+    out.close();
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2009, 2010, 2011, 2013, 2015, 2016, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2009, 2010, 2011, 2013, 2015, 2016, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -28,6 +28,7 @@ import com.aoapps.hodgepodge.i18n.BundleLookupThreadContext;
 import com.aoapps.hodgepodge.i18n.MarkupType;
 import com.aoapps.lang.Coercion;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Provides encoding and escaping for various type of data.
@@ -90,12 +91,7 @@ public final class EncodingUtils {
    */
   @Deprecated
   public static String encodeHtml(Object value, boolean isXhtml) throws IOException {
-    if (value == null) {
-      return null;
-    }
-    StringBuilder result = new StringBuilder();
-    encodeHtml(value, result, isXhtml);
-    return result.toString();
+    return encodeHtml(value, true, true, isXhtml);
   }
 
   /**
@@ -117,13 +113,7 @@ public final class EncodingUtils {
   public static void encodeHtml(Object value, boolean makeBr, boolean makeNbsp, Appendable out, boolean isXhtml) throws IOException {
     if (value != null) {
       String str = Coercion.toString(value);
-      BundleLookupMarkup lookupMarkup;
-      BundleLookupThreadContext threadContext = BundleLookupThreadContext.getThreadContext();
-      if (threadContext != null) {
-        lookupMarkup = threadContext.getLookupMarkup(str);
-      } else {
-        lookupMarkup = null;
-      }
+      BundleLookupMarkup lookupMarkup = getLookupMarkup(str);
       if (lookupMarkup != null) {
         lookupMarkup.appendPrefixTo(MarkupType.XHTML, out);
       }
@@ -134,11 +124,125 @@ public final class EncodingUtils {
     }
   }
 
+  private static BundleLookupMarkup getLookupMarkup(String str) {
+    BundleLookupThreadContext threadContext = BundleLookupThreadContext.getThreadContext();
+    return threadContext == null ? null : threadContext.getLookupMarkup(str);
+  }
+
+  /**
+   * The highest character that may be escaped or removed in (X)HTML.  All characters
+   * above this are written as-is, so most text is scanned with a single comparison.
+   */
+  private static final char HTML_MAX_ESCAPED = '>';
+
+  /**
+   * The characters that are escaped or removed in (X)HTML, indexed by
+   * {@link #getHtmlEscaped(boolean, boolean)}.
+   */
+  private static final boolean[][] HTML_ESCAPED = new boolean[4][HTML_MAX_ESCAPED + 1];
+
+  static {
+    for (int options = 0; options < HTML_ESCAPED.length; options++) {
+      boolean makeBr = (options & 1) != 0;
+      boolean makeNbsp = (options & 2) != 0;
+      boolean[] escaped = HTML_ESCAPED[options];
+      for (char ch = 0; ch <= HTML_MAX_ESCAPED; ch++) {
+        escaped[ch] =
+            ch == '<'
+                || ch == '>'
+                || ch == '&'
+                || (ch == ' ' && makeNbsp)
+                || (ch == '\n' ? makeBr : ch < ' ');
+      }
+    }
+  }
+
+  private static boolean[] getHtmlEscaped(boolean makeBr, boolean makeNbsp) {
+    return HTML_ESCAPED[(makeBr ? 1 : 0) | (makeNbsp ? 2 : 0)];
+  }
+
+  /**
+   * Gets the replacement for a character that is escaped or removed in (X)HTML.
+   *
+   * @return  the replacement or {@code ""} when the character is removed
+   */
+  private static String getHtmlEscape(char ch, boolean isXhtml) {
+    switch (ch) {
+      // Standard XML escapes
+      case '<':
+        return "&lt;";
+      case '>':
+        return "&gt;";
+      case '&':
+        return "&amp;";
+      // Special (X)HTML options
+      case ' ':
+        return "&#160;";
+      case '\t':
+        return "&#x9;";
+      case '\n':
+        return isXhtml ? "<br />\n" : "<br>\n";
+      default:
+        // skip '\r' and any other character less than ' '
+        return "";
+    }
+  }
+
+  /**
+   * Finds the first character that is escaped or removed in (X)HTML.
+   *
+   * @return  the index of the character or {@code end} when none
+   */
+  private static int indexOfHtmlEscaped(String str, int start, int end, boolean[] escaped) {
+    for (int i = start; i < end; i++) {
+      char ch = str.charAt(i);
+      if (ch <= HTML_MAX_ESCAPED && escaped[ch]) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Finds the first character that is escaped or removed in (X)HTML.
+   *
+   * @return  the index of the character or {@code end} when none
+   */
+  private static int indexOfHtmlEscaped(char[] cbuf, int start, int end, boolean[] escaped) {
+    for (int i = start; i < end; i++) {
+      char ch = cbuf[i];
+      if (ch <= HTML_MAX_ESCAPED && escaped[ch]) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Finds the first character that is escaped or removed in (X)HTML.
+   *
+   * @return  the index of the character or {@code end} when none
+   */
+  private static int indexOfHtmlEscaped(CharSequence cs, int start, int end, boolean[] escaped) {
+    if (cs instanceof String) {
+      return indexOfHtmlEscaped((String) cs, start, end, escaped);
+    }
+    for (int i = start; i < end; i++) {
+      char ch = cs.charAt(i);
+      if (ch <= HTML_MAX_ESCAPED && escaped[ch]) {
+        return i;
+      }
+    }
+    return end;
+  }
+
   /**
    * Escapes for use in a (X)HTML document and writes to the provided <code>Appendable</code>.
    * Optionally, it turns newlines into &lt;br /&gt; and spaces to &amp;#160;
    * Any characters less than 0x1f that are not \t, \r, or \n are completely filtered.
    *
+   * <p>Each run of characters that need no escaping is appended in a single call.</p>
+   *
    * <p>See <a href="https://oss.aoapps.com/encoding/apidocs/com.aoapps.encoding/com/aoapps/encoding/TextInXhtmlEncoder.html">TextInXhtmlEncoder</a>.</p>
    *
    * @param cs the string to be escaped.  If S is <code>null</code>, nothing is written.
@@ -150,99 +254,85 @@ public final class EncodingUtils {
   @Deprecated
   public static void encodeHtml(CharSequence cs, int start, int end, boolean makeBr, boolean makeNbsp, Appendable out, boolean isXhtml) throws IOException {
     if (cs != null) {
-      int toPrint = 0;
-      for (int c = start; c < end; c++) {
-        char ch = cs.charAt(c);
-        switch (ch) {
-          // Standard XML escapes
-          case '<':
-            {
-              if (toPrint > 0) {
-                out.append(cs, c - toPrint, c);
-                toPrint = 0;
-              }
-              out.append("&lt;");
-              break;
-            }
-          case '>':
-            {
-              if (toPrint > 0) {
-                out.append(cs, c - toPrint, c);
-                toPrint = 0;
-              }
-              out.append("&gt;");
-              break;
-            }
-          case '&':
-            {
-              if (toPrint > 0) {
-                out.append(cs, c - toPrint, c);
-                toPrint = 0;
-              }
-              out.append("&amp;");
-              break;
-            }
-          // Special (X)HTML options
-          case ' ':
-            {
-              if (makeNbsp) {
-                if (toPrint > 0) {
-                  out.append(cs, c - toPrint, c);
-                  toPrint = 0;
-                }
-                out.append("&#160;");
-              } else {
-                toPrint++;
-              }
-              break;
-            }
-          case '\t':
-            {
-              if (toPrint > 0) {
-                out.append(cs, c - toPrint, c);
-                toPrint = 0;
-              }
-              out.append("&#x9;");
-              break;
-            }
-          case '\r':
-            {
-              if (toPrint > 0) {
-                out.append(cs, c - toPrint, c);
-                toPrint = 0;
-              }
-              // skip '\r'
-              break;
-            }
-          case '\n':
-            {
-              if (makeBr) {
-                if (toPrint > 0) {
-                  out.append(cs, c - toPrint, c);
-                  toPrint = 0;
-                }
-                out.append(isXhtml ? "<br />" : "<br>").append('\n');
-              } else {
-                toPrint++;
-              }
-              break;
-            }
-          default:
-            {
-              if (ch < ' ') {
-                if (toPrint > 0) {
-                  out.append(cs, c - toPrint, c);
-                  toPrint = 0;
-                }
-                // skip the character
-              } else {
-                toPrint++;
-              }
-            }
+      if (cs instanceof String && out instanceof Writer) {
+        // Avoid the substring of Writer.append(CharSequence, int, int)
+        encodeHtml((String) cs, start, end, makeBr, makeNbsp, (Writer) out, isXhtml);
+        return;
+      }
+      boolean[] escaped = getHtmlEscaped(makeBr, makeNbsp);
+      int pos = start;
+      while (pos < end) {
+        int i = indexOfHtmlEscaped(cs, pos, end, escaped);
+        if (i > pos) {
+          out.append(cs, pos, i);
+        }
+        if (i < end) {
+          String escape = getHtmlEscape(cs.charAt(i), isXhtml);
+          if (!escape.isEmpty()) {
+            out.append(escape);
+          }
         }
+        pos = i + 1;
       }
-      if (toPrint > 0) {
-        out.append(cs, end - toPrint, end);
+    }
+  }
+
+  /**
+   * Escapes for use in a (X)HTML document and writes to the provided <code>Writer</code>.
+   *
+   * @param str the string to be escaped.  If S is <code>null</code>, nothing is written.
+   *
+   * @see  #encodeHtml(java.lang.CharSequence, int, int, boolean, boolean, java.lang.Appendable, boolean)
+   *
+   * @deprecated  the effects of makeBr and makeNbsp should be handled by CSS white-space property.
+   */
+  @Deprecated
+  public static void encodeHtml(String str, int start, int end, boolean makeBr, boolean makeNbsp, Writer out, boolean isXhtml) throws IOException {
+    if (str != null) {
+      boolean[] escaped = getHtmlEscaped(makeBr, makeNbsp);
+      int pos = start;
+      while (pos < end) {
+        int i = indexOfHtmlEscaped(str, pos, end, escaped);
+        if (i > pos) {
+          out.write(str, pos, i - pos);
+        }
+        if (i < end) {
+          String escape = getHtmlEscape(str.charAt(i), isXhtml);
+          if (!escape.isEmpty()) {
+            out.write(escape);
+          }
+        }
+        pos = i + 1;
+      }
+    }
+  }
+
+  /**
+   * Escapes for use in a (X)HTML document and writes to the provided <code>Writer</code>.
+   *
+   * @param cbuf the characters to be escaped.  If <code>null</code>, nothing is written.
+   *
+   * @see  #encodeHtml(java.lang.CharSequence, int, int, boolean, boolean, java.lang.Appendable, boolean)
+   *
+   * @deprecated  the effects of makeBr and makeNbsp should be handled by CSS white-space property.
+   */
+  @Deprecated
+  public static void encodeHtml(char[] cbuf, int start, int end, boolean makeBr, boolean makeNbsp, Writer out, boolean isXhtml) throws IOException {
+    if (cbuf != null) {
+      boolean[] escaped = getHtmlEscaped(makeBr, makeNbsp);
+      int pos = start;
+      while (pos < end) {
+        int i = indexOfHtmlEscaped(cbuf, pos, end, escaped);
+        if (i > pos) {
+          out.write(cbuf, pos, i - pos);
+        }
+        if (i < end) {
+          String escape = getHtmlEscape(cbuf[i], isXhtml);
+          if (!escape.isEmpty()) {
+            out.write(escape);
+          }
+        }
+        pos = i + 1;
       }
     }
   }
@@ -261,8 +351,21 @@ public final class EncodingUtils {
     if (value == null) {
       return null;
     }
+    String str = Coercion.toString(value);
+    if (getLookupMarkup(str) == null) {
+      int len = str.length();
+      int first = indexOfHtmlEscaped(str, 0, len, getHtmlEscaped(makeBr, makeNbsp));
+      if (first == len) {
+        // Nothing to escape
+        return str;
+      }
+      StringBuilder result = new StringBuilder(len + (len >> 3));
+      result.append(str, 0, first);
+      encodeHtml(str, first, len, makeBr, makeNbsp, result, isXhtml);
+      return result.toString();
+    }
     StringBuilder result = new StringBuilder();
-    encodeHtml(value, makeBr, makeNbsp, result, isXhtml);
+    encodeHtml(str, makeBr, makeNbsp, result, isXhtml);
     return result.toString();
   }
 
@@ -0,0 +1,353 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Combines any number of wildcard patterns into a single Aho-Corasick automaton.
+ *
+ * <p>The input is matched as if surrounded by a virtual begin symbol and a virtual
+ * end symbol, neither of which may occur in a {@link String}.  Each pattern is
+ * then a sequence of literal pieces that must be found in order without overlap:
+ * a prefix is anchored by the begin symbol, a suffix by the end symbol, and an
+ * exact match by both.  For example, "prefix*infix*suffix" is the three pieces
+ * "^prefix", "infix", and "suffix$".</p>
+ *
+ * <p>All distinct pieces of all patterns are found in a single pass.  A pattern of
+ * one piece matches on the first occurrence of its piece.  Patterns of many pieces
+ * track the next piece they require; since the occurrences of any one piece are
+ * found in order, taking the first occurrence of each piece after the end of the
+ * previous one finds a match whenever one exists.</p>
+ *
+ * <p>This class is thread-safe once constructed.  Per-input state is either
+ * allocated per match or provided by the caller.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class WildcardPatternAutomaton {
+
+  /**
+   * The virtual symbol before the first character of the input.
+   */
+  private static final int BEGIN = Character.MAX_VALUE + 1;
+
+  /**
+   * The virtual symbol after the last character of the input.
+   */
+  private static final int END = Character.MAX_VALUE + 2;
+
+  private static final int ROOT = 0;
+
+  /**
+   * The sorted symbols of the children of each node.
+   */
+  private final int[][] childSymbols;
+
+  /**
+   * The children of each node, in the same order as {@link #childSymbols}.
+   */
+  private final int[][] childNodes;
+
+  /**
+   * The failure link of each node.
+   */
+  private final int[] fail;
+
+  /**
+   * The piece ending at each node or {@code -1} for none.
+   */
+  private final int[] nodePiece;
+
+  /**
+   * The nearest node along the failure links that ends a piece or {@code -1} for none.
+   */
+  private final int[] outputLink;
+
+  /**
+   * The length of each piece, including any begin or end symbol.
+   */
+  private final int[] pieceLength;
+
+  /**
+   * Any pattern consisting of only this piece matches on its first occurrence.
+   */
+  private final boolean[] pieceMatches;
+
+  /**
+   * The patterns of many pieces waiting on each piece, and which piece of the pattern it is.
+   */
+  private final int[][] pieceWaiterPatterns;
+  private final int[][] pieceWaiterIndexes;
+
+  /**
+   * The number of pieces in each pattern of many pieces.
+   */
+  private final int[] patternPieces;
+
+  WildcardPatternAutomaton(List<WildcardPatternMatcher.ParsedPattern> patterns) {
+    // Build the trie
+    List<Map<Integer, Integer>> children = new ArrayList<>();
+    children.add(new TreeMap<>());
+    List<Integer> nodePieceList = new ArrayList<>();
+    nodePieceList.add(-1);
+    Map<List<Integer>, Integer> pieceIds = new HashMap<>();
+    List<Integer> pieceLengthList = new ArrayList<>();
+    List<Boolean> pieceMatchesList = new ArrayList<>();
+    List<List<int[]>> pieceWaiters = new ArrayList<>();
+    List<Integer> patternPiecesList = new ArrayList<>();
+    for (WildcardPatternMatcher.ParsedPattern pattern : patterns) {
+      List<String> sequences = pattern.sequences;
+      int seqCount = sequences.size();
+      int[] pieces = new int[seqCount];
+      for (int i = 0; i < seqCount; i++) {
+        String sequence = sequences.get(i);
+        List<Integer> symbols = new ArrayList<>(sequence.length() + 2);
+        if (i == 0 && !pattern.startsWildcard) {
+          symbols.add(BEGIN);
+        }
+        for (int j = 0, len = sequence.length(); j < len; j++) {
+          symbols.add((int) sequence.charAt(j));
+        }
+        if (i == seqCount - 1 && !pattern.endsWildcard) {
+          symbols.add(END);
+        }
+        Integer pieceId = pieceIds.get(symbols);
+        if (pieceId == null) {
+          pieceId = pieceLengthList.size();
+          pieceIds.put(symbols, pieceId);
+          pieceLengthList.add(symbols.size());
+          pieceMatchesList.add(false);
+          pieceWaiters.add(new ArrayList<>());
+          // Add to the trie
+          int node = ROOT;
+          for (Integer symbol : symbols) {
+            Integer child = children.get(node).get(symbol);
+            if (child == null) {
+              child = children.size();
+              children.add(new TreeMap<>());
+              nodePieceList.add(-1);
+              children.get(node).put(symbol, child);
+            }
+            node = child;
+          }
+          nodePieceList.set(node, pieceId);
+        }
+        pieces[i] = pieceId;
+      }
+      if (seqCount == 1) {
+        pieceMatchesList.set(pieces[0], true);
+      } else {
+        int patternId = patternPiecesList.size();
+        patternPiecesList.add(seqCount);
+        for (int i = 0; i < seqCount; i++) {
+          pieceWaiters.get(pieces[i]).add(new int[]{patternId, i});
+        }
+      }
+    }
+    // Freeze the trie
+    final int numNodes = children.size();
+    childSymbols = new int[numNodes][];
+    childNodes = new int[numNodes][];
+    nodePiece = new int[numNodes];
+    for (int node = 0; node < numNodes; node++) {
+      Map<Integer, Integer> nodeChildren = children.get(node);
+      int[] symbols = new int[nodeChildren.size()];
+      int[] nodes = new int[symbols.length];
+      int i = 0;
+      for (Map.Entry<Integer, Integer> entry : nodeChildren.entrySet()) {
+        symbols[i] = entry.getKey();
+        nodes[i] = entry.getValue();
+        i++;
+      }
+      childSymbols[node] = symbols;
+      childNodes[node] = nodes;
+      nodePiece[node] = nodePieceList.get(node);
+    }
+    // Failure and output links, breadth-first
+    fail = new int[numNodes];
+    outputLink = new int[numNodes];
+    outputLink[ROOT] = -1;
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(ROOT);
+    while (!queue.isEmpty()) {
+      int node = queue.remove();
+      int[] symbols = childSymbols[node];
+      int[] nodes = childNodes[node];
+      for (int i = 0; i < symbols.length; i++) {
+        int child = nodes[i];
+        int childFail;
+        if (node == ROOT) {
+          childFail = ROOT;
+        } else {
+          childFail = step(fail[node], symbols[i]);
+        }
+        fail[child] = childFail;
+        outputLink[child] = nodePiece[childFail] != -1 ? childFail : outputLink[childFail];
+        queue.add(child);
+      }
+    }
+    // Pieces
+    final int numPieces = pieceLengthList.size();
+    pieceLength = new int[numPieces];
+    pieceMatches = new boolean[numPieces];
+    pieceWaiterPatterns = new int[numPieces][];
+    pieceWaiterIndexes = new int[numPieces][];
+    for (int piece = 0; piece < numPieces; piece++) {
+      pieceLength[piece] = pieceLengthList.get(piece);
+      pieceMatches[piece] = pieceMatchesList.get(piece);
+      List<int[]> waiters = pieceWaiters.get(piece);
+      int[] waiterPatterns = new int[waiters.size()];
+      int[] waiterIndexes = new int[waiterPatterns.length];
+      for (int i = 0; i < waiterPatterns.length; i++) {
+        int[] waiter = waiters.get(i);
+        waiterPatterns[i] = waiter[0];
+        waiterIndexes[i] = waiter[1];
+      }
+      pieceWaiterPatterns[piece] = waiterPatterns;
+      pieceWaiterIndexes[piece] = waiterIndexes;
+    }
+    patternPieces = new int[patternPiecesList.size()];
+    for (int i = 0; i < patternPieces.length; i++) {
+      patternPieces[i] = patternPiecesList.get(i);
+    }
+  }
+
+  /**
+   * Follows the goto function, falling back along failure links.
+   */
+  private int step(int node, int symbol) {
+    while (true) {
+      int[] symbols = childSymbols[node];
+      int i = symbols.length == 0 ? -1 : Arrays.binarySearch(symbols, symbol);
+      if (i >= 0) {
+        return childNodes[node][i];
+      }
+      if (node == ROOT) {
+        return ROOT;
+      }
+      node = fail[node];
+    }
+  }
+
+  /**
+   * The progress of each pattern of many pieces through one input.  Reused across
+   * inputs by stamping each pattern with the input it was last updated for.
+   */
+  static final class State {
+
+    private final int[] nextPiece;
+    private final int[] nextPosition;
+    private final int[] stamp;
+    private int currentStamp;
+
+    private State(int numPatterns) {
+      nextPiece = new int[numPatterns];
+      nextPosition = new int[numPatterns];
+      stamp = new int[numPatterns];
+    }
+
+    private void reset() {
+      if (++currentStamp == 0) {
+        // Wrapped, clear all stamps
+        Arrays.fill(stamp, 0);
+        currentStamp = 1;
+      }
+    }
+  }
+
+  /**
+   * Creates new state for use by a single thread.
+   */
+  State newState() {
+    return new State(patternPieces.length);
+  }
+
+  /**
+   * Checks if the input matches any pattern.
+   *
+   * @param  state  The state to reuse or {@code null} to allocate as needed.
+   */
+  boolean isMatch(String input, State state) {
+    if (state != null) {
+      state.reset();
+    }
+    final int len = input.length();
+    int node = ROOT;
+    // Virtual positions: zero is begin, one through len are the characters, and len + 1 is end
+    for (int position = 0; position <= len + 1; position++) {
+      int symbol;
+      if (position == 0) {
+        symbol = BEGIN;
+      } else if (position <= len) {
+        symbol = input.charAt(position - 1);
+      } else {
+        symbol = END;
+      }
+      node = step(node, symbol);
+      for (int output = nodePiece[node] != -1 ? node : outputLink[node]; output != -1; output = outputLink[output]) {
+        int piece = nodePiece[output];
+        if (pieceMatches[piece]) {
+          return true;
+        }
+        int[] waiterPatterns = pieceWaiterPatterns[piece];
+        if (waiterPatterns.length != 0) {
+          if (state == null) {
+            state = newState();
+            state.reset();
+          }
+          final int start = position - pieceLength[piece] + 1;
+          int[] waiterIndexes = pieceWaiterIndexes[piece];
+          for (int i = 0; i < waiterPatterns.length; i++) {
+            int pattern = waiterPatterns[i];
+            int nextPiece;
+            int nextPosition;
+            if (state.stamp[pattern] == state.currentStamp) {
+              nextPiece = state.nextPiece[pattern];
+              nextPosition = state.nextPosition[pattern];
+            } else {
+              nextPiece = 0;
+              nextPosition = 0;
+            }
+            if (nextPiece == waiterIndexes[i] && start >= nextPosition) {
+              if (++nextPiece == patternPieces[pattern]) {
+                return true;
+              }
+              state.stamp[pattern] = state.currentStamp;
+              state.nextPiece[pattern] = nextPiece;
+              state.nextPosition[pattern] = position + 1;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2013, 2017, 2018, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2013, 2017, 2018, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,6 +25,7 @@ package com.aoapps.hodgepodge.util;
 
 import com.aoapps.lang.Strings;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -91,11 +92,98 @@ public abstract class WildcardPatternMatcher {
     return matchAll;
   }
 
+  /**
+   * A single pattern split on its '*'.
+   */
+  static final class ParsedPattern {
+
+    final boolean startsWildcard;
+    final List<String> sequences;
+    final boolean endsWildcard;
+
+    private ParsedPattern(boolean startsWildcard, List<String> sequences, boolean endsWildcard) {
+      this.startsWildcard = startsWildcard;
+      this.sequences = sequences;
+      this.endsWildcard = endsWildcard;
+    }
+  }
+
+  /**
+   * Parses the comma and/or space separated patterns.
+   *
+   * @return  The non-empty patterns or {@code null} when any pattern matches all.
+   */
+  static List<ParsedPattern> parse(String patterns) {
+    List<String> list = Strings.splitCommaSpace(patterns);
+    final List<ParsedPattern> parsed = new ArrayList<>(list.size());
+    for (String pattern : list) {
+      int end = pattern.length();
+      if (end > 0) {
+        // Beginning wildcards
+        int pos = 0;
+        final boolean startsWildcard;
+        if (pattern.charAt(0) == '*') {
+          startsWildcard = true;
+          pos++;
+          // Skip consecutive beginning
+          while (pos < end && pattern.charAt(pos) == '*') {
+            pos++;
+          }
+          if (pos >= end) {
+            // Is any number of '*' only, matchAll shortcut
+            return null;
+          }
+        } else {
+          startsWildcard = false;
+        }
+        // Ending wildcards
+        final boolean endsWildcard;
+        if (pattern.charAt(end - 1) == '*') {
+          endsWildcard = true;
+          end--;
+          // Skip consecutive ending
+          while (end > pos && pattern.charAt(end - 1) == '*') {
+            end--;
+          }
+          assert end > pos;
+        } else {
+          endsWildcard = false;
+        }
+        // Split the remaining pattern on any internal '*'
+        final List<String> sequences = new ArrayList<>();
+        while (pos < end) {
+          assert pattern.charAt(pos) != '*';
+          int starPos = pattern.indexOf('*', pos + 1);
+          if (starPos == -1 || starPos >= end) {
+            // Not more '*' found
+            sequences.add(pattern.substring(pos, end));
+            pos = end;
+          } else {
+            // Found
+            sequences.add(pattern.substring(pos, starPos));
+            pos = starPos + 1;
+            // Skip consecutive
+            while (pos < end && pattern.charAt(pos) == '*') {
+              pos++;
+            }
+          }
+        }
+        assert !sequences.isEmpty();
+        parsed.add(new ParsedPattern(startsWildcard, sequences, endsWildcard));
+      }
+    }
+    return parsed;
+  }
+
   /**
    * Gets the matcher for the comma and/or space separated patterns.
    *
    * <p>Any null or empty pattern matches none.</p>
    *
+   * <p>Each pattern is matched in turn, which is fastest for a small number of
+   * patterns.  See {@link #compileAutomaton(java.lang.String)} for large numbers
+   * of patterns.</p>
+   *
    * <p>TODO: New optional flag to limit the matchers to disable the infix matching.
    * The prefix and suffix matches will always be fast O(n), but the infix matching
    * can be O(n^2).  This may be useful with public facing search forms, for example.</p>
@@ -104,167 +192,118 @@ public abstract class WildcardPatternMatcher {
     if (patterns == null || patterns.isEmpty()) {
       return matchNone;
     } else {
-      List<String> list = Strings.splitCommaSpace(patterns);
+      List<ParsedPattern> parsed = parse(patterns);
+      if (parsed == null) {
+        return matchAll;
+      }
       // Match none shortcut
-      if (list.isEmpty()) {
+      if (parsed.isEmpty()) {
         return matchNone;
       }
 
       // Parse into a series of individual matchers
-      final List<WildcardPatternMatcher> matchers = new ArrayList<>(list.size());
-      for (String pattern : list) {
-        int end = pattern.length();
-        if (end > 0) {
-          // Beginning wildcards
-          int pos = 0;
-          final boolean startsWildcard;
-          if (pattern.charAt(0) == '*') {
-            startsWildcard = true;
-            pos++;
-            // Skip consecutive beginning
-            while (pos < end && pattern.charAt(pos) == '*') {
-              pos++;
-            }
-            if (pos >= end) {
-              // Is any number of '*' only, matchAll shortcut
-              return matchAll;
-            }
-          } else {
-            startsWildcard = false;
-          }
-          // Ending wildcards
-          final boolean endsWildcard;
-          if (pattern.charAt(end - 1) == '*') {
-            endsWildcard = true;
-            end--;
-            // Skip consecutive ending
-            while (end > pos && pattern.charAt(end - 1) == '*') {
-              end--;
-            }
-            assert end > pos;
-          } else {
-            endsWildcard = false;
-          }
-          // Split the remaining pattern on any internal '*'
-          final List<String> sequences = new ArrayList<>();
-          while (pos < end) {
-            assert pattern.charAt(pos) != '*';
-            int starPos = pattern.indexOf('*', pos + 1);
-            if (starPos == -1 || starPos >= end) {
-              // Not more '*' found
-              sequences.add(pattern.substring(pos, end));
-              pos = end;
-            } else {
-              // Found
-              sequences.add(pattern.substring(pos, starPos));
-              pos = starPos + 1;
-              // Skip consecutive
-              while (pos < end && pattern.charAt(pos) == '*') {
-                pos++;
-              }
-            }
-          }
-          int seqCount = sequences.size();
-          assert seqCount >= 1;
-          if (seqCount == 1) {
-            final String sequence = sequences.get(0);
-            if (startsWildcard) {
-              if (endsWildcard) {
-                // *infix*
-                matchers.add(
-                    new WildcardPatternMatcher() {
-                      @Override
-                      public boolean isMatch(String input) {
-                        return input.contains(sequence);
-                      }
-                    }
-                );
-              } else {
-                // *suffix
-                matchers.add(
-                    new WildcardPatternMatcher() {
-                      @Override
-                      public boolean isMatch(String input) {
-                        return input.endsWith(sequence);
-                      }
+      final List<WildcardPatternMatcher> matchers = new ArrayList<>(parsed.size());
+      for (ParsedPattern pattern : parsed) {
+        final boolean startsWildcard = pattern.startsWildcard;
+        final List<String> sequences = pattern.sequences;
+        final boolean endsWildcard = pattern.endsWildcard;
+        int seqCount = sequences.size();
+        assert seqCount >= 1;
+        if (seqCount == 1) {
+          final String sequence = sequences.get(0);
+          if (startsWildcard) {
+            if (endsWildcard) {
+              // *infix*
+              matchers.add(
+                  new WildcardPatternMatcher() {
+                    @Override
+                    public boolean isMatch(String input) {
+                      return input.contains(sequence);
                     }
-                );
-              }
+                  }
+              );
             } else {
-              if (endsWildcard) {
-                // prefix*
-                matchers.add(
-                    new WildcardPatternMatcher() {
-                      @Override
-                      public boolean isMatch(String input) {
-                        return input.startsWith(sequence);
-                      }
-                    }
-                );
-              } else {
-                // exact
-                matchers.add(
-                    new WildcardPatternMatcher() {
-                      @Override
-                      public boolean isMatch(String input) {
-                        return input.equals(sequence);
-                      }
+              // *suffix
+              matchers.add(
+                  new WildcardPatternMatcher() {
+                    @Override
+                    public boolean isMatch(String input) {
+                      return input.endsWith(sequence);
                     }
-                );
-              }
+                  }
+              );
             }
           } else {
-            matchers.add(
-                new WildcardPatternMatcher() {
-                  @Override
-                  public boolean isMatch(String input) {
-                    int index = 0;
-                    int indexEnd = sequences.size();
-                    int pos = 0;
-                    int end = input.length();
-                    // Handle non-wildcard start
-                    if (!startsWildcard) {
-                      String prefix = sequences.get(0);
-                      if (!input.startsWith(prefix)) {
-                        return false;
-                      }
-                      index++;
-                      pos += prefix.length();
+            if (endsWildcard) {
+              // prefix*
+              matchers.add(
+                  new WildcardPatternMatcher() {
+                    @Override
+                    public boolean isMatch(String input) {
+                      return input.startsWith(sequence);
                     }
-                    // Handle non-wildcard end
-                    if (!endsWildcard) {
-                      indexEnd--;
-                      String suffix = sequences.get(indexEnd);
-                      if (!input.endsWith(suffix)) {
-                        return false;
-                      }
-                      end -= suffix.length();
+                  }
+              );
+            } else {
+              // exact
+              matchers.add(
+                  new WildcardPatternMatcher() {
+                    @Override
+                    public boolean isMatch(String input) {
+                      return input.equals(sequence);
                     }
-                    // Check if overlapping prefix and suffix matches
-                    if (end < pos) {
+                  }
+              );
+            }
+          }
+        } else {
+          matchers.add(
+              new WildcardPatternMatcher() {
+                @Override
+                public boolean isMatch(String input) {
+                  int index = 0;
+                  int indexEnd = sequences.size();
+                  int pos = 0;
+                  int end = input.length();
+                  // Handle non-wildcard start
+                  if (!startsWildcard) {
+                    String prefix = sequences.get(0);
+                    if (!input.startsWith(prefix)) {
                       return false;
                     }
-                    // Handle any remaining infixes
-                    while (index < indexEnd) {
-                      String sequence = sequences.get(index++);
-                      int sequenceLen = sequence.length();
-                      assert sequenceLen > 0;
-                      int foundAt = input.indexOf(sequence, pos);
-                      if (foundAt == -1 || foundAt > (end - sequenceLen)) {
-                        return false;
-                      }
-                      pos += sequenceLen;
+                    index++;
+                    pos += prefix.length();
+                  }
+                  // Handle non-wildcard end
+                  if (!endsWildcard) {
+                    indexEnd--;
+                    String suffix = sequences.get(indexEnd);
+                    if (!input.endsWith(suffix)) {
+                      return false;
+                    }
+                    end -= suffix.length();
+                  }
+                  // Check if overlapping prefix and suffix matches
+                  if (end < pos) {
+                    return false;
+                  }
+                  // Handle any remaining infixes
+                  while (index < indexEnd) {
+                    String sequence = sequences.get(index++);
+                    int sequenceLen = sequence.length();
+                    assert sequenceLen > 0;
+                    int foundAt = input.indexOf(sequence, pos);
+                    if (foundAt == -1 || foundAt > (end - sequenceLen)) {
+                      return false;
                     }
-                    return true;
+                    pos = foundAt + sequenceLen;
                   }
+                  return true;
                 }
-            );
-          }
+              }
+          );
         }
       }
-      if (matchers.isEmpty()) {
-        return matchNone;
-      }
       if (matchers.size() == 1) {
         return matchers.get(0);
       }
@@ -282,6 +321,52 @@ public abstract class WildcardPatternMatcher {
     }
   }
 
+  /**
+   * Gets the matcher for the comma and/or space separated patterns, combining
+   * all patterns into a single automaton.
+   *
+   * <p>Any null or empty pattern matches none.</p>
+   *
+   * <p>Each input is matched in a single pass, regardless of the number of patterns.
+   * This is best suited to large numbers of patterns, while {@link #compile(java.lang.String)}
+   * is faster for few patterns.</p>
+   *
+   * @see  WildcardPatternAutomaton
+   */
+  public static WildcardPatternMatcher compileAutomaton(String patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return matchNone;
+    } else {
+      List<ParsedPattern> parsed = parse(patterns);
+      if (parsed == null) {
+        return matchAll;
+      }
+      // Match none shortcut
+      if (parsed.isEmpty()) {
+        return matchNone;
+      }
+      final WildcardPatternAutomaton automaton = new WildcardPatternAutomaton(parsed);
+      return new WildcardPatternMatcher() {
+        @Override
+        public boolean isMatch(String input) {
+          return automaton.isMatch(input, null);
+        }
+
+        @Override
+        public List<String> matchAll(Collection<? extends String> inputs) {
+          List<String> matches = new ArrayList<>();
+          WildcardPatternAutomaton.State state = automaton.newState();
+          for (String input : inputs) {
+            if (automaton.isMatch(input, state)) {
+              matches.add(input);
+            }
+          }
+          return matches;
+        }
+      };
+    }
+  }
+
   private WildcardPatternMatcher() {
     // Do nothing
   }
@@ -296,4 +381,19 @@ public abstract class WildcardPatternMatcher {
 
   // TODO: Rename "matches", deprecate old with "default" method in Java 1.8?
   public abstract boolean isMatch(String input);
+
+  /**
+   * Finds all inputs that match.
+   *
+   * @return  The matching inputs, in iteration order.
+   */
+  public List<String> matchAll(Collection<? extends String> inputs) {
+    List<String> matches = new ArrayList<>();
+    for (String input : inputs) {
+      if (isMatch(input)) {
+        matches.add(input);
+      }
+    }
+    return matches;
+  }
 }
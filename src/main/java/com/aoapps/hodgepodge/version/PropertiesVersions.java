@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2011, 2013, 2016, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2011, 2013, 2016, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -28,6 +28,9 @@ import com.aoapps.lang.i18n.Resources;
 import com.aoapps.lang.util.PropertiesUtils;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
 
@@ -37,6 +40,8 @@ import java.util.ResourceBundle;
  * along with a single build.number property for the last component of the
  * version number.
  *
+ * <p>The version of every product is parsed once, when created.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public class PropertiesVersions {
@@ -49,8 +54,15 @@ public class PropertiesVersions {
     return props;
   }
 
+  private static final String BUILD_NUMBER = "build.number";
+
   private final Properties properties;
 
+  /**
+   * The versions of all products that could be parsed when created.
+   */
+  private final Map<String, Version> versions;
+
   /**
    * Loads properties from a module or classpath resource.
    *
@@ -69,15 +81,35 @@ public class PropertiesVersions {
 
   /**
    * Uses the provided properties directly, no defensive copy is made.
+   * The versions are parsed now, so later changes to the properties are not seen
+   * for products that already had a valid version.
    */
   public PropertiesVersions(Properties properties) {
     this.properties = properties;
+    Map<String, Version> newVersions = new HashMap<>();
+    String build = properties.getProperty(BUILD_NUMBER);
+    if (build != null) {
+      for (String product : properties.stringPropertyNames()) {
+        if (!BUILD_NUMBER.equals(product)) {
+          try {
+            newVersions.put(product, Version.valueOf(properties.getProperty(product) + "." + build));
+          } catch (IllegalArgumentException e) {
+            // Not a valid version, getVersion will throw the exception for this product
+          }
+        }
+      }
+    }
+    this.versions = Collections.unmodifiableMap(newVersions);
   }
 
   /**
    * Gets the version number for the provided product.
    */
   public Version getVersion(String product) throws IllegalArgumentException {
+    Version version = versions.get(product);
+    if (version != null) {
+      return version;
+    }
     String three = properties.getProperty(product);
     if (three == null) {
       throw new LocalizedIllegalArgumentException(RESOURCES, "getVersion.productNotFound", product);
@@ -89,10 +121,19 @@ public class PropertiesVersions {
    * Gets the build number that is applied to all products.
    */
   public int getBuild() throws IllegalArgumentException {
-    String build = properties.getProperty("build.number");
+    String build = properties.getProperty(BUILD_NUMBER);
     if (build == null) {
       throw new LocalizedIllegalArgumentException(RESOURCES, "getVersion.buildNotFound");
     }
     return Integer.parseInt(build);
   }
+
+  /**
+   * Gets the versions of all products with a valid version.
+   *
+   * @return  an unmodifiable map from product to version
+   */
+  public Map<String, Version> getVersions() {
+    return versions;
+  }
 }
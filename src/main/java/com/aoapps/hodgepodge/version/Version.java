@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2011, 2015, 2016, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2011, 2015, 2016, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,13 +24,56 @@
 package com.aoapps.hodgepodge.version;
 
 import com.aoapps.lang.NullArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A software version consisting of four integer components.
  *
+ * <p>Versions are ordered by major, then minor, then release, then build.</p>
+ *
  * @author  AO Industries, Inc.
  */
-public final class Version {
+public final class Version implements Comparable<Version> {
+
+  /**
+   * The maximum number of parsed values to cache.  The cache is cleared when full.
+   */
+  private static final int PARSE_CACHE_MAX_SIZE = 1000;
+
+  private static final ConcurrentMap<String, Version> parseCache = new ConcurrentHashMap<>();
+
+  /**
+   * The number of bits for each component in {@link #packed}.
+   */
+  private static final int PACKED_BITS = 16;
+
+  private static final int PACKED_MAX = (1 << PACKED_BITS) - 1;
+
+  /**
+   * The major version has one less bit, keeping the packed value positive.
+   */
+  private static final int PACKED_MAJOR_MAX = PACKED_MAX >>> 1;
+
+  /**
+   * Packs the components into a single value that sorts in the same order as the version,
+   * or {@code -1} when any component is negative or too large to pack.
+   */
+  private static long pack(int major, int minor, int release, int build) {
+    if (
+        major < 0 || major > PACKED_MAJOR_MAX
+            || minor < 0 || minor > PACKED_MAX
+            || release < 0 || release > PACKED_MAX
+            || build < 0 || build > PACKED_MAX
+    ) {
+      return -1;
+    }
+    return
+        ((long) major << (PACKED_BITS * 3))
+            | ((long) minor << (PACKED_BITS * 2))
+            | ((long) release << PACKED_BITS)
+            | build;
+  }
 
   /**
    * Gets a version number instance from its component parts.
@@ -46,11 +89,27 @@ public final class Version {
 
   /**
    * Parses a version number from its string representation.
+   * The same instance is returned for recently parsed strings.
    *
    * @see  #toString()
    */
   public static Version valueOf(String version) throws IllegalArgumentException {
     NullArgumentException.checkNotNull(version, "version");
+    Version parsed = parseCache.get(version);
+    if (parsed == null) {
+      parsed = parse(version);
+      if (parseCache.size() >= PARSE_CACHE_MAX_SIZE) {
+        parseCache.clear();
+      }
+      Version existing = parseCache.putIfAbsent(version, parsed);
+      if (existing != null) {
+        parsed = existing;
+      }
+    }
+    return parsed;
+  }
+
+  private static Version parse(String version) throws IllegalArgumentException {
     int dot1Pos = version.indexOf('.');
     if (dot1Pos == -1) {
       throw new IllegalArgumentException(version);
@@ -64,10 +123,10 @@ public final class Version {
       throw new IllegalArgumentException(version);
     }
     return getInstance(
-        Integer.parseInt(version.substring(0, dot1Pos)),
-        Integer.parseInt(version.substring(dot1Pos + 1, dot2Pos)),
-        Integer.parseInt(version.substring(dot2Pos + 1, dot3Pos)),
-        Integer.parseInt(version.substring(dot3Pos + 1))
+        Integer.parseInt(version, 0, dot1Pos, 10),
+        Integer.parseInt(version, dot1Pos + 1, dot2Pos, 10),
+        Integer.parseInt(version, dot2Pos + 1, dot3Pos, 10),
+        Integer.parseInt(version, dot3Pos + 1, version.length(), 10)
     );
   }
 
@@ -76,6 +135,13 @@ public final class Version {
   private final int release;
   private final int build;
 
+  /**
+   * The packed components or {@code -1} when not packed.
+   *
+   * @see  #pack(int, int, int, int)
+   */
+  private final long packed;
+
   private Version(
       int major,
       int minor,
@@ -86,6 +152,7 @@ public final class Version {
     this.minor = minor;
     this.release = release;
     this.build = build;
+    this.packed = pack(major, minor, release, build);
   }
 
   /**
@@ -104,6 +171,9 @@ public final class Version {
       return false;
     }
     Version other = (Version) obj;
+    if (packed != -1) {
+      return packed == other.packed;
+    }
     return
         build == other.build // Build changes most - check first
             && release == other.release
@@ -120,6 +190,33 @@ public final class Version {
     return hash;
   }
 
+  /**
+   * Orders by major, then minor, then release, then build.  When the major version is between
+   * {@code 0} and {@code 32767} and the other components between {@code 0} and {@code 65535},
+   * compares a single packed value.
+   */
+  @Override
+  public int compareTo(Version other) {
+    long p1 = packed;
+    long p2 = other.packed;
+    if (p1 != -1 && p2 != -1) {
+      return Long.compare(p1, p2);
+    }
+    int diff = Integer.compare(major, other.major);
+    if (diff != 0) {
+      return diff;
+    }
+    diff = Integer.compare(minor, other.minor);
+    if (diff != 0) {
+      return diff;
+    }
+    diff = Integer.compare(release, other.release);
+    if (diff != 0) {
+      return diff;
+    }
+    return Integer.compare(build, other.build);
+  }
+
   /**
    * Gets the major version number.
    *
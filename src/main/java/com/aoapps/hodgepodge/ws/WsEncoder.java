@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2010, 2011, 2016, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2010, 2011, 2016, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,6 +24,11 @@
 package com.aoapps.hodgepodge.ws;
 
 import com.aoapps.lang.Strings;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 
 /**
  * SOAP web services cannot send invalid whitespace characters.  In order to not
@@ -33,6 +38,11 @@ import com.aoapps.lang.Strings;
  * results in binary transparency when both sides use these encode and
  * decode methods.
  *
+ * <p>Large values may be streamed with {@link #newEncoder(java.io.Writer)} and
+ * {@link #newDecoder(java.io.Reader)}, which use bounded memory, or transformed between
+ * buffers with {@link #encode(java.nio.CharBuffer, java.nio.CharBuffer)} and
+ * {@link #decode(java.nio.CharBuffer, java.nio.CharBuffer, boolean)}.</p>
+ *
  * @author  AO Industries, Inc.
  */
 public final class WsEncoder {
@@ -61,6 +71,58 @@ public final class WsEncoder {
       'f'
   };
 
+  /**
+   * The encoding of each character up to and including {@code '\\'}, or {@code null}
+   * when the character is not encoded.  All characters above are not encoded.
+   */
+  private static final String[] encodings = new String['\\' + 1];
+
+  static {
+    for (char ch = 0; ch < ' '; ch++) {
+      if (ch == '\b') {
+        encodings[ch] = "\\b";
+      } else if (ch == '\f') {
+        encodings[ch] = "\\f";
+      } else if (ch == '\t') {
+        encodings[ch] = "\\t";
+      } else if (ch != '\n' && ch != '\r') {
+        encodings[ch] = new String(new char[]{
+            '\\',
+            'u',
+            hexChars[(ch >>> 12) & 15],
+            hexChars[(ch >>> 8) & 15],
+            hexChars[(ch >>> 4) & 15],
+            hexChars[ch & 15]
+        });
+      }
+    }
+    encodings['\\'] = "\\\\";
+  }
+
+  /**
+   * The value of each hexadecimal digit or {@code -1} when not a hexadecimal digit.
+   */
+  private static final byte[] hexValues = new byte['f' + 1];
+
+  static {
+    Arrays.fill(hexValues, (byte) -1);
+    for (char ch = '0'; ch <= '9'; ch++) {
+      hexValues[ch] = (byte) (ch - '0');
+    }
+    for (char ch = 'a'; ch <= 'f'; ch++) {
+      hexValues[ch] = (byte) (ch - 'a' + 10);
+      hexValues[ch - 'a' + 'A'] = (byte) (ch - 'a' + 10);
+    }
+  }
+
+  private static String getEncoding(char ch) {
+    return ch <= '\\' ? encodings[ch] : null;
+  }
+
+  private static int getHexValue(char ch) {
+    return ch <= 'f' ? hexValues[ch] : -1;
+  }
+
   /**
    * Encodes string for binary transparency over SOAP.
    */
@@ -71,42 +133,286 @@ public final class WsEncoder {
 
     StringBuilder encoded = null;
     int len = value.length();
+    int unwritten = 0;
     for (int c = 0; c < len; c++) {
-      char ch = value.charAt(c);
-      if (
-          (ch < ' ' && ch != '\n' && ch != '\r')
-              || ch == '\\'
-      ) {
+      String encoding = getEncoding(value.charAt(c));
+      if (encoding != null) {
         if (encoded == null) {
-          encoded = new StringBuilder();
-          if (c > 0) {
-            encoded.append(value, 0, c);
+          encoded = new StringBuilder(len + 16);
+        }
+        encoded.append(value, unwritten, c).append(encoding);
+        unwritten = c + 1;
+      }
+    }
+    return encoded == null ? value : encoded.append(value, unwritten, len).toString();
+  }
+
+  /**
+   * Encodes as much of the source as fits in the destination.  An encoded character is
+   * never split, so the destination may have space remaining when the source is not empty.
+   */
+  public static void encode(CharBuffer src, CharBuffer dst) {
+    while (src.hasRemaining()) {
+      int pos = src.position();
+      char ch = src.get(pos);
+      String encoding = getEncoding(ch);
+      if (encoding == null) {
+        if (!dst.hasRemaining()) {
+          return;
+        }
+        dst.put(ch);
+      } else {
+        if (dst.remaining() < encoding.length()) {
+          return;
+        }
+        dst.put(encoding);
+      }
+      src.position(pos + 1);
+    }
+  }
+
+  /**
+   * Copies the given number of characters from the source without decoding, when they fit.
+   *
+   * @return  {@code true} when copied
+   */
+  private static boolean copy(CharBuffer src, CharBuffer dst, int len) {
+    if (dst.remaining() < len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      dst.put(src.get());
+    }
+    return true;
+  }
+
+  /**
+   * Decodes as much of the source as fits in the destination, the same as
+   * {@link #decode(java.lang.String)}.  An escape sequence at the end of the source is left in
+   * the source until more characters are available, unless at the end of input.
+   * The destination must have space for six characters to ensure progress.
+   *
+   * @param  endOfInput  when no more characters will follow the source
+   */
+  public static void decode(CharBuffer src, CharBuffer dst, boolean endOfInput) {
+    while (src.hasRemaining() && dst.hasRemaining()) {
+      int pos = src.position();
+      char ch = src.get(pos);
+      if (ch != '\\') {
+        dst.put(ch);
+        src.position(pos + 1);
+        continue;
+      }
+      int remaining = src.remaining();
+      if (remaining < 2) {
+        if (!endOfInput) {
+          return;
+        }
+        dst.put('\\');
+        src.position(pos + 1);
+        continue;
+      }
+      char ch1 = src.get(pos + 1);
+      char decoded;
+      if (ch1 == '\\') {
+        decoded = '\\';
+      } else if (ch1 == 'b' || ch1 == 'B') {
+        decoded = '\b';
+      } else if (ch1 == 'f' || ch1 == 'F') {
+        decoded = '\f';
+      } else if (ch1 == 't' || ch1 == 'T') {
+        decoded = '\t';
+      } else if (ch1 == 'u' || ch1 == 'U') {
+        int value = 0;
+        int literalLength = -1;
+        for (int i = 2; i < 6; i++) {
+          if (i >= remaining) {
+            if (!endOfInput) {
+              return;
+            }
+            literalLength = i;
+            break;
+          }
+          int hex = getHexValue(src.get(pos + i));
+          if (hex == -1) {
+            // Not an escape, including the non-hexadecimal character
+            literalLength = i + 1;
+            break;
           }
+          value = (value << 4) | hex;
         }
-        if (ch == '\\') {
-          encoded.append("\\\\");
-        } else if (ch == '\b') {
-          encoded.append("\\b");
-        } else if (ch == '\f') {
-          encoded.append("\\f");
-        } else if (ch == '\t') {
-          encoded.append("\\t");
-        } else {
-          int ich = ch;
-          encoded
-              .append("\\u")
-              .append(hexChars[(ich >>> 12) & 15])
-              .append(hexChars[(ich >>> 8) & 15])
-              .append(hexChars[(ich >>> 4) & 15])
-              .append(hexChars[ich & 15]);
+        if (literalLength != -1) {
+          if (!copy(src, dst, literalLength)) {
+            return;
+          }
+          continue;
         }
+        dst.put((char) value);
+        src.position(pos + 6);
+        continue;
       } else {
-        if (encoded != null) {
-          encoded.append(ch);
+        if (!copy(src, dst, 2)) {
+          return;
+        }
+        continue;
+      }
+      dst.put(decoded);
+      src.position(pos + 2);
+    }
+  }
+
+  /**
+   * The size of the buffers used by streaming encoders and decoders.
+   */
+  private static final int BUFFER_SIZE = 4096;
+
+  private static final class EncoderWriter extends Writer {
+
+    private final Writer out;
+    private final CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+
+    private EncoderWriter(Writer out) {
+      this.out = out;
+    }
+
+    private void writeBuffer() throws IOException {
+      if (buffer.position() > 0) {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+    }
+
+    private void write(CharBuffer src) throws IOException {
+      while (true) {
+        encode(src, buffer);
+        if (!src.hasRemaining()) {
+          break;
         }
+        writeBuffer();
       }
     }
-    return encoded == null ? value : encoded.toString();
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      write(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      write(CharBuffer.wrap(str, off, off + len));
+    }
+
+    @Override
+    public void flush() throws IOException {
+      writeBuffer();
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      writeBuffer();
+      out.close();
+    }
+  }
+
+  /**
+   * Gets a writer that encodes all characters to the given writer, using bounded memory.
+   * Closing the writer closes the given writer.
+   *
+   * @see  #encode(java.lang.String)
+   */
+  public static Writer newEncoder(Writer out) {
+    return new EncoderWriter(out);
+  }
+
+  /**
+   * The longest escape sequence, which is also the longest sequence copied without decoding.
+   */
+  private static final int MAX_SEQUENCE_LENGTH = 6;
+
+  private static final class DecoderReader extends Reader {
+
+    private final Reader in;
+    private final CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The decoded characters not yet read, when read in less than whole sequences.
+     */
+    private final CharBuffer partial = CharBuffer.allocate(MAX_SEQUENCE_LENGTH);
+
+    private boolean endOfInput;
+
+    private DecoderReader(Reader in) {
+      this.in = in;
+      buffer.flip();
+      partial.flip();
+    }
+
+    /**
+     * Decodes into the destination, which must have space for the longest sequence.
+     *
+     * @return  the number of characters decoded or {@code -1} when at end of input
+     */
+    private int decode(CharBuffer dst) throws IOException {
+      int start = dst.position();
+      while (true) {
+        WsEncoder.decode(buffer, dst, endOfInput);
+        int count = dst.position() - start;
+        if (count > 0) {
+          return count;
+        }
+        if (endOfInput) {
+          return -1;
+        }
+        buffer.compact();
+        try {
+          if (in.read(buffer) == -1) {
+            endOfInput = true;
+          }
+        } finally {
+          buffer.flip();
+        }
+      }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (off < 0 || len < 0 || off > cbuf.length - len) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (!partial.hasRemaining() && len < MAX_SEQUENCE_LENGTH) {
+        partial.clear();
+        int count = decode(partial);
+        partial.flip();
+        if (count == -1) {
+          return -1;
+        }
+      }
+      if (partial.hasRemaining()) {
+        int count = Math.min(partial.remaining(), len);
+        partial.get(cbuf, off, count);
+        return count;
+      }
+      return decode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Gets a reader that decodes all characters from the given reader, using bounded memory.
+   * Closing the reader closes the given reader.
+   *
+   * @see  #decode(java.lang.String)
+   */
+  public static Reader newDecoder(Reader in) {
+    return new DecoderReader(in);
   }
 
   @SuppressWarnings({"AssignmentToForLoopParameter", "deprecation"})
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -33,6 +33,7 @@ module com.aoapps.hodgepodge {
   exports com.aoapps.hodgepodge.logging;
   exports com.aoapps.hodgepodge.md5;
   exports com.aoapps.hodgepodge.net;
+  //exports com.aoapps.hodgepodge.net.relay; // Internal selector engine shared by io and net
   exports com.aoapps.hodgepodge.rmi;
   exports com.aoapps.hodgepodge.schedule;
   exports com.aoapps.hodgepodge.sort;
@@ -52,4 +53,6 @@ module com.aoapps.hodgepodge {
   requires java.logging;
   requires java.rmi;
   requires java.sql;
+  // JDK
+  requires static jdk.unsupported; // com.sun.nio.file.ExtendedOpenOption.DIRECT, looked up reflectively
 }
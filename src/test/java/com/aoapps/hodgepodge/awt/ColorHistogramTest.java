@@ -0,0 +1,117 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.awt;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class ColorHistogramTest {
+
+  private static Map<Integer, Integer> toMap(ColorHistogram histogram) {
+    int[] colors = histogram.getColors();
+    int[] counts = histogram.getCounts();
+    assertEquals(histogram.size(), colors.length);
+    assertEquals(histogram.size(), counts.length);
+    Map<Integer, Integer> map = new HashMap<>();
+    for (int i = 0; i < colors.length; i++) {
+      assertEquals(counts[i], histogram.get(colors[i]));
+      map.put(colors[i], counts[i]);
+    }
+    return map;
+  }
+
+  @Test
+  public void testAdd() {
+    Random random = new Random(0);
+    ColorHistogram histogram = new ColorHistogram();
+    Map<Integer, Integer> expected = new HashMap<>();
+    // Enough colors to grow several times, including colors with equal low bits
+    for (int i = 0; i < 100000; i++) {
+      int color = random.nextBoolean() ? random.nextInt(5000) << 16 : random.nextInt();
+      int count = 1 + random.nextInt(10);
+      histogram.add(color, count);
+      expected.merge(color, count, Integer::sum);
+    }
+    assertEquals(expected, toMap(histogram));
+    assertEquals(0, histogram.get(Integer.MIN_VALUE + 1));
+  }
+
+  @Test
+  public void testAddAll() {
+    ColorHistogram histogram = new ColorHistogram();
+    histogram.add(1, 2);
+    histogram.add(3, 4);
+    ColorHistogram other = new ColorHistogram();
+    other.add(3, 5);
+    other.add(6, 7);
+    histogram.addAll(other);
+    Map<Integer, Integer> expected = new HashMap<>();
+    expected.put(1, 2);
+    expected.put(3, 9);
+    expected.put(6, 7);
+    assertEquals(expected, toMap(histogram));
+  }
+
+  /**
+   * Counts the same in parallel as one pixel at a time, for each way of reading the rows.
+   */
+  @Test
+  public void testOf() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR}) {
+        Random random = new Random(type);
+        // Large enough to be split into bands, with runs of the same color
+        BufferedImage image = new BufferedImage(700, 400, type);
+        int color = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+          for (int x = 0; x < image.getWidth(); x++) {
+            if (random.nextInt(4) == 0) {
+              color = 0xff000000 | random.nextInt(1000) * 0x10101;
+            }
+            image.setRGB(x, y, color);
+          }
+        }
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int y = 0; y < image.getHeight(); y++) {
+          for (int x = 0; x < image.getWidth(); x++) {
+            expected.merge(image.getRGB(x, y), 1, Integer::sum);
+          }
+        }
+        assertEquals(expected, toMap(ColorHistogram.of(image, pool)));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.awt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class OptimalIndexColorModelTest {
+
+  /**
+   * The image types read directly from their raster, and one read through its color model.
+   */
+  private static final int[] IMAGE_TYPES = {
+      BufferedImage.TYPE_INT_RGB,
+      BufferedImage.TYPE_INT_ARGB,
+      BufferedImage.TYPE_3BYTE_BGR
+  };
+
+  /**
+   * Creates an image of randomly placed colors chosen from the given number of random colors.
+   */
+  private static BufferedImage newImage(int type, int width, int height, int numColors, long seed) {
+    Random random = new Random(seed);
+    Set<Integer> colorSet = new HashSet<>();
+    while (colorSet.size() < numColors) {
+      colorSet.add(0xff000000 | random.nextInt(0x1000000));
+    }
+    Integer[] colors = colorSet.toArray(new Integer[numColors]);
+    BufferedImage image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        // Every color is used at least once
+        int i = y * width + x;
+        image.setRGB(x, y, colors[i < numColors ? i : random.nextInt(numColors)]);
+      }
+    }
+    return image;
+  }
+
+  private static Set<Integer> getColors(BufferedImage image) {
+    Set<Integer> colors = new HashSet<>();
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        colors.add(image.getRGB(x, y));
+      }
+    }
+    return colors;
+  }
+
+  private static Set<Integer> getPalette(IndexColorModel colorModel) {
+    int[] palette = new int[colorModel.getMapSize()];
+    colorModel.getRGBs(palette);
+    Set<Integer> colors = new HashSet<>();
+    for (int color : palette) {
+      colors.add(color);
+    }
+    assertEquals("Palette colors must be distinct", palette.length, colors.size());
+    return colors;
+  }
+
+  private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+
+  /**
+   * When there are no more than 256 colors, each is kept exactly and the image round-trips.
+   */
+  @Test
+  public void testMedianCutExactColors() {
+    for (int type : IMAGE_TYPES) {
+      for (int numColors : new int[]{1, 2, 3, 100, 256}) {
+        BufferedImage image = newImage(type, 40, 30, numColors, numColors);
+        OptimalIndexColorModel colorModel = OptimalIndexColorModel.getMedianCutIndexColorModel(image);
+        assertEquals(numColors, colorModel.getMapSize());
+        assertEquals(getColors(image), getPalette(colorModel));
+        BufferedImage indexed = OptimalIndexColorModel.getIndexedImage(image, colorModel);
+        assertEquals(BufferedImage.TYPE_BYTE_INDEXED, indexed.getType());
+        assertSameImage(image, indexed);
+      }
+    }
+  }
+
+  @Test
+  public void testMedianCutPaletteSize() {
+    for (int numColors : new int[]{257, 1000, 4000}) {
+      BufferedImage image = newImage(BufferedImage.TYPE_INT_RGB, 80, 60, numColors, numColors);
+      OptimalIndexColorModel colorModel = OptimalIndexColorModel.getMedianCutIndexColorModel(image);
+      assertEquals(256, colorModel.getMapSize());
+      // Every pixel maps onto the palette
+      Set<Integer> palette = getPalette(colorModel);
+      BufferedImage indexed = OptimalIndexColorModel.getIndexedImage(image, colorModel);
+      assertTrue(palette.containsAll(getColors(indexed)));
+    }
+  }
+
+  /**
+   * The palette does not depend on how the colors were counted in parallel.
+   */
+  @Test
+  public void testMedianCutParallel() {
+    // Large enough to be split into bands
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, (x * 255 / 639) << 16 | (y * 255 / 479) << 8 | ((x ^ y) & 255));
+      }
+    }
+    ForkJoinPool serial = new ForkJoinPool(1);
+    ForkJoinPool parallel = new ForkJoinPool(4);
+    try {
+      assertEquals(
+          getPalette(OptimalIndexColorModel.getMedianCutIndexColorModel(image, serial)),
+          getPalette(OptimalIndexColorModel.getMedianCutIndexColorModel(image, parallel))
+      );
+      assertEquals(
+          getPalette(OptimalIndexColorModel.getOptimalIndexColorModel(image, serial)),
+          getPalette(OptimalIndexColorModel.getOptimalIndexColorModel(image, parallel))
+      );
+    } finally {
+      serial.shutdown();
+      parallel.shutdown();
+    }
+  }
+
+  @Test
+  public void testOptimalPaletteSize() {
+    BufferedImage image = newImage(BufferedImage.TYPE_INT_RGB, 40, 30, 100, 0);
+    OptimalIndexColorModel colorModel = OptimalIndexColorModel.getOptimalIndexColorModel(image);
+    assertEquals(100, colorModel.getMapSize());
+    assertEquals(getColors(image), getPalette(colorModel));
+    assertSameImage(image, OptimalIndexColorModel.getIndexedImage(image, colorModel));
+
+    image = newImage(BufferedImage.TYPE_INT_RGB, 80, 60, 1000, 0);
+    colorModel = OptimalIndexColorModel.getOptimalIndexColorModel(image);
+    assertEquals(256, colorModel.getMapSize());
+    assertTrue(getColors(image).containsAll(getPalette(colorModel)));
+  }
+
+  /**
+   * Dark colors are kept over more used light colors.
+   */
+  @Test
+  public void testOptimalKeepsDarkColors() {
+    BufferedImage image = newImage(BufferedImage.TYPE_INT_RGB, 80, 60, 1000, 1);
+    // A dark color used only once
+    int dark = 0xff102030;
+    image.setRGB(0, 0, dark);
+    assertTrue(getPalette(OptimalIndexColorModel.getOptimalIndexColorModel(image)).contains(dark));
+  }
+
+  @Test
+  public void testIndexedImageNearest() {
+    int[] palette = {0x000000, 0xffffff, 0xff0000};
+    IndexColorModel colorModel = new IndexColorModel(8, palette.length, palette, 0, false, -1, 0);
+    BufferedImage image = new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, 0x101010);
+    image.setRGB(1, 0, 0xf0f0e0);
+    image.setRGB(2, 0, 0xc02010);
+    image.setRGB(3, 0, 0x101010);
+    BufferedImage indexed = OptimalIndexColorModel.getIndexedImage(image, colorModel);
+    byte[] indexes = new byte[4];
+    indexed.getRaster().getDataElements(0, 0, 4, 1, indexes);
+    assertEquals("[0, 1, 2, 0]", Arrays.toString(indexes));
+  }
+
+  @Test
+  public void testIndexedImageTooManyColors() {
+    int[] palette = new int[257];
+    for (int i = 0; i < palette.length; i++) {
+      palette[i] = i;
+    }
+    IndexColorModel colorModel = new IndexColorModel(16, palette.length, palette, 0, false, -1, DataBuffer.TYPE_USHORT);
+    try {
+      OptimalIndexColorModel.getIndexedImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), colorModel);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2014, 2016, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2014, 2016, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,12 +24,15 @@
 package com.aoapps.hodgepodge.awt.image;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -92,4 +95,23 @@ public class ImagesTest {
     Point foundAt = Images.findImage(image, findme, 0);
     assertEquals(new Point(687, 524), foundAt);
   }
+
+  @Test
+  public void testFindImageTolerance() {
+    Point foundAt = Images.findImage(image, findme, 0.1);
+    assertEquals(new Point(687, 523), foundAt);
+  }
+
+  @Test
+  public void testFindAllImages() {
+    assertEquals(
+        Collections.singletonList(new Point(687, 524)),
+        Images.findAllImages(image, findme, 0)
+    );
+    List<Point> foundAt = Images.findAllImages(image, findme, 0.1);
+    assertEquals(18, foundAt.size());
+    assertEquals(new Point(687, 523), foundAt.get(0));
+    assertTrue(foundAt.contains(new Point(687, 524)));
+    assertEquals(new Point(687, 525), foundAt.get(foundAt.size() - 1));
+  }
 }
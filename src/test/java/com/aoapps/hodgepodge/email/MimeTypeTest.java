@@ -0,0 +1,187 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.email;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+@SuppressWarnings("deprecation")
+public class MimeTypeTest extends TestCase {
+
+  public MimeTypeTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(MimeTypeTest.class);
+  }
+
+  public void testGetMimeType() {
+    assertEquals("image/tiff", MimeType.getMimeType("photo.TIF"));
+    assertEquals("image/tiff", MimeType.getMimeType("/path/to.some/photo.Tiff"));
+    assertEquals("application/x-gzip", MimeType.getMimeType("archive.tar.gz"));
+    assertEquals(MimeType.getMimeType("a.txt"), MimeType.getMimeType(".txt"));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("txt"));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("file.txt."));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("file.unknown"));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType(""));
+    assertEquals(MimeType.getMimeType("a.js.map"), MimeType.getMimeType("styles.min.CSS.map"));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("styles.map"));
+  }
+
+  /**
+   * Looks-up by substring, as before the trie.
+   */
+  private static String getMimeTypeReference(Map<String, String> extensions, String filename) {
+    int dotPos = filename.lastIndexOf('.');
+    if (dotPos != -1) {
+      String type = extensions.get(filename.substring(dotPos + 1).toLowerCase(Locale.ROOT));
+      if (type != null) {
+        return type;
+      }
+      dotPos = filename.lastIndexOf('.', dotPos - 1);
+      if (dotPos != -1) {
+        type = extensions.get(filename.substring(dotPos + 1).toLowerCase(Locale.ROOT));
+        if (type != null) {
+          return type;
+        }
+      }
+    }
+    return MimeType.DEFAULT_MIME_TYPE;
+  }
+
+  public void testSameAsReference() {
+    Map<String, String> extensions = MimeType.getDefaultMappings().getExtensions();
+    String alphabet = "cssCSS.mapjxtTgz";
+    Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      char[] chars = new char[random.nextInt(12)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+      }
+      String filename = new String(chars);
+      assertEquals(filename, getMimeTypeReference(extensions, filename), MimeType.getMimeType(filename));
+    }
+  }
+
+  /**
+   * Times the trie against looking-up by substring, on paths with known, unknown, compound, and missing extensions.
+   */
+  public void testPerformance() {
+    Map<String, String> extensions = MimeType.getDefaultMappings().getExtensions();
+    List<String> knownExtensions = new ArrayList<>(extensions.keySet());
+    Collections.sort(knownExtensions);
+    String[] directories = {"", "images/", "/var/www/html/", "C:\\Users\\Public\\Documents\\", "/home/user/.cache/build.output/"};
+    final int numFilenames = 100000;
+    Random random = new Random(0);
+    List<String> filenames = new ArrayList<>(numFilenames);
+    for (int i = 0; i < numFilenames; i++) {
+      StringBuilder filename = new StringBuilder();
+      filename.append(directories[random.nextInt(directories.length)]).append("file").append(random.nextInt(1000));
+      switch (random.nextInt(10)) {
+        case 0:
+          // No extension
+          break;
+        case 1:
+          filename.append(".unknown");
+          break;
+        case 2:
+          filename.append(".min.").append(knownExtensions.get(random.nextInt(knownExtensions.size())));
+          break;
+        default: {
+          String extension = knownExtensions.get(random.nextInt(knownExtensions.size()));
+          filename.append('.').append(random.nextBoolean() ? extension : extension.toUpperCase(Locale.ROOT));
+        }
+      }
+      filenames.add(filename.toString());
+    }
+    System.out.println("Trie vs substring of " + extensions.size() + " extensions, " + numFilenames + " filenames");
+    for (int repeat = 0; repeat < 3; repeat++) {
+      String[] referenceTypes = new String[numFilenames];
+      long startNanos = System.nanoTime();
+      for (int i = 0; i < numFilenames; i++) {
+        referenceTypes[i] = getMimeTypeReference(extensions, filenames.get(i));
+      }
+      long referenceNanos = System.nanoTime() - startNanos;
+      String[] trieTypes = new String[numFilenames];
+      startNanos = System.nanoTime();
+      for (int i = 0; i < numFilenames; i++) {
+        trieTypes[i] = MimeType.getMimeType(filenames.get(i));
+      }
+      long trieNanos = System.nanoTime() - startNanos;
+      assertTrue(Arrays.equals(referenceTypes, trieTypes));
+      System.out.println(
+          "    Substring in " + BigDecimal.valueOf(referenceNanos / 1000, 3) + " ms, trie in "
+              + BigDecimal.valueOf(trieNanos / 1000, 3) + " ms ("
+              + ((float) ((double) referenceNanos / (double) trieNanos)) + ')'
+      );
+    }
+  }
+
+  public void testMimeTypes() throws IOException {
+    Map<String, String> parsed = MimeType.parseMimeTypes(new StringReader(
+        "# Comment\n"
+            + "\n"
+            + "text/markdown\tmd markdown # trailing comment\n"
+            + "image/webp  WEBP\n"
+            + "application/x-tar-gz tar.gz\n"
+    ));
+    assertEquals(4, parsed.size());
+    MimeType.Mappings mappings = MimeType.getDefaultMappings().with(parsed);
+    assertEquals("text/markdown", mappings.getMimeType("README.MD"));
+    assertEquals("image/webp", mappings.getMimeType("a.webp"));
+    assertEquals("application/x-gzip", mappings.getMimeType("a.gz"));
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("README.md"));
+    try {
+      MimeType.setMappings(mappings);
+      assertEquals("text/markdown", MimeType.getMimeType("README.md"));
+    } finally {
+      MimeType.setMappings(null);
+    }
+    assertEquals(MimeType.DEFAULT_MIME_TYPE, MimeType.getMimeType("README.md"));
+  }
+
+  public void testEmptyExtension() {
+    try {
+      new MimeType.Mappings(Collections.singletonMap("", "text/plain"));
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+}
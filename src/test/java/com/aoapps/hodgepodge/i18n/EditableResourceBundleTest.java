@@ -0,0 +1,365 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.i18n;
+
+import com.aoapps.lang.io.Encoder;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class EditableResourceBundleTest extends TestCase {
+
+  public EditableResourceBundleTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(EditableResourceBundleTest.class);
+  }
+
+  public static class TestBundle extends EditableResourceBundle {
+    public TestBundle(Locale locale, EditableResourceBundleSet bundleSet, File sourceFile) {
+      super(locale, bundleSet, sourceFile);
+    }
+  }
+
+  /**
+   * Writes all characters unchanged.
+   */
+  private static final Encoder passthrough = new Encoder() {
+    @Override
+    public void writePrefixTo(Appendable out) {
+      // No prefix
+    }
+
+    @Override
+    public void write(int c, Writer out) throws IOException {
+      out.write(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, Writer out) throws IOException {
+      out.write(cbuf);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len, Writer out) throws IOException {
+      out.write(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, Writer out) throws IOException {
+      out.write(str);
+    }
+
+    @Override
+    public void write(String str, int off, int len, Writer out) throws IOException {
+      out.write(str, off, len);
+    }
+
+    @Override
+    public Encoder append(char c, Appendable out) throws IOException {
+      out.append(c);
+      return this;
+    }
+
+    @Override
+    public Encoder append(CharSequence csq, Appendable out) throws IOException {
+      out.append(csq);
+      return this;
+    }
+
+    @Override
+    public Encoder append(CharSequence csq, int start, int end, Appendable out) throws IOException {
+      out.append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void writeSuffixTo(Appendable out) {
+      // No suffix
+    }
+  };
+
+  private File dir;
+  private EditableResourceBundleSet bundleSet;
+  private TestBundle en;
+  private TestBundle fr;
+
+  private File newFile(String name, String contents) throws IOException {
+    File file = new File(dir, name);
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.ISO_8859_1));
+    return file;
+  }
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("EditableResourceBundleTest").toFile();
+    bundleSet = new EditableResourceBundleSet(TestBundle.class, Locale.ENGLISH, Locale.FRENCH);
+    en = new TestBundle(Locale.ENGLISH, bundleSet, newFile("en.properties", "a=A\nb=B\nc=C\n"));
+    fr = new TestBundle(Locale.FRENCH, bundleSet, newFile("fr.properties", "b=Bé\n"));
+  }
+
+  @Override
+  protected void tearDown() {
+    EditableResourceBundle.resetThreadSettings();
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  /**
+   * Waits for the clock to advance so each modification has a distinct time.
+   */
+  private static void nextMillis() {
+    long start = System.currentTimeMillis();
+    while (System.currentTimeMillis() == start) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Gets the TEXT markup prefix of a string just looked-up on the current thread.
+   */
+  private static String getTextPrefix(String value) throws IOException {
+    StringBuilder prefix = new StringBuilder();
+    BundleLookupThreadContext.getThreadContext().getLookupMarkup(value).appendPrefixTo(MarkupType.TEXT, prefix);
+    return prefix.toString();
+  }
+
+  /**
+   * Gets the lookup ID of a string just looked-up on the current thread.
+   */
+  private static long getLookupId(String value) throws IOException {
+    StringBuilder prefix = new StringBuilder();
+    BundleLookupThreadContext.getThreadContext().getLookupMarkup(value).appendPrefixTo(MarkupType.JAVASCRIPT, prefix);
+    Matcher matcher = Pattern.compile("/\\*(\\d+)\\*/").matcher(prefix);
+    assertTrue(prefix.toString(), matcher.matches());
+    return Long.parseLong(matcher.group(1));
+  }
+
+  /**
+   * Gets the contents of a JavaScript array of numbers, or of arrays of numbers, from the editor.
+   */
+  private static String getArray(String editor, String name) {
+    Matcher matcher = Pattern.compile("var " + name + "=\\[(.*?)\\n  \\];", Pattern.DOTALL).matcher(editor);
+    assertTrue(name, matcher.find());
+    return matcher.group(1).replaceAll("\\s", "");
+  }
+
+  public void testNewestModifiedTime() {
+    assertNull(bundleSet.getNewestModifiedTime("b"));
+
+    en.setString("b", "B2", true);
+    Long enModified = en.getModifiedTime("b");
+    assertNotNull(enModified);
+    assertEquals(enModified, bundleSet.getNewestModifiedTime("b"));
+
+    nextMillis();
+    fr.setString("b", "Bé2", true);
+    Long frModified = fr.getModifiedTime("b");
+    assertTrue(frModified > enModified);
+    assertEquals(frModified, bundleSet.getNewestModifiedTime("b"));
+
+    // Validation alone does not modify
+    nextMillis();
+    en.setString("b", "B3", false);
+    assertEquals(frModified, bundleSet.getNewestModifiedTime("b"));
+
+    fr.removeKey("b");
+    assertEquals(enModified, bundleSet.getNewestModifiedTime("b"));
+    en.removeKey("b");
+    assertNull(bundleSet.getNewestModifiedTime("b"));
+
+    // Other keys not affected
+    assertNull(bundleSet.getNewestModifiedTime("a"));
+  }
+
+  /**
+   * A change that fails to save is still in memory, so the newest modified time must follow it.
+   */
+  public void testNewestModifiedTimeAfterFailedSave() {
+    assertNull(bundleSet.getNewestModifiedTime("b"));
+    // Saving fails while the directory is missing
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        assertTrue(f.delete());
+      }
+    }
+    assertTrue(dir.delete());
+    try {
+      fr.setString("b", "Bé2", true);
+      fail("UncheckedIOException expected");
+    } catch (UncheckedIOException e) {
+      // Expected
+    }
+    Long frModified = fr.getModifiedTime("b");
+    assertNotNull(frModified);
+    assertEquals(frModified, bundleSet.getNewestModifiedTime("b"));
+    try {
+      fr.removeKey("b");
+      fail("UncheckedIOException expected");
+    } catch (UncheckedIOException e) {
+      // Expected
+    }
+    assertNull(bundleSet.getNewestModifiedTime("b"));
+  }
+
+  /**
+   * A lookup is invalidated once another locale is modified, and validated again once this locale is validated.
+   */
+  public void testInvalidatedAfterModified() throws IOException {
+    EditableResourceBundle.setThreadSettings(new EditableResourceBundle.ThreadSettings("setValue", EditableResourceBundle.ThreadSettings.Mode.MARKUP, false));
+    assertEquals("", getTextPrefix(en.getString("b")));
+
+    nextMillis();
+    fr.setString("b", "Bé2", true);
+    assertTrue(getTextPrefix(en.getString("b")).startsWith("<<<"));
+    assertEquals("", getTextPrefix(fr.getString("b")));
+
+    nextMillis();
+    en.setString("b", "B", false);
+    assertEquals("", getTextPrefix(en.getString("b")));
+  }
+
+  /**
+   * Each key has the same lookup ID on every thread of a request, and the lookups of all threads are
+   * merged into the editor, with the element IDs of each key in the order allocated.
+   */
+  public void testLookupsMergedAcrossThreads() throws Exception {
+    final EditableResourceBundle.ThreadSettings threadSettings = new EditableResourceBundle.ThreadSettings(
+        "setValue",
+        EditableResourceBundle.ThreadSettings.Mode.MARKUP,
+        false
+    );
+    EditableResourceBundle.setThreadSettings(threadSettings);
+    Map<String, Long> lookupIds = new ConcurrentHashMap<>();
+    lookupIds.put("a", getLookupId(en.getString("a")));
+
+    final int numThreads = 4;
+    final String[] keys = {"b", "c"};
+    CyclicBarrier barrier = new CyclicBarrier(numThreads);
+    List<Throwable> failures = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      Thread thread = new Thread(() -> {
+        EditableResourceBundle.setThreadSettings(threadSettings);
+        try {
+          barrier.await();
+          for (String key : keys) {
+            for (TestBundle bundle : Arrays.asList(en, fr)) {
+              if (bundle.containsKey(key)) {
+                long lookupId = getLookupId(bundle.getString(key));
+                Long existing = lookupIds.putIfAbsent(key, lookupId);
+                if (existing != null) {
+                  assertEquals(key, existing.longValue(), lookupId);
+                }
+              }
+            }
+          }
+        } catch (Throwable t) {
+          synchronized (failures) {
+            failures.add(t);
+          }
+        } finally {
+          EditableResourceBundle.resetThreadSettings();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(failures.toString(), 0, failures.size());
+    assertEquals(3, lookupIds.size());
+    assertEquals(3, lookupIds.values().stream().distinct().count());
+
+    StringBuilder editor = new StringBuilder();
+    EditableResourceBundle.printEditableResourceBundleLookups(passthrough, passthrough, editor, false, 5, false);
+    String editorString = editor.toString();
+    // In the order first looked-up
+    long[] expectedIds = lookupIds.values().stream().mapToLong(Long::longValue).sorted().toArray();
+    StringBuilder expected = new StringBuilder();
+    for (long id : expectedIds) {
+      if (expected.length() > 0) {
+        expected.append(',');
+      }
+      expected.append(id);
+    }
+    assertEquals(expected.toString(), getArray(editorString, "EditableResourceBundleLookupIds"));
+
+    // One element for "a", two per thread for "b", one per thread for "c"
+    String elementIds = getArray(editorString, "EditableResourceBundleElementIds");
+    Matcher matcher = Pattern.compile("\\[([0-9,]*)\\]").matcher(elementIds);
+    List<Integer> counts = new ArrayList<>();
+    List<Long> allIds = new ArrayList<>();
+    while (matcher.find()) {
+      String[] ids = matcher.group(1).split(",");
+      counts.add(ids.length);
+      long previous = Long.MIN_VALUE;
+      for (String id : ids) {
+        long elementId = Long.parseLong(id);
+        assertTrue("Element IDs in the order allocated: " + elementIds, elementId > previous);
+        previous = elementId;
+        allIds.add(elementId);
+      }
+    }
+    assertEquals(3, counts.size());
+    assertEquals(1 + 3 * numThreads, allIds.size());
+    assertEquals(allIds.size(), allIds.stream().distinct().count());
+    // Lookup IDs sorted by ID, and "a" was first
+    assertEquals(Integer.valueOf(1), counts.get(0));
+    List<Integer> threadCounts = new ArrayList<>(counts.subList(1, 3));
+    threadCounts.sort(null);
+    assertEquals(Arrays.asList(numThreads, 2 * numThreads), threadCounts);
+
+    // The editor resets the settings for the current thread
+    assertEquals(EditableResourceBundle.ThreadSettings.Mode.DISABLED, EditableResourceBundle.getThreadSettings().getMode());
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.i18n;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class ModifiablePropertiesResourceBundleTest extends TestCase {
+
+  public ModifiablePropertiesResourceBundleTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(ModifiablePropertiesResourceBundleTest.class);
+  }
+
+  public static class TestBundle extends ModifiablePropertiesResourceBundle {
+    public TestBundle(long writeBehindDelay, File sourceFile) {
+      super(writeBehindDelay, sourceFile);
+    }
+  }
+
+  /**
+   * Records the changes of each save.
+   */
+  private static class Recorder implements ModifiablePropertiesResourceBundle.ChangeListener {
+
+    private final List<List<ModifiablePropertiesResourceBundle.Change>> saves = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch saved = new CountDownLatch(1);
+
+    @Override
+    public void changesSaved(ModifiablePropertiesResourceBundle bundle, List<ModifiablePropertiesResourceBundle.Change> changes) {
+      saves.add(changes);
+      threads.add(Thread.currentThread());
+      saved.countDown();
+    }
+  }
+
+  private File dir;
+  private File file;
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("ModifiablePropertiesResourceBundleTest").toFile();
+    file = new File(dir, "TestBundle.properties");
+    Files.write(file.toPath(), "# Comment\na=1\n".getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  @Override
+  protected void tearDown() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  private Properties load() throws IOException {
+    Properties props = new Properties();
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      props.load(in);
+    }
+    return props;
+  }
+
+  public void testSaveOnEveryChange() throws IOException {
+    TestBundle bundle = new TestBundle(0, file);
+    assertTrue(bundle.isModifiable());
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    bundle.setString("b", "2", true);
+    assertEquals("2", load().getProperty("b"));
+    assertEquals(1, recorder.saves.size());
+    assertSame(Thread.currentThread(), recorder.threads.get(0));
+    ModifiablePropertiesResourceBundle.Change change = recorder.saves.get(0).get(0);
+    assertEquals("b", change.getKey());
+    assertEquals("2", change.getValue());
+    assertEquals(bundle.getValidatedTime("b"), change.getValidatedTime());
+    assertEquals(bundle.getModifiedTime("b"), change.getModifiedTime());
+    assertTrue(Files.readString(file.toPath(), StandardCharsets.ISO_8859_1).startsWith("# Comment\n"));
+
+    bundle.removeKey("a");
+    assertNull(load().getProperty("a"));
+    assertEquals(2, recorder.saves.size());
+    change = recorder.saves.get(1).get(0);
+    assertEquals("a", change.getKey());
+    assertNull(change.getValue());
+    assertNull(change.getValidatedTime());
+    assertNull(change.getModifiedTime());
+  }
+
+  /**
+   * An unchanged file is not replaced, and no temporary files are left behind either way.
+   */
+  public void testUnchangedNotReplaced() throws IOException {
+    TestBundle bundle = new TestBundle(0, file);
+    bundle.setString("b", "2", false);
+    assertEquals(1, dir.list().length);
+    Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    byte[] before = Files.readAllBytes(file.toPath());
+    // Removing a missing key leaves the file unchanged
+    bundle.removeKey("missing");
+    assertTrue(Arrays.equals(before, Files.readAllBytes(file.toPath())));
+    assertEquals(fileKey, Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey());
+    assertEquals(1, dir.list().length);
+  }
+
+  public void testWriteBehindCoalesces() throws IOException {
+    byte[] before = Files.readAllBytes(file.toPath());
+    // Long enough to not be saved in the background during the test
+    TestBundle bundle = new TestBundle(TimeUnit.HOURS.toMillis(1), file);
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    for (int i = 0; i < 50; i++) {
+      bundle.setString("k" + (i % 5), "v" + i, false);
+    }
+    bundle.removeKey("a");
+    // Visible before saved
+    assertEquals("v49", bundle.getString("k4"));
+    assertTrue(Arrays.equals(before, Files.readAllBytes(file.toPath())));
+    assertTrue(recorder.saves.isEmpty());
+
+    bundle.flush();
+    assertEquals(1, recorder.saves.size());
+    assertEquals("[k0=v45, k1=v46, k2=v47, k3=v48, k4=v49, a=null]", recorder.saves.get(0).toString());
+    Properties props = load();
+    assertEquals("v45", props.getProperty("k0"));
+    assertEquals("v49", props.getProperty("k4"));
+    assertNull(props.getProperty("a"));
+
+    // Nothing pending
+    bundle.flush();
+    assertEquals(1, recorder.saves.size());
+  }
+
+  public void testWriteBehindSavesInBackground() throws IOException, InterruptedException {
+    TestBundle bundle = new TestBundle(10, file);
+    assertEquals(10, bundle.getWriteBehindDelay());
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    bundle.setString("b", "2", true);
+    assertTrue(recorder.saved.await(10, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), recorder.threads.get(0));
+    assertEquals("[b=2]", recorder.saves.get(0).toString());
+    assertEquals("2", load().getProperty("b"));
+  }
+
+  public void testRemoveChangeListener() {
+    TestBundle bundle = new TestBundle(0, file);
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    bundle.removeChangeListener(recorder);
+    bundle.setString("b", "2", false);
+    assertTrue(recorder.saves.isEmpty());
+  }
+
+  public void testFailingListener() throws IOException {
+    TestBundle bundle = new TestBundle(0, file);
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener((b, changes) -> {
+      throw new IllegalStateException("Expected by test");
+    });
+    bundle.addChangeListener(recorder);
+    bundle.setString("b", "2", false);
+    assertEquals(1, recorder.saves.size());
+    assertEquals("2", load().getProperty("b"));
+  }
+
+  public void testFailedSaveRemainsPending() throws IOException {
+    TestBundle bundle = new TestBundle(0, file);
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    // Saving fails while the directory is missing
+    assertTrue(file.delete());
+    assertTrue(dir.delete());
+    try {
+      bundle.setString("b", "2", false);
+      fail("UncheckedIOException expected");
+    } catch (UncheckedIOException e) {
+      // Expected
+    }
+    assertEquals("2", bundle.getString("b"));
+    try {
+      bundle.flush();
+      fail("UncheckedIOException expected");
+    } catch (UncheckedIOException e) {
+      // Expected
+    }
+    assertTrue(recorder.saves.isEmpty());
+
+    assertTrue(dir.mkdir());
+    bundle.setString("c", "3", false);
+    assertEquals(1, recorder.saves.size());
+    assertEquals("[b=2, c=3]", recorder.saves.get(0).toString());
+    Properties props = load();
+    assertEquals("1", props.getProperty("a"));
+    assertEquals("2", props.getProperty("b"));
+    assertEquals("3", props.getProperty("c"));
+  }
+
+  public void testFailedSaveKeepsNewerChanges() throws IOException {
+    TestBundle bundle = new TestBundle(TimeUnit.HOURS.toMillis(1), file);
+    Recorder recorder = new Recorder();
+    bundle.addChangeListener(recorder);
+    bundle.setString("b", "2", false);
+    assertTrue(file.delete());
+    assertTrue(dir.delete());
+    try {
+      bundle.flush();
+      fail("UncheckedIOException expected");
+    } catch (UncheckedIOException e) {
+      // Expected
+    }
+    bundle.setString("b", "two", false);
+    assertTrue(dir.mkdir());
+    bundle.flush();
+    assertEquals(1, recorder.saves.size());
+    assertEquals("[b=two]", recorder.saves.get(0).toString());
+    assertEquals("two", load().getProperty("b"));
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the directory meta snapshot.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class DirectoryMetaSnapshotTest extends TestCase {
+
+  private static final char SEP = File.separatorChar;
+
+  public DirectoryMetaSnapshotTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(DirectoryMetaSnapshotTest.class);
+  }
+
+  private File root;
+
+  @Override
+  protected void setUp() throws IOException {
+    root = Files.createTempDirectory("DirectoryMetaSnapshotTest").toFile();
+  }
+
+  @Override
+  protected void tearDown() {
+    delete(root);
+  }
+
+  private static void delete(File file) {
+    File[] list = file.listFiles();
+    if (list != null) {
+      for (File child : list) {
+        delete(child);
+      }
+    }
+    assertTrue(file.delete());
+  }
+
+  private File write(String path, int length) throws IOException {
+    File file = new File(root, path.replace('/', SEP));
+    File parent = file.getParentFile();
+    if (!parent.exists()) {
+      assertTrue(parent.mkdirs());
+    }
+    Files.write(file.toPath(), new byte[length]);
+    return file;
+  }
+
+  private static String path(String path) {
+    return path.replace('/', SEP);
+  }
+
+  private static List<String> diff(DirectoryMetaSnapshot older, DirectoryMetaSnapshot newer) {
+    List<String> differences = new ArrayList<>();
+    for (Iterator<DirectoryMetaSnapshot.Difference> iter = older.diff(newer); iter.hasNext(); ) {
+      differences.add(iter.next().toString());
+    }
+    return differences;
+  }
+
+  /**
+   * Sets the modified time of a directory, so changes within the same second are seen.
+   */
+  private void touch(String path, long time) throws IOException {
+    Files.setLastModifiedTime(new File(root, path(path)).toPath(), FileTime.fromMillis(time));
+  }
+
+  public void testFiles() throws IOException {
+    write("a/b", 1);
+    write("a-c", 2);
+    write("a/d/e", 3);
+    assertTrue(new File(root, "empty").mkdir());
+    DirectoryMetaSnapshot snapshot = new DirectoryMetaSnapshot(root.getPath());
+    Map<String, Integer> expected = new TreeMap<>();
+    expected.put(path("a/b"), 1);
+    expected.put(path("a-c"), 2);
+    expected.put(path("a/d/e"), 3);
+    Map<String, Integer> actual = new TreeMap<>();
+    for (Map.Entry<String, DirectoryMetaSnapshot.FileMetaSnapshot> entry : snapshot.getFiles().entrySet()) {
+      actual.put(entry.getKey(), (int) entry.getValue().getLength());
+    }
+    assertEquals(expected, actual);
+    assertEquals(snapshot.getFiles().hashCode(), snapshot.hashCode());
+  }
+
+  public void testDiff() throws IOException {
+    write("a/b", 1);
+    write("a/c", 2);
+    write("a-c", 3);
+    write("z", 4);
+    DirectoryMetaSnapshot older = new DirectoryMetaSnapshot(root.getPath());
+    assertEquals(older, new DirectoryMetaSnapshot(root.getPath()));
+    assertTrue(new File(root, path("a/c")).delete());
+    write("a/b", 10);
+    write("a/d/e", 5);
+    write("y", 6);
+    DirectoryMetaSnapshot newer = new DirectoryMetaSnapshot(root.getPath());
+    assertFalse(older.equals(newer));
+    List<String> expected = new ArrayList<>();
+    expected.add("MODIFIED " + path("a/b"));
+    expected.add("REMOVED " + path("a/c"));
+    expected.add("ADDED " + path("a/d/e"));
+    expected.add("ADDED y");
+    assertEquals(expected, diff(older, newer));
+    assertTrue(diff(newer, newer).isEmpty());
+  }
+
+  public void testWriteRead() throws IOException {
+    for (int i = 0; i < 100; i++) {
+      write("dir" + (i % 7) + "/sub" + (i % 3) + "/file" + i, i);
+    }
+    DirectoryMetaSnapshot snapshot = new DirectoryMetaSnapshot(root.getPath());
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    snapshot.writeTo(bout);
+    DirectoryMetaSnapshot read = DirectoryMetaSnapshot.readFrom(new ByteArrayInputStream(bout.toByteArray()));
+    assertEquals(snapshot, read);
+    assertEquals(snapshot.getFiles(), read.getFiles());
+    assertTrue(diff(snapshot, read).isEmpty());
+  }
+
+  public void testSkipUnchangedDirectories() throws IOException {
+    write("a/b", 1);
+    write("a/c/d", 2);
+    write("e", 3);
+    touch("a/c", 1000000);
+    touch("a", 2000000);
+    touch("", 3000000);
+    DirectoryMetaSnapshot older = new DirectoryMetaSnapshot(root.getPath());
+    // Modified in place, without changing the directory
+    write("a/b", 10);
+    touch("a", 2000000);
+    // Added, changing the directory
+    write("a/c/f", 4);
+    touch("a/c", 1001000);
+    DirectoryMetaSnapshot skipped = new DirectoryMetaSnapshot(root.getPath(), older);
+    List<String> expected = new ArrayList<>();
+    expected.add("ADDED " + path("a/c/f"));
+    assertEquals(expected, diff(older, skipped));
+    // A full scan sees the modification
+    expected.add(0, "MODIFIED " + path("a/b"));
+    assertEquals(expected, diff(older, new DirectoryMetaSnapshot(root.getPath())));
+  }
+}
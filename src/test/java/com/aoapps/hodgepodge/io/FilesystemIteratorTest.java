@@ -0,0 +1,397 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the filesystem iterator.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class FilesystemIteratorTest extends TestCase {
+
+  private static final char SEP = File.separatorChar;
+
+  private static final String[] NAMES = {"home", "u", "var", "log", "tmp", "etc", "a", "ab", "abc"};
+
+  public FilesystemIteratorTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(FilesystemIteratorTest.class);
+  }
+
+  /**
+   * The previous implementation, searching the parents by map lookups then all prefix rules.
+   */
+  private static FilesystemIteratorRule getBestRuleReference(
+      Map<String, FilesystemIteratorRule> rules,
+      Map<String, FilesystemIteratorRule> prefixRules,
+      String filename
+  ) {
+    String longestPrefix = null;
+    FilesystemIteratorRule rule = null;
+    String path = filename;
+    while (true) {
+      rule = rules.get(path);
+      if (rule != null) {
+        longestPrefix = path;
+        break;
+      }
+      int pathLen = path.length();
+      if (pathLen == 0) {
+        break;
+      }
+      int lastSlashPos = path.lastIndexOf(SEP);
+      if (lastSlashPos == -1) {
+        path = "";
+      } else if (lastSlashPos == (pathLen - 1)) {
+        path = path.substring(0, lastSlashPos);
+      } else {
+        path = path.substring(0, lastSlashPos + 1);
+      }
+    }
+    for (Map.Entry<String, FilesystemIteratorRule> entry : prefixRules.entrySet()) {
+      String prefix = entry.getKey();
+      if (
+          (longestPrefix == null || prefix.length() > longestPrefix.length())
+              && filename.startsWith(prefix)
+      ) {
+        longestPrefix = prefix;
+        rule = entry.getValue();
+      }
+    }
+    return rule;
+  }
+
+  /**
+   * The previous implementation, scanning all rules.
+   */
+  private static boolean hasIncludedChildReference(
+      Map<String, FilesystemIteratorRule> rules,
+      Map<String, FilesystemIteratorRule> prefixRules,
+      String filenamePlusSlash
+  ) throws IOException {
+    for (Map.Entry<String, FilesystemIteratorRule> entry : rules.entrySet()) {
+      if (entry.getKey().startsWith(filenamePlusSlash) && entry.getValue().isIncluded(filenamePlusSlash)) {
+        return true;
+      }
+    }
+    for (Map.Entry<String, FilesystemIteratorRule> entry : prefixRules.entrySet()) {
+      if (entry.getKey().startsWith(filenamePlusSlash) && entry.getValue().isIncluded(filenamePlusSlash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String randomPath(Random random, int maxDepth) {
+    StringBuilder path = new StringBuilder();
+    int depth = random.nextInt(maxDepth + 1);
+    for (int i = 0; i < depth; i++) {
+      path.append(SEP).append(NAMES[random.nextInt(NAMES.length)]);
+      if (random.nextInt(10) == 0) {
+        path.append(random.nextInt(1000));
+      }
+    }
+    int end = random.nextInt(4);
+    if (end == 0) {
+      path.append(SEP);
+    } else if (end == 1 && path.length() > 0) {
+      // Partial name, for prefix rules
+      path.setLength(path.length() - 1);
+    }
+    return path.toString();
+  }
+
+  private static FilesystemIteratorRule randomRule(Random random) {
+    switch (random.nextInt(3)) {
+      case 0:
+        return FilesystemIteratorRule.OK;
+      case 1:
+        return FilesystemIteratorRule.SKIP;
+      default:
+        // A rule depending on the filename
+        return filename -> filename.length() % 2 == 0;
+    }
+  }
+
+  private static void addRandomRules(
+      Random random,
+      int numRules,
+      Map<String, FilesystemIteratorRule> rules,
+      Map<String, FilesystemIteratorRule> prefixRules
+  ) {
+    for (int i = 0; i < numRules; i++) {
+      (random.nextInt(4) == 0 ? prefixRules : rules).put(randomPath(random, 6), randomRule(random));
+    }
+  }
+
+  public void testCompiledRulesMatchReference() throws IOException {
+    Random random = new Random(31);
+    for (int test = 0; test < 200; test++) {
+      Map<String, FilesystemIteratorRule> rules = new HashMap<>();
+      Map<String, FilesystemIteratorRule> prefixRules = new HashMap<>();
+      addRandomRules(random, 1 + random.nextInt(50), rules, prefixRules);
+      FilesystemIteratorRules compiled = new FilesystemIteratorRules(rules, prefixRules);
+      for (int i = 0; i < 200; i++) {
+        String filename = randomPath(random, 8);
+        assertSame(
+            filename,
+            getBestRuleReference(rules, prefixRules, filename),
+            compiled.getBestRule(filename)
+        );
+        assertSame(filename, rules.get(filename), compiled.getRule(filename));
+        String filenamePlusSlash = filename + SEP;
+        assertEquals(
+            filenamePlusSlash,
+            hasIncludedChildReference(rules, prefixRules, filenamePlusSlash),
+            compiled.hasIncludedChild(filenamePlusSlash)
+        );
+      }
+    }
+  }
+
+  private static void mkdirs(File root, String... paths) throws IOException {
+    for (String path : paths) {
+      File file = new File(root, path.replace('/', SEP));
+      if (path.endsWith("/")) {
+        assertTrue(file.mkdirs());
+      } else {
+        assertTrue(file.createNewFile());
+      }
+    }
+  }
+
+  private static void delete(File file) {
+    File[] list = file.listFiles();
+    if (list != null) {
+      for (File child : list) {
+        delete(child);
+      }
+    }
+    assertTrue(file.delete());
+  }
+
+  public void testIterate() throws IOException {
+    File root = Files.createTempDirectory("FilesystemIteratorTest").toFile().getCanonicalFile();
+    try {
+      mkdirs(
+          root,
+          "a/", "a/file", "a/skip/", "a/skip/file", "a/skip/keep/", "a/skip/keep/file",
+          "b/", "b/file", "b/tmp1/", "b/tmp1/file", "b/tmp2", "b/other"
+      );
+      String rootPath = root.getPath();
+      Map<String, FilesystemIteratorRule> rules = new HashMap<>();
+      rules.put(rootPath, FilesystemIteratorRule.OK);
+      rules.put(rootPath + SEP + "a" + SEP + "skip" + SEP, FilesystemIteratorRule.SKIP);
+      rules.put(rootPath + SEP + "a" + SEP + "skip" + SEP + "keep", FilesystemIteratorRule.OK);
+      Map<String, FilesystemIteratorRule> prefixRules = new HashMap<>();
+      prefixRules.put(rootPath + SEP + "b" + SEP + "tmp", FilesystemIteratorRule.SKIP);
+      FilesystemIterator iterator = new FilesystemIterator(rules, prefixRules, rootPath);
+      Set<String> found = new TreeSet<>();
+      File file;
+      while ((file = iterator.getNextFile()) != null) {
+        String path = file.getPath();
+        assertTrue(path, path.startsWith(rootPath));
+        found.add(path.substring(rootPath.length()).replace(SEP, '/'));
+      }
+      Set<String> expected = new TreeSet<>();
+      for (String path : new String[]{
+          "", "/a", "/a/file", "/a/skip", "/a/skip/keep", "/a/skip/keep/file",
+          "/b", "/b/file", "/b/other"
+      }) {
+        expected.add(path);
+      }
+      assertEquals(expected, found);
+    } finally {
+      delete(root);
+    }
+  }
+
+  /**
+   * Files deleted during iteration are skipped, including when their rule fails because the file is gone.
+   */
+  public void testDeletedWhileIterating() throws IOException {
+    File root = Files.createTempDirectory("FilesystemIteratorTest").toFile().getCanonicalFile();
+    try {
+      mkdirs(root, "a", "b", "c/", "c/file", "d/", "d/file", "e");
+      String rootPath = root.getPath();
+      // Requires the file to exist
+      FilesystemIteratorRule exists = filename -> {
+        if (!new File(filename).exists()) {
+          throw new FileNotFoundException(filename);
+        }
+        return true;
+      };
+      Map<String, FilesystemIteratorRule> rules = new HashMap<>();
+      rules.put(rootPath, FilesystemIteratorRule.OK);
+      rules.put(rootPath + SEP + "b", exists);
+      rules.put(rootPath + SEP + "d", exists);
+      Map<String, FilesystemIteratorRule> prefixRules = new HashMap<>();
+      FilesystemIterator iterator = new FilesystemIterator(rules, prefixRules, rootPath, true, true);
+      List<String> found = new ArrayList<>();
+      File file;
+      while ((file = iterator.getNextFile()) != null) {
+        String path = file.getPath().substring(rootPath.length()).replace(SEP, '/');
+        found.add(path);
+        if ("/a".equals(path)) {
+          // Already listed, deleted before being returned
+          assertTrue(new File(root, "b").delete());
+          delete(new File(root, "d"));
+        } else if ("/c".equals(path)) {
+          // Deleted after being listed
+          assertTrue(new File(root, "c" + SEP + "file").delete());
+        }
+      }
+      List<String> expected = new ArrayList<>();
+      for (String path : new String[]{"", "/a", "/c", "/c/file", "/e"}) {
+        expected.add(path);
+      }
+      assertEquals(expected, found);
+    } finally {
+      delete(root);
+    }
+  }
+
+  private static List<String> iterate(FilesystemIterator iterator) throws IOException {
+    List<String> paths = new ArrayList<>();
+    FilesystemIterator.Entry entry;
+    while ((entry = iterator.getNextEntry()) != null) {
+      assertEquals(entry.getPath(), entry.getFile().isDirectory(), entry.getAttributes().isDirectory());
+      assertEquals(entry.getPath(), entry.getFile().length(), entry.getAttributes().size());
+      paths.add(entry.getPath());
+    }
+    return paths;
+  }
+
+  public void testPrefetchSameOrder() throws IOException {
+    File root = Files.createTempDirectory("FilesystemIteratorTest").toFile().getCanonicalFile();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Random random = new Random(32);
+      List<File> directories = new ArrayList<>();
+      directories.add(root);
+      for (int i = 0; i < 500; i++) {
+        File parent = directories.get(random.nextInt(directories.size()));
+        File file = new File(parent, Integer.toString(i));
+        if (random.nextInt(3) == 0) {
+          assertTrue(file.mkdir());
+          directories.add(file);
+        } else {
+          Files.write(file.toPath(), new byte[random.nextInt(100)]);
+        }
+      }
+      String rootPath = root.getPath();
+      Map<String, FilesystemIteratorRule> rules = new HashMap<>();
+      rules.put(rootPath, FilesystemIteratorRule.OK);
+      // Skip some directories and files
+      rules.put(directories.get(directories.size() / 2).getPath() + SEP, FilesystemIteratorRule.SKIP);
+      Map<String, FilesystemIteratorRule> prefixRules = new HashMap<>();
+      prefixRules.put(rootPath + SEP + "1", FilesystemIteratorRule.SKIP);
+      for (boolean isPreorder : new boolean[]{true, false}) {
+        List<String> expected = iterate(new FilesystemIterator(rules, prefixRules, rootPath, isPreorder, true));
+        assertFalse(expected.isEmpty());
+        for (int maxPrefetch : new int[]{1, 3, 100}) {
+          assertEquals(
+              expected,
+              iterate(new FilesystemIterator(rules, prefixRules, rootPath, isPreorder, true, executor, maxPrefetch))
+          );
+        }
+      }
+    } finally {
+      executor.shutdown();
+      delete(root);
+    }
+  }
+
+  /**
+   * Compares the compiled rules to the previous implementation on a synthetic
+   * tree of paths with many rules.
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  public void testRulesPerformance() throws IOException {
+    Random random = new Random(4321);
+    List<String> filenames = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      filenames.add(randomPath(random, 10));
+    }
+    for (int numRules = 10; numRules <= 10000; numRules *= 10) {
+      Map<String, FilesystemIteratorRule> rules = new HashMap<>();
+      Map<String, FilesystemIteratorRule> prefixRules = new HashMap<>();
+      addRandomRules(random, numRules, rules, prefixRules);
+      long startNanos = System.nanoTime();
+      FilesystemIteratorRules compiled = new FilesystemIteratorRules(rules, prefixRules);
+      long compileNanos = System.nanoTime() - startNanos;
+      int referenceCount = 0;
+      startNanos = System.nanoTime();
+      for (String filename : filenames) {
+        if (getBestRuleReference(rules, prefixRules, filename) != null) {
+          referenceCount++;
+        }
+        if (hasIncludedChildReference(rules, prefixRules, filename + SEP)) {
+          referenceCount++;
+        }
+      }
+      long referenceNanos = System.nanoTime() - startNanos;
+      int compiledCount = 0;
+      startNanos = System.nanoTime();
+      for (String filename : filenames) {
+        if (compiled.getBestRule(filename) != null) {
+          compiledCount++;
+        }
+        if (compiled.hasIncludedChild(filename + SEP)) {
+          compiledCount++;
+        }
+      }
+      long compiledNanos = System.nanoTime() - startNanos;
+      assertEquals(referenceCount, compiledCount);
+      System.out.println(
+          "    " + numRules + " rules, " + filenames.size() + " filenames: compiled in "
+              + BigDecimal.valueOf(compileNanos / 1000, 3) + " ms, scanning in "
+              + BigDecimal.valueOf(referenceNanos / 1000, 3) + " ms, trie in "
+              + BigDecimal.valueOf(compiledNanos / 1000, 3) + " ms ("
+              + ((float) ((double) referenceNanos / (double) compiledNanos)) + ')'
+      );
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class FindReplaceOutputStreamTest extends TestCase {
+
+  public FindReplaceOutputStreamTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(FindReplaceOutputStreamTest.class);
+    return suite;
+  }
+
+  private static String replace(Map<String, String> findReplaces, String ... writes) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (FindReplaceOutputStream out = new FindReplaceOutputStream(buffer, findReplaces)) {
+      for (String s : writes) {
+        out.write(s.getBytes(StandardCharsets.ISO_8859_1));
+      }
+    }
+    return new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  public void testSplitBetweenWrites() throws IOException {
+    Map<String, String> findReplaces = new LinkedHashMap<>();
+    findReplaces.put("Host: example.com", "Host: test.example.com");
+    findReplaces.put("été", "summer");
+    assertEquals(
+        "GET / HTTP/1.1\r\nHost: test.example.com\r\n summer",
+        replace(findReplaces, "GET / HTTP/1.1\r\nHost: exa", "mple", ".com\r\n é", "té")
+    );
+    assertEquals("Host: exam", replace(findReplaces, "Host: ex", "am"));
+  }
+
+  public void testFinish() throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    FindReplaceOutputStream out = new FindReplaceOutputStream(buffer, Collections.singletonMap("abc", "X"));
+    out.write(new byte[]{'a', 'b'});
+    assertEquals(0, buffer.size());
+    out.finish();
+    assertEquals("ab", new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1));
+    out.write(new byte[]{'c', 'a', 'b', 'c'});
+    assertEquals("abcX", new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * The match ending first is replaced, not the match starting first, as documented by {@link FindReplaceProxy}.
+   */
+  public void testEarliestEndingMatch() throws IOException {
+    Map<String, String> findReplaces = new LinkedHashMap<>();
+    findReplaces.put("abc", "X");
+    findReplaces.put("b", "Y");
+    assertEquals("aYc", replace(findReplaces, "abc"));
+    assertEquals("aYc", replace(findReplaces, "a", "b", "c"));
+    // Longest of those ending together
+    findReplaces.clear();
+    findReplaces.put("c", "Y");
+    findReplaces.put("bc", "X");
+    assertEquals("aX", replace(findReplaces, "abc"));
+    // Matching restarts after each replacement
+    findReplaces.clear();
+    findReplaces.put("bc", "Y");
+    findReplaces.put("ab", "X");
+    assertEquals("Xc", replace(findReplaces, "abc"));
+  }
+
+  public void testNotIso88591() {
+    try {
+      new FindReplaceOutputStream(new ByteArrayOutputStream(), Collections.singletonMap("a", "€"));
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  public void testSameAsWriter() throws IOException {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      Map<String, String> findReplaces = new LinkedHashMap<>();
+      for (int j = random.nextInt(4); j >= 0; j--) {
+        findReplaces.put(randomString(random, 1 + random.nextInt(4)), randomString(random, random.nextInt(3)));
+      }
+      FindReplaceAutomaton automaton = new FindReplaceAutomaton(findReplaces);
+      String text = randomString(random, random.nextInt(20));
+      StringWriter expected = new StringWriter();
+      try (FindReplaceWriter writer = new FindReplaceWriter(expected, automaton)) {
+        writer.write(text);
+      }
+      byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try (FindReplaceOutputStream out = new FindReplaceOutputStream(buffer, automaton)) {
+        int pos = 0;
+        while (pos < bytes.length) {
+          int len = Math.min(bytes.length - pos, random.nextInt(4));
+          if (len == 1 && random.nextBoolean()) {
+            out.write(bytes[pos]);
+          } else {
+            out.write(bytes, pos, len);
+          }
+          pos += len;
+        }
+      }
+      assertEquals(findReplaces + " " + text, expected.toString(), new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  /**
+   * Includes bytes above 127 to check they are matched unsigned.
+   */
+  private static String randomString(Random random, int len) {
+    char[] chars = new char[len];
+    for (int i = 0; i < len; i++) {
+      chars[i] = "abÿ".charAt(random.nextInt(3));
+    }
+    return new String(chars);
+  }
+}
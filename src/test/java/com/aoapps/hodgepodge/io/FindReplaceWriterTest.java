@@ -25,6 +25,9 @@ package com.aoapps.hodgepodge.io;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -83,4 +86,108 @@ public class FindReplaceWriterTest extends TestCase {
         "Test multiline\r", "\nwith split write at end.\r", "\n"
     );
   }
+
+  public void testDosToPosixConversionRepeatedCr() throws IOException {
+    doTest(
+        "Test repeated\r\nwith partial match.\n",
+        "Test repeated\r\r\nwith partial match.\r\n"
+    );
+  }
+
+  private static String replace(Map<String, String> findReplaces, String ... writes) throws IOException {
+    StringWriter buffer = new StringWriter();
+    try (FindReplaceWriter writer = new FindReplaceWriter(buffer, findReplaces)) {
+      for (String s : writes) {
+        writer.write(s);
+      }
+    }
+    return buffer.toString();
+  }
+
+  public void testOverlappingPrefix() throws IOException {
+    Map<String, String> findReplaces = new LinkedHashMap<>();
+    findReplaces.put("aab", "X");
+    assertEquals("aX", replace(findReplaces, "aaab"));
+    assertEquals("aX", replace(findReplaces, "a", "a", "a", "b"));
+    assertEquals("aaa", replace(findReplaces, "a", "a", "a"));
+  }
+
+  public void testMultiple() throws IOException {
+    Map<String, String> findReplaces = new LinkedHashMap<>();
+    findReplaces.put("&", "&amp;");
+    findReplaces.put("<", "&lt;");
+    findReplaces.put(">", "&gt;");
+    findReplaces.put("-->", "==>");
+    assertEquals("a&lt;b&gt;&amp;c==>", replace(findReplaces, "a<b>&c-->"));
+    assertEquals("a&lt;b&gt;&amp;c==>", replace(findReplaces, "a<b>&c-", "-", ">"));
+    assertEquals("c--", replace(findReplaces, "c-", "-"));
+  }
+
+  public void testFirstToEnd() throws IOException {
+    Map<String, String> findReplaces = new LinkedHashMap<>();
+    findReplaces.put("abcd", "X");
+    findReplaces.put("bc", "Y");
+    assertEquals("aYd", replace(findReplaces, "abcd"));
+    assertEquals("aYd", replace(findReplaces, "ab", "cd"));
+    assertEquals("aYe", replace(findReplaces, "abc", "e"));
+  }
+
+  /**
+   * Replaces matches in the order they end, preferring the longest.
+   */
+  private static String replaceReference(Map<String, String> findReplaces, String text) {
+    StringBuilder result = new StringBuilder();
+    int unmatched = 0;
+    for (int end = 1; end <= text.length(); end++) {
+      String longest = null;
+      for (String find : findReplaces.keySet()) {
+        int start = end - find.length();
+        if (
+            start >= unmatched
+                && text.startsWith(find, start)
+                && (longest == null || find.length() > longest.length())
+        ) {
+          longest = find;
+        }
+      }
+      if (longest != null) {
+        result.append(text, unmatched, end - longest.length()).append(findReplaces.get(longest));
+        unmatched = end;
+      }
+    }
+    return result.append(text, unmatched, text.length()).toString();
+  }
+
+  public void testRandomSplits() throws IOException {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      Map<String, String> findReplaces = new LinkedHashMap<>();
+      for (int j = random.nextInt(4); j >= 0; j--) {
+        findReplaces.put(randomString(random, 1 + random.nextInt(4)), randomString(random, random.nextInt(3)));
+      }
+      String text = randomString(random, random.nextInt(20));
+      StringWriter buffer = new StringWriter();
+      try (FindReplaceWriter writer = new FindReplaceWriter(buffer, findReplaces)) {
+        int pos = 0;
+        while (pos < text.length()) {
+          int len = Math.min(text.length() - pos, random.nextInt(4));
+          if (len == 1 && random.nextBoolean()) {
+            writer.write(text.charAt(pos));
+          } else {
+            writer.write(text.toCharArray(), pos, len);
+          }
+          pos += len;
+        }
+      }
+      assertEquals(findReplaces + " " + text, replaceReference(findReplaces, text), buffer.toString());
+    }
+  }
+
+  private static String randomString(Random random, int len) {
+    char[] chars = new char[len];
+    for (int i = 0; i < len; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+    return new String(chars);
+  }
 }
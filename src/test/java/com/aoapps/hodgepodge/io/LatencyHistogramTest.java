@@ -0,0 +1,92 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the latency histogram.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class LatencyHistogramTest extends TestCase {
+
+  public LatencyHistogramTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(LatencyHistogramTest.class);
+  }
+
+  public void testBuckets() {
+    int lastBucket = -1;
+    for (long value = 0; value < 100000; value++) {
+      int bucket = LatencyHistogram.getBucket(value);
+      assertTrue(bucket == lastBucket || bucket == lastBucket + 1);
+      assertTrue(value <= LatencyHistogram.getHighestValue(bucket));
+      if (bucket != lastBucket && bucket > 0) {
+        assertEquals(value - 1, LatencyHistogram.getHighestValue(bucket - 1));
+      }
+      lastBucket = bucket;
+    }
+    for (int shift = 6; shift < Long.SIZE - 1; shift++) {
+      long value = 1L << shift;
+      long highest = LatencyHistogram.getHighestValue(LatencyHistogram.getBucket(value));
+      assertTrue((highest - value) * 32 < value);
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.getHighestValue(LatencyHistogram.getBucket(Long.MAX_VALUE)));
+  }
+
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(50));
+    Random random = new Random(1);
+    long[] values = new long[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 1000 + random.nextInt(1000000);
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+    assertEquals(values.length, histogram.getCount());
+    assertEquals(values[0], histogram.getMin());
+    assertEquals(values[values.length - 1], histogram.getMax());
+    assertEquals(values[values.length - 1], histogram.getPercentile(100));
+    for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+      long expected = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+      long actual = histogram.getPercentile(percentile);
+      assertTrue(actual >= expected);
+      assertTrue((actual - expected) * 32 <= expected);
+    }
+    LatencyHistogram merged = new LatencyHistogram();
+    merged.add(histogram);
+    merged.add(histogram);
+    assertEquals(values.length * 2L, merged.getCount());
+    assertEquals(histogram.getPercentile(50), merged.getPercentile(50));
+  }
+}
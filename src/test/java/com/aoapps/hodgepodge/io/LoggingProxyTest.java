@@ -0,0 +1,221 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import com.aoapps.hodgepodge.io.stream.StreamableOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class LoggingProxyTest extends TestCase {
+
+  public LoggingProxyTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(LoggingProxyTest.class);
+  }
+
+  private File file;
+
+  @Override
+  protected void setUp() throws IOException {
+    file = Files.createTempFile("LoggingProxyTest", null).toFile();
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    Files.deleteIfExists(file.toPath());
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  public void testText() throws IOException {
+    long startTime = System.currentTimeMillis();
+    try (LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(file, false)) {
+      assertTrue(log.log(1, "Connection accepted"));
+      assertTrue(log.log(1, LoggingProxy.FROM_CLIENT, bytes("GET / HTTP/1.0")));
+      assertTrue(log.log(2, LoggingProxy.TO_CLIENT, bytes("é")));
+    }
+    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+    assertEquals(3, lines.size());
+    String[] expected = {
+        " 1: Connection accepted",
+        " 1< GET / HTTP/1.0",
+        " 2> é"
+    };
+    for (int i = 0; i < expected.length; i++) {
+      String line = lines.get(i);
+      int space = line.indexOf(' ');
+      long time = Instant.parse(line.substring(0, space)).toEpochMilli();
+      assertTrue(time >= startTime);
+      assertTrue(time <= System.currentTimeMillis());
+      assertEquals(expected[i], line.substring(space));
+    }
+  }
+
+  public void testBinary() throws IOException {
+    Random random = new Random(0);
+    byte[] large = new byte[100000];
+    random.nextBytes(large);
+    long startTime = System.currentTimeMillis();
+    try (LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(file, true)) {
+      assertTrue(log.log(1, "Connection accepted"));
+      assertTrue(log.log(1, LoggingProxy.FROM_CLIENT, large));
+      assertTrue(log.log(1, LoggingProxy.TO_CLIENT, new byte[0]));
+    }
+    // Appending does not repeat the header
+    try (LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(file, true)) {
+      assertTrue(log.log(Long.MAX_VALUE, LoggingProxy.TO_CLIENT, bytes("ÿ")));
+    }
+    Object[][] expected = {
+        {1L, LoggingProxy.EVENT, bytes("Connection accepted")},
+        {1L, LoggingProxy.FROM_CLIENT, large},
+        {1L, LoggingProxy.TO_CLIENT, new byte[0]},
+        {Long.MAX_VALUE, LoggingProxy.TO_CLIENT, bytes("ÿ")}
+    };
+    try (LoggingProxy.BinaryReader in = new LoggingProxy.BinaryReader(new FileInputStream(file))) {
+      for (Object[] values : expected) {
+        LoggingProxy.LogRecord log = in.read();
+        assertNotNull(log);
+        assertTrue(log.getTime() >= startTime);
+        assertTrue(log.getTime() <= System.currentTimeMillis());
+        assertEquals(values[0], log.getConnectionId());
+        assertEquals(values[1], log.getDirection());
+        assertTrue(Arrays.equals((byte[]) values[2], log.getData()));
+      }
+      assertNull(in.read());
+      assertNull(in.read());
+    }
+  }
+
+  public void testBinaryInvalid() throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    try (StreamableOutput out = new StreamableOutput(bout)) {
+      out.writeUTF("NotLoggingProxy");
+      out.writeCompressedInt(LoggingProxy.BINARY_VERSION);
+    }
+    try {
+      new LoggingProxy.BinaryReader(new ByteArrayInputStream(bout.toByteArray())).close();
+      fail("Magic not checked");
+    } catch (IOException e) {
+      // Expected
+    }
+    bout.reset();
+    try (StreamableOutput out = new StreamableOutput(bout)) {
+      out.writeUTF(LoggingProxy.BINARY_MAGIC);
+      out.writeCompressedInt(LoggingProxy.BINARY_VERSION + 1);
+    }
+    try {
+      new LoggingProxy.BinaryReader(new ByteArrayInputStream(bout.toByteArray())).close();
+      fail("Version not checked");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  public void testBinaryTruncated() throws IOException {
+    try (LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(file, true)) {
+      assertTrue(log.log(1, LoggingProxy.FROM_CLIENT, bytes("data")));
+    }
+    byte[] capture = Files.readAllBytes(file.toPath());
+    try (
+        LoggingProxy.BinaryReader in = new LoggingProxy.BinaryReader(
+            new ByteArrayInputStream(Arrays.copyOf(capture, capture.length - 1))
+        )
+    ) {
+      in.read();
+      fail("Truncated record not detected");
+    } catch (EOFException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Fails every write, like a full disk.
+   */
+  private static class FailingOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      throw new IOException("No space left on device");
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      throw new IOException("No space left on device");
+    }
+  }
+
+  /**
+   * Once the log writer fails, logging and closing must not wait for it.
+   */
+  public void testFailedWriter() throws Exception {
+    LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(true, new FailingOutputStream(), false);
+    assertNull(log.getFailure());
+    // Written to the buffer, then fails on the flush when idle
+    assertTrue(log.log(1, LoggingProxy.FROM_CLIENT, bytes("data")));
+    for (int i = 0; i < 200 && log.getFailure() == null; i++) {
+      Thread.sleep(50);
+    }
+    assertTrue(log.getFailure() instanceof IOException);
+    long startTime = System.nanoTime();
+    // More than the queue can hold
+    for (int i = 0; i < 10000; i++) {
+      assertFalse(log.log(1, LoggingProxy.FROM_CLIENT, bytes("data")));
+    }
+    log.close();
+    log.close();
+    assertTrue((System.nanoTime() - startTime) < 5000000000L);
+  }
+
+  public void testLogAfterClose() throws Exception {
+    LoggingProxy.LogWriter log = new LoggingProxy.LogWriter(file, false);
+    log.close();
+    assertFalse(log.log(1, "Too late"));
+    // Closing again does not wait
+    log.close();
+    assertNull(log.getFailure());
+    assertEquals(0, file.length());
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests writing and reading multiple files as one through channels.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class MultiFileChannelTest extends TestCase {
+
+  private static final int FILE_SIZE = 1000;
+
+  public MultiFileChannelTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(MultiFileChannelTest.class);
+  }
+
+  private final Random random = new Random(1);
+
+  private File dir;
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = Files.createTempDirectory("MultiFileChannelTest").toFile();
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() {
+    executor.shutdown();
+    for (File file : dir.listFiles()) {
+      assertTrue(file.delete());
+    }
+    assertTrue(dir.delete());
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * Writes the data in random-sized gathering writes.
+   */
+  private File[] write(byte[] data, boolean preallocate, ExecutorService executor) throws IOException {
+    try (MultiFileOutputChannel out = new MultiFileOutputChannel(dir, "part", ".bin", FILE_SIZE, preallocate, executor)) {
+      int pos = 0;
+      while (pos < data.length) {
+        ByteBuffer[] srcs = new ByteBuffer[1 + random.nextInt(4)];
+        for (int i = 0; i < srcs.length; i++) {
+          int len = Math.min(data.length - pos, random.nextInt(FILE_SIZE * 3 / 2));
+          srcs[i] = ByteBuffer.wrap(data, pos, len);
+          pos += len;
+        }
+        long expected = 0;
+        for (ByteBuffer src : srcs) {
+          expected += src.remaining();
+        }
+        assertEquals(expected, out.write(srcs));
+        for (ByteBuffer src : srcs) {
+          assertFalse(src.hasRemaining());
+        }
+      }
+      assertEquals(data.length, out.position());
+      return out.getFiles();
+    }
+  }
+
+  private void testWriteRead(boolean preallocate, ExecutorService executor) throws IOException {
+    byte[] data = randomBytes(FILE_SIZE * 7 + 123);
+    File[] files = write(data, preallocate, executor);
+    assertEquals(8, files.length);
+    assertEquals(8, dir.listFiles().length);
+    for (int i = 0; i < files.length; i++) {
+      assertEquals(new File(dir, "part" + (i + 1) + ".bin"), files[i]);
+      assertEquals(i == 7 ? 123 : FILE_SIZE, files[i].length());
+    }
+    try (MultiFileInputChannel in = new MultiFileInputChannel(files)) {
+      assertEquals(data.length, in.size());
+      ByteBuffer all = ByteBuffer.allocate(data.length + 10);
+      while (in.read(all) != -1) {
+        // Keep reading
+      }
+      assertEquals(data.length, all.position());
+      assertTrue(Arrays.equals(data, Arrays.copyOf(all.array(), data.length)));
+    }
+  }
+
+  public void testWriteRead() throws IOException {
+    testWriteRead(false, null);
+  }
+
+  public void testWriteReadBackground() throws IOException {
+    testWriteRead(false, executor);
+  }
+
+  public void testWriteReadPreallocate() throws IOException {
+    testWriteRead(true, executor);
+  }
+
+  public void testRandomAccess() throws IOException {
+    byte[] data = randomBytes(FILE_SIZE * 5 + 7);
+    File[] files = write(data, false, executor);
+    try (MultiFileInputChannel in = new MultiFileInputChannel(files)) {
+      assertEquals(2, in.getFileIndex(FILE_SIZE * 2));
+      assertEquals(1, in.getFileIndex(FILE_SIZE * 2 - 1));
+      for (int i = 0; i < 1000; i++) {
+        int pos = random.nextInt(data.length);
+        int len = random.nextInt(FILE_SIZE * 3);
+        ByteBuffer dst = ByteBuffer.allocate(len);
+        int count = in.read(dst, pos);
+        assertEquals(Math.min(len, data.length - pos), count);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, pos, pos + count), Arrays.copyOf(dst.array(), count)));
+      }
+      assertEquals(-1, in.read(ByteBuffer.allocate(1), data.length));
+      in.position(data.length - 3);
+      ByteBuffer dst = ByteBuffer.allocate(10);
+      assertEquals(3, in.read(dst));
+      assertEquals(-1, in.read(dst));
+    }
+  }
+
+  public void testParallelReaders() throws Exception {
+    byte[] data = randomBytes(FILE_SIZE * 9 + 501);
+    File[] files = write(data, false, executor);
+    ExecutorService readers = Executors.newFixedThreadPool(4);
+    try (MultiFileInputChannel in = new MultiFileInputChannel(files)) {
+      final int ranges = 6;
+      final long rangeSize = (data.length + ranges - 1) / ranges;
+      List<Future<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < ranges; i++) {
+        final long start = i * rangeSize;
+        futures.add(readers.submit(() -> {
+          try (InputStream stream = in.newInputStream(start, rangeSize)) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            byte[] buff = new byte[333];
+            int count;
+            while ((count = stream.read(buff, 0, buff.length)) != -1) {
+              bout.write(buff, 0, count);
+            }
+            return bout.toByteArray();
+          }
+        }));
+      }
+      ByteArrayOutputStream combined = new ByteArrayOutputStream();
+      for (Future<byte[]> future : futures) {
+        combined.write(future.get());
+      }
+      assertTrue(Arrays.equals(data, combined.toByteArray()));
+    } finally {
+      readers.shutdown();
+    }
+  }
+}
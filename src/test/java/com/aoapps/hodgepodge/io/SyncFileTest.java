@@ -0,0 +1,169 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the block synchronization of files.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class SyncFileTest extends TestCase {
+
+  private static final int BLOCK_SIZE = 1048576;
+
+  public SyncFileTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(SyncFileTest.class);
+  }
+
+  private final Random random = new Random(1);
+
+  private File file;
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() throws IOException {
+    file = Files.createTempFile("SyncFileTest", null).toFile();
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @Override
+  protected void tearDown() {
+    executor.shutdown();
+    assertTrue(file.delete());
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private long sync(byte[] source, SyncFile.Manifest manifest, boolean dryRun) throws IOException {
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      return SyncFile.syncFile(new ByteArrayInputStream(source), out.getChannel(), executor, manifest, dryRun, null);
+    }
+  }
+
+  private void assertFile(byte[] expected) throws IOException {
+    assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+  }
+
+  public void testSyncFile() throws IOException {
+    byte[] source = randomBytes(BLOCK_SIZE * 5 + 1234);
+    assertEquals(source.length, sync(source, null, false));
+    assertFile(source);
+    // Nothing changed
+    assertEquals(0, sync(source, null, false));
+    // One block changed
+    source[BLOCK_SIZE * 2 + 17]++;
+    assertEquals(BLOCK_SIZE, sync(source, null, false));
+    assertFile(source);
+    // Shorter, only truncated
+    byte[] shorter = Arrays.copyOf(source, BLOCK_SIZE * 3 - 5);
+    assertEquals(0, sync(shorter, null, false));
+    assertFile(shorter);
+  }
+
+  public void testSyncFileRandomAccessFile() throws IOException {
+    byte[] source = randomBytes(BLOCK_SIZE * 2 + 1);
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      assertEquals(source.length, SyncFile.syncFile(new ByteArrayInputStream(source), out));
+      assertEquals(0, SyncFile.syncFile(new ByteArrayInputStream(source), out));
+    }
+    assertFile(source);
+  }
+
+  public void testDryRun() throws IOException {
+    byte[] original = randomBytes(BLOCK_SIZE * 2);
+    sync(original, null, false);
+    byte[] source = original.clone();
+    source[0]++;
+    SyncFile.Manifest manifest = new SyncFile.Manifest();
+    assertEquals(BLOCK_SIZE, sync(source, manifest, true));
+    assertFile(original);
+    assertEquals(0, manifest.getLength());
+  }
+
+  public void testDryRunManifestNotCleared() throws IOException {
+    byte[] source = randomBytes(BLOCK_SIZE * 2 + 7);
+    SyncFile.Manifest manifest = new SyncFile.Manifest();
+    sync(source, manifest, false);
+    ByteArrayOutputStream before = new ByteArrayOutputStream();
+    manifest.writeTo(before);
+    // Manifest for a different length, every block compared without clearing the manifest
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.setLength(source.length + 1);
+    }
+    assertEquals(0, sync(source, manifest, true));
+    ByteArrayOutputStream after = new ByteArrayOutputStream();
+    manifest.writeTo(after);
+    assertTrue(Arrays.equals(before.toByteArray(), after.toByteArray()));
+  }
+
+  public void testManifest() throws IOException {
+    byte[] source = randomBytes(BLOCK_SIZE * 3 + 99);
+    SyncFile.Manifest manifest = new SyncFile.Manifest();
+    assertEquals(source.length, sync(source, manifest, false));
+    assertEquals(source.length, manifest.getLength());
+    // Round-trip the manifest
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    manifest.writeTo(bout);
+    manifest = SyncFile.Manifest.readFrom(new ByteArrayInputStream(bout.toByteArray()));
+    assertEquals(source.length, manifest.getLength());
+    // Changes made to the target outside of the sync are not seen, since the target is not read
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.seek(5);
+      out.write(source[5] + 1);
+    }
+    assertEquals(0, sync(source, manifest, false));
+    // Changes to the source are found by checksum
+    source[BLOCK_SIZE + 5]++;
+    assertEquals(BLOCK_SIZE, sync(source, manifest, false));
+    // Manifest for a different length is discarded and every block is compared, finding the earlier change
+    byte[] longer = Arrays.copyOf(source, source.length + BLOCK_SIZE);
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.setLength(source.length + 1);
+    }
+    assertEquals(BLOCK_SIZE * 2 + 99, sync(longer, manifest, false));
+    assertFile(longer);
+  }
+}
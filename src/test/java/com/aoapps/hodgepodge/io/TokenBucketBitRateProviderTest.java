@@ -0,0 +1,152 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests sharing one bandwidth budget between streams.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class TokenBucketBitRateProviderTest extends TestCase {
+
+  public TokenBucketBitRateProviderTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(TokenBucketBitRateProviderTest.class);
+  }
+
+  private static final int BYTES_PER_SECOND = 400000;
+
+  private static final int BURST = 4096;
+
+  private static void assertElapsed(long startTime, double expectedSeconds) {
+    double elapsed = (System.nanoTime() - startTime) / 1000000000D;
+    assertTrue("Too fast: " + elapsed, elapsed >= expectedSeconds * 0.9);
+    assertTrue("Too slow: " + elapsed, elapsed <= expectedSeconds * 1.5 + 0.2);
+  }
+
+  public void testSharedOutputStreams() throws Exception {
+    TokenBucketBitRateProvider global = new TokenBucketBitRateProvider(null, BYTES_PER_SECOND * 8L, BURST);
+    final int streams = 4;
+    final int bytesPerStream = BYTES_PER_SECOND / 4;
+    ExecutorService executor = Executors.newFixedThreadPool(streams);
+    try {
+      long startTime = System.nanoTime();
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < streams; i++) {
+        // Unlimited stream, only limited by its group and the global budget
+        final TokenBucketBitRateProvider stream = global.newChild(null).newChild(null, BURST);
+        futures.add(executor.submit(() -> {
+          ByteArrayOutputStream bout = new ByteArrayOutputStream();
+          try (OutputStream out = new BitRateOutputStream(bout, stream)) {
+            byte[] buff = new byte[100];
+            for (int written = 0; written < bytesPerStream; written += buff.length) {
+              out.write(buff, 0, buff.length);
+            }
+          }
+          return bout.size();
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        assertEquals(bytesPerStream, (int) future.get());
+      }
+      // All streams together at the global rate
+      assertElapsed(startTime, (double) streams * bytesPerStream / BYTES_PER_SECOND);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testInputStreamChildRate() throws IOException {
+    TokenBucketBitRateProvider global = new TokenBucketBitRateProvider(null, BYTES_PER_SECOND * 8L, BURST);
+    // Child limited to half the global rate
+    TokenBucketBitRateProvider child = global.newChild(BYTES_PER_SECOND * 4L, BURST);
+    byte[] data = new byte[BYTES_PER_SECOND / 4];
+    long startTime = System.nanoTime();
+    try (InputStream in = new BitRateInputStream(new ByteArrayInputStream(data), child)) {
+      byte[] buff = new byte[10000];
+      long total = 0;
+      int count;
+      while ((count = in.read(buff)) != -1) {
+        total += count;
+      }
+      assertEquals(data.length, total);
+    }
+    assertElapsed(startTime, data.length / (BYTES_PER_SECOND / 2D));
+  }
+
+  public void testAcquireAsync() throws Exception {
+    TokenBucketBitRateProvider provider = new TokenBucketBitRateProvider(null, BYTES_PER_SECOND * 8L, BURST);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      // Within the burst is completed immediately
+      assertTrue(provider.acquireAsync(BURST, scheduler).isDone());
+      long startTime = System.nanoTime();
+      final int count = 100;
+      for (int i = 0; i < count; i++) {
+        provider.acquireAsync(BURST, scheduler).get();
+      }
+      assertElapsed(startTime, (double) count * BURST / BYTES_PER_SECOND);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  public void testUnlimitedChildBlockSize() throws IOException {
+    TokenBucketBitRateProvider global = new TokenBucketBitRateProvider(null, BYTES_PER_SECOND * 8L, BURST);
+    // Unlimited children use the burst of the parent
+    TokenBucketBitRateProvider child = global.newChild(null);
+    assertEquals(BURST, child.getTokenBucket().getBurst());
+    assertEquals(BURST, child.getBlockSize());
+    assertEquals(BURST, child.newChild(null).getBlockSize());
+    // A larger burst on an unlimited child is still limited by the parent
+    assertEquals(BURST, global.newChild(null, BURST * 4L).getBlockSize());
+    // A smaller burst on a limited child
+    assertEquals(BURST / 2, global.newChild(BYTES_PER_SECOND * 4L, BURST / 2).getBlockSize());
+    // Nothing limited, reads are not split
+    TokenBucketBitRateProvider unlimited = new TokenBucketBitRateProvider(null, null).newChild(null);
+    assertEquals(Integer.MAX_VALUE, unlimited.getBlockSize());
+    byte[] data = new byte[100000];
+    try (InputStream in = new BitRateInputStream(new ByteArrayInputStream(data), unlimited)) {
+      assertEquals(data.length, in.read(new byte[data.length]));
+    }
+  }
+}
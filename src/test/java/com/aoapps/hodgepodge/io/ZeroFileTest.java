@@ -0,0 +1,103 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the zeroing of files.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class ZeroFileTest extends TestCase {
+
+  private static final int BLOCK_SIZE = 1048576;
+
+  public ZeroFileTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(ZeroFileTest.class);
+  }
+
+  public void testIsZero() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+    assertTrue(ZeroFile.isZero(buffer));
+    for (int i = 0; i < buffer.capacity(); i += 37) {
+      buffer.put(i, (byte) 1);
+      assertFalse(ZeroFile.isZero(buffer));
+      buffer.position(i + 1);
+      assertTrue(ZeroFile.isZero(buffer));
+      buffer.position(0);
+      buffer.put(i, (byte) 0);
+    }
+  }
+
+  private static long zeroFile(File file, ExecutorService executor, boolean dryRun) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      return ZeroFile.zeroFile(raf.getChannel(), raf.length(), executor, 3, null, null, dryRun, false);
+    }
+  }
+
+  public void testZeroFile() throws IOException {
+    File file = Files.createTempFile("ZeroFileTest", null).toFile();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final int length = BLOCK_SIZE * 7 + 123;
+      Random random = new Random(1);
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(length);
+        // Dirty the second block and the partial last block
+        raf.seek(BLOCK_SIZE + random.nextInt(BLOCK_SIZE));
+        raf.write(1);
+        raf.seek(length - 1);
+        raf.write(2);
+      }
+      final long expected = BLOCK_SIZE + 123;
+      assertEquals(expected, zeroFile(file, executor, true));
+      assertEquals(expected, zeroFile(file, null, true));
+      assertEquals(expected, zeroFile(file, executor, false));
+      assertEquals(0, zeroFile(file, executor, false));
+      assertEquals(0, zeroFile(file, null, false));
+      assertEquals(length, file.length());
+      for (byte b : Files.readAllBytes(file.toPath())) {
+        assertEquals(0, b);
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(file.delete());
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net;
+
+import com.aoapps.hodgepodge.io.TokenBucket;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Drives a single connection directly, without the tunnel's selector loop.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class BandwidthLimitingTunnelConnectionTest extends TestCase {
+
+  public BandwidthLimitingTunnelConnectionTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(BandwidthLimitingTunnelConnectionTest.class);
+  }
+
+  private Selector selector;
+  private ServerSocketChannel server;
+
+  /**
+   * The client side of the listen channel.
+   */
+  private SocketChannel client;
+
+  /**
+   * The server side of the connect channel.
+   */
+  private SocketChannel target;
+
+  private SocketChannel listenChannel;
+  private SocketChannel connectChannel;
+
+  @Override
+  protected void setUp() throws IOException {
+    selector = Selector.open();
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    client = SocketChannel.open(server.getLocalAddress());
+    listenChannel = server.accept();
+    listenChannel.configureBlocking(false);
+    connectChannel = SocketChannel.open();
+    connectChannel.configureBlocking(false);
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    for (SocketChannel channel : new SocketChannel[]{client, target, listenChannel, connectChannel}) {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+    server.close();
+    selector.close();
+  }
+
+  private BandwidthLimitingTunnelConnection newConnection(Long upstream, Long downstream) throws IOException {
+    BandwidthLimitingTunnelConnection connection = new BandwidthLimitingTunnelConnection(
+        listenChannel,
+        connectChannel,
+        new TokenBucket(null, upstream),
+        new TokenBucket(null, downstream)
+    );
+    connection.getRelay().register(selector);
+    return connection;
+  }
+
+  /**
+   * Connects the connect channel to the server, accepting the target side.
+   */
+  private void connect(BandwidthLimitingTunnelConnection connection) throws IOException {
+    connectChannel.connect(server.getLocalAddress());
+    target = server.accept();
+    while (!connection.isConnected()) {
+      connection.getRelay().finishConnect();
+    }
+  }
+
+  private static ByteBuffer bytes(int length, int seed) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    for (int i = 0; i < length; i++) {
+      buffer.put((byte) (i * 31 + seed));
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Transfers until the given number of bytes are read from the channel.
+   */
+  private static ByteBuffer receive(BandwidthLimitingTunnelConnection connection, SocketChannel channel, int length) throws IOException {
+    ByteBuffer received = ByteBuffer.allocate(length);
+    channel.configureBlocking(false);
+    try {
+      for (int i = 0; received.hasRemaining(); i++) {
+        assertTrue("Timed out", i < 100000);
+        connection.getRelay().transfer(System.nanoTime());
+        if (channel.read(received) == -1) {
+          fail("Unexpected end of stream");
+        }
+      }
+    } finally {
+      channel.configureBlocking(true);
+    }
+    received.flip();
+    return received;
+  }
+
+  public void testNotConnected() throws IOException {
+    BandwidthLimitingTunnelConnection connection = newConnection(null, null);
+    assertFalse(connection.isConnected());
+    assertFalse(connection.getRelay().transfer(System.nanoTime()));
+    assertEquals(0, listenChannel.keyFor(selector).interestOps());
+    assertEquals(SelectionKey.OP_CONNECT, connectChannel.keyFor(selector).interestOps());
+  }
+
+  public void testTransfer() throws IOException {
+    BandwidthLimitingTunnelConnection connection = newConnection(null, null);
+    connect(connection);
+    assertFalse(connection.getRelay().transfer(System.nanoTime()));
+    assertEquals(SelectionKey.OP_READ, listenChannel.keyFor(selector).interestOps());
+    assertEquals(SelectionKey.OP_READ, connectChannel.keyFor(selector).interestOps());
+    // Upstream, larger than the buffer
+    ByteBuffer up = bytes(200000, 1);
+    while (up.hasRemaining()) {
+      client.write(up);
+      connection.getRelay().transfer(System.nanoTime());
+    }
+    assertEquals(bytes(200000, 1), receive(connection, target, 200000));
+    assertEquals(200000, connection.getUpstreamBytes());
+    // Downstream
+    ByteBuffer down = bytes(1000, 2);
+    target.write(down);
+    assertEquals(bytes(1000, 2), receive(connection, client, 1000));
+    assertEquals(1000, connection.getDownstreamBytes());
+  }
+
+  public void testHalfClose() throws IOException {
+    BandwidthLimitingTunnelConnection connection = newConnection(null, null);
+    connect(connection);
+    client.write(bytes(100, 3));
+    client.shutdownOutput();
+    assertEquals(bytes(100, 3), receive(connection, target, 100));
+    // End of stream passed upstream
+    connection.getRelay().transfer(System.nanoTime());
+    assertEquals(-1, target.read(ByteBuffer.allocate(1)));
+    // Downstream still open
+    target.write(bytes(10, 4));
+    assertEquals(bytes(10, 4), receive(connection, client, 10));
+    assertFalse(connection.getRelay().transfer(System.nanoTime()));
+    target.shutdownOutput();
+    boolean done = false;
+    for (int i = 0; !done; i++) {
+      assertTrue("Timed out", i < 100000);
+      done = connection.getRelay().transfer(System.nanoTime());
+    }
+    assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+    connection.getRelay().close();
+    assertTrue(connection.isClosed());
+    assertFalse(listenChannel.isOpen());
+    assertFalse(connectChannel.isOpen());
+  }
+
+  public void testThrottled() throws IOException {
+    // 8000 bits/second is 1000 bytes/second
+    BandwidthLimitingTunnelConnection connection = newConnection(8000L, null);
+    connect(connection);
+    client.write(bytes(10000, 5));
+    long now = System.nanoTime();
+    for (int i = 0; i < 100 && connection.getRelay().getUpstream().getThrottledUntil() == Long.MIN_VALUE; i++) {
+      connection.getRelay().transfer(now);
+    }
+    long throttledUntil = connection.getRelay().getUpstream().getThrottledUntil();
+    assertTrue(throttledUntil != Long.MIN_VALUE);
+    assertTrue(throttledUntil - now > 0);
+    assertTrue(connection.getUpstreamBytes() < 10000);
+    // No write interest while throttled
+    assertEquals(0, connectChannel.keyFor(selector).interestOps() & SelectionKey.OP_WRITE);
+  }
+}
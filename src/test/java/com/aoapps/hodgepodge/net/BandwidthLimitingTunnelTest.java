@@ -0,0 +1,241 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the selector-based tunnel against a local server.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class BandwidthLimitingTunnelTest extends TestCase {
+
+  public BandwidthLimitingTunnelTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(BandwidthLimitingTunnelTest.class);
+  }
+
+  private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+  private static final int BYTES_PER_SECOND = 200000;
+
+  private ExecutorService executor;
+  private ServerSocket server;
+
+  @Override
+  protected void setUp() throws IOException {
+    executor = Executors.newCachedThreadPool();
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    server.close();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Gets a port that is not currently listening.
+   */
+  private static int getFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   * Connects to the tunnel, retrying while it starts listening.
+   */
+  private static Socket connect(int port) throws IOException, InterruptedException {
+    for (int attempt = 0; ; attempt++) {
+      try {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(LOOPBACK, port), 10000);
+        socket.setSoTimeout(30000);
+        return socket;
+      } catch (ConnectException e) {
+        if (attempt >= 100) {
+          throw e;
+        }
+        Thread.sleep(50);
+      }
+    }
+  }
+
+  /**
+   * Waits for the tunnel to remove its connections, which happens just after they are closed.
+   */
+  private static void assertNoConnections(BandwidthLimitingTunnel tunnel) throws InterruptedException {
+    for (int i = 0; i < 100 && !tunnel.getConnections().isEmpty(); i++) {
+      Thread.sleep(50);
+    }
+    assertTrue(tunnel.getConnections().isEmpty());
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    byte[] buff = new byte[8192];
+    int count;
+    while ((count = in.read(buff)) != -1) {
+      bout.write(buff, 0, count);
+    }
+    return bout.toByteArray();
+  }
+
+  /**
+   * Accepts one connection, echoing everything received until end of stream, then closes.
+   */
+  private Future<?> echoOnce() {
+    return executor.submit(() -> {
+      try (Socket socket = server.accept()) {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        byte[] buff = new byte[8192];
+        int count;
+        while ((count = in.read(buff)) != -1) {
+          out.write(buff, 0, count);
+        }
+      }
+      return null;
+    });
+  }
+
+  private BandwidthLimitingTunnel newTunnel(int listenPort, int connectPort, Long upstream, Long downstream) {
+    return new BandwidthLimitingTunnel(false, LOOPBACK, listenPort, LOOPBACK, connectPort, upstream, downstream);
+  }
+
+  /**
+   * Sends the given bytes through the connection while reading the echo, then half-closes.
+   */
+  private byte[] echo(Socket socket, byte[] data) throws Exception {
+    Future<byte[]> received = executor.submit(() -> readAll(socket.getInputStream()));
+    socket.getOutputStream().write(data);
+    socket.shutdownOutput();
+    return received.get();
+  }
+
+  public void testEcho() throws Exception {
+    byte[] data = new byte[5 * 1024 * 1024 + 17];
+    new Random(1).nextBytes(data);
+    int port = getFreePort();
+    try (BandwidthLimitingTunnel tunnel = newTunnel(port, server.getLocalPort(), null, null)) {
+      Future<?> echo = echoOnce();
+      try (Socket socket = connect(port)) {
+        assertTrue(Arrays.equals(data, echo(socket, data)));
+      }
+      echo.get();
+      assertNoConnections(tunnel);
+    }
+  }
+
+  public void testConnection() throws Exception {
+    byte[] data = new byte[100000];
+    new Random(2).nextBytes(data);
+    int port = getFreePort();
+    try (BandwidthLimitingTunnel tunnel = newTunnel(port, server.getLocalPort(), null, null)) {
+      Future<?> echo = echoOnce();
+      try (Socket socket = connect(port)) {
+        socket.getOutputStream().write(data);
+        InputStream in = socket.getInputStream();
+        byte[] buff = new byte[data.length];
+        int pos = 0;
+        while (pos < buff.length) {
+          int count = in.read(buff, pos, buff.length - pos);
+          assertTrue(count != -1);
+          pos += count;
+        }
+        assertTrue(Arrays.equals(data, buff));
+        List<BandwidthLimitingTunnelConnection> connections = tunnel.getConnections();
+        assertEquals(1, connections.size());
+        BandwidthLimitingTunnelConnection connection = connections.get(0);
+        assertTrue(connection.isConnected());
+        assertFalse(connection.isClosed());
+        assertEquals(socket.getLocalSocketAddress(), connection.getRemoteAddress());
+        socket.shutdownOutput();
+        assertEquals(-1, in.read());
+        // Removed once both directions are done
+        assertNoConnections(tunnel);
+        assertTrue(connection.isClosed());
+        assertEquals(data.length, connection.getUpstreamBytes());
+        assertEquals(data.length, connection.getDownstreamBytes());
+      }
+      echo.get();
+    }
+  }
+
+  public void testBandwidthLimit() throws Exception {
+    byte[] data = new byte[BYTES_PER_SECOND];
+    new Random(3).nextBytes(data);
+    int port = getFreePort();
+    try (BandwidthLimitingTunnel tunnel = newTunnel(port, server.getLocalPort(), null, BYTES_PER_SECOND * 8L)) {
+      Future<?> echo = echoOnce();
+      try (Socket socket = connect(port)) {
+        long startTime = System.nanoTime();
+        assertTrue(Arrays.equals(data, echo(socket, data)));
+        double elapsed = (System.nanoTime() - startTime) / 1000000000D;
+        // One second downstream, less the burst
+        assertTrue("Too fast: " + elapsed, elapsed >= 0.8);
+        assertTrue("Too slow: " + elapsed, elapsed <= 2.5);
+      }
+      echo.get();
+      assertNoConnections(tunnel);
+    }
+  }
+
+  public void testConnectRefused() throws Exception {
+    int port = getFreePort();
+    try (BandwidthLimitingTunnel tunnel = newTunnel(port, getFreePort(), null, null)) {
+      try (Socket socket = connect(port)) {
+        // Closed by the tunnel when the connect fails
+        try {
+          assertEquals(-1, socket.getInputStream().read());
+        } catch (IOException e) {
+          // Connection reset is also acceptable
+        }
+      }
+      assertNoConnections(tunnel);
+    }
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class RecurringSchedulerTest {
+
+  private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+  private static class TestClock extends Clock {
+
+    private volatile long millis;
+
+    private TestClock(LocalDateTime now) {
+      set(now);
+    }
+
+    private void set(LocalDateTime now) {
+      millis = now.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZONE;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  private static ZonedDateTime at(int year, int month, int dayOfMonth, int hour, int minute) {
+    return ZonedDateTime.of(year, month, dayOfMonth, hour, minute, 0, 0, ZONE);
+  }
+
+  @Test
+  public void testRunsOnSchedule() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 5, 12, 0));
+    AtomicInteger runs = new AtomicInteger();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      RecurringScheduler.Registration registration = scheduler.schedule(
+          Recurring.WEEKDAYS,
+          LocalDate.of(2026, 1, 1),
+          LocalTime.of(2, 30),
+          runs::incrementAndGet
+      );
+      assertEquals(at(2026, 1, 6, 2, 30), registration.getNextFireTime());
+      assertEquals(Math.subtractExact(at(2026, 1, 6, 2, 30).toInstant().toEpochMilli(), clock.millis()), scheduler.runDue());
+      assertEquals(0, runs.get());
+      // Friday to Monday
+      clock.set(LocalDateTime.of(2026, 1, 9, 2, 30));
+      scheduler.runDue();
+      assertEquals(1, runs.get());
+      assertEquals(at(2026, 1, 12, 2, 30), registration.getNextFireTime());
+      assertTrue(registration.cancel());
+      assertFalse(registration.cancel());
+      assertNull(registration.getNextFireTime());
+      assertEquals(0, scheduler.size());
+      assertEquals(-1, scheduler.runDue());
+    }
+  }
+
+  @Test
+  public void testOffset() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 5, 12, 0));
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      RecurringScheduler.Registration registration = scheduler.schedule(
+          Recurring.MONTHLY,
+          LocalDate.of(2026, 1, 15),
+          LocalTime.of(9, 0),
+          DayDuration.valueOf("-2 days"),
+          RecurringScheduler.MissedRuns.RUN_ONCE,
+          null,
+          () -> { }
+      );
+      assertEquals(LocalDate.of(2026, 1, 15), registration.getNextOccurrence());
+      assertEquals(at(2026, 1, 13, 9, 0), registration.getNextFireTime());
+      // Already passed this month
+      clock.set(LocalDateTime.of(2026, 1, 14, 0, 0));
+      scheduler.runDue();
+      assertEquals(at(2026, 2, 13, 9, 0), registration.getNextFireTime());
+    }
+  }
+
+  @Test
+  public void testDaylightSavingTime() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 3, 7, 12, 0));
+    AtomicInteger runs = new AtomicInteger();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      RecurringScheduler.Registration registration = scheduler.schedule(
+          Recurring.EVERYDAY,
+          LocalDate.of(2026, 1, 1),
+          LocalTime.of(2, 30),
+          runs::incrementAndGet
+      );
+      // 2:30 does not exist on 2026-03-08, runs at 3:30 after the gap
+      assertEquals(at(2026, 3, 8, 3, 30), registration.getNextFireTime());
+      assertEquals(Instant.parse("2026-03-08T07:30:00Z"), registration.getNextFireTime().toInstant());
+      // 1:30 occurs twice on 2026-11-01, runs only at the first
+      RecurringScheduler.Registration overlap = scheduler.schedule(
+          Recurring.EVERYDAY,
+          LocalDate.of(2026, 1, 1),
+          LocalTime.of(1, 30),
+          DayDuration.ZERO_DAYS,
+          RecurringScheduler.MissedRuns.RUN_ALL,
+          Instant.parse("2026-11-01T04:00:00Z"),
+          runs::incrementAndGet
+      );
+      assertEquals(Instant.parse("2026-11-01T05:30:00Z"), overlap.getNextFireTime().toInstant());
+      overlap.cancel();
+    }
+  }
+
+  @Test
+  public void testMissedRuns() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 1, 12, 0));
+    AtomicInteger runOnce = new AtomicInteger();
+    AtomicInteger runAll = new AtomicInteger();
+    AtomicInteger skip = new AtomicInteger();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, 60L * 1000, false)) {
+      for (RecurringScheduler.MissedRuns missedRuns : RecurringScheduler.MissedRuns.values()) {
+        AtomicInteger runs;
+        switch (missedRuns) {
+          case RUN_ONCE:
+            runs = runOnce;
+            break;
+          case RUN_ALL:
+            runs = runAll;
+            break;
+          case SKIP:
+            runs = skip;
+            break;
+          default:
+            throw new AssertionError();
+        }
+        scheduler.schedule(
+            Recurring.EVERYDAY,
+            LocalDate.of(2026, 1, 1),
+            LocalTime.of(6, 0),
+            DayDuration.ZERO_DAYS,
+            missedRuns,
+            null,
+            runs::incrementAndGet
+        );
+      }
+      // Clock jumps forward five runs, late for the last
+      clock.set(LocalDateTime.of(2026, 1, 6, 12, 0));
+      scheduler.runDue();
+      assertEquals(1, runOnce.get());
+      assertEquals(5, runAll.get());
+      assertEquals(0, skip.get());
+      // Within the misfire threshold
+      clock.set(LocalDateTime.of(2026, 1, 7, 6, 0, 30));
+      scheduler.runDue();
+      assertEquals(2, runOnce.get());
+      assertEquals(6, runAll.get());
+      assertEquals(1, skip.get());
+      // Clock moves backward, runs are not repeated
+      clock.set(LocalDateTime.of(2026, 1, 7, 5, 0));
+      scheduler.runDue();
+      clock.set(LocalDateTime.of(2026, 1, 7, 7, 0));
+      scheduler.runDue();
+      assertEquals(2, runOnce.get());
+      assertEquals(6, runAll.get());
+      assertEquals(1, skip.get());
+    }
+  }
+
+  @Test
+  public void testManyRegistrations() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 1, 0, 0));
+    AtomicInteger runs = new AtomicInteger();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      final int count = 2 * 86400;
+      for (int i = 0; i < count; i++) {
+        scheduler.schedule(Recurring.EVERYDAY, LocalDate.of(2026, 1, 1), LocalTime.ofSecondOfDay(i % 86400), runs::incrementAndGet);
+      }
+      assertEquals(count, scheduler.size());
+      clock.set(LocalDateTime.of(2026, 1, 1, 12, 0));
+      scheduler.runDue();
+      // Two for every second from 00:00:00 through 12:00:00
+      assertEquals(2 * (43200 + 1), runs.get());
+    }
+  }
+
+  @Test
+  public void testCancelManyRegistrations() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 1, 0, 0));
+    AtomicInteger runs = new AtomicInteger();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      final int count = 4 * 86400;
+      List<RecurringScheduler.Registration> registrations = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        registrations.add(scheduler.schedule(Recurring.EVERYDAY, LocalDate.of(2026, 1, 1), LocalTime.ofSecondOfDay(i % 86400), runs::incrementAndGet));
+      }
+      // Cancel three of every four, leaving one registration for every second of the day
+      for (int i = 0; i < count; i++) {
+        if (i >= 86400) {
+          assertTrue(registrations.get(i).cancel());
+          assertFalse(registrations.get(i).cancel());
+        }
+      }
+      assertEquals(86400, scheduler.size());
+      clock.set(LocalDateTime.of(2026, 1, 1, 12, 0));
+      scheduler.runDue();
+      // One for every second from 00:00:00 through 12:00:00
+      assertEquals(43200 + 1, runs.get());
+      assertEquals(86400, scheduler.size());
+      // Cancel the remaining, including those already run
+      for (int i = 0; i < 86400; i++) {
+        assertTrue(registrations.get(i).cancel());
+      }
+      assertEquals(0, scheduler.size());
+      assertEquals(-1, scheduler.runDue());
+      assertEquals(43200 + 1, runs.get());
+    }
+  }
+
+  /**
+   * Occurs every day until set to fail.
+   */
+  private static class FailingRecurring extends Recurring {
+
+    private volatile boolean fail;
+
+    @Override
+    public boolean equals(Object o) {
+      return o == this;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+
+    @Override
+    public String getRecurringDisplay() {
+      return "Failing";
+    }
+
+    @Override
+    public Iterator<Calendar> getScheduleIterator(Calendar from) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LocalDate nextOccurrence(LocalDate start, LocalDate from) {
+      if (fail) {
+        throw new IllegalStateException("Test failure");
+      }
+      return Recurring.EVERYDAY.nextOccurrence(start, from);
+    }
+  }
+
+  @Test
+  public void testFailingRecurring() {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 1, 12, 0));
+    AtomicInteger runs = new AtomicInteger();
+    FailingRecurring recurring = new FailingRecurring();
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock, RecurringScheduler.DEFAULT_MISFIRE_THRESHOLD, false)) {
+      RecurringScheduler.Registration failing = scheduler.schedule(
+          recurring,
+          LocalDate.of(2026, 1, 1),
+          LocalTime.of(6, 0),
+          DayDuration.ZERO_DAYS,
+          RecurringScheduler.MissedRuns.RUN_ALL,
+          null,
+          runs::incrementAndGet
+      );
+      RecurringScheduler.Registration registration = scheduler.schedule(Recurring.EVERYDAY, LocalDate.of(2026, 1, 1), LocalTime.of(6, 0), runs::incrementAndGet);
+      recurring.fail = true;
+      clock.set(LocalDateTime.of(2026, 1, 2, 7, 0));
+      scheduler.runDue();
+      // The failing registration is cancelled without running, the other still runs
+      assertEquals(1, runs.get());
+      assertNull(failing.getNextFireTime());
+      assertEquals(at(2026, 1, 3, 6, 0), registration.getNextFireTime());
+      assertEquals(1, scheduler.size());
+    }
+  }
+
+  /**
+   * Runs on the scheduler thread, with registrations added while the thread is waiting on an empty queue.
+   */
+  @Test(timeout = 30000)
+  public void testThread() throws InterruptedException {
+    TestClock clock = new TestClock(LocalDateTime.of(2026, 1, 1, 12, 0));
+    FailingRecurring recurring = new FailingRecurring();
+    CountDownLatch first = new CountDownLatch(1);
+    CountDownLatch second = new CountDownLatch(1);
+    try (RecurringScheduler scheduler = new RecurringScheduler(Runnable::run, clock)) {
+      // Give the thread time to start waiting
+      Thread.sleep(100);
+      scheduler.schedule(recurring, LocalDate.of(2026, 1, 1), LocalTime.of(12, 0, 1), () -> {
+        throw new IllegalStateException("Test failure");
+      });
+      scheduler.schedule(Recurring.EVERYDAY, LocalDate.of(2026, 1, 1), LocalTime.of(12, 0, 1), first::countDown);
+      scheduler.schedule(Recurring.EVERYDAY, LocalDate.of(2026, 1, 1), LocalTime.of(12, 0, 2), second::countDown);
+      recurring.fail = true;
+      clock.set(LocalDateTime.of(2026, 1, 1, 12, 0, 1));
+      // Much less than the maximum wait
+      assertTrue(first.await(RecurringScheduler.MAX_WAIT / 4, TimeUnit.MILLISECONDS));
+      clock.set(LocalDateTime.of(2026, 1, 1, 12, 0, 2));
+      // Still running after the failures
+      assertTrue(second.await(RecurringScheduler.MAX_WAIT / 4, TimeUnit.MILLISECONDS));
+      assertEquals(2, scheduler.size());
+    }
+  }
+}
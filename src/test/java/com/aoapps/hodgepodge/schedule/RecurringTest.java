@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2023  AO Industries, Inc.
+ * Copyright (C) 2023, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -23,15 +23,21 @@
 
 package com.aoapps.hodgepodge.schedule;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import com.aoapps.lang.util.CalendarUtils;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.EnumSet;
+import java.util.GregorianCalendar;
 import java.util.Iterator;
 import org.junit.Test;
 
@@ -400,4 +406,79 @@ public class RecurringTest {
     assertEquals(CalendarUtils.parseDate("2026-02-28"), schedule.next());
     assertEquals(CalendarUtils.parseDate("2028-02-29"), schedule.next());
   }
+
+  @Test
+  public void testParseCached() {
+    assertSame(Recurring.parse("every other Friday"), Recurring.parse("every other Friday"));
+  }
+
+  private static final String[] NEXT_OCCURRENCE_SCHEDULES = {
+      "everyday",
+      "weekdays",
+      "on Mondays, Wednesday, Sat",
+      "on Sunday",
+      "in Jan, March, December",
+      "in February",
+      "weekly",
+      "monthly",
+      "yearly",
+      "every 3 days",
+      "every other week",
+      "every 5 months",
+      "every 4 years",
+      "every third Thursday",
+      "every other February"
+  };
+
+  private static LocalDate toLocalDate(Calendar cal) {
+    return LocalDate.of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+  }
+
+  /**
+   * The occurrences must match the schedule iterator for every starting day.
+   */
+  @Test
+  public void testNextOccurrenceMatchesScheduleIterator() {
+    LocalDate firstStart = LocalDate.parse("2023-01-25");
+    for (String recurring : NEXT_OCCURRENCE_SCHEDULES) {
+      Recurring r = Recurring.parse(recurring);
+      for (int startOffset = 0; startOffset < 400; startOffset += 3) {
+        LocalDate start = firstStart.plusDays(startOffset);
+        Iterator<Calendar> schedule = r.getScheduleIterator(GregorianCalendar.from(start.atStartOfDay(ZoneId.systemDefault())));
+        LocalDate from = start.minusDays(10);
+        for (int i = 0; i < 20; i++) {
+          LocalDate expected = toLocalDate(schedule.next());
+          if (i == 0) {
+            assertEquals(recurring + " from " + start, expected, r.nextOccurrence(start));
+          }
+          while (!from.isAfter(expected)) {
+            assertEquals(recurring + " from " + start + " at " + from, expected, r.nextOccurrence(start, from));
+            assertEquals(recurring + " from " + start + " at " + from, from.equals(expected), r.matches(start, from));
+            from = from.plusDays(1 + (i % 5));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMatchesBeforeStart() {
+    assertFalse(Recurring.EVERYDAY.matches(LocalDate.parse("2024-02-29"), LocalDate.parse("2024-02-28")));
+    assertTrue(Recurring.EVERYDAY.matches(LocalDate.parse("2024-02-29"), LocalDate.parse("2024-02-29")));
+  }
+
+  @Test
+  public void testOccurrencesBetween() {
+    LocalDate start = LocalDate.parse("2024-01-31");
+    assertArrayEquals(
+        new long[] {
+            LocalDate.parse("2024-02-29").toEpochDay(),
+            LocalDate.parse("2024-03-31").toEpochDay(),
+            LocalDate.parse("2024-04-30").toEpochDay()
+        },
+        Recurring.MONTHLY.occurrencesBetween(start, LocalDate.parse("2024-02-01"), LocalDate.parse("2024-05-31")).toArray()
+    );
+    assertEquals(0, Recurring.MONTHLY.occurrencesBetween(start, LocalDate.parse("2024-02-01"), LocalDate.parse("2024-02-29")).count());
+    assertEquals(261, Recurring.WEEKDAYS.occurrencesBetween(LocalDate.parse("2025-01-01"), LocalDate.parse("2026-01-01")).count());
+  }
 }
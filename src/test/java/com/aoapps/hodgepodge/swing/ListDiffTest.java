@@ -0,0 +1,279 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.swing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class ListDiffTest extends TestCase {
+
+  public ListDiffTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(ListDiffTest.class);
+    return suite;
+  }
+
+  /**
+   * An element with a configurable hash code, to test elements with equal hashes that are not equal.
+   */
+  private static final class Element {
+
+    private final int value;
+    private final int hash;
+
+    private Element(int value, int hash) {
+      this.value = value;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return (obj instanceof Element) && ((Element) obj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return Integer.toString(value);
+    }
+  }
+
+  /**
+   * Applies the hunks from last to first, checking they are in ascending order and consistent
+   * with {@link ListDiff#isRemoved(int)} and {@link ListDiff#isInserted(int)}.
+   *
+   * @return  The number of elements removed and inserted
+   */
+  private static <E> int assertApplies(List<E> oldList, List<E> newList) {
+    ListDiff diff = new ListDiff(oldList, newList);
+    List<E> result = new ArrayList<>(oldList);
+    int edits = 0;
+    int lastOldEnd = -1;
+    int lastNewEnd = -1;
+    for (int hunk = 0; hunk < diff.getHunkCount(); hunk++) {
+      int oldStart = diff.getOldStart(hunk);
+      int oldEnd = diff.getOldEnd(hunk);
+      int newStart = diff.getNewStart(hunk);
+      int newEnd = diff.getNewEnd(hunk);
+      // Ascending, separated by at least one unchanged element
+      assertTrue(oldStart > lastOldEnd);
+      assertTrue(newStart > lastNewEnd);
+      assertEquals(oldStart - lastOldEnd, newStart - lastNewEnd);
+      assertTrue(oldEnd >= oldStart);
+      assertTrue(newEnd >= newStart);
+      assertTrue(oldEnd > oldStart || newEnd > newStart);
+      for (int i = oldStart; i < oldEnd; i++) {
+        assertTrue(diff.isRemoved(i));
+      }
+      for (int j = newStart; j < newEnd; j++) {
+        assertTrue(diff.isInserted(j));
+      }
+      edits += (oldEnd - oldStart) + (newEnd - newStart);
+      lastOldEnd = oldEnd;
+      lastNewEnd = newEnd;
+    }
+    assertTrue(lastOldEnd <= oldList.size());
+    assertEquals(oldList.size() - lastOldEnd, newList.size() - lastNewEnd);
+    for (int hunk = diff.getHunkCount() - 1; hunk >= 0; hunk--) {
+      int oldStart = diff.getOldStart(hunk);
+      result.subList(oldStart, diff.getOldEnd(hunk)).clear();
+      result.addAll(oldStart, newList.subList(diff.getNewStart(hunk), diff.getNewEnd(hunk)));
+    }
+    assertEquals(newList, result);
+    return edits;
+  }
+
+  /**
+   * Gets the minimum number of elements removed and inserted, from the longest common subsequence.
+   */
+  private static int getMinimumEdits(List<?> oldList, List<?> newList) {
+    int n = oldList.size();
+    int m = newList.size();
+    int[][] lcs = new int[n + 1][m + 1];
+    for (int i = n - 1; i >= 0; i--) {
+      for (int j = m - 1; j >= 0; j--) {
+        lcs[i][j] = oldList.get(i).equals(newList.get(j))
+            ? lcs[i + 1][j + 1] + 1
+            : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+      }
+    }
+    return n + m - 2 * lcs[0][0];
+  }
+
+  private static List<Element> randomList(Random random, int size, int values, int hashes) {
+    List<Element> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int value = random.nextInt(values);
+      list.add(new Element(value, value % hashes));
+    }
+    return list;
+  }
+
+  /**
+   * Changes the given fraction of elements of a copy of the list, by removing, inserting, or replacing.
+   */
+  private static List<Element> randomEdit(Random random, List<Element> list, double fraction, int values, int hashes) {
+    List<Element> edited = new ArrayList<>(list);
+    for (int edits = (int) (list.size() * fraction); edits > 0; edits--) {
+      int value = random.nextInt(values);
+      Element element = new Element(value, value % hashes);
+      switch (random.nextInt(3)) {
+        case 0:
+          if (!edited.isEmpty()) {
+            edited.remove(random.nextInt(edited.size()));
+          }
+          break;
+        case 1:
+          edited.add(random.nextInt(edited.size() + 1), element);
+          break;
+        default:
+          if (!edited.isEmpty()) {
+            edited.set(random.nextInt(edited.size()), element);
+          }
+      }
+    }
+    return edited;
+  }
+
+  public void testEmpty() {
+    assertEquals(0, new ListDiff(Collections.emptyList(), Collections.emptyList()).getHunkCount());
+    assertEquals(3, assertApplies(Collections.emptyList(), Arrays.asList("a", "b", "c")));
+    assertEquals(3, assertApplies(Arrays.asList("a", "b", "c"), Collections.emptyList()));
+  }
+
+  public void testUnchanged() {
+    List<String> list = Arrays.asList("a", "b", null, "a");
+    assertEquals(0, new ListDiff(list, new ArrayList<>(list)).getHunkCount());
+  }
+
+  public void testNulls() {
+    assertEquals(2, assertApplies(Arrays.asList("a", null, "b"), Arrays.asList(null, "a", null, "b", null)));
+  }
+
+  public void testReplaced() {
+    List<String> oldList = Arrays.asList("a", "b", "c");
+    List<String> newList = Arrays.asList("d", "e");
+    ListDiff diff = new ListDiff(oldList, newList);
+    assertEquals(1, diff.getHunkCount());
+    assertEquals(5, assertApplies(oldList, newList));
+  }
+
+  /**
+   * Small lists are well under the point where the search gives up, so the changes are minimal.
+   */
+  public void testMinimal() {
+    Random random = new Random(0);
+    for (int i = 0; i < 20000; i++) {
+      int values = 1 + random.nextInt(6);
+      int hashes = 1 + random.nextInt(values);
+      List<Element> oldList = randomList(random, random.nextInt(30), values, hashes);
+      List<Element> newList = random.nextBoolean()
+          ? randomList(random, random.nextInt(30), values, hashes)
+          : randomEdit(random, oldList, random.nextDouble(), values, hashes);
+      assertEquals(oldList + " -> " + newList, getMinimumEdits(oldList, newList), assertApplies(oldList, newList));
+    }
+  }
+
+  /**
+   * Large lists with many changes give up on the shortest edit path and split at the furthest point reached.
+   */
+  public void testLarge() {
+    Random random = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      int values = 1 + random.nextInt(random.nextBoolean() ? 10 : 100000);
+      int hashes = 1 + random.nextInt(values);
+      List<Element> oldList = randomList(random, random.nextInt(5000), values, hashes);
+      List<Element> newList = random.nextInt(4) == 0
+          ? randomList(random, random.nextInt(5000), values, hashes)
+          : randomEdit(random, oldList, random.nextDouble(), values, hashes);
+      assertApplies(oldList, newList);
+      assertApplies(newList, oldList);
+    }
+  }
+
+  /**
+   * Lists of very different lengths, where the paths run off the grid.
+   */
+  public void testLopsided() {
+    Random random = new Random(2);
+    for (int i = 0; i < 100; i++) {
+      int values = 1 + random.nextInt(4);
+      int hashes = 1 + random.nextInt(values);
+      List<Element> oldList = randomList(random, 1 + random.nextInt(20), values, hashes);
+      List<Element> newList = randomList(random, 1000 + random.nextInt(3000), values, hashes);
+      assertApplies(oldList, newList);
+      assertApplies(newList, oldList);
+    }
+  }
+
+  /**
+   * Moves blocks of the list, which needs more than the maximum number of steps.
+   */
+  public void testMoved() {
+    for (int size : new int[]{255, 256, 257, 300, 1000, 5000}) {
+      List<Element> oldList = new ArrayList<>();
+      List<Element> newList = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        oldList.add(new Element(0, 0));
+        newList.add(new Element(1, 0));
+      }
+      for (int i = 0; i < size; i++) {
+        oldList.add(new Element(1, 0));
+        newList.add(new Element(0, 0));
+      }
+      assertApplies(oldList, newList);
+      Collections.reverse(newList);
+      newList.add(new Element(2, 0));
+      assertApplies(oldList, newList);
+    }
+  }
+
+  /**
+   * All elements have the same hash, so are only told apart by equals.
+   */
+  public void testHashCollisions() {
+    Random random = new Random(3);
+    for (int i = 0; i < 1000; i++) {
+      List<Element> oldList = randomList(random, random.nextInt(600), 50, 1);
+      List<Element> newList = randomEdit(random, oldList, random.nextDouble(), 50, 1);
+      assertApplies(oldList, newList);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.swing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class SynchronizingComboBoxModelTest extends TestCase {
+
+  public SynchronizingComboBoxModelTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(SynchronizingComboBoxModelTest.class);
+    return suite;
+  }
+
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Records the interval events as strings.
+   */
+  private static final class EventRecorder implements ListDataListener {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+      events.add("+" + e.getIndex0() + "-" + e.getIndex1());
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+      events.add("-" + e.getIndex0() + "-" + e.getIndex1());
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+      // Selection changes
+    }
+  }
+
+  private static List<String> getElements(SynchronizingComboBoxModel<String> model) {
+    List<String> elements = new ArrayList<>();
+    for (int i = 0; i < model.getSize(); i++) {
+      elements.add(model.getElementAt(i));
+    }
+    return elements;
+  }
+
+  private static List<String> getElementsLater(SynchronizingComboBoxModel<String> model) throws Exception {
+    List<String> elements = new ArrayList<>();
+    SwingUtilities.invokeAndWait(() -> elements.addAll(getElements(model)));
+    return elements;
+  }
+
+  public void testSynchronize() throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      SynchronizingComboBoxModel<String> model = new SynchronizingComboBoxModel<>();
+      model.synchronize(Arrays.asList("a", "b", "c", "d"));
+      // Selects the first element like addElement
+      assertEquals("a", model.getSelectedItem());
+      model.setSelectedItem("d");
+      EventRecorder recorder = new EventRecorder();
+      model.addListDataListener(recorder);
+      model.synchronize(Arrays.asList("a", "b", "c", "d"));
+      assertEquals(Collections.emptyList(), recorder.events);
+      model.synchronize(Arrays.asList("a", "x", "y", "d", "e"));
+      assertEquals(Arrays.asList("a", "x", "y", "d", "e"), getElements(model));
+      // Removals are one event per element
+      assertEquals(Arrays.asList("+4-4", "-2-2", "-1-1", "+1-2"), recorder.events);
+      // Selection kept when not removed
+      assertEquals("d", model.getSelectedItem());
+    });
+  }
+
+  public void testConstantFirstRow() throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      SynchronizingComboBoxModel<String> model = new SynchronizingComboBoxModel<>("All");
+      model.synchronize(Arrays.asList("a", "b"));
+      assertEquals(Arrays.asList("All", "a", "b"), getElements(model));
+      assertEquals("All", model.getSelectedItem());
+      model.synchronize(Collections.emptyList());
+      assertEquals(Collections.singletonList("All"), getElements(model));
+    });
+  }
+
+  public void testSynchronizeExecutor() throws Exception {
+    SynchronizingComboBoxModel<String> model = new SynchronizingComboBoxModel<>();
+    List<String> list = new ArrayList<>(Arrays.asList("a", "b", "c"));
+    model.synchronize(list, executor).get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("a", "b", "c"), getElementsLater(model));
+    // Copied before returning
+    List<String> changed = new ArrayList<>(Arrays.asList("c", "b"));
+    CompletableFuture<Void> future = model.synchronize(changed, executor);
+    changed.clear();
+    future.get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("c", "b"), getElementsLater(model));
+  }
+
+  /**
+   * The changes found in the background are stale when the model is modified meanwhile, so are found again.
+   */
+  public void testModifiedWhileSynchronizing() throws Exception {
+    SynchronizingComboBoxModel<String> model = new SynchronizingComboBoxModel<>();
+    model.synchronize(Arrays.asList("a", "b", "c"), executor).get(10, TimeUnit.SECONDS);
+    model.synchronize(
+        Arrays.asList("a", "b", "c", "d"),
+        task -> executor.execute(() -> {
+          try {
+            // Applying the stale insert at index 3 would fail after this
+            SwingUtilities.invokeAndWait(() -> model.removeElementAt(0));
+          } catch (Exception e) {
+            throw new AssertionError(e);
+          }
+          task.run();
+        })
+    ).get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("a", "b", "c", "d"), getElementsLater(model));
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.swing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class SynchronizingListModelTest extends TestCase {
+
+  public SynchronizingListModelTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(SynchronizingListModelTest.class);
+    return suite;
+  }
+
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Records the events as strings.
+   */
+  private static final class EventRecorder implements ListDataListener {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+      events.add("+" + e.getIndex0() + "-" + e.getIndex1());
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+      events.add("-" + e.getIndex0() + "-" + e.getIndex1());
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+      events.add("~" + e.getIndex0() + "-" + e.getIndex1());
+    }
+  }
+
+  private static List<String> getElements(SynchronizingListModel<String> model) throws Exception {
+    List<String> elements = new ArrayList<>();
+    SwingUtilities.invokeAndWait(() -> {
+      for (int i = 0; i < model.getSize(); i++) {
+        elements.add(model.getElementAt(i));
+      }
+    });
+    return elements;
+  }
+
+  public void testSynchronize() throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      SynchronizingListModel<String> model = new SynchronizingListModel<>();
+      model.synchronize(Arrays.asList("a", "b", "c", "d"));
+      EventRecorder recorder = new EventRecorder();
+      model.addListDataListener(recorder);
+      model.synchronize(Arrays.asList("a", "b", "c", "d"));
+      assertEquals(Collections.emptyList(), recorder.events);
+      model.synchronize(Arrays.asList("a", "x", "y", "d", "e"));
+      assertEquals(Arrays.asList("a", "x", "y", "d", "e"), Collections.list(model.elements()));
+      // One event per range, from last to first
+      assertEquals(Arrays.asList("+4-4", "-1-2", "+1-2"), recorder.events);
+    });
+  }
+
+  public void testConstantFirstRow() throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      SynchronizingListModel<String> model = new SynchronizingListModel<>("All");
+      model.synchronize(Arrays.asList("a", "b"));
+      assertEquals(Arrays.asList("All", "a", "b"), Collections.list(model.elements()));
+      model.synchronize(Collections.emptyList());
+      assertEquals(Collections.singletonList("All"), Collections.list(model.elements()));
+    });
+  }
+
+  public void testSynchronizeExecutor() throws Exception {
+    SynchronizingListModel<String> model = new SynchronizingListModel<>("All");
+    List<String> list = new ArrayList<>(Arrays.asList("a", "b", "c"));
+    model.synchronize(list, executor).get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("All", "a", "b", "c"), getElements(model));
+    // Copied before returning
+    List<String> changed = new ArrayList<>(Arrays.asList("c", "b"));
+    CompletableFuture<Void> future = model.synchronize(changed, executor);
+    changed.clear();
+    future.get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("All", "c", "b"), getElements(model));
+  }
+
+  public void testSynchronizeExecutorFromEventDispatchThread() throws Exception {
+    SynchronizingListModel<String> model = new SynchronizingListModel<>();
+    AtomicReference<CompletableFuture<Void>> future = new AtomicReference<>();
+    SwingUtilities.invokeAndWait(() -> future.set(model.synchronize(Arrays.asList("a", "b"), executor)));
+    future.get().get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("a", "b"), getElements(model));
+  }
+
+  /**
+   * The changes found in the background are stale when the model is modified meanwhile, so are found again.
+   */
+  public void testModifiedWhileSynchronizing() throws Exception {
+    SynchronizingListModel<String> model = new SynchronizingListModel<>();
+    model.synchronize(Arrays.asList("a", "b", "c"), executor).get(10, TimeUnit.SECONDS);
+    model.synchronize(
+        Arrays.asList("a", "b", "c", "d"),
+        task -> executor.execute(() -> {
+          try {
+            // Applying the stale insert at index 3 would fail after this
+            SwingUtilities.invokeAndWait(() -> model.removeElementAt(0));
+          } catch (Exception e) {
+            throw new AssertionError(e);
+          }
+          task.run();
+        })
+    ).get(10, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("a", "b", "c", "d"), getElements(model));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests {@link Base64Coder} against {@link Base64}.
+ *
+ * @author  AO Industries, Inc.
+ */
+@SuppressWarnings("deprecation")
+public class Base64CoderTest extends TestCase {
+
+  public Base64CoderTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(Base64CoderTest.class);
+  }
+
+  public void testEncodeString() {
+    for (String value : new String[]{"", "a", "ab", "abc", "abcd", "héllo wörld €"}) {
+      assertEquals(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)), Base64Coder.encodeString(value));
+    }
+  }
+
+  public void testStreamingSameAsBase64() throws IOException {
+    Random random = new Random(0);
+    for (int i = 0; i < 2000; i++) {
+      byte[] value = new byte[random.nextInt(i < 1000 ? 20 : 10000)];
+      random.nextBytes(value);
+      String expected = Base64.getEncoder().encodeToString(value);
+      assertEquals(expected, new String(Base64Coder.encode(value)));
+      StringWriter encoded = new StringWriter();
+      try (OutputStream out = Base64Coder.newEncoder(encoded)) {
+        int pos = 0;
+        while (pos < value.length) {
+          int len = Math.min(value.length - pos, random.nextInt(i < 1000 ? 5 : 5000));
+          if (len == 1 && random.nextBoolean()) {
+            out.write(value[pos]);
+          } else {
+            out.write(value, pos, len);
+          }
+          pos += len;
+        }
+      }
+      assertEquals(expected, encoded.toString());
+      ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+      try (InputStream in = Base64Coder.newDecoder(new StringReader(expected))) {
+        byte[] buf = new byte[7];
+        int count;
+        while ((count = in.read(buf, 0, 1 + random.nextInt(buf.length))) != -1) {
+          decoded.write(buf, 0, count);
+        }
+      }
+      assertTrue(Arrays.equals(value, decoded.toByteArray()));
+    }
+  }
+
+  /**
+   * Writes each byte to a writer as one character, as needed to feed {@link Base64.Encoder#wrap(java.io.OutputStream)}
+   * into a writer.
+   */
+  private static class Latin1OutputStream extends OutputStream {
+
+    private final Writer out;
+    private final char[] buff = new char[4096];
+
+    private Latin1OutputStream(Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b & 0xff);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        int blockLen = Math.min(len, buff.length);
+        for (int i = 0; i < blockLen; i++) {
+          buff[i] = (char) (b[off + i] & 0xff);
+        }
+        out.write(buff, 0, blockLen);
+        off += blockLen;
+        len -= blockLen;
+      }
+    }
+  }
+
+  /**
+   * Times encoding against {@link Base64.Encoder#encodeToString(byte[])} and streaming against
+   * {@link Base64.Encoder#wrap(java.io.OutputStream)} feeding a writer.
+   */
+  public void testPerformance() throws IOException {
+    final int numBytes = 8 << 20;
+    final int chunkSize = 8192;
+    byte[] value = new byte[numBytes];
+    new Random(0).nextBytes(value);
+    System.out.println("Base64Coder vs Base64 encoding " + numBytes + " bytes");
+    for (int repeat = 0; repeat < 3; repeat++) {
+      long startNanos = System.nanoTime();
+      String expected = Base64.getEncoder().encodeToString(value);
+      long jdkNanos = System.nanoTime() - startNanos;
+      startNanos = System.nanoTime();
+      char[] encoded = Base64Coder.encode(value);
+      long coderNanos = System.nanoTime() - startNanos;
+      assertEquals(expected, new String(encoded));
+      System.out.println(
+          "    encodeToString in " + BigDecimal.valueOf(jdkNanos / 1000, 3) + " ms, encode in "
+              + BigDecimal.valueOf(coderNanos / 1000, 3) + " ms ("
+              + ((float) ((double) jdkNanos / (double) coderNanos)) + ')'
+      );
+
+      StringWriter jdkOut = new StringWriter(expected.length());
+      startNanos = System.nanoTime();
+      try (OutputStream out = Base64.getEncoder().wrap(new Latin1OutputStream(jdkOut))) {
+        for (int pos = 0; pos < numBytes; pos += chunkSize) {
+          out.write(value, pos, Math.min(chunkSize, numBytes - pos));
+        }
+      }
+      jdkNanos = System.nanoTime() - startNanos;
+      assertEquals(expected, jdkOut.toString());
+      StringWriter coderOut = new StringWriter(expected.length());
+      startNanos = System.nanoTime();
+      try (OutputStream out = Base64Coder.newEncoder(coderOut)) {
+        for (int pos = 0; pos < numBytes; pos += chunkSize) {
+          out.write(value, pos, Math.min(chunkSize, numBytes - pos));
+        }
+      }
+      coderNanos = System.nanoTime() - startNanos;
+      assertEquals(expected, coderOut.toString());
+      System.out.println(
+          "    wrap in " + BigDecimal.valueOf(jdkNanos / 1000, 3) + " ms, newEncoder in "
+              + BigDecimal.valueOf(coderNanos / 1000, 3) + " ms ("
+              + ((float) ((double) jdkNanos / (double) coderNanos)) + ')'
+      );
+    }
+  }
+
+  public void testDecodeInvalid() {
+    for (String invalid : new String[]{"abc", "ab=c", "ab==abcd", "ab*d"}) {
+      try (InputStream in = Base64Coder.newDecoder(new StringReader(invalid))) {
+        while (in.read() != -1) {
+          // Skip
+        }
+        fail("IOException expected: " + invalid);
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class DiffablePropertiesWriterTest extends TestCase {
+
+  public DiffablePropertiesWriterTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(DiffablePropertiesWriterTest.class);
+    return suite;
+  }
+
+  public void testFormatProperties() {
+    assertEquals("a=b\n", DiffableProperties.formatProperties("a=b\r\n"));
+    assertEquals("a=\\u00e9\\u00ff\n", DiffableProperties.formatProperties("a=\\u00E9\\u00fF\n"));
+    assertEquals("a=one\\n\\\ntwo\n", DiffableProperties.formatProperties("a=one\\ntwo\n"));
+    assertEquals("a=one\\n\\\n\\ two\n", DiffableProperties.formatProperties("a=one\\n two\n"));
+    assertEquals("a=one\\n\\\ntwo\n", DiffableProperties.formatProperties("a=one\\n\\\ntwo\n"));
+    assertEquals("a=one\\n\n", DiffableProperties.formatProperties("a=one\\n\n"));
+    assertEquals("# comment\\ntwo \\U00E9\n", DiffableProperties.formatProperties("# comment\\ntwo \\U00E9\n"));
+    assertEquals("a=\\", DiffableProperties.formatProperties("a=\\"));
+    assertEquals("a=\\u00e", DiffableProperties.formatProperties("a=\\u00e"));
+  }
+
+  /**
+   * Writes in random sized pieces, which must give the same result as formatting all at once.
+   */
+  public void testRandomWrites() throws IOException {
+    final String chars = "\\\\nnuU0aF9#\r\n \t\fx=";
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder sb = new StringBuilder();
+      for (int len = random.nextInt(30); len > 0; len--) {
+        sb.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      String properties = sb.toString();
+      String expected = DiffableProperties.formatProperties(properties);
+      StringWriter out = new StringWriter();
+      try (DiffablePropertiesWriter formatter = new DiffablePropertiesWriter(out)) {
+        int pos = 0;
+        while (pos < properties.length()) {
+          int count = Math.min(properties.length() - pos, random.nextInt(8));
+          if (random.nextBoolean()) {
+            formatter.write(properties, pos, count);
+          } else {
+            for (int j = 0; j < count; j++) {
+              formatter.write(properties.charAt(pos + j));
+            }
+          }
+          pos += count;
+          if (random.nextInt(4) == 0) {
+            formatter.flush();
+          }
+        }
+      }
+      assertEquals(properties, expected, out.toString());
+    }
+  }
+
+  public void testLarge() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append("key").append(i).append("=Line\\none \\u00E9\\nthree\r\n");
+    }
+    String properties = sb.toString();
+    StringWriter out = new StringWriter();
+    DiffableProperties.formatProperties(new StringReader(properties), out);
+    assertEquals(DiffableProperties.formatProperties(properties), out.toString());
+    assertTrue(out.toString().startsWith("key0=Line\\n\\\none \\u00e9\\n\\\nthree\nkey1="));
+  }
+}
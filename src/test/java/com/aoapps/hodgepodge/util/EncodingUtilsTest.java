@@ -0,0 +1,150 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+@SuppressWarnings("deprecation")
+public class EncodingUtilsTest extends TestCase {
+
+  public EncodingUtilsTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(EncodingUtilsTest.class);
+    return suite;
+  }
+
+  /**
+   * Escapes one character at a time.
+   */
+  private static String encodeHtmlReference(String value, boolean makeBr, boolean makeNbsp, boolean isXhtml) throws IOException {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < value.length(); i++) {
+      EncodingUtils.encodeHtml(value.charAt(i), makeBr, makeNbsp, result, isXhtml);
+    }
+    return result.toString();
+  }
+
+  public void testEncodeHtml() throws IOException {
+    assertEquals("a&lt;b&gt;&amp;c&#160;d&#x9;e<br />\nf", EncodingUtils.encodeHtml("a<b>&c d\te\r\nf\u0001", true));
+    assertEquals("a&lt;b&gt;&amp;c&#160;d&#x9;e<br>\nf", EncodingUtils.encodeHtml("a<b>&c d\te\r\nf\u0001", false));
+    assertEquals("a b\n", EncodingUtils.encodeHtml("a b\n", false, false, true));
+    assertNull(EncodingUtils.encodeHtml(null, true));
+  }
+
+  public void testNothingToEscapeReturnsSame() throws IOException {
+    String value = "Nothing_to.escape-here";
+    assertSame(value, EncodingUtils.encodeHtml(value, true));
+    String spaces = "Spaces and\nnewlines";
+    assertSame(spaces, EncodingUtils.encodeHtml(spaces, false, false, true));
+  }
+
+  /**
+   * Times the table-driven encoding against per-character encoding for ASCII, mixed, and escape-heavy text.
+   */
+  public void testPerformance() throws IOException {
+    final int length = 1 << 20;
+    String[] names = {"ASCII", "mixed", "escape-heavy"};
+    String[] alphabets = {
+        "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.,;",
+        "abcdefghijklmnopqrstuvwxyz éèàçüö中文日本語 .,;\n<&",
+        "<>&\"' \t\r\nab"
+    };
+    Random random = new Random(0);
+    System.out.println("Table-driven vs per-character encodeHtml of " + length + " characters");
+    for (int i = 0; i < alphabets.length; i++) {
+      String alphabet = alphabets[i];
+      char[] chars = new char[length];
+      for (int j = 0; j < length; j++) {
+        chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+      }
+      String value = new String(chars);
+      for (int repeat = 0; repeat < 3; repeat++) {
+        long startNanos = System.nanoTime();
+        String expected = encodeHtmlReference(value, true, false, true);
+        long referenceNanos = System.nanoTime() - startNanos;
+        StringBuilder sb = new StringBuilder(expected.length());
+        startNanos = System.nanoTime();
+        EncodingUtils.encodeHtml(value, 0, length, true, false, sb, true);
+        long tableNanos = System.nanoTime() - startNanos;
+        assertEquals(expected, sb.toString());
+        System.out.println(
+            "    " + names[i] + ": per-character in " + BigDecimal.valueOf(referenceNanos / 1000, 3) + " ms, table-driven in "
+                + BigDecimal.valueOf(tableNanos / 1000, 3) + " ms ("
+                + ((float) ((double) referenceNanos / (double) tableNanos)) + ')'
+        );
+      }
+    }
+  }
+
+  /**
+   * Compares ASCII, mixed, and escape-heavy text, through each output path.
+   */
+  public void testSameAsReference() throws IOException {
+    Random random = new Random(0);
+    String[] alphabets = {
+        "abcdefghijklmnopqrstuvwxyz0123456789.,;",
+        "abc \né中<&",
+        "<>& \t\r\n\u0000\u001f"
+    };
+    for (int i = 0; i < 3000; i++) {
+      String alphabet = alphabets[i % alphabets.length];
+      char[] chars = new char[random.nextInt(40)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+      }
+      String value = new String(chars);
+      int start = value.isEmpty() ? 0 : random.nextInt(value.length());
+      int end = start + random.nextInt(value.length() - start + 1);
+      boolean makeBr = random.nextBoolean();
+      boolean makeNbsp = random.nextBoolean();
+      boolean isXhtml = random.nextBoolean();
+      String expected = encodeHtmlReference(value.substring(start, end), makeBr, makeNbsp, isXhtml);
+      StringBuilder sb = new StringBuilder();
+      EncodingUtils.encodeHtml(new StringBuilder(value), start, end, makeBr, makeNbsp, sb, isXhtml);
+      assertEquals(expected, sb.toString());
+      StringWriter stringOut = new StringWriter();
+      EncodingUtils.encodeHtml(value, start, end, makeBr, makeNbsp, stringOut, isXhtml);
+      assertEquals(expected, stringOut.toString());
+      StringWriter charsOut = new StringWriter();
+      EncodingUtils.encodeHtml(chars, start, end, makeBr, makeNbsp, charsOut, isXhtml);
+      assertEquals(expected, charsOut.toString());
+      assertEquals(
+          encodeHtmlReference(value, makeBr, makeNbsp, isXhtml),
+          EncodingUtils.encodeHtml(value, makeBr, makeNbsp, isXhtml)
+      );
+    }
+  }
+}
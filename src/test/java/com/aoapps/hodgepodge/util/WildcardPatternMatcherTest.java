@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2017, 2018, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2017, 2018, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,6 +24,10 @@
 package com.aoapps.hodgepodge.util;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -283,6 +287,90 @@ public class WildcardPatternMatcherTest extends TestCase {
     );
   }
 
+  public void testInfixesNoOverlap() {
+    for (WildcardPatternMatcher matcher : new WildcardPatternMatcher[]{
+        WildcardPatternMatcher.compile("*ab*ab*"),
+        WildcardPatternMatcher.compileAutomaton("*ab*ab*")
+    }) {
+      assertFalse(matcher.isMatch("xxab"));
+      assertTrue(matcher.isMatch("xxabab"));
+      assertFalse(matcher.isMatch("xxaba"));
+    }
+  }
+
+  public void testAutomatonMatchAll() {
+    WildcardPatternMatcher matcher = WildcardPatternMatcher.compileAutomaton("/exact, /prefix/*, *.suffix, *infix*, /a/*/b/*.c");
+    assertEquals(
+        Arrays.asList("/exact", "/prefix/page", "/page.suffix", "/the/infix/page", "/a/x/b/y.c"),
+        matcher.matchAll(Arrays.asList(
+            "/exact", "/exact/", "/prefix/page", "/prefix", "/page.suffix", "/page.suffix/",
+            "/the/infix/page", "/the/in/fix", "/a/x/b/y.c", "/a/b/y.c"
+        ))
+    );
+  }
+
+  /**
+   * Benchmarks {@link WildcardPatternMatcher#compileAutomaton(java.lang.String)} against
+   * {@link WildcardPatternMatcher#compile(java.lang.String)} for a large number of patterns.
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  public void testAutomatonPerformance() {
+    final int numPatterns = 5000;
+    final int numInputs = 10000;
+    Random random = new Random(0);
+    StringBuilder patterns = new StringBuilder();
+    for (int i = 0; i < numPatterns; i++) {
+      if (i > 0) {
+        patterns.append(", ");
+      }
+      switch (i % 5) {
+        case 0:
+          patterns.append("/exact/").append(random.nextInt(numPatterns));
+          break;
+        case 1:
+          patterns.append("/prefix/").append(random.nextInt(numPatterns)).append("/*");
+          break;
+        case 2:
+          patterns.append("*.suffix").append(random.nextInt(numPatterns));
+          break;
+        case 3:
+          patterns.append("*/infix").append(random.nextInt(numPatterns)).append("/*");
+          break;
+        default:
+          patterns.append("/prefix/*/infix").append(random.nextInt(numPatterns)).append("/*.suffix");
+          break;
+      }
+    }
+    List<String> inputs = new ArrayList<>(numInputs);
+    for (int i = 0; i < numInputs; i++) {
+      inputs.add(
+          "/prefix/" + random.nextInt(numPatterns * 2)
+              + "/infix" + random.nextInt(numPatterns * 2)
+              + "/page.suffix" + random.nextInt(numPatterns * 2)
+      );
+    }
+    System.out.println("Automaton vs list of " + numPatterns + " patterns, " + numInputs + " inputs");
+    long startNanos = System.nanoTime();
+    WildcardPatternMatcher listMatcher = WildcardPatternMatcher.compile(patterns.toString());
+    long timeNanos = System.nanoTime() - startNanos;
+    System.out.println("    Created list      in " + BigDecimal.valueOf(timeNanos / 1000, 3) + " ms");
+    startNanos = System.nanoTime();
+    WildcardPatternMatcher automatonMatcher = WildcardPatternMatcher.compileAutomaton(patterns.toString());
+    timeNanos = System.nanoTime() - startNanos;
+    System.out.println("    Created automaton in " + BigDecimal.valueOf(timeNanos / 1000, 3) + " ms");
+    for (int repeat = 0; repeat < 3; repeat++) {
+      startNanos = System.nanoTime();
+      List<String> listMatches = listMatcher.matchAll(inputs);
+      long listTimeNanos = System.nanoTime() - startNanos;
+      System.out.println("    Uses of list      in " + BigDecimal.valueOf(listTimeNanos / 1000, 3) + " ms");
+      startNanos = System.nanoTime();
+      List<String> automatonMatches = automatonMatcher.matchAll(inputs);
+      timeNanos = System.nanoTime() - startNanos;
+      System.out.println("    Uses of automaton in " + BigDecimal.valueOf(timeNanos / 1000, 3) + " ms (" + ((float) ((double) listTimeNanos / (double) timeNanos)) + ')');
+      assertEquals(listMatches, automatonMatches);
+    }
+  }
+
   /*
    * This crafted string is indeed slow in regex, so slow that I'll leave this
    * test commented-out.
@@ -0,0 +1,123 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.version;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class PropertiesVersionsTest extends TestCase {
+
+  public PropertiesVersionsTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(PropertiesVersionsTest.class);
+  }
+
+  private static PropertiesVersions load(String properties) throws IOException {
+    return new PropertiesVersions(new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+  }
+
+  private static void assertInvalid(PropertiesVersions versions, String product) {
+    try {
+      versions.getVersion(product);
+      fail("IllegalArgumentException expected: " + product);
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  public void testGetVersion() throws IOException {
+    PropertiesVersions versions = load("build.number=42\nproduct1=1.2.3\nproduct2=0.0.1\n");
+    assertEquals(42, versions.getBuild());
+    assertEquals(Version.getInstance(1, 2, 3, 42), versions.getVersion("product1"));
+    assertEquals(Version.getInstance(0, 0, 1, 42), versions.getVersion("product2"));
+    // Parsed once
+    assertSame(versions.getVersion("product1"), versions.getVersion("product1"));
+    Map<String, Version> map = versions.getVersions();
+    assertEquals(2, map.size());
+    assertSame(versions.getVersion("product1"), map.get("product1"));
+    try {
+      map.put("product3", Version.getInstance(1, 0, 0, 0));
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Invalid and missing products are left out of the versions, while still throwing from getVersion.
+   */
+  public void testInvalid() throws IOException {
+    PropertiesVersions versions = load("build.number=42\ngood=1.2.3\ntwo=1.2\nfour=1.2.3.4\nletters=a.b.c\n");
+    assertEquals(1, versions.getVersions().size());
+    assertEquals(Version.getInstance(1, 2, 3, 42), versions.getVersion("good"));
+    assertInvalid(versions, "two");
+    assertInvalid(versions, "four");
+    assertInvalid(versions, "letters");
+    assertInvalid(versions, "missing");
+  }
+
+  public void testBuildNumberMissing() throws IOException {
+    PropertiesVersions versions = load("product1=1.2.3\n");
+    assertTrue(versions.getVersions().isEmpty());
+    assertInvalid(versions, "product1");
+    assertInvalid(versions, "missing");
+    try {
+      versions.getBuild();
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  public void testBuildNumberInvalid() throws IOException {
+    PropertiesVersions versions = load("build.number=x\nproduct1=1.2.3\n");
+    assertTrue(versions.getVersions().isEmpty());
+    assertInvalid(versions, "product1");
+  }
+
+  /**
+   * Products added to the properties later are still found.
+   */
+  public void testAddedLater() {
+    Properties props = new Properties();
+    props.setProperty("build.number", "7");
+    PropertiesVersions versions = new PropertiesVersions(props);
+    assertInvalid(versions, "product1");
+    props.setProperty("product1", "2.0.0");
+    assertEquals(Version.getInstance(2, 0, 0, 7), versions.getVersion("product1"));
+    assertTrue(versions.getVersions().isEmpty());
+  }
+}
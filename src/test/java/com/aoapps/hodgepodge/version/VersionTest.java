@@ -0,0 +1,182 @@
+/*
+ * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-hodgepodge.
+ *
+ * ao-hodgepodge is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-hodgepodge is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-hodgepodge.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.hodgepodge.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author  AO Industries, Inc.
+ */
+public class VersionTest extends TestCase {
+
+  public VersionTest(String testName) {
+    super(testName);
+  }
+
+  public static Test suite() {
+    return new TestSuite(VersionTest.class);
+  }
+
+  /**
+   * Component values on each side of the packed range.
+   */
+  private static final int[] BOUNDARY_VALUES = {
+      Integer.MIN_VALUE, -1, 0, 1, 32767, 32768, 65535, 65536, Integer.MAX_VALUE
+  };
+
+  /**
+   * Compares each component in turn, without packing.
+   */
+  private static int referenceCompare(Version v1, Version v2) {
+    int diff = Integer.compare(v1.getMajor(), v2.getMajor());
+    if (diff == 0) {
+      diff = Integer.compare(v1.getMinor(), v2.getMinor());
+      if (diff == 0) {
+        diff = Integer.compare(v1.getRelease(), v2.getRelease());
+        if (diff == 0) {
+          diff = Integer.compare(v1.getBuild(), v2.getBuild());
+        }
+      }
+    }
+    return diff;
+  }
+
+  private static void assertOrder(Version lower, Version higher) {
+    assertTrue(lower + " < " + higher, lower.compareTo(higher) < 0);
+    assertTrue(higher + " > " + lower, higher.compareTo(lower) > 0);
+    assertFalse(lower.equals(higher));
+  }
+
+  public void testPackedBoundary() {
+    assertOrder(Version.getInstance(32767, 65535, 65535, 65535), Version.getInstance(32768, 0, 0, 0));
+    assertOrder(Version.getInstance(32767, 0, 0, 0), Version.getInstance(32768, 0, 0, 0));
+    assertOrder(Version.getInstance(1, 65535, 65535, 65535), Version.getInstance(1, 65536, 0, 0));
+    assertOrder(Version.getInstance(1, 2, 3, 65535), Version.getInstance(1, 2, 3, 65536));
+    assertOrder(Version.getInstance(1, 2, 3, Integer.MAX_VALUE), Version.getInstance(1, 2, 4, 0));
+  }
+
+  public void testNegative() {
+    assertOrder(Version.getInstance(-1, 0, 0, 0), Version.getInstance(0, 0, 0, 0));
+    assertOrder(Version.getInstance(0, 0, 0, -1), Version.getInstance(0, 0, 0, 0));
+    assertOrder(Version.getInstance(Integer.MIN_VALUE, 0, 0, 0), Version.getInstance(-1, 65535, 65535, 65535));
+    assertOrder(Version.getInstance(1, -5, 0, 0), Version.getInstance(1, 0, 0, 0));
+  }
+
+  /**
+   * Ordering, equals, and hashCode agree with comparing each component, on both sides of the packed range.
+   */
+  public void testConsistentWithComponents() {
+    Random random = new Random(0);
+    List<Version> versions = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      versions.add(Version.getInstance(
+          BOUNDARY_VALUES[random.nextInt(BOUNDARY_VALUES.length)],
+          BOUNDARY_VALUES[random.nextInt(BOUNDARY_VALUES.length)],
+          BOUNDARY_VALUES[random.nextInt(BOUNDARY_VALUES.length)],
+          BOUNDARY_VALUES[random.nextInt(BOUNDARY_VALUES.length)]
+      ));
+    }
+    for (Version v1 : versions) {
+      Version copy = Version.getInstance(v1.getMajor(), v1.getMinor(), v1.getRelease(), v1.getBuild());
+      assertEquals(v1, copy);
+      assertEquals(v1.hashCode(), copy.hashCode());
+      assertEquals(0, v1.compareTo(copy));
+      for (Version v2 : versions) {
+        int expected = Integer.signum(referenceCompare(v1, v2));
+        assertEquals(v1 + " <=> " + v2, expected, Integer.signum(v1.compareTo(v2)));
+        assertEquals(v1 + " equals " + v2, expected == 0, v1.equals(v2));
+        if (expected == 0) {
+          assertEquals(v1.hashCode(), v2.hashCode());
+        }
+      }
+    }
+  }
+
+  public void testEqualsOther() {
+    Version version = Version.getInstance(1, 2, 3, 4);
+    assertFalse(version.equals(null));
+    assertFalse(version.equals("1.2.3.4"));
+    Version unpacked = Version.getInstance(1, 2, 3, -4);
+    assertFalse(unpacked.equals(null));
+    assertFalse(unpacked.equals(version));
+    assertFalse(version.equals(unpacked));
+  }
+
+  public void testValueOf() {
+    for (int major : BOUNDARY_VALUES) {
+      for (int build : BOUNDARY_VALUES) {
+        Version version = Version.getInstance(major, 7, 0, build);
+        Version parsed = Version.valueOf(version.toString());
+        assertEquals(version, parsed);
+        assertEquals(major, parsed.getMajor());
+        assertEquals(7, parsed.getMinor());
+        assertEquals(0, parsed.getRelease());
+        assertEquals(build, parsed.getBuild());
+      }
+    }
+  }
+
+  public void testValueOfInvalid() {
+    for (String invalid : new String[]{"", "1", "1.2", "1.2.3", "1.2.3.", "1.2.3.4.5", "a.b.c.d", "1..3.4", "1.2.3.99999999999"}) {
+      try {
+        Version.valueOf(invalid);
+        fail("IllegalArgumentException expected: " + invalid);
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+    try {
+      Version.valueOf(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * The same instance is returned for a recently parsed string, and an equal instance once the cache is cleared.
+   */
+  public void testValueOfCache() {
+    String string = "3.1.4.15926";
+    Version cached = Version.valueOf(string);
+    assertSame(cached, Version.valueOf(string));
+    assertSame(cached, Version.valueOf(new String(string)));
+    // Fill the cache until cleared
+    boolean cleared = false;
+    for (int i = 0; i < 10000 && !cleared; i++) {
+      Version.valueOf("0.0.0." + i);
+      Version again = Version.valueOf(string);
+      if (again != cached) {
+        assertEquals(cached, again);
+        cleared = true;
+      }
+    }
+    assertTrue(cleared);
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-hodgepodge - Reusable Java library of general tools with minimal external dependencies.
- * Copyright (C) 2010, 2011, 2016, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2010, 2011, 2016, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -24,6 +24,11 @@
 package com.aoapps.hodgepodge.ws;
 
 import com.aoapps.lang.io.IoUtils;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.security.SecureRandom;
 import java.util.Random;
 import junit.framework.Test;
@@ -63,4 +68,58 @@ public class WsEncoderTest extends TestCase {
       assertEquals(value, decoded);
     }
   }
+
+  /**
+   * Random text with many characters that are encoded, and many partial escape sequences.
+   */
+  private static String randomEncodingText(int len) {
+    String alphabet = "\\uUbBfFtT0aF9g\u0000\u0008\n\r\u001f\u00e9";
+    StringBuilder sb = new StringBuilder(len);
+    for (int i = 0; i < len; i++) {
+      sb.append(alphabet.charAt(fastRandom.nextInt(alphabet.length())));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reads in random sized reads.
+   */
+  private static String readRandom(Reader in) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buf = new char[7];
+    int count;
+    while ((count = in.read(buf, 0, 1 + fastRandom.nextInt(buf.length))) != -1) {
+      sb.append(buf, 0, count);
+    }
+    return sb.toString();
+  }
+
+  public void testStreamingSameAsString() throws IOException {
+    for (int c = 0; c < 2000; c++) {
+      String value = randomEncodingText(fastRandom.nextInt(50));
+      StringWriter encoded = new StringWriter();
+      try (Writer out = WsEncoder.newEncoder(encoded)) {
+        int pos = 0;
+        while (pos < value.length()) {
+          int len = Math.min(value.length() - pos, fastRandom.nextInt(5));
+          out.write(value, pos, len);
+          pos += len;
+        }
+      }
+      assertEquals(WsEncoder.encode(value), encoded.toString());
+      // Decodes arbitrary text, including malformed escapes, the same as decode(String)
+      assertEquals(value, WsEncoder.decode(value), readRandom(WsEncoder.newDecoder(new StringReader(value))));
+      assertEquals(value, readRandom(WsEncoder.newDecoder(new StringReader(encoded.toString()))));
+    }
+  }
+
+  public void testStreamingLarge() throws IOException {
+    String value = randomEncodingText(100000);
+    StringWriter encoded = new StringWriter();
+    try (Writer out = WsEncoder.newEncoder(encoded)) {
+      out.write(value);
+    }
+    assertEquals(WsEncoder.encode(value), encoded.toString());
+    assertEquals(value, readRandom(WsEncoder.newDecoder(new StringReader(encoded.toString()))));
+  }
 }